@@ -40,6 +40,7 @@
 import com.xpn.xwiki.plugin.activitystream.api.ActivityEvent;
 import com.xpn.xwiki.plugin.activitystream.api.ActivityStreamException;
 import com.xpn.xwiki.plugin.activitystream.impl.ActivityStreamConfiguration;
+import com.xpn.xwiki.plugin.activitystream.internal.ActivityEventWriter;
 import com.xpn.xwiki.plugin.activitystream.plugin.ActivityStreamPlugin;
 
 /**
@@ -69,6 +70,9 @@ public class BridgeEventStream implements EventStream
     @Inject
     private WikiDescriptorManager wikiDescriptorManager;
 
+    @Inject
+    private ActivityEventWriter activityEventWriter;
+
     @Override
     public void addEvent(Event e)
     {
@@ -126,6 +130,9 @@ public List<Event> searchEvents(Query query) throws QueryException
             q.setWiki(wikiDescriptorManager.getMainWikiId());
         }
 
+        // Make sure the events waiting to be stored in the searched database are taken into account
+        this.activityEventWriter.flush(q.getWiki() != null ? q.getWiki() : wikiDescriptorManager.getCurrentWikiId());
+
         List<ActivityEvent> events = q.execute();
         return convertActivitiesToEvents(events);
     }
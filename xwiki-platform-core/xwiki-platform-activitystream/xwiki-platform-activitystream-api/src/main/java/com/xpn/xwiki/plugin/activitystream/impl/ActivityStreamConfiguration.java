@@ -20,10 +20,12 @@
 package com.xpn.xwiki.plugin.activitystream.impl;
 
 import javax.inject.Inject;
+import javax.inject.Named;
 import javax.inject.Provider;
 import javax.inject.Singleton;
 
 import org.xwiki.component.annotation.Component;
+import org.xwiki.configuration.ConfigurationSource;
 
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.plugin.activitystream.plugin.ActivityStreamPlugin;
@@ -38,9 +40,15 @@
 @Singleton
 public class ActivityStreamConfiguration
 {
+    private static final String PREFIX = "xwiki.plugin.activitystream.";
+
     @Inject
     private Provider<XWikiContext> contextProvider;
 
+    @Inject
+    @Named("xwikicfg")
+    private ConfigurationSource xwikiCfg;
+
     /**
      * This method determine if events must be store in the local wiki. If the activitystream is set not to store events
      * in the main wiki, the method will return true. If events are stored in the main wiki, the method retrieves the
@@ -83,4 +91,36 @@ public boolean useMainStore()
                 (ActivityStreamPlugin) context.getWiki().getPlugin(ActivityStreamPlugin.PLUGIN_NAME, context);
         return Integer.parseInt(plugin.getActivityStreamPreference("usemainstore", "1", context)) == 1;
     }
+
+    /**
+     * When enabled, the {@link org.xwiki.eventstream.events.EventStreamAddedEvent} is sent by the background thread,
+     * outside of the context of the request which produced the event.
+     *
+     * @return true if the events should be queued and written to the database by a background thread, false (the
+     *         default) if they should be written synchronously by the thread adding them
+     * @since 11.0RC1
+     */
+    public boolean isAsyncStorageEnabled()
+    {
+        return this.xwikiCfg.getProperty(PREFIX + "asyncstorage", 0) == 1;
+    }
+
+    /**
+     * @return the maximum number of events written to the database in a single transaction by the background thread
+     * @since 11.0RC1
+     */
+    public int getStorageBatchSize()
+    {
+        return this.xwikiCfg.getProperty(PREFIX + "storage.batchsize", 100);
+    }
+
+    /**
+     * @return the maximum number of events waiting to be written to the database, after which adding an event blocks
+     *         until the background thread catches up
+     * @since 11.0RC1
+     */
+    public int getStorageQueueSize()
+    {
+        return this.xwikiCfg.getProperty(PREFIX + "storage.queuesize", 1000);
+    }
 }
@@ -42,7 +42,6 @@
 import org.xwiki.configuration.ConfigurationSource;
 import org.xwiki.context.Execution;
 import org.xwiki.eventstream.events.AbstractEventStreamEvent;
-import org.xwiki.eventstream.events.EventStreamAddedEvent;
 import org.xwiki.eventstream.events.EventStreamDeletedEvent;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.EntityReferenceSerializer;
@@ -74,6 +73,7 @@
 import com.xpn.xwiki.plugin.activitystream.api.ActivityStream;
 import com.xpn.xwiki.plugin.activitystream.api.ActivityStreamException;
 import com.xpn.xwiki.plugin.activitystream.eventstreambridge.EventConverter;
+import com.xpn.xwiki.plugin.activitystream.internal.ActivityEventWriter;
 import com.xpn.xwiki.store.XWikiHibernateStore;
 import com.xpn.xwiki.web.Utils;
 
@@ -134,6 +134,11 @@ public class ActivityStreamImpl implements ActivityStream, EventListener
      */
     private ActivityStreamConfiguration configuration;
 
+    /**
+     * Used to write the events in the database (possibly asynchronously).
+     */
+    private ActivityEventWriter writer;
+
     /**
      * Set fields related to the document which fired the event in the given event object.
      *
@@ -244,6 +249,7 @@ public void init(XWikiContext context) throws XWikiException
     {
         // Lookup the configuration
         configuration = Utils.getComponent(ActivityStreamConfiguration.class);
+        writer = Utils.getComponent(ActivityEventWriter.class);
         // Listent to Events.
         ObservationManager observationManager = Utils.getComponent(ObservationManager.class);
         if (observationManager.getListener(getName()) == null) {
@@ -301,37 +307,18 @@ public void addActivityEvent(ActivityEvent event, XWikiDocument doc, XWikiContex
     {
         prepareEvent(event, doc, context);
 
+        List<String> wikis = new ArrayList<>(2);
         if (useLocalStore()) {
             // store event in the local database
-            XWikiHibernateStore localHibernateStore = context.getWiki().getHibernateStore();
-            try {
-                localHibernateStore.beginTransaction(context);
-                Session session = localHibernateStore.getSession(context);
-                session.save(event);
-                localHibernateStore.endTransaction(context, true);
-            } catch (XWikiException e) {
-                localHibernateStore.endTransaction(context, false);
-            }
+            wikis.add(context.getWikiId());
         }
-
         if (useMainStore()) {
             // store event in the main database
-            String oriDatabase = context.getWikiId();
-            context.setWikiId(context.getMainXWiki());
-            XWikiHibernateStore mainHibernateStore = context.getWiki().getHibernateStore();
-            try {
-                mainHibernateStore.beginTransaction(context);
-                Session session = mainHibernateStore.getSession(context);
-                session.save(event);
-                mainHibernateStore.endTransaction(context, true);
-            } catch (XWikiException e) {
-                mainHibernateStore.endTransaction(context, false);
-            } finally {
-                context.setWikiId(oriDatabase);
-            }
+            wikis.add(context.getMainXWiki());
         }
 
-        this.sendEventStreamEvent(new EventStreamAddedEvent(), event);
+        // The writer takes care of sending the EventStreamAddedEvent once the event is stored
+        writer.write(event, wikis);
     }
 
     @Override
@@ -413,6 +400,9 @@ private ActivityEventImpl loadActivityEvent(ActivityEvent event, boolean bTransa
         String eventId = event.getEventId();
 
         if (useLocalStore()) {
+            // Make sure the events waiting to be stored are taken into account
+            writer.flush(context.getWikiId());
+
             // load event from the local database
             XWikiHibernateStore hibstore = context.getWiki().getHibernateStore();
             try {
@@ -445,6 +435,9 @@ private ActivityEventImpl loadActivityEvent(ActivityEvent event, boolean bTransa
                 }
             }
         } else if (useMainStore()) {
+            // Make sure the events waiting to be stored are taken into account
+            writer.flush(context.getMainXWiki());
+
             // load event from the main database
             String oriDatabase = context.getWikiId();
             context.setWikiId(context.getMainXWiki());
@@ -649,6 +642,9 @@ private void addOptionalEventsFilter(StringBuffer query, String optionalWhereCla
     public List<ActivityEvent> searchEvents(String fromHql, String hql, boolean filter, boolean globalSearch, int nb,
         int start, List<Object> parameterValues, XWikiContext context) throws ActivityStreamException
     {
+        // Make sure the events waiting to be stored in the searched database are taken into account
+        writer.flush(globalSearch ? context.getMainXWiki() : context.getWikiId());
+
         StringBuffer searchHql = new StringBuffer();
         List<ActivityEvent> results;
 
@@ -987,6 +983,9 @@ public List<Object[]> searchUniquePages(String optionalWhereClause, int maxItems
     public List<Object[]> searchUniquePages(String optionalWhereClause, List<Object> parametersValues, int maxItems,
         int startAt, XWikiContext context) throws ActivityStreamException
     {
+        // Make sure the events waiting to be stored in the main database are taken into account
+        writer.flush(context.getMainXWiki());
+
         StringBuffer searchHql = new StringBuffer();
         List<Object[]> results;
 
@@ -1020,6 +1019,9 @@ public List<Object[]> searchDailyPages(String optionalWhereClause, int maxItems,
     public List<Object[]> searchDailyPages(String optionalWhereClause, List<Object> parametersValues, int maxItems,
         int startAt, XWikiContext context) throws ActivityStreamException
     {
+        // Make sure the events waiting to be stored in the main database are taken into account
+        writer.flush(context.getMainXWiki());
+
         StringBuffer searchHql = new StringBuffer();
         List<Object[]> results = new ArrayList<Object[]>();
 
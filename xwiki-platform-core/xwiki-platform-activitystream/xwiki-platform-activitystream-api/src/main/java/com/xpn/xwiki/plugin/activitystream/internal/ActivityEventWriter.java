@@ -0,0 +1,395 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.plugin.activitystream.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLifecycleException;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.component.phase.Disposable;
+import org.xwiki.context.concurrent.ExecutionContextRunnable;
+import org.xwiki.eventstream.events.EventStreamAddedEvent;
+import org.xwiki.observation.ObservationManager;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.plugin.activitystream.api.ActivityEvent;
+import com.xpn.xwiki.plugin.activitystream.eventstreambridge.EventConverter;
+import com.xpn.xwiki.plugin.activitystream.impl.ActivityStreamConfiguration;
+import com.xpn.xwiki.store.XWikiHibernateBaseStore;
+
+/**
+ * Write activity events to the database.
+ * <p>
+ * By default the events are saved by the thread adding them, which also sends the {@link EventStreamAddedEvent}
+ * once the event is saved, so that listeners can rely on the event being in the database.
+ * <p>
+ * When {@link ActivityStreamConfiguration#isAsyncStorageEnabled()} is true, the events are put in a bounded queue and
+ * written by a background thread in batches of {@link ActivityStreamConfiguration#getStorageBatchSize()} events, each
+ * batch being saved in a single transaction per wiki. In that case the {@link EventStreamAddedEvent} is sent by the
+ * background thread, in its own execution context: the listeners cannot rely on the context of the request which
+ * produced the event (current user, current document, etc.). {@link #flush(String)} should be called before searching
+ * the events of a wiki so that the events of this wiki which are still in the queue are taken into account.
+ *
+ * @version $Id$
+ * @since 11.0RC1
+ */
+@Component(roles = ActivityEventWriter.class)
+@Singleton
+public class ActivityEventWriter implements Disposable
+{
+    /**
+     * Maximum time to wait for the background thread to write the remaining events when disposing the component.
+     */
+    private static final long DISPOSE_TIMEOUT = 60L;
+
+    /**
+     * Marker put in the queue to stop the background thread.
+     */
+    private static final PendingEvent STOP = new PendingEvent(null, Collections.<String>emptyList());
+
+    @Inject
+    private Logger logger;
+
+    @Inject
+    private Provider<XWikiContext> contextProvider;
+
+    @Inject
+    private ActivityStreamConfiguration configuration;
+
+    @Inject
+    private EventConverter eventConverter;
+
+    @Inject
+    private ObservationManager observationManager;
+
+    @Inject
+    @Named("context")
+    private ComponentManager componentManager;
+
+    /**
+     * The progress of the background thread for each wiki in which events are queued.
+     */
+    private final Map<String, WikiProgress> progress = new HashMap<>();
+
+    /**
+     * Used to wait for the background thread to process the queued events.
+     */
+    private final Object progressLock = new Object();
+
+    private BlockingQueue<PendingEvent> queue;
+
+    private volatile Thread writerThread;
+
+    private boolean disposed;
+
+    /**
+     * The number of events queued and processed (written or failed) for a wiki since the beginning. Since the events
+     * are processed in the order in which they are queued, all the events queued before a given time are processed
+     * when the processed count reaches the queued count of that time.
+     */
+    private static final class WikiProgress
+    {
+        private long queued;
+
+        private long processed;
+    }
+
+    /**
+     * An event waiting to be saved in the database of some wikis.
+     */
+    private static final class PendingEvent
+    {
+        private final ActivityEvent event;
+
+        private final List<String> wikis;
+
+        PendingEvent(ActivityEvent event, List<String> wikis)
+        {
+            this.event = event;
+            this.wikis = wikis;
+        }
+    }
+
+    /**
+     * Save the passed event in the database of the passed wikis and then notify {@link EventStreamAddedEvent}. This
+     * might be done asynchronously, depending on the configuration.
+     *
+     * @param event the event to save
+     * @param wikis the identifiers of the wikis in which to save the event
+     */
+    public void write(ActivityEvent event, List<String> wikis)
+    {
+        PendingEvent pendingEvent = new PendingEvent(event, wikis);
+
+        BlockingQueue<PendingEvent> currentQueue = getQueue();
+        if (currentQueue == null || Thread.currentThread() == this.writerThread) {
+            // The events added by the background thread itself (e.g. from a listener) are written directly, otherwise
+            // the thread could end up waiting for itself when the queue is full
+            writeBatch(Collections.singletonList(pendingEvent));
+
+            return;
+        }
+
+        updateProgress(pendingEvent, 1, 0);
+        try {
+            // Block when the queue is full, to not consume too much memory when the database cannot keep up
+            currentQueue.put(pendingEvent);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            updateProgress(pendingEvent, -1, 0);
+            writeBatch(Collections.singletonList(pendingEvent));
+        }
+    }
+
+    /**
+     * Wait until all the events queued for the passed wiki before the call are written to the database. Return
+     * immediately when no event is waiting to be written in this wiki.
+     *
+     * @param wiki the identifier of the wiki in which the events are going to be searched
+     */
+    public void flush(String wiki)
+    {
+        Thread thread = this.writerThread;
+        if (thread == null || Thread.currentThread() == thread) {
+            // Nothing was queued or the background thread is calling (e.g. from a listener) and cannot wait for itself
+            return;
+        }
+
+        synchronized (this.progressLock) {
+            WikiProgress wikiProgress = this.progress.get(wiki);
+            if (wikiProgress == null) {
+                return;
+            }
+
+            long target = wikiProgress.queued;
+            try {
+                while (wikiProgress.processed < target && thread.isAlive()) {
+                    this.progressLock.wait(1000L);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void updateProgress(PendingEvent pendingEvent, int queued, int processed)
+    {
+        synchronized (this.progressLock) {
+            for (String wiki : pendingEvent.wikis) {
+                WikiProgress wikiProgress = this.progress.computeIfAbsent(wiki, key -> new WikiProgress());
+                wikiProgress.queued += queued;
+                wikiProgress.processed += processed;
+            }
+
+            if (processed > 0) {
+                this.progressLock.notifyAll();
+            }
+        }
+    }
+
+    private synchronized BlockingQueue<PendingEvent> getQueue()
+    {
+        if (this.disposed || !this.configuration.isAsyncStorageEnabled()) {
+            return null;
+        }
+
+        if (this.queue == null) {
+            this.queue = new LinkedBlockingQueue<>(Math.max(this.configuration.getStorageQueueSize(), 1));
+
+            ThreadFactory factory = new BasicThreadFactory.Builder().namingPattern("Activity stream writer thread")
+                .daemon(true).priority(Thread.NORM_PRIORITY - 1).build();
+            this.writerThread =
+                factory.newThread(new ExecutionContextRunnable(this::writeQueuedEvents, this.componentManager));
+            this.writerThread.start();
+        }
+
+        return this.queue;
+    }
+
+    private void writeQueuedEvents()
+    {
+        int batchSize = Math.max(this.configuration.getStorageBatchSize(), 1);
+
+        List<PendingEvent> batch = new ArrayList<>(batchSize);
+        boolean stop = false;
+        while (!stop) {
+            try {
+                batch.add(this.queue.take());
+                this.queue.drainTo(batch, batchSize - 1);
+            } catch (InterruptedException e) {
+                // Write the events taken so far and stop
+                Thread.currentThread().interrupt();
+                stop = true;
+            }
+
+            stop |= batch.remove(STOP);
+            if (stop) {
+                // Make sure to not forget events queued just before the stop
+                this.queue.drainTo(batch);
+                batch.remove(STOP);
+            }
+
+            try {
+                writeBatch(batch);
+            } catch (Exception e) {
+                this.logger.error("Unexpected error when writing activity events", e);
+            } finally {
+                for (PendingEvent pendingEvent : batch) {
+                    updateProgress(pendingEvent, 0, 1);
+                }
+                batch.clear();
+            }
+        }
+    }
+
+    private void writeBatch(List<PendingEvent> batch)
+    {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        // Group the events by wiki to save each group in one transaction
+        Map<String, List<ActivityEvent>> eventsByWiki = new LinkedHashMap<>();
+        for (PendingEvent pendingEvent : batch) {
+            for (String wiki : pendingEvent.wikis) {
+                eventsByWiki.computeIfAbsent(wiki, key -> new ArrayList<>()).add(pendingEvent.event);
+            }
+        }
+
+        for (Map.Entry<String, List<ActivityEvent>> entry : eventsByWiki.entrySet()) {
+            saveEvents(entry.getKey(), entry.getValue());
+        }
+
+        // Let the listeners know about the events now that they are in the database
+        for (PendingEvent pendingEvent : batch) {
+            try {
+                this.observationManager.notify(new EventStreamAddedEvent(),
+                    this.eventConverter.convertActivityToEvent(pendingEvent.event));
+            } catch (Exception e) {
+                this.logger.error("Failed to notify about the addition of activity event [{}]",
+                    pendingEvent.event.getEventId(), e);
+            }
+        }
+    }
+
+    private void saveEvents(String wiki, List<ActivityEvent> events)
+    {
+        XWikiContext context = this.contextProvider.get();
+
+        String currentWiki = context.getWikiId();
+        context.setWikiId(wiki);
+        try {
+            if (events.size() > 1) {
+                try {
+                    saveEvents(events, context);
+
+                    return;
+                } catch (XWikiException e) {
+                    this.logger.warn("Failed to save [{}] activity events in wiki [{}] at once, saving them one by one."
+                        + " Root cause: [{}]", events.size(), wiki, ExceptionUtils.getRootCauseMessage(e));
+                }
+            }
+
+            // Save the events one by one so that one invalid event does not prevent saving the others
+            for (ActivityEvent event : events) {
+                try {
+                    saveEvents(Collections.singletonList(event), context);
+                } catch (XWikiException e) {
+                    this.logger.error("Failed to save activity event [{}] in wiki [{}]", event.getEventId(), wiki, e);
+                }
+            }
+        } finally {
+            context.setWikiId(currentWiki);
+        }
+    }
+
+    private void saveEvents(List<ActivityEvent> events, XWikiContext context) throws XWikiException
+    {
+        final int batchSize = Math.max(this.configuration.getStorageBatchSize(), 1);
+
+        XWikiHibernateBaseStore store = context.getWiki().getHibernateStore();
+        store.executeWrite(context, new XWikiHibernateBaseStore.HibernateCallback<Object>()
+        {
+            @Override
+            public Object doInHibernate(Session session) throws HibernateException, XWikiException
+            {
+                int count = 0;
+                for (ActivityEvent event : events) {
+                    session.save(event);
+
+                    // Send the inserts to the database by JDBC batches and keep the session small
+                    if (++count % batchSize == 0) {
+                        session.flush();
+                        session.clear();
+                    }
+                }
+
+                return null;
+            }
+        });
+    }
+
+    @Override
+    public void dispose() throws ComponentLifecycleException
+    {
+        Thread thread;
+        synchronized (this) {
+            this.disposed = true;
+            thread = this.writerThread;
+        }
+
+        if (thread != null) {
+            // Let the background thread write the remaining events (new events are not queued anymore)
+            try {
+                this.queue.put(STOP);
+                thread.join(TimeUnit.SECONDS.toMillis(DISPOSE_TIMEOUT));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            if (thread.isAlive()) {
+                this.logger.warn("The activity stream writer thread did not stop in time, [{}] events might be lost",
+                    this.queue.size());
+            }
+        }
+    }
+}
@@ -162,7 +162,9 @@ private void saveEventStatusInStore(ActivityEventStatus eventStatus) throws Acti
         try {
             hibernateStore.beginTransaction(context);
             Session session = hibernateStore.getSession(context);
-            session.save(eventStatus);
+            // The status might already exist (e.g. the notification inbox stores the unread status when the event is
+            // recorded) in which case we only update its read flag
+            session.saveOrUpdate(eventStatus);
             hibernateStore.endTransaction(context, true);
         } catch (XWikiException e) {
             hibernateStore.endTransaction(context, false);
@@ -0,0 +1,244 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.plugin.activitystream.internal;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Named;
+import javax.inject.Provider;
+
+import org.hibernate.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContextManager;
+import org.xwiki.eventstream.Event;
+import org.xwiki.eventstream.events.EventStreamAddedEvent;
+import org.xwiki.observation.ObservationManager;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import com.xpn.xwiki.XWiki;
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.plugin.activitystream.api.ActivityEvent;
+import com.xpn.xwiki.plugin.activitystream.eventstreambridge.EventConverter;
+import com.xpn.xwiki.plugin.activitystream.impl.ActivityEventImpl;
+import com.xpn.xwiki.plugin.activitystream.impl.ActivityStreamConfiguration;
+import com.xpn.xwiki.store.XWikiHibernateBaseStore;
+import com.xpn.xwiki.store.XWikiHibernateStore;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link ActivityEventWriter}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+public class ActivityEventWriterTest
+{
+    private static final List<String> MAIN_WIKI = Arrays.asList("xwiki");
+
+    @MockComponent
+    private Provider<XWikiContext> contextProvider;
+
+    @MockComponent
+    private ActivityStreamConfiguration configuration;
+
+    @MockComponent
+    private EventConverter eventConverter;
+
+    @MockComponent
+    private ObservationManager observationManager;
+
+    @MockComponent
+    @Named("context")
+    private ComponentManager componentManager;
+
+    @InjectMockComponents
+    private ActivityEventWriter writer;
+
+    private XWikiContext context;
+
+    private final List<String> saved = new CopyOnWriteArrayList<>();
+
+    private final List<String> notified = new CopyOnWriteArrayList<>();
+
+    private final List<Thread> notifyingThreads = new CopyOnWriteArrayList<>();
+
+    private volatile CountDownLatch storeReleased = new CountDownLatch(0);
+
+    @BeforeEach
+    public void beforeEach() throws Exception
+    {
+        when(this.componentManager.getInstance(ExecutionContextManager.class))
+            .thenReturn(mock(ExecutionContextManager.class));
+        when(this.componentManager.getInstance(Execution.class)).thenReturn(mock(Execution.class));
+
+        when(this.configuration.getStorageBatchSize()).thenReturn(10);
+        when(this.configuration.getStorageQueueSize()).thenReturn(100);
+
+        this.context = new XWikiContext();
+        this.context.setWikiId("current");
+        XWiki xwiki = mock(XWiki.class);
+        this.context.setWiki(xwiki);
+        when(this.contextProvider.get()).thenReturn(this.context);
+
+        XWikiHibernateStore store = mock(XWikiHibernateStore.class);
+        when(xwiki.getHibernateStore()).thenReturn(store);
+        Session session = mock(Session.class);
+        doAnswer(invocation -> {
+            ActivityEvent event = invocation.getArgument(0);
+            this.saved.add(this.context.getWikiId() + ':' + event.getEventId());
+            return null;
+        }).when(session).save(any());
+        when(store.executeWrite(same(this.context), any(XWikiHibernateBaseStore.HibernateCallback.class)))
+            .thenAnswer(invocation -> {
+                this.storeReleased.await();
+                XWikiHibernateBaseStore.HibernateCallback<?> callback = invocation.getArgument(1);
+                return callback.doInHibernate(session);
+            });
+
+        when(this.eventConverter.convertActivityToEvent(any(ActivityEvent.class))).thenAnswer(invocation -> {
+            Event event = mock(Event.class);
+            when(event.getId()).thenReturn(invocation.<ActivityEvent>getArgument(0).getEventId());
+            return event;
+        });
+        doAnswer(invocation -> {
+            this.notified.add(invocation.<Event>getArgument(1).getId());
+            this.notifyingThreads.add(Thread.currentThread());
+            return null;
+        }).when(this.observationManager).notify(any(EventStreamAddedEvent.class), any());
+    }
+
+    @AfterEach
+    public void afterEach() throws Exception
+    {
+        this.storeReleased.countDown();
+
+        this.writer.dispose();
+    }
+
+    private ActivityEvent event(String id)
+    {
+        ActivityEvent event = new ActivityEventImpl();
+        event.setEventId(id);
+
+        return event;
+    }
+
+    @Test
+    public void writeSynchronously()
+    {
+        this.writer.write(event("event1"), Arrays.asList("wiki", "xwiki"));
+        this.writer.write(event("event2"), MAIN_WIKI);
+
+        // The events are saved and notified by the calling thread
+        assertEquals(Arrays.asList("wiki:event1", "xwiki:event1", "xwiki:event2"), this.saved);
+        assertEquals(Arrays.asList("event1", "event2"), this.notified);
+        assertEquals(Collections.nCopies(2, Thread.currentThread()), this.notifyingThreads);
+        assertEquals("current", this.context.getWikiId());
+    }
+
+    @Test
+    public void writeAsynchronouslyInOrder()
+    {
+        when(this.configuration.isAsyncStorageEnabled()).thenReturn(true);
+
+        for (int i = 1; i <= 25; ++i) {
+            this.writer.write(event("event" + i), MAIN_WIKI);
+        }
+
+        this.writer.flush("xwiki");
+
+        assertEquals(25, this.saved.size());
+        assertEquals(25, this.notified.size());
+        for (int i = 1; i <= 25; ++i) {
+            assertEquals("xwiki:event" + i, this.saved.get(i - 1));
+            assertEquals("event" + i, this.notified.get(i - 1));
+        }
+        assertTrue(this.notifyingThreads.stream().noneMatch(thread -> thread == Thread.currentThread()));
+    }
+
+    @Test
+    public void flushWaitsForThePendingEventsOfTheWiki() throws Exception
+    {
+        when(this.configuration.isAsyncStorageEnabled()).thenReturn(true);
+        this.storeReleased = new CountDownLatch(1);
+
+        this.writer.write(event("event1"), Arrays.asList("wiki"));
+
+        // No event is waiting to be written in the other wikis
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> this.writer.flush("xwiki"));
+
+        Thread reader = new Thread(() -> this.writer.flush("wiki"));
+        reader.start();
+        reader.join(200);
+        assertTrue(reader.isAlive());
+        assertTrue(this.saved.isEmpty());
+
+        this.storeReleased.countDown();
+
+        reader.join(TimeUnit.SECONDS.toMillis(5));
+        assertFalse(reader.isAlive());
+        assertEquals(Arrays.asList("wiki:event1"), this.saved);
+    }
+
+    @Test
+    public void disposeWritesTheQueuedEvents() throws Exception
+    {
+        when(this.configuration.isAsyncStorageEnabled()).thenReturn(true);
+        this.storeReleased = new CountDownLatch(1);
+
+        this.writer.write(event("event1"), MAIN_WIKI);
+        this.writer.write(event("event2"), MAIN_WIKI);
+        this.writer.write(event("event3"), MAIN_WIKI);
+
+        assertTrue(this.saved.isEmpty());
+
+        this.storeReleased.countDown();
+        this.writer.dispose();
+
+        assertEquals(Arrays.asList("xwiki:event1", "xwiki:event2", "xwiki:event3"), this.saved);
+        assertEquals(Arrays.asList("event1", "event2", "event3"), this.notified);
+
+        // Once disposed, the events are written synchronously
+        this.writer.write(event("event4"), MAIN_WIKI);
+
+        assertEquals("xwiki:event4", this.saved.get(3));
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.plugin.activitystream.internal;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.inject.Provider;
+
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.eventstream.Event;
+import org.xwiki.eventstream.EventStatus;
+import org.xwiki.eventstream.internal.DefaultEventStatus;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import com.xpn.xwiki.XWiki;
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.plugin.activitystream.api.ActivityEventStatus;
+import com.xpn.xwiki.plugin.activitystream.eventstreambridge.EventConverter;
+import com.xpn.xwiki.plugin.activitystream.impl.ActivityEventImpl;
+import com.xpn.xwiki.plugin.activitystream.impl.ActivityEventStatusImpl;
+import com.xpn.xwiki.plugin.activitystream.impl.ActivityStreamConfiguration;
+import com.xpn.xwiki.store.XWikiHibernateStore;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link DefaultEventStatusManager}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+public class DefaultEventStatusManagerTest
+{
+    @MockComponent
+    private Provider<XWikiContext> contextProvider;
+
+    @MockComponent
+    private ActivityStreamConfiguration configuration;
+
+    @MockComponent
+    private EventConverter eventConverter;
+
+    @InjectMockComponents
+    private DefaultEventStatusManager eventStatusManager;
+
+    private Session session;
+
+    /**
+     * The stored status rows, indexed by their primary key (event id and entity id).
+     */
+    private final Map<String, Boolean> rows = new HashMap<>();
+
+    @BeforeEach
+    public void beforeEach()
+    {
+        XWikiContext context = new XWikiContext();
+        XWiki xwiki = mock(XWiki.class);
+        context.setWiki(xwiki);
+        when(this.contextProvider.get()).thenReturn(context);
+
+        XWikiHibernateStore store = mock(XWikiHibernateStore.class);
+        when(xwiki.getHibernateStore()).thenReturn(store);
+        this.session = mock(Session.class);
+        when(store.getSession(context)).thenReturn(this.session);
+
+        // Emulate the primary key constraint of the status table
+        doAnswer(invocation -> {
+            ActivityEventStatus status = invocation.getArgument(0);
+            if (this.rows.putIfAbsent(key(status), status.isRead()) != null) {
+                throw new IllegalStateException("Duplicate entry [" + key(status) + "] for the primary key");
+            }
+            return null;
+        }).when(this.session).save(any());
+        doAnswer(invocation -> {
+            ActivityEventStatus status = invocation.getArgument(0);
+            this.rows.put(key(status), status.isRead());
+            return null;
+        }).when(this.session).saveOrUpdate(any());
+
+        when(this.configuration.useLocalStore()).thenReturn(true);
+        when(this.eventConverter.convertEventStatusToActivityStatus(any(EventStatus.class)))
+            .thenAnswer(invocation -> {
+                EventStatus eventStatus = invocation.getArgument(0);
+                ActivityEventImpl activityEvent = new ActivityEventImpl();
+                activityEvent.setEventId(eventStatus.getEvent().getId());
+                ActivityEventStatusImpl status = new ActivityEventStatusImpl();
+                status.setActivityEvent(activityEvent);
+                status.setEntityId(eventStatus.getEntityId());
+                status.setRead(eventStatus.isRead());
+                return status;
+            });
+    }
+
+    private String key(ActivityEventStatus status)
+    {
+        return status.getActivityEvent().getEventId() + '/' + status.getEntityId();
+    }
+
+    @Test
+    public void markExistingStatusAsRead() throws Exception
+    {
+        Event event = mock(Event.class);
+        when(event.getId()).thenReturn("event1");
+
+        // The unread status stored by the notification inbox when the event is recorded
+        this.eventStatusManager.saveEventStatus(new DefaultEventStatus(event, "xwiki:XWiki.User", false));
+        assertEquals(Boolean.FALSE, this.rows.get("event1/xwiki:XWiki.User"));
+
+        // The user marks the event as read
+        this.eventStatusManager.saveEventStatus(new DefaultEventStatus(event, "xwiki:XWiki.User", true));
+
+        assertEquals(1, this.rows.size());
+        assertTrue(this.rows.get("event1/xwiki:XWiki.User"));
+        verify(this.session, never()).save(any());
+    }
+}
@@ -20,6 +20,8 @@
 package org.xwiki.bridge;
 
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -110,6 +112,28 @@ default DocumentModelBridge getDocumentInstance(EntityReference reference) throw
         return null;
     }
 
+    /**
+     * Get the document objects associated with the passed documents, like {@link #getDocumentInstance(EntityReference)}
+     * does for each of them.
+     * 
+     * @param documentReferences the references of the document instances to find
+     * @return the document instances matching the passed document references, in the same order
+     * @throws Exception when loading the documents failed
+     * @since 11.0RC1
+     */
+    @Unstable
+    default List<DocumentModelBridge> getDocumentInstances(Collection<DocumentReference> documentReferences)
+        throws Exception
+    {
+        List<DocumentModelBridge> documents = new ArrayList<>(documentReferences.size());
+
+        for (DocumentReference documentReference : documentReferences) {
+            documents.add(getDocumentInstance(documentReference));
+        }
+
+        return documents;
+    }
+
     /**
      * Get the document object associated with the passed document name and context locale.
      * <p>
@@ -128,4 +128,14 @@ public boolean isSimple()
      * @return the protection to apply
      */
     DocumentProtection getDocumentProtection();
+
+    /**
+     * @return the maximum number of wikis in which a XAR extension installed on the whole farm is imported at the
+     *         same time
+     * @since 11.0RC1
+     */
+    default int getImportThreads()
+    {
+        return 1;
+    }
 }
@@ -48,4 +48,10 @@ public DocumentProtection getDocumentProtection()
     {
         return this.configuration.getProperty(PREFIX + "protection", DocumentProtection.WARNING);
     }
+
+    @Override
+    public int getImportThreads()
+    {
+        return this.configuration.getProperty(PREFIX + "importThreads", 1);
+    }
 }
@@ -26,6 +26,10 @@
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -34,11 +38,17 @@
 
 import org.apache.commons.compress.archivers.ArchiveEntry;
 import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.slf4j.Logger;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.manager.ComponentLookupException;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContext;
+import org.xwiki.context.ExecutionContextException;
+import org.xwiki.context.ExecutionContextManager;
 import org.xwiki.extension.ExtensionId;
 import org.xwiki.extension.repository.InstalledExtensionRepository;
+import org.xwiki.extension.xar.XarExtensionConfiguration;
 import org.xwiki.extension.xar.XarExtensionException;
 import org.xwiki.extension.xar.internal.handler.XarExtensionHandler;
 import org.xwiki.extension.xar.internal.handler.XarExtensionPlan;
@@ -49,6 +59,10 @@
 import org.xwiki.filter.input.DefaultInputStreamInputSource;
 import org.xwiki.filter.instance.output.DocumentInstanceOutputProperties;
 import org.xwiki.filter.xar.input.XARInputProperties;
+import org.xwiki.job.Job;
+import org.xwiki.job.JobContext;
+import org.xwiki.logging.LoggerManager;
+import org.xwiki.logging.event.LoggerListener;
 import org.xwiki.logging.marker.BeginTranslationMarker;
 import org.xwiki.logging.marker.EndTranslationMarker;
 import org.xwiki.logging.marker.TranslationMarker;
@@ -130,6 +144,77 @@
     @Named(XarExtensionHandler.TYPE)
     private InstalledExtensionRepository installedXARs;
 
+    @Inject
+    private XarExtensionConfiguration xarConfiguration;
+
+    @Inject
+    private Execution execution;
+
+    @Inject
+    private ExecutionContextManager executionContextManager;
+
+    @Inject
+    private JobContext jobContext;
+
+    @Inject
+    private LoggerManager loggerManager;
+
+    /**
+     * Import a XAR in a wiki from a dedicated thread.
+     */
+    private final class WikiImport implements Runnable
+    {
+        private final String comment;
+
+        private final File xarFile;
+
+        private final WikiReference wikiReference;
+
+        private final PackageConfiguration configuration;
+
+        private final ExecutionContext executionContext;
+
+        private final Job job;
+
+        private Exception error;
+
+        private WikiImport(String comment, File xarFile, WikiReference wikiReference,
+            PackageConfiguration configuration, ExecutionContext executionContext, Job job)
+        {
+            this.comment = comment;
+            this.xarFile = xarFile;
+            this.wikiReference = wikiReference;
+            this.configuration = configuration;
+            this.executionContext = executionContext;
+            this.job = job;
+        }
+
+        @Override
+        public void run()
+        {
+            Packager.this.execution.setContext(this.executionContext);
+
+            // Make sure the log ends up in the log of the job
+            if (this.job != null && this.job.getStatus() != null) {
+                String listenerName = LoggerListener.class.getName() + '_' + hashCode();
+                LoggerListener listener = new LoggerListener(listenerName, this.job.getStatus().getLog());
+                Packager.this.loggerManager.pushLogListener(listener);
+            }
+
+            try {
+                importXARToWiki(this.comment, this.xarFile, this.wikiReference, this.configuration);
+            } catch (Exception e) {
+                this.error = e;
+            } finally {
+                if (this.job != null && this.job.getStatus() != null) {
+                    Packager.this.loggerManager.popLogListener();
+                }
+
+                Packager.this.execution.removeContext();
+            }
+        }
+    }
+
     private XarInstalledExtensionRepository getXarInstalledExtensionRepository()
     {
         return (XarInstalledExtensionRepository) this.installedXARs;
@@ -141,14 +226,98 @@ public void importXAR(String comment, File xarFile, PackageConfiguration configu
         if (configuration.getWiki() == null) {
             Collection<String> wikis = this.wikiDescriptors.getAllIds();
 
-            for (String subwiki : wikis) {
-                importXARToWiki(comment, xarFile, new WikiReference(subwiki), configuration);
+            // Questions have to be asked one by one so interactive imports stay in the current thread
+            int threads = Math.min(this.xarConfiguration.getImportThreads(), wikis.size());
+            if (threads > 1 && !configuration.isInteractive()) {
+                importXARToWikis(comment, xarFile, wikis, configuration, threads);
+            } else {
+                for (String subwiki : wikis) {
+                    importXARToWiki(comment, xarFile, new WikiReference(subwiki), configuration);
+                }
             }
         } else {
             importXARToWiki(comment, xarFile, new WikiReference(configuration.getWiki()), configuration);
         }
     }
 
+    /**
+     * Import the XAR in several wikis at the same time. Each wiki is imported by a single thread in the XAR order so
+     * that documents depending on each other (like classes and their instances) are still imported in the same
+     * order.
+     */
+    private void importXARToWikis(String comment, File xarFile, Collection<String> wikis,
+        PackageConfiguration configuration, int threads) throws IOException, XarException, XWikiException
+    {
+        XWikiContext xcontext = this.xcontextProvider.get();
+        Job job = this.jobContext.getCurrentJob();
+
+        List<WikiImport> imports = new ArrayList<>(wikis.size());
+        for (String wiki : wikis) {
+            // Each wiki get its own configuration since it's used to store the current XAR entry
+            PackageConfiguration wikiConfiguration = configuration.clone();
+
+            imports.add(new WikiImport(comment, xarFile, new WikiReference(wiki), wikiConfiguration,
+                cloneExecutionContext(xcontext), job));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads,
+            new BasicThreadFactory.Builder().namingPattern("XWiki XAR import thread %d").daemon(true).build());
+        try {
+            List<Future<?>> futures = new ArrayList<>(imports.size());
+            for (WikiImport wikiImport : imports) {
+                futures.add(executor.submit(wikiImport));
+            }
+
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            throw new XarException("Interrupted while importing XAR", e);
+        } catch (ExecutionException e) {
+            throw new XarException("Failed to import XAR", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        for (WikiImport wikiImport : imports) {
+            if (wikiImport.error != null) {
+                throwImportError(wikiImport.error);
+            }
+        }
+    }
+
+    private ExecutionContext cloneExecutionContext(XWikiContext xcontext) throws XarException
+    {
+        try {
+            ExecutionContext executionContext = this.executionContextManager.clone(this.execution.getContext());
+
+            // Make sure each thread get its own XWiki context
+            XWikiContext threadContext = xcontext.clone();
+            threadContext.declareInExecutionContext(executionContext);
+
+            return executionContext;
+        } catch (ExecutionContextException e) {
+            throw new XarException("Failed to clone the execution context", e);
+        }
+    }
+
+    private void throwImportError(Exception error) throws IOException, XarException, XWikiException
+    {
+        if (error instanceof IOException) {
+            throw (IOException) error;
+        } else if (error instanceof XarException) {
+            throw (XarException) error;
+        } else if (error instanceof XWikiException) {
+            throw (XWikiException) error;
+        } else if (error instanceof RuntimeException) {
+            throw (RuntimeException) error;
+        }
+
+        throw new XarException("Failed to import XAR", error);
+    }
+
     private void importXARToWiki(String comment, File xarFile, WikiReference wikiReference,
         PackageConfiguration configuration) throws IOException, XarException, XWikiException
     {
@@ -42,6 +42,7 @@
 import org.xwiki.extension.job.internal.UninstallJob;
 import org.xwiki.extension.repository.InstalledExtensionRepository;
 import org.xwiki.extension.test.MockitoRepositoryUtilsRule;
+import org.xwiki.extension.xar.XarExtensionConfiguration;
 import org.xwiki.extension.xar.XarExtensionConfiguration.DocumentProtection;
 import org.xwiki.extension.xar.internal.repository.XarInstalledExtension;
 import org.xwiki.extension.xar.internal.repository.XarInstalledExtensionRepository;
@@ -966,6 +967,36 @@ public void testInstallOnRoot() throws Throwable
         Assert.assertTrue(pageWiki2.isNew());
     }
 
+    @Test
+    public void testInstallOnRootInParallel() throws Throwable
+    {
+        XarExtensionConfiguration configuration =
+            this.componentManager.registerMockComponent(XarExtensionConfiguration.class);
+        when(configuration.getDocumentProtection()).thenReturn(DocumentProtection.WARNING);
+        when(configuration.getImportThreads()).thenReturn(2);
+
+        doReturn(Arrays.asList("wiki1", "wiki2", "wiki3")).when(this.oldcore.getWikiDescriptorManager()).getAllIds();
+
+        // install
+
+        install(this.localXarExtensiontId1, null, this.contextUser);
+
+        // validate
+
+        for (String wiki : Arrays.asList("wiki1", "wiki2", "wiki3")) {
+            XWikiDocument page = this.oldcore.getSpyXWiki()
+                .getDocument(new DocumentReference(wiki, "space1", "page1"), getXWikiContext());
+
+            Assert.assertFalse("Document " + wiki + ":space1.page1 has not been imported", page.isNew());
+
+            XWikiDocument overwrittenpage = this.oldcore.getSpyXWiki()
+                .getDocument(new DocumentReference(wiki, "space", "overwrittenpage"), getXWikiContext());
+
+            Assert.assertFalse(overwrittenpage.isNew());
+            Assert.assertEquals("1.1", overwrittenpage.getVersion());
+        }
+    }
+
     // rights check
 
     // install
@@ -23,6 +23,7 @@
 import java.util.Properties;
 
 import org.xwiki.component.annotation.Role;
+import org.xwiki.stability.Unstable;
 
 /**
  * Represents all XWiki configuration options for the Mail Sending feature.
@@ -101,4 +102,15 @@
      * @since 6.4RC1
      */
     long getSendWaitTime();
+
+    /**
+     * @return the number of threads sending the mails at the same time, each of them with its own connection to the
+     *         SMTP server. Note that the {@link #getSendWaitTime() send wait time} applies to each thread.
+     * @since 11.0RC1
+     */
+    @Unstable
+    default int getSendThreads()
+    {
+        return 1;
+    }
 }
@@ -19,6 +19,8 @@
  */
 package org.xwiki.mail.internal;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
@@ -40,7 +42,7 @@ public class MemoryMailStatusResult extends AbstractMailStatusResult
 {
     private abstract class AbstractMailStatusIterator implements Iterator<MailStatus>
     {
-        private final Iterator<MailStatus> it = statusMap.values().iterator();
+        private final Iterator<MailStatus> it = snapshot();
         private MailStatus nextStatus;
 
         abstract boolean match(MailStatus status);
@@ -84,7 +86,7 @@ public void remove()
      * Note that we keep the order in which messages are passed (i.e. the first status result will contain the first
      * mail sent, etc).
      */
-    private Map<String, MailStatus> statusMap = new LinkedHashMap<>();
+    private Map<String, MailStatus> statusMap = Collections.synchronizedMap(new LinkedHashMap<>());
 
     /**
      * Retrieve the status for the given message identifier.
@@ -110,7 +112,19 @@ public void setStatus(MailStatus status)
     @Override
     public Iterator<MailStatus> getAll()
     {
-        return this.statusMap.values().iterator();
+        return snapshot();
+    }
+
+    /**
+     * The statuses are set by the mail sender threads while they are iterated, so iterate over a copy.
+     *
+     * @return an iterator over the statuses currently in the map
+     */
+    private Iterator<MailStatus> snapshot()
+    {
+        synchronized (this.statusMap) {
+            return new ArrayList<>(this.statusMap.values()).iterator();
+        }
     }
 
     @Override
@@ -318,4 +318,10 @@ public long getSendWaitTime()
 
         return waitTime;
     }
+
+    @Override
+    public int getSendThreads()
+    {
+        return this.xwikiPropertiesSource.getProperty(PREFIX + "threads", 1);
+    }
 }
@@ -33,6 +33,11 @@
  */
 public abstract class AbstractMailRunnable implements MailRunnable
 {
+    /**
+     * How long to wait for a new item on the queue before checking if the thread should stop, in milliseconds.
+     */
+    protected static final long QUEUE_WAIT_TIMEOUT = 100L;
+
     @Inject
     protected Logger logger;
 
@@ -19,6 +19,8 @@
  */
 package org.xwiki.mail.internal.thread;
 
+import java.util.concurrent.TimeUnit;
+
 import org.xwiki.component.annotation.Role;
 
 /**
@@ -55,4 +57,16 @@
      * @return true if the removal was successful, false otherwise
      */
     boolean removeMessageFromQueue(T mailQueueItem);
+
+    /**
+     * Wait for a mail to be available on the queue and remove it from the queue. Several threads can wait on the same
+     * queue, each mail being returned to only one of them.
+     *
+     * @param timeout how long to wait before giving up, in units of {@code unit}
+     * @param unit the unit of the {@code timeout} parameter
+     * @return the next mail on the queue or null if no mail was added before the timeout
+     * @throws InterruptedException if interrupted while waiting
+     * @since 11.0RC1
+     */
+    T waitForMessage(long timeout, TimeUnit unit) throws InterruptedException;
 }
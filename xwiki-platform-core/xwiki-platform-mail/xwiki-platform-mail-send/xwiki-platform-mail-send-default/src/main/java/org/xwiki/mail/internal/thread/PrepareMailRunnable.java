@@ -21,6 +21,7 @@
 
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -69,19 +70,13 @@ public void run()
     {
         do {
             try {
-                // Handle next message in the queue
-                if (this.prepareMailQueueManager.hasMessage()) {
-                    // Important: only remove the mail item after the message has been created and put on the sender
-                    // queue.
-                    PrepareMailQueueItem mailItem = this.prepareMailQueueManager.peekMessage();
-                    try {
-                        prepareMail(mailItem);
-                    } finally {
-                        this.prepareMailQueueManager.removeMessageFromQueue(mailItem);
-                    }
+                // Wait for the next message in the queue (without waiting forever so that we notice when we're asked
+                // to stop)
+                PrepareMailQueueItem mailItem =
+                    this.prepareMailQueueManager.waitForMessage(QUEUE_WAIT_TIMEOUT, TimeUnit.MILLISECONDS);
+                if (mailItem != null) {
+                    prepareMail(mailItem);
                 }
-                // Note: a short pause to catch thread interruptions and to be kind on CPU.
-                Thread.sleep(100L);
             } catch (InterruptedException e) {
                 // Thread has been stopped, exit
                 this.logger.debug("Mail Prepare Thread was forcefully stopped", e);
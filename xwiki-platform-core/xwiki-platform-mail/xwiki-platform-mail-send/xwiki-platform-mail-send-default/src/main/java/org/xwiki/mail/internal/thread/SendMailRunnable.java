@@ -20,6 +20,7 @@
 package org.xwiki.mail.internal.thread;
 
 import java.util.Collections;
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -41,7 +42,8 @@
 import com.xpn.xwiki.XWikiContext;
 
 /**
- * Runnable that regularly check for mails on a Queue, and for each mail tries to send it.
+ * Runnable that waits for mails on a Queue, and for each mail tries to send it. Several threads can execute this
+ * runnable at the same time, each of them using its own connection to the SMTP server.
  *
  * @version $Id$
  * @since 6.4
@@ -51,6 +53,11 @@
 @Singleton
 public class SendMailRunnable extends AbstractMailRunnable
 {
+    /**
+     * Number of mails after which the connection to the SMTP server is reopened and the throughput is logged.
+     */
+    private static final int CONNECTION_MAIL_COUNT = 100;
+
     @Inject
     private MailQueueManager<SendMailQueueItem> sendMailQueueManager;
 
@@ -64,11 +71,24 @@ public class SendMailRunnable extends AbstractMailRunnable
     @Inject
     private Provider<XWikiContext> contextProvider;
 
-    private Transport currentTransport;
+    /**
+     * The connection to the SMTP server of a send mail thread.
+     */
+    private static final class MailTransport
+    {
+        private Transport transport;
+
+        private Session session;
 
-    private Session currentSession;
+        private int count;
+
+        private long batchStartTime = System.currentTimeMillis();
+    }
 
-    private int count;
+    /**
+     * Each send mail thread uses its own connection to the SMTP server.
+     */
+    private final ThreadLocal<MailTransport> mailTransports = ThreadLocal.withInitial(MailTransport::new);
 
     @Override
     public void run()
@@ -82,7 +102,8 @@ public void run()
             // Not much to do but log.
             logger.error("Failed to initialize the send mail thread's execution context", e);
         } finally {
-            closeTransport();
+            closeTransport(this.mailTransports.get());
+            this.mailTransports.remove();
         }
     }
 
@@ -105,24 +126,19 @@ private void runInternal()
     {
         do {
             try {
-                // Handle next message in the queue
-                if (this.sendMailQueueManager.hasMessage()) {
-                    // Important: only remove the mail item from the queue after the mail has been sent as
-                    // otherwise, MailSender.waitTillSent() may return before the mail is actually sent!
-                    SendMailQueueItem mailItem = this.sendMailQueueManager.peekMessage();
-                    try {
-                        sendMail(mailItem);
-                    } finally {
-                        this.sendMailQueueManager.removeMessageFromQueue(mailItem);
-                    }
+                // Wait for the next message in the queue (without waiting forever so that we notice when we're asked
+                // to stop)
+                SendMailQueueItem mailItem =
+                    this.sendMailQueueManager.waitForMessage(QUEUE_WAIT_TIMEOUT, TimeUnit.MILLISECONDS);
+                if (mailItem != null) {
+                    sendMail(mailItem);
+
                     // Email throttling: Wait before processing the next mail queue item
-                    // Note: it's important that we wait after the previous item has been removed from the queue in
-                    // order to let users know as soon as possible that their mail has been sent (otherwise when sending
-                    // a synchronous mail, the user would have to wait the send wait time!).
+                    // Note: it's important that we wait after the previous item has been processed in order to let
+                    // users know as soon as possible that their mail has been sent (otherwise when sending a
+                    // synchronous mail, the user would have to wait the send wait time!).
                     waitSendWaitTime();
                 }
-                // Note: a short pause to catch thread interruptions and to be kind on CPU.
-                Thread.sleep(50L);
             } catch (InterruptedException e) {
                 // Thread has been stopped, exit
                 this.logger.debug("Mail Sender Thread was forcefully stopped", e);
@@ -143,6 +159,8 @@ protected void sendMail(SendMailQueueItem item)
     {
         prepareContextForQueueItem(item);
 
+        MailTransport mailTransport = this.mailTransports.get();
+
         MailListener listener = item.getListener();
 
         ExtendedMimeMessage message;
@@ -161,20 +179,21 @@ protected void sendMail(SendMailQueueItem item)
             // the current Transport, get a new one and reconnect.
             // Also do that every 100 mails sent.
             // TODO: explain why!
-            if (item.getSession() != this.currentSession || (this.count % 100) == 0) {
-                closeTransport();
-                this.currentSession = item.getSession();
-                this.currentTransport = this.currentSession.getTransport("smtp");
-                this.currentTransport.connect();
-            } else if (!this.currentTransport.isConnected()) {
-                this.currentTransport.connect();
+            if (item.getSession() != mailTransport.session || (mailTransport.count % CONNECTION_MAIL_COUNT) == 0) {
+                closeTransport(mailTransport);
+                mailTransport.session = item.getSession();
+                mailTransport.transport = mailTransport.session.getTransport("smtp");
+                mailTransport.transport.connect();
+            } else if (!mailTransport.transport.isConnected()) {
+                mailTransport.transport.connect();
             }
 
             // Step 3: Send the mail
             // Unlike the static send method, the sendMessage method does not call the saveChanges method on the
             // message; this prevent the MessageID header to be changed.
-            this.currentTransport.sendMessage(message, message.getAllRecipients());
-            this.count++;
+            mailTransport.transport.sendMessage(message, message.getAllRecipients());
+            mailTransport.count++;
+            logThroughput(mailTransport);
 
             // Step 4: Notify the user of the success if a listener has been provided
             if (listener != null) {
@@ -188,17 +207,29 @@ protected void sendMail(SendMailQueueItem item)
         }
     }
 
+    private void logThroughput(MailTransport mailTransport)
+    {
+        if (mailTransport.count % CONNECTION_MAIL_COUNT == 0) {
+            long now = System.currentTimeMillis();
+            this.logger.debug("[{}] mails sent in [{}] ms by [{}]", CONNECTION_MAIL_COUNT,
+                now - mailTransport.batchStartTime, Thread.currentThread().getName());
+            mailTransport.batchStartTime = now;
+        }
+    }
+
     private void waitSendWaitTime() throws InterruptedException
     {
         long sendWaitTime = this.configuration.getSendWaitTime();
-        Thread.sleep(sendWaitTime);
+        if (sendWaitTime > 0) {
+            Thread.sleep(sendWaitTime);
+        }
     }
 
-    private void closeTransport()
+    private void closeTransport(MailTransport mailTransport)
     {
-        if (this.currentTransport != null) {
+        if (mailTransport.transport != null) {
             try {
-                this.currentTransport.close();
+                mailTransport.transport.close();
             } catch (MessagingException e) {
                 this.logger.warn("Failed to close JavaMail Transport connection. Reason [{}]",
                     ExceptionUtils.getRootCauseMessage(e));
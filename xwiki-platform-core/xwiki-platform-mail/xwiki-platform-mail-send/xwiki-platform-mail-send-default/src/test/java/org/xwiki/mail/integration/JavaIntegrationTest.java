@@ -22,9 +22,11 @@
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 
@@ -44,6 +46,7 @@
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TestName;
 import org.xwiki.bridge.event.ApplicationReadyEvent;
 import org.xwiki.component.phase.Disposable;
 import org.xwiki.component.util.DefaultParameterizedType;
@@ -114,12 +117,17 @@ public class JavaIntegrationTest extends AbstractMailIntegrationTest
 
     private static final String MAILTMPDIR = String.format("%s/mail", TMPDIR);
 
+    private static final String SEVERAL_SENDER_THREADS_TEST = "sendSeveralMailsWithSeveralSenderThreads";
+
     @Rule
     public GreenMailRule mail = new GreenMailRule(getCustomServerSetup(ServerSetupTest.SMTP));
 
     @Rule
     public MockitoComponentManagerRule componentManager = new MockitoComponentManagerRule();
 
+    @Rule
+    public TestName testName = new TestName();
+
     private TestMailSenderConfiguration configuration;
 
     private TextMimeBodyPartFactory defaultBodyPartFactory;
@@ -187,6 +195,11 @@ public void initialize() throws Exception
         // Just return the same execution context
         when(executionContextCloner.copy(executionContext)).thenReturn(executionContext);
 
+        // Only the multi-connection test sends the mails with several threads, each with its own SMTP connection
+        if (SEVERAL_SENDER_THREADS_TEST.equals(this.testName.getMethodName())) {
+            this.configuration.setSendThreads(2);
+        }
+
         // Simulate receiving the Application Ready Event to start the mail threads
         MailSenderInitializerListener listener =
             this.componentManager.getInstance(EventListener.class, MailSenderInitializerListener.LISTENER_NAME);
@@ -257,6 +270,31 @@ public void sendTextMail() throws Exception
         // messages ;) But we checked that we received 9 emails above so that's good enough.
     }
 
+    @Test
+    public void sendSeveralMailsWithSeveralSenderThreads() throws Exception
+    {
+        Session session = Session.getInstance(this.configuration.getAllProperties());
+
+        List<MimeMessage> messages = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            MimeMessage message = new MimeMessage(session);
+            message.setSubject("subject" + i);
+            message.setRecipient(RecipientType.TO, new InternetAddress("john" + i + "@doe.com"));
+            message.setText("some text here");
+            messages.add(message);
+        }
+
+        MailListener memoryMailListener = this.componentManager.getInstance(MailListener.class, "memory");
+        this.sender.sendAsynchronously(messages, session, memoryMailListener);
+
+        // Wait for all the mails to be processed by the sender threads
+        memoryMailListener.getMailStatusResult().waitTillProcessed(30000L);
+        assertEquals(20, memoryMailListener.getMailStatusResult().getProcessedMailCount());
+
+        this.mail.waitForIncomingEmail(30000L, 20);
+        assertEquals(20, this.mail.getReceivedMessages().length);
+    }
+
     @Test
     public void sendHTMLAndCalendarInvitationMail() throws Exception
     {
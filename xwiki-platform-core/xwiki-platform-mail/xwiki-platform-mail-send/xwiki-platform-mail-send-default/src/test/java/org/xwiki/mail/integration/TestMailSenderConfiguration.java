@@ -42,6 +42,8 @@ public class TestMailSenderConfiguration extends DefaultMailSenderConfiguration
 
     private List<String> bccAddresses = new ArrayList<>();
 
+    private int sendThreads = 1;
+
     public TestMailSenderConfiguration(int port, String username, String password, Properties additionalProperties)
     {
         this.port = port;
@@ -108,4 +110,15 @@ public void setBCCAddresses(List<String> addresses)
     {
         this.bccAddresses = addresses;
     }
+
+    @Override
+    public int getSendThreads()
+    {
+        return this.sendThreads;
+    }
+
+    public void setSendThreads(int sendThreads)
+    {
+        this.sendThreads = sendThreads;
+    }
 }
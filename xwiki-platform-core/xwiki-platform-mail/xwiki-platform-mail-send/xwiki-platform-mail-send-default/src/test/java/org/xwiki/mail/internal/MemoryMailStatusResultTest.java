@@ -30,6 +30,7 @@
 
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -79,4 +80,28 @@ public void getAllErrorTest()
         assertThat(allErrorIds, containsInAnyOrder(UNIQUE_MESSAGE_ID2, UNIQUE_MESSAGE_ID4, UNIQUE_MESSAGE_ID5));
         assertThat(allErrorIds.size(), equalTo(3));
     }
+
+    @Test
+    public void getAllWhileStatusesAreSet()
+    {
+        MemoryMailStatusResult statusResult = new MemoryMailStatusResult();
+        ExtendedMimeMessage message1 = mock(ExtendedMimeMessage.class);
+        when(message1.getUniqueMessageId()).thenReturn(UNIQUE_MESSAGE_ID1);
+        ExtendedMimeMessage message2 = mock(ExtendedMimeMessage.class);
+        when(message2.getUniqueMessageId()).thenReturn(UNIQUE_MESSAGE_ID2);
+
+        statusResult.setStatus(new MailStatus(BATCH_ID, message1, MailState.SEND_SUCCESS));
+
+        Iterator<MailStatus> it = statusResult.getAll();
+
+        // A mail sender thread sets a new status during the iteration
+        statusResult.setStatus(new MailStatus(BATCH_ID, message2, MailState.SEND_SUCCESS));
+
+        List<String> allIds = new ArrayList<>();
+        while (it.hasNext()) {
+            allIds.add(it.next().getMessageId());
+        }
+
+        assertThat(allIds, contains(UNIQUE_MESSAGE_ID1));
+    }
 }
@@ -20,6 +20,7 @@
 package org.xwiki.mail;
 
 import org.xwiki.component.annotation.Role;
+import org.xwiki.stability.Unstable;
 
 /**
  * Configuration for the storage part of the Mail Sender.
@@ -35,4 +36,26 @@
      *         they should be kept (for tracability purpose for example)
      */
     boolean discardSuccessStatuses();
+
+    /**
+     * @return the number of mail statuses to buffer before writing them to the database in a single transaction. A
+     *         value lower or equal to 1 means that each mail status is written to the database as soon as it changes
+     * @since 11.0RC1
+     */
+    @Unstable
+    default int getStatusBatchSize()
+    {
+        return 1;
+    }
+
+    /**
+     * @return the maximum time (in milliseconds) a mail status can stay in the buffer before being written to the
+     *         database, when mail statuses are written in batches
+     * @since 11.0RC1
+     */
+    @Unstable
+    default long getStatusFlushDelay()
+    {
+        return 1000L;
+    }
 }
@@ -19,23 +19,35 @@
  */
 package org.xwiki.mail.internal;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Provider;
 import javax.inject.Singleton;
 
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.hibernate.HibernateException;
 import org.hibernate.Query;
 import org.hibernate.Session;
 import org.slf4j.Logger;
 import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLifecycleException;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.component.phase.Disposable;
+import org.xwiki.context.concurrent.ExecutionContextRunnable;
 import org.xwiki.mail.MailStatus;
 import org.xwiki.mail.MailStatusStore;
+import org.xwiki.mail.MailStorageConfiguration;
 import org.xwiki.mail.MailStoreException;
 
 import com.xpn.xwiki.XWikiContext;
@@ -45,6 +57,11 @@
 
 /**
  * Stores mail results in the database using Hibernate.
+ * <p>
+ * When {@link MailStorageConfiguration#getStatusBatchSize()} is greater than 1, saved and deleted statuses are first
+ * buffered in memory and written to the database in a single transaction, either when the buffer is full or after
+ * {@link MailStorageConfiguration#getStatusFlushDelay()} milliseconds. Buffered statuses are taken into account when
+ * loading a status by its message id, and the buffer is written before any search so that searches stay consistent.
  *
  * @version $Id$
  * @since 6.4M3
@@ -52,10 +69,22 @@
 @Component
 @Named("database")
 @Singleton
-public class DatabaseMailStatusStore implements MailStatusStore
+public class DatabaseMailStatusStore implements MailStatusStore, Disposable
 {
     private static final String ID_PARAMETER_NAME = "id";
 
+    /**
+     * Maximum number of buffered statuses, expressed as a multiple of the batch size, after which the caller writes
+     * the buffer itself instead of waiting for the flush thread (to avoid using too much memory when the database is
+     * slower than the mail sender).
+     */
+    private static final int MAX_PENDING_BATCHES = 10;
+
+    /**
+     * Maximum number of message ids bound to a single delete query, to stay below the parameter limit of the database.
+     */
+    private static final int DELETE_CHUNK_SIZE = 500;
+
     @Inject
     private Logger logger;
 
@@ -66,8 +95,65 @@ public class DatabaseMailStatusStore implements MailStatusStore
     @Named("hibernate")
     private XWikiStoreInterface hibernateStore;
 
+    @Inject
+    private MailStorageConfiguration configuration;
+
+    @Inject
+    @Named("context")
+    private ComponentManager componentManager;
+
+    /**
+     * Statuses waiting to be saved, indexed by message id.
+     */
+    private final Map<String, MailStatus> pendingStatuses = new LinkedHashMap<>();
+
+    /**
+     * Ids of the messages for which the status is waiting to be deleted.
+     */
+    private final Set<String> pendingDeletions = new HashSet<>();
+
+    /**
+     * Statuses being currently written to the database, kept so that they can still be loaded during the write.
+     */
+    private final Map<String, MailStatus> flushingStatuses = new LinkedHashMap<>();
+
+    /**
+     * Ids of the messages for which the status is currently being deleted from the database.
+     */
+    private final Set<String> flushingDeletions = new HashSet<>();
+
+    /**
+     * Make sure that only one flush is running at a time, so that the writes are done in the right order.
+     */
+    private final Object flushLock = new Object();
+
+    /**
+     * True when a flush of the buffered statuses is already planned.
+     */
+    private boolean flushScheduled;
+
+    /**
+     * True when a flush of the full buffer has been submitted to the flush thread and has not started yet.
+     */
+    private boolean fullFlushScheduled;
+
+    private ScheduledThreadPoolExecutor flushExecutor;
+
     @Override
     public void save(final MailStatus status, final Map<String, Object> parameters) throws MailStoreException
+    {
+        if (isBatched()) {
+            synchronized (this.pendingStatuses) {
+                this.pendingDeletions.remove(status.getMessageId());
+                this.pendingStatuses.put(status.getMessageId(), status);
+            }
+            onPendingChange();
+        } else {
+            saveNow(status);
+        }
+    }
+
+    private void saveNow(final MailStatus status) throws MailStoreException
     {
         XWikiHibernateBaseStore store = (XWikiHibernateBaseStore) this.hibernateStore;
 
@@ -78,7 +164,7 @@ public void save(final MailStatus status, final Map<String, Object> parameters)
 
         try {
             // Delete any previous state of the message
-            delete(status.getMessageId(), parameters);
+            deleteNow(status.getMessageId());
 
             store.executeWrite(xwikiContext, new XWikiHibernateBaseStore.HibernateCallback<Object>()
             {
@@ -102,6 +188,19 @@ public Object doInHibernate(Session session) throws HibernateException, XWikiExc
     @Override
     public MailStatus load(String uniqueMessageId) throws MailStoreException
     {
+        synchronized (this.pendingStatuses) {
+            // Look first at the statuses which are not yet in the database
+            if (this.pendingDeletions.contains(uniqueMessageId)) {
+                return null;
+            } else if (this.pendingStatuses.containsKey(uniqueMessageId)) {
+                return this.pendingStatuses.get(uniqueMessageId);
+            } else if (this.flushingDeletions.contains(uniqueMessageId)) {
+                return null;
+            } else if (this.flushingStatuses.containsKey(uniqueMessageId)) {
+                return this.flushingStatuses.get(uniqueMessageId);
+            }
+        }
+
         List<MailStatus> statuses = load(Collections.<String, Object>singletonMap(ID_PARAMETER_NAME, uniqueMessageId),
             0, 0, null, false);
         if (statuses.isEmpty()) {
@@ -115,6 +214,9 @@ public List<MailStatus> load(final Map<String, Object> filterMap, final int offs
         String sortField, boolean sortAscending)
         throws MailStoreException
     {
+        // Make sure the search takes into account the buffered statuses
+        flush();
+
         XWikiHibernateBaseStore store = (XWikiHibernateBaseStore) this.hibernateStore;
 
         final XWikiContext xwikiContext = this.contextProvider.get();
@@ -170,6 +272,9 @@ public List<MailStatus> doInHibernate(Session session)
     @Override
     public long count(final Map<String, Object> filterMap) throws MailStoreException
     {
+        // Make sure the count takes into account the buffered statuses
+        flush();
+
         XWikiHibernateBaseStore store = (XWikiHibernateBaseStore) this.hibernateStore;
 
         final XWikiContext xwikiContext = this.contextProvider.get();
@@ -204,6 +309,19 @@ public Long doInHibernate(Session session)
 
     @Override
     public void delete(final String uniqueMessageId, Map<String, Object> parameters) throws MailStoreException
+    {
+        if (isBatched()) {
+            synchronized (this.pendingStatuses) {
+                this.pendingStatuses.remove(uniqueMessageId);
+                this.pendingDeletions.add(uniqueMessageId);
+            }
+            onPendingChange();
+        } else {
+            deleteNow(uniqueMessageId);
+        }
+    }
+
+    private void deleteNow(final String uniqueMessageId) throws MailStoreException
     {
         XWikiHibernateBaseStore store = (XWikiHibernateBaseStore) this.hibernateStore;
 
@@ -232,6 +350,190 @@ public Object doInHibernate(Session session) throws HibernateException, XWikiExc
         }
     }
 
+    /**
+     * Write to the database all the statuses which have been saved or deleted since the last flush.
+     *
+     * @throws MailStoreException when an error occurs while writing the statuses
+     * @since 11.0RC1
+     */
+    public void flush() throws MailStoreException
+    {
+        synchronized (this.flushLock) {
+            synchronized (this.pendingStatuses) {
+                if (this.pendingStatuses.isEmpty() && this.pendingDeletions.isEmpty()) {
+                    return;
+                }
+
+                this.flushingStatuses.putAll(this.pendingStatuses);
+                this.flushingDeletions.addAll(this.pendingDeletions);
+                this.pendingStatuses.clear();
+                this.pendingDeletions.clear();
+                this.flushScheduled = false;
+                this.fullFlushScheduled = false;
+            }
+
+            boolean written = false;
+            try {
+                write(new ArrayList<>(this.flushingStatuses.values()), new ArrayList<>(this.flushingDeletions));
+
+                written = true;
+            } finally {
+                synchronized (this.pendingStatuses) {
+                    if (!written) {
+                        restoreFlushing();
+                    }
+
+                    this.flushingStatuses.clear();
+                    this.flushingDeletions.clear();
+                }
+            }
+        }
+    }
+
+    /**
+     * Put back in the buffer the statuses which failed to be written so that the next flush retries them. The statuses
+     * saved or deleted in the meantime are more recent and win over the restored ones.
+     */
+    private void restoreFlushing()
+    {
+        Map<String, MailStatus> statuses = new LinkedHashMap<>();
+        for (Map.Entry<String, MailStatus> entry : this.flushingStatuses.entrySet()) {
+            if (!this.pendingStatuses.containsKey(entry.getKey()) && !this.pendingDeletions.contains(entry.getKey())) {
+                statuses.put(entry.getKey(), entry.getValue());
+            }
+        }
+        for (String messageId : this.flushingDeletions) {
+            if (!this.pendingStatuses.containsKey(messageId)) {
+                this.pendingDeletions.add(messageId);
+            }
+        }
+        statuses.putAll(this.pendingStatuses);
+
+        this.pendingStatuses.clear();
+        this.pendingStatuses.putAll(statuses);
+    }
+
+    private void write(final List<MailStatus> statuses, final List<String> deletions) throws MailStoreException
+    {
+        XWikiHibernateBaseStore store = (XWikiHibernateBaseStore) this.hibernateStore;
+
+        XWikiContext xwikiContext = this.contextProvider.get();
+        // Save in the main wiki
+        String currentWiki = xwikiContext.getWikiId();
+        xwikiContext.setWikiId(xwikiContext.getMainXWiki());
+
+        // The previous state of the saved messages have to be deleted too
+        final List<String> ids = new ArrayList<>(deletions);
+        for (MailStatus status : statuses) {
+            ids.add(status.getMessageId());
+        }
+
+        try {
+            store.executeWrite(xwikiContext, new XWikiHibernateBaseStore.HibernateCallback<Object>()
+            {
+                @Override
+                public Object doInHibernate(Session session) throws HibernateException, XWikiException
+                {
+                    String queryString = String.format("delete from %s where mail_id in (:ids)",
+                        MailStatus.class.getName());
+                    for (int i = 0; i < ids.size(); i += DELETE_CHUNK_SIZE) {
+                        List<String> chunk = ids.subList(i, Math.min(i + DELETE_CHUNK_SIZE, ids.size()));
+                        session.createQuery(queryString).setParameterList("ids", chunk).executeUpdate();
+                    }
+                    for (MailStatus status : statuses) {
+                        session.save(status);
+                    }
+                    return null;
+                }
+            });
+
+            this.logger.debug("Saved [{}] and deleted [{}] mail statuses", statuses.size(), deletions.size());
+        } catch (Exception e) {
+            throw new MailStoreException(String.format("Failed to write [%s] mail statuses to the database.",
+                ids.size()), e);
+        } finally {
+            xwikiContext.setWikiId(currentWiki);
+        }
+    }
+
+    private boolean isBatched()
+    {
+        return this.configuration.getStatusBatchSize() > 1;
+    }
+
+    private void onPendingChange() throws MailStoreException
+    {
+        int batchSize = this.configuration.getStatusBatchSize();
+
+        int pendingSize;
+        boolean schedule;
+        boolean scheduleFull;
+        synchronized (this.pendingStatuses) {
+            pendingSize = this.pendingStatuses.size() + this.pendingDeletions.size();
+            schedule = !this.flushScheduled;
+            this.flushScheduled = true;
+            // Several threads can fill the buffer at the same time so its size may go past the batch size without
+            // being equal to it, but a single flush of the full buffer is needed
+            scheduleFull = pendingSize >= batchSize && !this.fullFlushScheduled;
+            if (scheduleFull) {
+                this.fullFlushScheduled = true;
+            }
+        }
+
+        if (pendingSize >= batchSize * MAX_PENDING_BATCHES) {
+            // The flush thread cannot keep up, write the buffer from the current thread
+            flush();
+        } else if (scheduleFull) {
+            // The buffer is full, write it as soon as possible
+            getFlushExecutor().execute(new ExecutionContextRunnable(this::flushInBackground, this.componentManager));
+        } else if (schedule) {
+            // Make sure the buffered statuses don't wait more than the configured delay
+            getFlushExecutor().schedule(
+                new ExecutionContextRunnable(this::flushInBackground, this.componentManager),
+                this.configuration.getStatusFlushDelay(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void flushInBackground()
+    {
+        try {
+            flush();
+        } catch (MailStoreException e) {
+            // Failed to write the statuses in the DB, we continue but log an error
+            this.logger.error("Failed to write buffered mail statuses to the database", e);
+        }
+    }
+
+    private synchronized ScheduledThreadPoolExecutor getFlushExecutor()
+    {
+        if (this.flushExecutor == null) {
+            BasicThreadFactory factory = new BasicThreadFactory.Builder()
+                .namingPattern("Mail status flush thread %d").daemon(true).build();
+            this.flushExecutor = new ScheduledThreadPoolExecutor(1, factory);
+            // The remaining statuses are written when disposing the component
+            this.flushExecutor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        }
+
+        return this.flushExecutor;
+    }
+
+    @Override
+    public void dispose() throws ComponentLifecycleException
+    {
+        synchronized (this) {
+            if (this.flushExecutor != null) {
+                this.flushExecutor.shutdown();
+            }
+        }
+
+        // Don't lose the statuses which are still in the buffer (this waits for the end of any running flush)
+        try {
+            flush();
+        } catch (Exception e) {
+            this.logger.error("Failed to write the remaining buffered mail statuses to the database", e);
+        }
+    }
+
     protected String computeQueryString(String prefix,
         Map<String, Object> filterMap, String sortField, boolean sortAscending)
     {
@@ -44,6 +44,10 @@ public class DefaultMailStorageConfiguration implements MailStorageConfiguration
 
     private static final String DISCARD_SUCCESS_STATUSES = "discardSuccessStatuses";
 
+    private static final int DEFAULT_STATUS_BATCH_SIZE = 100;
+
+    private static final long DEFAULT_STATUS_FLUSH_DELAY = 1000L;
+
     @Inject
     @Named("mailsend")
     private ConfigurationSource mailConfigSource;
@@ -64,4 +68,16 @@ public boolean discardSuccessStatuses()
 
         return (discardSuccessStatuses == 1);
     }
+
+    @Override
+    public int getStatusBatchSize()
+    {
+        return this.xwikiPropertiesSource.getProperty(PREFIX + "statusBatchSize", DEFAULT_STATUS_BATCH_SIZE);
+    }
+
+    @Override
+    public long getStatusFlushDelay()
+    {
+        return this.xwikiPropertiesSource.getProperty(PREFIX + "statusFlushDelay", DEFAULT_STATUS_FLUSH_DELAY);
+    }
 }
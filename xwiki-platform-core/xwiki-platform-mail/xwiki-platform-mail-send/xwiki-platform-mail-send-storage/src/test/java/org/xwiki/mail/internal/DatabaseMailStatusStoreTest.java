@@ -20,6 +20,7 @@
 package org.xwiki.mail.internal;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
@@ -31,17 +32,23 @@
 import org.xwiki.component.util.ReflectionUtils;
 import org.xwiki.mail.MailState;
 import org.xwiki.mail.MailStatus;
+import org.xwiki.mail.MailStorageConfiguration;
+import org.xwiki.mail.MailStoreException;
 import org.xwiki.test.AllLogRule;
 import org.xwiki.test.LogLevel;
 import org.xwiki.test.mockito.MockitoComponentMockingRule;
 
 import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.XWikiException;
 import com.xpn.xwiki.store.XWikiHibernateStore;
 
 import static org.junit.Assert.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -113,4 +120,94 @@ public void logsForloadMailStatus() throws Exception
         assertEquals("Loaded mail status [messageId = [messageid], batchId = [batchid], state = [prepare_success], "
             + "date = [<null>], recipients = [recipients]]", this.logRule.getMessage(1));
     }
+
+    @Test
+    public void saveAndDeleteWithBatch() throws Exception
+    {
+        MailStorageConfiguration configuration = this.mocker.getInstance(MailStorageConfiguration.class);
+        when(configuration.getStatusBatchSize()).thenReturn(10);
+        // Make sure the statuses are not written by the flush thread during the test
+        when(configuration.getStatusFlushDelay()).thenReturn(3600000L);
+
+        Provider<XWikiContext> xcontextProvider = mocker.registerMockComponent(XWikiContext.TYPE_PROVIDER);
+        XWikiContext xcontext = mock(XWikiContext.class);
+        when(xcontextProvider.get()).thenReturn(xcontext);
+        when(xcontext.getWikiId()).thenReturn("wiki");
+        when(xcontext.getMainXWiki()).thenReturn("mainwiki");
+
+        XWikiHibernateStore hibernateStore = mock(XWikiHibernateStore.class);
+        ReflectionUtils.setFieldValue(this.mocker.getComponentUnderTest(), "hibernateStore", hibernateStore);
+
+        MailStatus status1 = new MailStatus();
+        status1.setMessageId("id1");
+        MailStatus status2 = new MailStatus();
+        status2.setMessageId("id2");
+
+        DatabaseMailStatusStore store = this.mocker.getComponentUnderTest();
+        store.save(status1, Collections.emptyMap());
+        store.save(status2, Collections.emptyMap());
+        store.delete("id2", Collections.emptyMap());
+
+        // Nothing has been written yet but the buffered statuses are taken into account
+        verify(hibernateStore, never()).executeWrite(any(), any());
+        assertSame(status1, store.load("id1"));
+        assertNull(store.load("id2"));
+
+        // Searching writes all the buffered statuses in a single transaction
+        when(hibernateStore.executeRead(eq(xcontext), any())).thenReturn(Arrays.asList(status1));
+        store.load(Collections.emptyMap(), 0, 0, null, false);
+        verify(hibernateStore).executeWrite(eq(xcontext), any());
+
+        // Nothing left to write
+        store.dispose();
+        verify(hibernateStore).executeWrite(eq(xcontext), any());
+    }
+
+    @Test
+    public void flushRestoresTheBufferWhenTheWriteFails() throws Exception
+    {
+        MailStorageConfiguration configuration = this.mocker.getInstance(MailStorageConfiguration.class);
+        when(configuration.getStatusBatchSize()).thenReturn(10);
+        // Make sure the statuses are not written by the flush thread during the test
+        when(configuration.getStatusFlushDelay()).thenReturn(3600000L);
+
+        Provider<XWikiContext> xcontextProvider = mocker.registerMockComponent(XWikiContext.TYPE_PROVIDER);
+        XWikiContext xcontext = mock(XWikiContext.class);
+        when(xcontextProvider.get()).thenReturn(xcontext);
+        when(xcontext.getWikiId()).thenReturn("wiki");
+        when(xcontext.getMainXWiki()).thenReturn("mainwiki");
+
+        XWikiHibernateStore hibernateStore = mock(XWikiHibernateStore.class);
+        ReflectionUtils.setFieldValue(this.mocker.getComponentUnderTest(), "hibernateStore", hibernateStore);
+        when(hibernateStore.executeWrite(eq(xcontext), any())).thenThrow(new XWikiException()).thenReturn(null);
+
+        MailStatus status1 = new MailStatus();
+        status1.setMessageId("id1");
+        MailStatus status2 = new MailStatus();
+        status2.setMessageId("id2");
+
+        DatabaseMailStatusStore store = this.mocker.getComponentUnderTest();
+        store.save(status1, Collections.emptyMap());
+        store.delete("id2", Collections.emptyMap());
+
+        try {
+            store.flush();
+            fail("The flush should have failed.");
+        } catch (MailStoreException expected) {
+            // The buffered statuses have not been lost
+            assertSame(status1, store.load("id1"));
+            assertNull(store.load("id2"));
+        }
+
+        // A more recent status wins over the one which failed to be written
+        store.save(status2, Collections.emptyMap());
+        assertSame(status2, store.load("id2"));
+
+        store.flush();
+        verify(hibernateStore, times(2)).executeWrite(eq(xcontext), any());
+
+        // Nothing left to write
+        store.flush();
+        verify(hibernateStore, times(2)).executeWrite(eq(xcontext), any());
+    }
 }
@@ -20,6 +20,7 @@
 package org.xwiki.notifications;
 
 import org.xwiki.component.annotation.Role;
+import org.xwiki.stability.Unstable;
 
 /**
  * Get the configuration options concerning the Notification module.
@@ -49,4 +50,32 @@
      * @since 9.6RC1
      */
     int liveNotificationsGraceTime();
+
+    /**
+     * Get the number of threads used to prepare the periodic notification emails (retrieving the events of each user
+     * and rendering them). With a value lower than 2, the emails are prepared one after the other by the thread
+     * sending them.
+     *
+     * @return the number of threads used to prepare the periodic notification emails
+     * @since 11.0RC1
+     */
+    @Unstable
+    default int getPeriodicEmailsThreads()
+    {
+        return 1;
+    }
+
+    /**
+     * When enabled, the events are dispatched to the inbox of each user who should be notified as soon as they are
+     * recorded, so that getting the alert notifications of a user does not need to evaluate all their preferences and
+     * filters against the whole event stream anymore.
+     *
+     * @return true if the precomputed notification inboxes should be used
+     * @since 11.0RC1
+     */
+    @Unstable
+    default boolean isInboxEnabled()
+    {
+        return false;
+    }
 }
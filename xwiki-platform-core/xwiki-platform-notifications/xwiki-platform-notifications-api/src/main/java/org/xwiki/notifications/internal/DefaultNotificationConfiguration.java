@@ -60,4 +60,16 @@ public int liveNotificationsGraceTime()
 
         return (graceTime < 0) ? 0 : graceTime;
     }
+
+    @Override
+    public int getPeriodicEmailsThreads()
+    {
+        return configurationSource.getProperty(CONFIGURATION_PREFIX + "emails.periodic.threads", 1);
+    }
+
+    @Override
+    public boolean isInboxEnabled()
+    {
+        return configurationSource.getProperty(CONFIGURATION_PREFIX + "inbox.enabled", false);
+    }
 }
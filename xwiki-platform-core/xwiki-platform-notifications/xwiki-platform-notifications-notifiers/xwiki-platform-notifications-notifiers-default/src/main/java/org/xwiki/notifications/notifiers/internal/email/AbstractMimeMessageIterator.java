@@ -19,6 +19,7 @@
  */
 package org.xwiki.notifications.notifiers.internal.email;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -27,16 +28,27 @@
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 import javax.inject.Named;
+import javax.inject.Provider;
 import javax.mail.internet.AddressException;
 import javax.mail.internet.InternetAddress;
 import javax.mail.internet.MimeMessage;
 
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.slf4j.Logger;
 import org.xwiki.bridge.DocumentAccessBridge;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.context.concurrent.ExecutionContextRunnable;
 import org.xwiki.mail.MailSenderConfiguration;
 import org.xwiki.mail.MimeMessageFactory;
 import org.xwiki.model.reference.DocumentReference;
@@ -46,6 +58,7 @@
 import org.xwiki.notifications.notifiers.email.NotificationEmailRenderer;
 import org.xwiki.wiki.descriptor.WikiDescriptorManager;
 
+import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.api.Attachment;
 
 /**
@@ -76,6 +89,13 @@ public abstract class AbstractMimeMessageIterator implements Iterator<MimeMessag
 
     private static final String ATTACHMENTS = "attachments";
 
+    private static final int PROGRESS_STEP = 1000;
+
+    /**
+     * How long an idle preparation thread is kept, in seconds.
+     */
+    private static final long THREAD_KEEP_ALIVE = 60L;
+
     @Inject
     protected Logger logger;
 
@@ -107,6 +127,13 @@ public abstract class AbstractMimeMessageIterator implements Iterator<MimeMessag
     @Inject
     private MailTemplateImageAttachmentsExtractor mailTemplateImageAttachmentsExtractor;
 
+    @Inject
+    private Provider<XWikiContext> contextProvider;
+
+    @Inject
+    @Named("context")
+    private ComponentManager componentManager;
+
     private NotificationUserIterator userIterator;
 
     private Map<String, Object> factoryParameters = new HashMap<>();
@@ -121,6 +148,18 @@ public abstract class AbstractMimeMessageIterator implements Iterator<MimeMessag
 
     private boolean hasNext;
 
+    private ThreadPoolExecutor executor;
+
+    private int maxPendingMessages;
+
+    private Queue<Future<MimeMessage>> pendingMessages = new ArrayDeque<>();
+
+    private MimeMessage nextMessage;
+
+    private String wiki;
+
+    private int preparedUsers;
+
     /**
      * Initialize the iterator.
      * A class extending {@link AbstractMimeMessageIterator} should implement a same initialize method that calls
@@ -136,9 +175,35 @@ protected void initialize(NotificationUserIterator userIterator, Map<String, Obj
         this.userIterator = userIterator;
         this.factoryParameters = factoryParameters;
         this.templateReference = templateReference;
+
+        int threads = getPreparationThreads();
+        if (threads > 1) {
+            this.wiki = this.wikiDescriptorManager.getCurrentWikiId();
+            BasicThreadFactory factory = new BasicThreadFactory.Builder()
+                .namingPattern("Notification emails preparation thread %d").daemon(true)
+                .priority(Thread.NORM_PRIORITY - 1).build();
+            this.executor = new ThreadPoolExecutor(threads, threads, THREAD_KEEP_ALIVE, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), factory);
+            // The executor is only shut down when all the messages have been iterated, so make sure its threads don't
+            // stay around when the iteration is abandoned (for example when the sending of the mails is stopped)
+            this.executor.allowCoreThreadTimeOut(true);
+            // Make sure the threads always have something to do while the messages are being sent
+            this.maxPendingMessages = threads * 2;
+        }
+
         this.computeNext();
     }
 
+    /**
+     * @return the number of threads to use to prepare the messages of several users at the same time, the messages
+     *         are prepared in the thread iterating over them when lower than 2
+     * @since 11.0RC1
+     */
+    protected int getPreparationThreads()
+    {
+        return 1;
+    }
+
     protected abstract List<CompositeEvent> retrieveCompositeEventList(DocumentReference user)
             throws NotificationException;
 
@@ -147,6 +212,11 @@ protected abstract List<CompositeEvent> retrieveCompositeEventList(DocumentRefer
      */
     protected void computeNext()
     {
+        if (this.executor != null) {
+            computeNextInParallel();
+            return;
+        }
+
         this.currentEvents = Collections.emptyList();
         this.currentUserEmail = null;
         while ((this.currentEvents.isEmpty() || currentUserEmail == null) && this.userIterator.hasNext()) {
@@ -170,28 +240,122 @@ protected void computeNext()
         this.hasNext = currentUserEmail != null && !this.currentEvents.isEmpty();
     }
 
-    private void updateFactoryParameters() throws NotificationException, AddressException
+    private void computeNextInParallel()
+    {
+        this.nextMessage = null;
+        // The executor is shut down when there is nothing left to prepare or when the iteration has been interrupted
+        while (this.nextMessage == null && !this.executor.isShutdown()) {
+            // Keep the preparation threads busy
+            while (this.pendingMessages.size() < this.maxPendingMessages && this.userIterator.hasNext()) {
+                DocumentReference user = this.userIterator.next();
+                FutureTask<MimeMessage> task = new FutureTask<>(() -> prepareMessage(user));
+                this.executor.execute(new ExecutionContextRunnable(task, this.componentManager));
+                this.pendingMessages.add(task);
+            }
+
+            if (this.pendingMessages.isEmpty()) {
+                this.executor.shutdown();
+                this.logger.info("Notification emails prepared for [{}] users.", this.preparedUsers);
+                break;
+            }
+
+            // Messages are returned in the order of the users
+            this.nextMessage = getPendingMessage(this.pendingMessages.poll());
+        }
+
+        this.hasNext = this.nextMessage != null;
+    }
+
+    private MimeMessage getPendingMessage(Future<MimeMessage> future)
+    {
+        MimeMessage message = null;
+        try {
+            message = future.get();
+        } catch (InterruptedException e) {
+            // Stop the iteration: the pending messages are abandoned and no other message is prepared
+            this.executor.shutdownNow();
+            this.pendingMessages.clear();
+            Thread.currentThread().interrupt();
+
+            this.logger.warn("The preparation of the notification emails has been interrupted after [{}] users.",
+                this.preparedUsers);
+
+            return null;
+        } catch (ExecutionException e) {
+            this.logger.error("Failed to prepare a notification email.", e.getCause());
+        }
+
+        if (++this.preparedUsers % PROGRESS_STEP == 0) {
+            this.logger.info("Notification emails prepared for [{}] users.", this.preparedUsers);
+        }
+
+        return message;
+    }
+
+    /**
+     * Prepare the message of the given user in a preparation thread, with its own copy of the factory parameters.
+     *
+     * @param user the user to prepare the message for
+     * @return the message or null if there is nothing to send to the user
+     */
+    private MimeMessage prepareMessage(DocumentReference user)
+    {
+        // The preparation thread starts with a fresh context targeting the main wiki
+        this.contextProvider.get().setWikiId(this.wiki);
+
+        InternetAddress userEmail;
+        try {
+            userEmail = new InternetAddress(getUserEmail(user));
+        } catch (AddressException e) {
+            // The user has not written a valid email
+            return null;
+        }
+
+        try {
+            List<CompositeEvent> events = retrieveCompositeEventList(user);
+            if (events.isEmpty()) {
+                return null;
+            }
+
+            Map<String, Object> parameters = new HashMap<>(this.factoryParameters);
+            parameters.remove(ATTACHMENTS);
+            Map<String, Object> velocityVariables = (Map<String, Object>) parameters.remove(VELOCITY_VARIABLES);
+            if (velocityVariables != null) {
+                parameters.put(VELOCITY_VARIABLES, new HashMap<>(velocityVariables));
+            }
+
+            updateFactoryParameters(parameters, user, userEmail, events);
+            return this.factory.createMessage(templateReference, parameters);
+        } catch (Exception e) {
+            logger.error(ERROR_MESSAGE, user, e);
+        }
+
+        return null;
+    }
+
+    private void updateFactoryParameters(Map<String, Object> parameters, DocumentReference user,
+        InternetAddress userEmail, List<CompositeEvent> events) throws NotificationException
     {
         // We need to clear all the attachments that have been put in the previous iteration, otherwise, we end up
         // duplicating the wiki logo, the user avatars, and every attachments that are common to several emails...
-        getAttachments().clear();
+        getAttachments(parameters).clear();
 
-        handleEvents();
-        handleWikiLogo();
-        handleImageAttachmentsFromTemplate();
+        handleEvents(parameters, user, events);
+        handleWikiLogo(parameters);
+        handleImageAttachmentsFromTemplate(parameters);
 
         try {
-            factoryParameters.put(FROM, new InternetAddress(mailSenderConfiguration.getFromAddress()));
+            parameters.put(FROM, new InternetAddress(mailSenderConfiguration.getFromAddress()));
         } catch (AddressException | NullPointerException e) {
             logger.warn("No default email address is configured in the administration.");
         }
 
-        factoryParameters.put(TO, this.currentUserEmail);
+        parameters.put(TO, userEmail);
     }
 
-    private void handleImageAttachmentsFromTemplate() throws NotificationException
+    private void handleImageAttachmentsFromTemplate(Map<String, Object> parameters) throws NotificationException
     {
-        Collection<Attachment> attachments = getAttachments();
+        Collection<Attachment> attachments = getAttachments(parameters);
 
         try {
             attachments.addAll(mailTemplateImageAttachmentsExtractor.getImages(templateReference));
@@ -201,14 +365,15 @@ private void handleImageAttachmentsFromTemplate() throws NotificationException
         }
     }
 
-    private void handleEvents() throws NotificationException
+    private void handleEvents(Map<String, Object> parameters, DocumentReference user, List<CompositeEvent> events)
+        throws NotificationException
     {
-        String usedId = serializer.serialize(this.currentUser);
+        String usedId = serializer.serialize(user);
         // Render all the events both in HTML and Plain Text
         List<String> htmlEvents = new ArrayList<>();
         List<String> plainTextEvents = new ArrayList<>();
         EventsSorter eventsSorter = new EventsSorter();
-        for (CompositeEvent event : currentEvents) {
+        for (CompositeEvent event : events) {
             String html = defaultNotificationEmailRenderer.renderHTML(event, usedId);
             String plainText = defaultNotificationEmailRenderer.renderPlainText(event, usedId);
             htmlEvents.add(html);
@@ -217,43 +382,43 @@ private void handleEvents() throws NotificationException
         }
 
         // Put in the velocity parameters all the events and their rendered version
-        Map<String, Object> velocityVariables = getVelocityVariables();
-        velocityVariables.put(EVENTS, currentEvents);
+        Map<String, Object> velocityVariables = getVelocityVariables(parameters);
+        velocityVariables.put(EVENTS, events);
         velocityVariables.put(HTML_EVENTS, htmlEvents);
         velocityVariables.put(PLAIN_TEXT_EVENTS, plainTextEvents);
         velocityVariables.put(SORTED_EVENTS, eventsSorter.sort());
 
-        handleAvatars();
+        handleAvatars(parameters, events);
     }
 
-    private void handleWikiLogo()
+    private void handleWikiLogo(Map<String, Object> parameters)
     {
         try {
-            getAttachments().add(logoAttachmentExtractor.getLogo());
+            getAttachments(parameters).add(logoAttachmentExtractor.getLogo());
         } catch (Exception e) {
             logger.warn("Failed to get the logo.", e);
         }
     }
 
-    private Collection<Attachment> getAttachments()
+    private Collection<Attachment> getAttachments(Map<String, Object> parameters)
     {
-        Object attachments = factoryParameters.get(ATTACHMENTS);
+        Object attachments = parameters.get(ATTACHMENTS);
         if (attachments != null) {
             return (Collection<Attachment>) attachments;
         }
 
         Collection<Attachment> newList = new ArrayList<>();
-        factoryParameters.put(ATTACHMENTS, newList);
+        parameters.put(ATTACHMENTS, newList);
         return newList;
     }
 
-    private void handleAvatars()
+    private void handleAvatars(Map<String, Object> parameters, List<CompositeEvent> events)
     {
         Set<DocumentReference> userAvatars = new HashSet<>();
-        for (CompositeEvent event : currentEvents) {
+        for (CompositeEvent event : events) {
             userAvatars.addAll(event.getUsers());
         }
-        Collection<Attachment> attachments = getAttachments();
+        Collection<Attachment> attachments = getAttachments(parameters);
         for (DocumentReference userAvatar : userAvatars) {
             try {
                 attachments.add(userAvatarAttachmentExtractor.getUserAvatar(userAvatar, 32));
@@ -263,12 +428,12 @@ private void handleAvatars()
         }
     }
 
-    private Map<String, Object> getVelocityVariables()
+    private Map<String, Object> getVelocityVariables(Map<String, Object> parameters)
     {
-        Object velocityVariables = factoryParameters.get(VELOCITY_VARIABLES);
+        Object velocityVariables = parameters.get(VELOCITY_VARIABLES);
         if (velocityVariables == null) {
             velocityVariables = new HashMap<String, Object>();
-            factoryParameters.put(VELOCITY_VARIABLES, velocityVariables);
+            parameters.put(VELOCITY_VARIABLES, velocityVariables);
         }
 
         return (Map<String, Object>) velocityVariables;
@@ -291,9 +456,16 @@ public boolean hasNext()
     @Override
     public MimeMessage next()
     {
+        if (this.executor != null) {
+            MimeMessage message = this.nextMessage;
+            this.computeNext();
+            return message;
+        }
+
         MimeMessage message = null;
         try {
-            updateFactoryParameters();
+            updateFactoryParameters(this.factoryParameters, this.currentUser, this.currentUserEmail,
+                this.currentEvents);
             message = this.factory.createMessage(templateReference, factoryParameters);
         } catch (Exception e) {
             logger.error(ERROR_MESSAGE, this.currentUser, e);
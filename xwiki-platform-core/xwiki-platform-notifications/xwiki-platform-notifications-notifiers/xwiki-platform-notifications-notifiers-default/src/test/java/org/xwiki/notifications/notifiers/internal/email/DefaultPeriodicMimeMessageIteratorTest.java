@@ -25,7 +25,9 @@
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
 
+import javax.inject.Provider;
 import javax.mail.internet.InternetAddress;
 import javax.mail.internet.MimeMessage;
 
@@ -34,26 +36,35 @@
 import org.junit.Rule;
 import org.junit.Test;
 import org.xwiki.bridge.DocumentAccessBridge;
+import org.xwiki.component.manager.ComponentManager;
 import org.xwiki.component.util.DefaultParameterizedType;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContextManager;
 import org.xwiki.mail.MailSenderConfiguration;
 import org.xwiki.mail.MimeMessageFactory;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.EntityReferenceSerializer;
 import org.xwiki.notifications.CompositeEvent;
+import org.xwiki.notifications.NotificationConfiguration;
 import org.xwiki.notifications.NotificationFormat;
 import org.xwiki.notifications.notifiers.email.NotificationEmailRenderer;
 import org.xwiki.notifications.sources.NotificationManager;
 import org.xwiki.test.mockito.MockitoComponentMockingRule;
 import org.xwiki.wiki.descriptor.WikiDescriptorManager;
 
+import com.xpn.xwiki.XWikiContext;
+
 import static org.jgroups.util.Util.assertTrue;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -173,4 +184,139 @@ public void test() throws Exception
         assertEquals(iterator, iterator.iterator());
     }
 
+    @Test
+    public void testWithSeveralThreads() throws Exception
+    {
+        DocumentReference templateReference = new DocumentReference("xwiki", "XWiki", "Template");
+        Map<String, Object> factoryParameters = new HashedMap();
+
+        // Mocks
+        NotificationConfiguration configuration = mocker.getInstance(NotificationConfiguration.class);
+        when(configuration.getPeriodicEmailsThreads()).thenReturn(2);
+        ComponentManager contextComponentManager = mocker.getInstance(ComponentManager.class, "context");
+        when(contextComponentManager.getInstance(ExecutionContextManager.class))
+                .thenReturn(mock(ExecutionContextManager.class));
+        when(contextComponentManager.getInstance(Execution.class)).thenReturn(mock(Execution.class));
+        Provider<XWikiContext> contextProvider = mocker.getInstance(
+                new DefaultParameterizedType(null, Provider.class, XWikiContext.class));
+        XWikiContext xcontext = mock(XWikiContext.class);
+        when(contextProvider.get()).thenReturn(xcontext);
+
+        NotificationUserIterator userIterator = mock(NotificationUserIterator.class);
+        DocumentReference userA = new DocumentReference("xwiki", "XWiki", "UserA");
+        DocumentReference userB = new DocumentReference("xwiki", "XWiki", "UserB");
+        DocumentReference userC = new DocumentReference("xwiki", "XWiki", "UserC");
+        when(userIterator.hasNext()).thenReturn(true, true, true, false);
+        when(userIterator.next()).thenReturn(userA, userB, userC);
+        DocumentReference userClass = new DocumentReference("xwiki", "XWiki", "XWikiUsers");
+        when(documentAccessBridge.getProperty(userA, userClass, 0, "email")).thenReturn("userA@xwiki.org");
+        when(documentAccessBridge.getProperty(userB, userClass, 0, "email")).thenReturn("userB@xwiki.org");
+        when(documentAccessBridge.getProperty(userC, userClass, 0, "email")).thenReturn("userC@xwiki.org");
+        when(serializer.serialize(userA)).thenReturn("xwiki:XWiki.UserA");
+        when(serializer.serialize(userB)).thenReturn("xwiki:XWiki.UserB");
+        when(serializer.serialize(userC)).thenReturn("xwiki:XWiki.UserC");
+
+        CompositeEvent event1 = mock(CompositeEvent.class);
+        CompositeEvent event2 = mock(CompositeEvent.class);
+
+        when(notificationManager.getEvents("xwiki:XWiki.UserA", NotificationFormat.EMAIL,
+                Integer.MAX_VALUE / 4, null, new Date(0L), Collections.emptyList()))
+                .thenReturn(Arrays.asList(event1));
+        when(notificationManager.getEvents("xwiki:XWiki.UserB", NotificationFormat.EMAIL,
+                Integer.MAX_VALUE / 4, null, new Date(0L), Collections.emptyList()))
+                .thenReturn(Collections.emptyList());
+        when(notificationManager.getEvents("xwiki:XWiki.UserC", NotificationFormat.EMAIL,
+                Integer.MAX_VALUE / 4, null, new Date(0L), Collections.emptyList()))
+                .thenReturn(Arrays.asList(event2));
+
+        MimeMessage messageA = mock(MimeMessage.class);
+        MimeMessage messageC = mock(MimeMessage.class);
+        when(factory.createMessage(eq(templateReference), anyMap())).thenAnswer(invocation -> {
+            Map<String, Object> parameters = invocation.getArgument(1);
+            return new InternetAddress("userA@xwiki.org").equals(parameters.get("to")) ? messageA : messageC;
+        });
+
+        when(defaultNotificationEmailRenderer.renderHTML(any(CompositeEvent.class), anyString())).thenReturn("html");
+        when(defaultNotificationEmailRenderer.renderPlainText(any(CompositeEvent.class), anyString()))
+                .thenReturn("plain");
+
+        // Test
+        PeriodicMimeMessageIterator iterator = mocker.getComponentUnderTest();
+
+        iterator.initialize(userIterator, factoryParameters, new Date(0L), templateReference);
+
+        // The messages are returned in the order of the users and the users without events are skipped
+        assertTrue(iterator.hasNext());
+        assertEquals(messageA, iterator.next());
+        assertTrue(iterator.hasNext());
+        assertEquals(messageC, iterator.next());
+        assertFalse(iterator.hasNext());
+
+        // The parameters given by the caller are not shared between the preparation threads
+        assertTrue(factoryParameters.isEmpty());
+        verify(xcontext, times(3)).setWikiId("xwiki");
+    }
+
+    @Test
+    public void testInterruptedWithSeveralThreads() throws Exception
+    {
+        DocumentReference templateReference = new DocumentReference("xwiki", "XWiki", "Template");
+
+        // Mocks
+        NotificationConfiguration configuration = mocker.getInstance(NotificationConfiguration.class);
+        when(configuration.getPeriodicEmailsThreads()).thenReturn(2);
+        ComponentManager contextComponentManager = mocker.getInstance(ComponentManager.class, "context");
+        when(contextComponentManager.getInstance(ExecutionContextManager.class))
+                .thenReturn(mock(ExecutionContextManager.class));
+        when(contextComponentManager.getInstance(Execution.class)).thenReturn(mock(Execution.class));
+        Provider<XWikiContext> contextProvider = mocker.getInstance(
+                new DefaultParameterizedType(null, Provider.class, XWikiContext.class));
+        when(contextProvider.get()).thenReturn(mock(XWikiContext.class));
+
+        // More users than the number of messages prepared in advance
+        NotificationUserIterator userIterator = mock(NotificationUserIterator.class);
+        DocumentReference userA = new DocumentReference("xwiki", "XWiki", "UserA");
+        DocumentReference userB = new DocumentReference("xwiki", "XWiki", "UserB");
+        when(userIterator.hasNext()).thenReturn(true);
+        when(userIterator.next()).thenReturn(userA, userB, new DocumentReference("xwiki", "XWiki", "UserC"),
+                new DocumentReference("xwiki", "XWiki", "UserD"), new DocumentReference("xwiki", "XWiki", "UserE"),
+                new DocumentReference("xwiki", "XWiki", "UserF"));
+        when(documentAccessBridge.getProperty(any(DocumentReference.class), any(DocumentReference.class), eq(0),
+                eq("email"))).thenReturn("user@xwiki.org");
+        when(serializer.serialize(any())).thenAnswer(
+                invocation -> invocation.<DocumentReference>getArgument(0).getName());
+
+        when(notificationManager.getEvents("UserA", NotificationFormat.EMAIL,
+                Integer.MAX_VALUE / 4, null, new Date(0L), Collections.emptyList()))
+                .thenReturn(Arrays.asList(mock(CompositeEvent.class)));
+        // The message of the second user is still being prepared when the iteration is interrupted
+        CountDownLatch released = new CountDownLatch(1);
+        when(notificationManager.getEvents("UserB", NotificationFormat.EMAIL,
+                Integer.MAX_VALUE / 4, null, new Date(0L), Collections.emptyList())).thenAnswer(invocation -> {
+                    released.await();
+                    return Collections.emptyList();
+                });
+
+        MimeMessage messageA = mock(MimeMessage.class);
+        when(factory.createMessage(eq(templateReference), anyMap())).thenReturn(messageA);
+
+        // Test
+        PeriodicMimeMessageIterator iterator = mocker.getComponentUnderTest();
+
+        iterator.initialize(userIterator, new HashedMap(), new Date(0L), templateReference);
+
+        assertTrue(iterator.hasNext());
+
+        Thread.currentThread().interrupt();
+        try {
+            assertEquals(messageA, iterator.next());
+
+            // The iteration ends instead of preparing the messages of the next users
+            assertFalse(iterator.hasNext());
+        } finally {
+            // Make sure the interrupted state is kept for the caller (and cleared for the next tests)
+            assertTrue(Thread.interrupted());
+            released.countDown();
+        }
+    }
 }
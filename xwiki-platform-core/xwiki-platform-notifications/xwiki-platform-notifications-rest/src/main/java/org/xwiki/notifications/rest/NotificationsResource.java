@@ -39,6 +39,11 @@
 {
     /**
      * Get notifications for the given parameters.
+     * <p>
+     * The next page is obtained by passing the {@code cursorDate} and {@code cursorId} values of the returned
+     * {@link org.xwiki.notifications.rest.model.Notifications} (since 11.0RC1). This is much cheaper than passing the
+     * ids of the already displayed events in {@code blackList}.
+     *
      * @return notifications
      * @throws Exception if an error occurs
      */
@@ -59,7 +64,9 @@ Response getNotifications(
             @QueryParam("displayReadEvents") String displayReadEvents,
             @QueryParam("displayReadStatus") String displayReadStatus,
             @QueryParam("tags") String tags,
-            @QueryParam("currentWiki") String currentWiki
+            @QueryParam("currentWiki") String currentWiki,
+            @QueryParam("cursorDate") String cursorDate,
+            @QueryParam("cursorId") String cursorId
             ) throws Exception;
 
     /**
@@ -89,7 +96,9 @@ String getNotificationsRSS(
             @QueryParam("displayReadEvents") String displayReadEvents,
             @QueryParam("displayReadStatus") String displayReadStatus,
             @QueryParam("tags") String tags,
-            @QueryParam("currentWiki") String currentWiki
+            @QueryParam("currentWiki") String currentWiki,
+            @QueryParam("cursorDate") String cursorDate,
+            @QueryParam("cursorId") String cursorId
     ) throws Exception;
 
     /**
@@ -124,18 +124,23 @@ public Response getNotifications(
             String displayReadEvents,
             String displayReadStatus,
             String tags,
-            String currentWiki
+            String currentWiki,
+            String cursorDate,
+            String cursorId
     ) throws Exception
     {
         // 1. Get the events and render them as notifications.
-        List<CompositeEvent> events =
-                getCompositeEvents(useUserPreferences, userId, untilDate, blackList, pages, spaces, wikis,
+        NotificationParameters parameters =
+                getNotificationParameters(useUserPreferences, userId, untilDate, blackList, pages, spaces, wikis,
                         users, count,
                         displayOwnEvents, displayMinorEvents, displaySystemEvents, displayReadEvents, tags,
-                        currentWiki);
+                        currentWiki, cursorDate, cursorId);
+        List<CompositeEvent> events = getCompositeEvents(parameters);
 
         Notifications notifications = new Notifications(
                 notificationsRenderer.renderNotifications(events, userId, TRUE.equals(displayReadStatus)));
+        // Position of the last examined event, to be used to get the next page
+        notifications.setCursor(parameters.cursorDate, parameters.cursorId);
 
         // 2: Build the response to add the "cache control" header.
         Response.ResponseBuilder response = Response.ok(notifications);
@@ -149,13 +154,14 @@ public Response getNotifications(
     public String getNotificationsRSS(String useUserPreferences, String userId, String untilDate,
             String blackList, String pages, String spaces, String wikis, String users, String count,
             String displayOwnEvents, String displayMinorEvents, String displaySystemEvents, String displayReadEvents,
-            String displayReadStatus, String tags, String currentWiki) throws Exception
+            String displayReadStatus, String tags, String currentWiki, String cursorDate, String cursorId)
+            throws Exception
     {
-        List<CompositeEvent> events =
-                getCompositeEvents(useUserPreferences, userId, untilDate, blackList, pages, spaces, wikis,
+        List<CompositeEvent> events = getCompositeEvents(
+                getNotificationParameters(useUserPreferences, userId, untilDate, blackList, pages, spaces, wikis,
                         users, count,
                         displayOwnEvents, displayMinorEvents, displaySystemEvents, displayReadEvents, tags,
-                        currentWiki);
+                        currentWiki, cursorDate, cursorId));
         SyndFeedOutput output = new SyndFeedOutput();
         return output.outputString(notificationRSSManager.renderFeed(events));
     }
@@ -183,14 +189,16 @@ public Response postNotifications() throws Exception
                 request.get("displayReadEvents"),
                 request.get("displayReadStatus"),
                 request.get("tags"),
-                request.get("currentWiki")
+                request.get("currentWiki"),
+                request.get("cursorDate"),
+                request.get("cursorId")
         );
     }
 
-    private List<CompositeEvent> getCompositeEvents(String useUserPreferences, String userId,
+    private NotificationParameters getNotificationParameters(String useUserPreferences, String userId,
             String untilDate, String blackList, String pages, String spaces, String wikis, String users, String count,
             String displayOwnEvents, String displayMinorEvents, String displaySystemEvents, String displayReadEvents,
-            String tags, String currentWiki)
+            String tags, String currentWiki, String cursorDate, String cursorId)
             throws NotificationException, EventStreamException
     {
         NotificationParameters parameters = new NotificationParameters();
@@ -209,6 +217,10 @@ private List<CompositeEvent> getCompositeEvents(String useUserPreferences, Strin
         if (StringUtils.isNotBlank(untilDate)) {
             parameters.endDate = new Date(Long.parseLong(untilDate));
         }
+        if (StringUtils.isNotBlank(cursorDate)) {
+            parameters.cursorDate = new Date(Long.parseLong(cursorDate));
+            parameters.cursorId = StringUtils.defaultIfBlank(cursorId, null);
+        }
         if (TRUE.equals(useUserPreferences)) {
             useUserPreferences(parameters);
         } else {
@@ -216,7 +228,7 @@ private List<CompositeEvent> getCompositeEvents(String useUserPreferences, Strin
                     displaySystemEvents, displayReadEvents, tags, currentWiki);
         }
 
-        return getCompositeEvents(parameters);
+        return parameters;
     }
 
     private void dontUseUserPreferences(String pages, String spaces, String wikis, String users,
@@ -258,6 +270,7 @@ private void useUserPreferences(NotificationParameters parameters) throws Notifi
                     parameters.format);
             parameters.filters = notificationFilterManager.getAllFilters(parameters.user, true);
             parameters.filterPreferences = notificationFilterPreferenceManager.getFilterPreferences(parameters.user);
+            parameters.useInbox = true;
         }
     }
 
@@ -20,6 +20,7 @@
 package org.xwiki.notifications.rest.model;
 
 import java.util.Collection;
+import java.util.Date;
 
 /**
  * Represent a serializable version of a notification list, retro-compatible with the old notification services.
@@ -31,6 +32,10 @@
 {
     private Collection<Notification> notifications;
 
+    private Long cursorDate;
+
+    private String cursorId;
+
     /**
      * Construct a Notifications.
      * @param notifications list of notifications
@@ -47,4 +52,35 @@ public Collection<Notification> getNotifications()
     {
         return notifications;
     }
+
+    /**
+     * @param date the date of the last examined event
+     * @param id the identifier of the last examined event
+     * @since 11.0RC1
+     */
+    public void setCursor(Date date, String id)
+    {
+        this.cursorDate = date != null ? date.getTime() : null;
+        this.cursorId = id;
+    }
+
+    /**
+     * @return the date (in milliseconds) of the last examined event, to pass as {@code cursorDate} to get the next
+     *         page of notifications
+     * @since 11.0RC1
+     */
+    public Long getCursorDate()
+    {
+        return this.cursorDate;
+    }
+
+    /**
+     * @return the identifier of the last examined event, to pass as {@code cursorId} to get the next page of
+     *         notifications
+     * @since 11.0RC1
+     */
+    public String getCursorId()
+    {
+        return this.cursorId;
+    }
 }
@@ -73,6 +73,32 @@
      */
     public Collection<String> blackList = new ArrayList<>();
 
+    /**
+     * Date of the position from which to continue the search: only the events older than this position are returned.
+     * Combined with {@link #cursorId} to provide a stable ordering between events having the same date. Updated to the
+     * position of the last examined event once the search is done so that it can be used to get the next page.
+     *
+     * @since 11.0RC1
+     */
+    public Date cursorDate;
+
+    /**
+     * Identifier of the event at the position from which to continue the search.
+     *
+     * @see #cursorDate
+     * @since 11.0RC1
+     */
+    public String cursorId;
+
+    /**
+     * Get the events from the precomputed inbox of the {@link #user} instead of evaluating the preferences and the
+     * filters of the user, when the inboxes are enabled in the configuration. Only taken into account for the
+     * {@link NotificationFormat#ALERT} format.
+     *
+     * @since 11.0RC1
+     */
+    public boolean useInbox;
+
     /**
      * List of preferences to apply.
      */
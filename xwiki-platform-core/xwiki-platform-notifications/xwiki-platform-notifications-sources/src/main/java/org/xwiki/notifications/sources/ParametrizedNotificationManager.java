@@ -37,6 +37,10 @@
 {
     /**
      * Get the events matching the given parameters.
+     * <p>
+     * Since 11.0RC1 the cursor of the passed parameters ({@link NotificationParameters#cursorDate} and
+     * {@link NotificationParameters#cursorId}) is updated to the position of the last examined event.
+     *
      * @param parameters parameters to take care of
      * @return a list of the corresponding composite events
      * @throws NotificationException if an error occurs
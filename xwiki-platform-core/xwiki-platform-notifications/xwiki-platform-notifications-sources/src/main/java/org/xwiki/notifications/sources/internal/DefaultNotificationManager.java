@@ -29,6 +29,7 @@
 import org.xwiki.component.annotation.Component;
 import org.xwiki.model.reference.DocumentReferenceResolver;
 import org.xwiki.notifications.CompositeEvent;
+import org.xwiki.notifications.NotificationConfiguration;
 import org.xwiki.notifications.NotificationException;
 import org.xwiki.notifications.NotificationFormat;
 import org.xwiki.notifications.filters.NotificationFilterManager;
@@ -67,6 +68,12 @@ public class DefaultNotificationManager implements NotificationManager
     @Inject
     private ParametrizedNotificationManager parametrizedNotificationManager;
 
+    @Inject
+    private NotificationConfiguration notificationConfiguration;
+
+    @Inject
+    private NotificationInboxManager notificationInboxManager;
+
     @Override
     public List<CompositeEvent> getEvents(String userId, int expectedCount)
             throws NotificationException
@@ -127,17 +134,30 @@ public long getEventsCount(String userId, int maxCount) throws NotificationExcep
         parameters.format = NotificationFormat.ALERT;
         parameters.expectedCount = maxCount;
         parameters.onlyUnread = true;
+
+        // The inbox only contains the events the user should receive, so they can be counted with a single query
+        if (notificationConfiguration.isInboxEnabled()) {
+            loadPreferences(parameters);
+            return Math.min(notificationInboxManager.getUnreadCount(parameters), maxCount);
+        }
+
         return getEvents(parameters).size();
     }
 
     private List<CompositeEvent> getEvents(NotificationParameters parameters)
             throws NotificationException
+    {
+        loadPreferences(parameters);
+        parameters.useInbox = true;
+        return parametrizedNotificationManager.getEvents(parameters);
+    }
+
+    private void loadPreferences(NotificationParameters parameters) throws NotificationException
     {
         parameters.preferences = notificationPreferenceManager.getPreferences(parameters.user, true,
                 parameters.format);
         parameters.filters = notificationFilterManager.getAllFilters(parameters.user, true);
         parameters.filterPreferences = notificationFilterPreferenceManager.getFilterPreferences(parameters.user);
-        return parametrizedNotificationManager.getEvents(parameters);
     }
 
     @Override
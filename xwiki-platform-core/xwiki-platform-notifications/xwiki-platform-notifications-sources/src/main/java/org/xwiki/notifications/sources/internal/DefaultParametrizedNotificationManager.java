@@ -22,7 +22,6 @@
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -105,42 +104,24 @@ private List<CompositeEvent> getEvents(List<CompositeEvent> results, Notificatio
         // more events than expected and we will filter afterwards.
         final int batchSize = parameters.expectedCount * 2;
         try {
-            // Create the query
-            Query query = queryGenerator.generateQuery(parameters);
-            if (query == null) {
-                return Collections.emptyList();
-            }
-            query.setLimit(batchSize);
-
-            // Get a batch of events
-            List<Event> batch = eventStream.searchEvents(query);
-
-            // Add to the results the events the user has the right to see
-            for (Event event : batch) {
-                DocumentReference document = event.getDocument();
-                // Don't record events concerning a doc the user cannot see
-                if (document != null && !authorizationManager.hasAccess(Right.VIEW, parameters.user,
-                        document)) {
-                    continue;
+            List<Event> batch;
+            do {
+                // Create the query (starting after the last examined event)
+                Query query = queryGenerator.generateQuery(parameters);
+                if (query == null) {
+                    return Collections.emptyList();
                 }
+                query.setLimit(batchSize);
 
-                if (filterEvent(event, parameters)) {
-                    continue;
-                }
+                // Get a batch of events
+                batch = eventStream.searchEvents(query);
 
-                // Record this event
-                recordEvent(results, event);
-                // If the expected count is reached, stop now
-                if (results.size() >= parameters.expectedCount) {
+                if (addEvents(results, batch, parameters)) {
                     return results;
                 }
-            }
 
-            // If we haven't get the expected number of events, perform a new batch
-            if (results.size() < parameters.expectedCount && batch.size() == batchSize) {
-                parameters.blackList.addAll(getEventsIds(batch));
-                getEvents(results, parameters);
-            }
+                // If we haven't get the expected number of events, perform a new batch
+            } while (batch.size() == batchSize);
 
             return results;
         } catch (Exception e) {
@@ -148,6 +129,45 @@ private List<CompositeEvent> getEvents(List<CompositeEvent> results, Notificatio
         }
     }
 
+    /**
+     * Add to the results the events of the batch the user is allowed to see and move the cursor of the parameters
+     * after each examined event.
+     *
+     * @param results the composite events found so far
+     * @param batch the events to examine
+     * @param parameters the parameters of the search
+     * @return true if the expected count is reached
+     */
+    private boolean addEvents(List<CompositeEvent> results, List<Event> batch, NotificationParameters parameters)
+        throws NotificationException, EventStreamException
+    {
+        // Add to the results the events the user has the right to see
+        for (Event event : batch) {
+            parameters.cursorDate = event.getDate();
+            parameters.cursorId = event.getId();
+
+            DocumentReference document = event.getDocument();
+            // Don't record events concerning a doc the user cannot see
+            if (document != null && !authorizationManager.hasAccess(Right.VIEW, parameters.user,
+                    document)) {
+                continue;
+            }
+
+            if (filterEvent(event, parameters)) {
+                continue;
+            }
+
+            // Record this event
+            recordEvent(results, event);
+            // If the expected count is reached, stop now
+            if (results.size() >= parameters.expectedCount) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
     private boolean filterEvent(Event event, NotificationParameters parameters) throws EventStreamException
     {
         // Don't record events that have a target that don't include the current user
@@ -182,11 +202,6 @@ private boolean filterEvent(Event event, NotificationParameters parameters) thro
         return false;
     }
 
-    private List<String> getEventsIds(List<Event> events)
-    {
-        return events.stream().map(Event::getId).collect(Collectors.toList());
-    }
-
     private class BestSimilarity
     {
         public int value;
@@ -308,7 +308,9 @@ private String parseOtherOperation(AbstractOperatorNode operator, HQLQuery resul
             result.getQueryParameters().putAll(inSubQueryOperator.getParameters());
         } else if (operator instanceof OrderByNode) {
             OrderByNode orderByNode = (OrderByNode) operator;
-            returnValue = String.format("%s ORDER BY %s %s", parseBlock(orderByNode.getQuery(), result),
+            // An ORDER BY applied on another one adds a secondary ordering
+            String format = orderByNode.getQuery() instanceof OrderByNode ? "%s, %s %s" : "%s ORDER BY %s %s";
+            returnValue = String.format(format, parseBlock(orderByNode.getQuery(), result),
                     parseBlock(orderByNode.getProperty(), result), orderByNode.getOrder().name());
         } else if (operator instanceof InListOfReadEventsNode) {
             InListOfReadEventsNode inList = (InListOfReadEventsNode) operator;
@@ -319,6 +321,20 @@ private String parseOtherOperation(AbstractOperatorNode operator, HQLQuery resul
 
             result.getQueryParameters().put("userStatusRead", serializer.serialize(inList.getUser()));
 
+        } else if (operator instanceof InUserInboxNode) {
+            InUserInboxNode inbox = (InUserInboxNode) operator;
+
+            StringBuilder builder = new StringBuilder("event IN (select inbox.activityEvent from "
+                    + "ActivityEventStatusImpl inbox where inbox.activityEvent = event "
+                    + "and inbox.entityId = :inboxUser");
+            if (inbox.isOnlyUnread()) {
+                builder.append(" and inbox.read = false");
+            }
+            builder.append(")");
+
+            returnValue = builder.toString();
+
+            result.getQueryParameters().put("inboxUser", serializer.serialize(inbox.getUser()));
         } else {
             returnValue = StringUtils.EMPTY;
         }
@@ -0,0 +1,70 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.notifications.sources.internal;
+
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.notifications.filters.expression.generics.AbstractOperatorNode;
+
+/**
+ * Special node to filter on events that have been dispatched to the inbox of the given user.
+ *
+ * @version $Id$
+ * @since 11.0RC1
+ */
+public class InUserInboxNode extends AbstractOperatorNode
+{
+    private DocumentReference user;
+
+    private boolean onlyUnread;
+
+    /**
+     * Construct an InUserInboxNode.
+     *
+     * @param user the user
+     * @param onlyUnread only keep the events of the inbox that have not been read yet
+     */
+    public InUserInboxNode(DocumentReference user, boolean onlyUnread)
+    {
+        this.user = user;
+        this.onlyUnread = onlyUnread;
+    }
+
+    /**
+     * @return the user
+     */
+    public DocumentReference getUser()
+    {
+        return user;
+    }
+
+    /**
+     * @return true if only the events of the inbox that have not been read yet should be kept
+     */
+    public boolean isOnlyUnread()
+    {
+        return onlyUnread;
+    }
+
+    @Override
+    public String toString()
+    {
+        return onlyUnread ? "UNREAD_EVENTS_OF_INBOX" : "EVENTS_OF_INBOX";
+    }
+}
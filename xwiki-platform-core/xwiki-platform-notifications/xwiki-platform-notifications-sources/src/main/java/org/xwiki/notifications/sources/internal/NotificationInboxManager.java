@@ -0,0 +1,413 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.notifications.sources.internal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLifecycleException;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.component.phase.Disposable;
+import org.xwiki.context.concurrent.ExecutionContextRunnable;
+import org.xwiki.eventstream.Event;
+import org.xwiki.eventstream.EventStatusManager;
+import org.xwiki.eventstream.internal.DefaultEventStatus;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.model.reference.EntityReference;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.model.reference.SpaceReference;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.notifications.NotificationException;
+import org.xwiki.notifications.NotificationFormat;
+import org.xwiki.notifications.filters.NotificationFilter;
+import org.xwiki.notifications.filters.NotificationFilterManager;
+import org.xwiki.notifications.filters.NotificationFilterPreference;
+import org.xwiki.notifications.filters.NotificationFilterPreferenceManager;
+import org.xwiki.notifications.filters.NotificationFilterType;
+import org.xwiki.notifications.filters.internal.scope.ScopeNotificationFilter;
+import org.xwiki.notifications.preferences.NotificationPreference;
+import org.xwiki.notifications.preferences.NotificationPreferenceManager;
+import org.xwiki.notifications.preferences.NotificationPreferenceProperty;
+import org.xwiki.notifications.sources.NotificationParameters;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryException;
+import org.xwiki.query.QueryManager;
+import org.xwiki.security.authorization.AuthorizationManager;
+import org.xwiki.security.authorization.Right;
+import org.xwiki.wiki.descriptor.WikiDescriptorManager;
+
+/**
+ * Dispatch the recorded events to the inbox of each user who should receive them as alert notifications (fan-out on
+ * write). The inbox of a user is made of the statuses of the events stored for this user, so that marking an event as
+ * read is enough to update it.
+ * <p>
+ * Before evaluating the preferences and the filters of each user, the users who only watch some locations (and so
+ * would have the event filtered by the {@link ScopeNotificationFilter}) are excluded with a query on the watched
+ * entities. The dispatch queue is bounded: when it's full, the event is not dispatched (and a warning is logged) so
+ * that the threads recording the events are never blocked.
+ *
+ * @version $Id$
+ * @since 11.0RC1
+ */
+@Component(roles = NotificationInboxManager.class)
+@Singleton
+public class NotificationInboxManager implements Disposable
+{
+    private static final int BATCH_SIZE = 50;
+
+    private static final int QUEUE_SIZE = 1000;
+
+    private static final String XWQL_QUERY = "select distinct doc.fullName from Document doc, "
+            + "doc.object(XWiki.XWikiUsers) objUser order by doc.fullName";
+
+    private static final String SCOPE_PREFERENCE = "select distinct nfp.owner "
+            + "from DefaultNotificationFilterPreference nfp "
+            + "where nfp.filterName = :filterName and nfp.enabled = true and ";
+
+    /**
+     * The users with at least one inclusive scope filter preference for all event types: they only receive the
+     * events of the locations they watch.
+     */
+    private static final String WATCHING_USERS_QUERY = SCOPE_PREFERENCE + "nfp.filterType = :inclusive "
+            + "and nfp.alertEnabled = true and (nfp.allEventTypes = '' or nfp.allEventTypes is null)";
+
+    /**
+     * The users watching the location of the event, or having an exclusive scope filter preference (which makes the
+     * evaluation of the inclusive ones more complex).
+     */
+    private static final String LOCATION_USERS_QUERY = SCOPE_PREFERENCE + "(nfp.filterType = :exclusive "
+            + "or nfp.pageOnly = :document or nfp.page in (:spaces) or nfp.wiki = :wiki)";
+
+    private static final String FILTER_NAME = "filterName";
+
+    @Inject
+    private QueryManager queryManager;
+
+    @Inject
+    private DocumentReferenceResolver<String> resolver;
+
+    @Inject
+    private EntityReferenceSerializer<String> serializer;
+
+    @Inject
+    private WikiDescriptorManager wikiDescriptorManager;
+
+    @Inject
+    private AuthorizationManager authorizationManager;
+
+    @Inject
+    private NotificationPreferenceManager notificationPreferenceManager;
+
+    @Inject
+    private NotificationFilterManager notificationFilterManager;
+
+    @Inject
+    private NotificationFilterPreferenceManager notificationFilterPreferenceManager;
+
+    @Inject
+    private PreferenceDateNotificationFilter preferenceDateNotificationFilter;
+
+    @Inject
+    private RecordableEventDescriptorHelper recordableEventDescriptorHelper;
+
+    @Inject
+    private QueryGenerator queryGenerator;
+
+    @Inject
+    private EventStatusManager eventStatusManager;
+
+    @Inject
+    @Named("context")
+    private ComponentManager componentManager;
+
+    @Inject
+    private Logger logger;
+
+    private ThreadPoolExecutor executor;
+
+    /**
+     * Dispatch the given event to the inboxes of the users who should be notified, in a background thread.
+     *
+     * @param event the event to dispatch
+     */
+    public void dispatch(Event event)
+    {
+        try {
+            getExecutor().execute(new ExecutionContextRunnable(() -> dispatchNow(event), this.componentManager));
+        } catch (RejectedExecutionException e) {
+            // The queue is full: don't slow down the thread recording the event
+            this.logger.warn("The notification inbox dispatch queue is full, the event [{}] won't be added to the "
+                + "inboxes of the users.", event.getId());
+        }
+    }
+
+    private synchronized ThreadPoolExecutor getExecutor()
+    {
+        if (this.executor == null) {
+            BasicThreadFactory factory = new BasicThreadFactory.Builder()
+                .namingPattern("Notification inbox dispatcher thread %d").daemon(true)
+                .priority(Thread.NORM_PRIORITY - 1).build();
+            this.executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(QUEUE_SIZE), factory);
+        }
+
+        return this.executor;
+    }
+
+    /**
+     * Dispatch the given event to the inboxes of the users who should be notified.
+     *
+     * @param event the event to dispatch
+     */
+    public void dispatchNow(Event event)
+    {
+        List<String> wikis = new ArrayList<>();
+        wikis.add(this.wikiDescriptorManager.getMainWikiId());
+        if (event.getWiki() != null && !wikis.contains(event.getWiki().getName())) {
+            wikis.add(event.getWiki().getName());
+        }
+
+        Set<String> skippedUsers = getUsersNotWatching(event, wikis);
+
+        for (String wiki : wikis) {
+            try {
+                dispatch(event, wiki, skippedUsers);
+            } catch (QueryException e) {
+                this.logger.error("Failed to get the users of the wiki [{}] to dispatch the event [{}].", wiki,
+                    event.getId(), e);
+            }
+        }
+    }
+
+    /**
+     * @return the serialized references of the users who only watch some locations, not including the location of
+     *         the event
+     */
+    private Set<String> getUsersNotWatching(Event event, List<String> wikis)
+    {
+        // The events not related to a document are not filtered by their location
+        if (event.getDocument() == null) {
+            return Collections.emptySet();
+        }
+
+        Set<String> users = new HashSet<>();
+        Set<String> locationUsers = new HashSet<>();
+        for (String wiki : wikis) {
+            try {
+                users.addAll(getWatchingUsers(wiki));
+                locationUsers.addAll(getLocationUsers(event.getDocument(), wiki));
+            } catch (QueryException e) {
+                this.logger.warn("Failed to get the users watching the location of the event [{}]: {}",
+                    event.getId(), e.getMessage());
+
+                return Collections.emptySet();
+            }
+        }
+        users.removeAll(locationUsers);
+
+        return users;
+    }
+
+    private List<String> getWatchingUsers(String wiki) throws QueryException
+    {
+        Query query = this.queryManager.createQuery(WATCHING_USERS_QUERY, Query.HQL);
+        query.setWiki(wiki);
+        query.bindValue(FILTER_NAME, ScopeNotificationFilter.FILTER_NAME);
+        query.bindValue("inclusive", NotificationFilterType.INCLUSIVE);
+
+        return query.execute();
+    }
+
+    private List<String> getLocationUsers(DocumentReference document, String wiki) throws QueryException
+    {
+        List<String> spaces = new ArrayList<>();
+        for (EntityReference space = document.getLastSpaceReference(); space instanceof SpaceReference;
+            space = space.getParent()) {
+            spaces.add(this.serializer.serialize(space));
+        }
+
+        Query query = this.queryManager.createQuery(LOCATION_USERS_QUERY, Query.HQL);
+        query.setWiki(wiki);
+        query.bindValue(FILTER_NAME, ScopeNotificationFilter.FILTER_NAME);
+        query.bindValue("exclusive", NotificationFilterType.EXCLUSIVE);
+        query.bindValue("document", this.serializer.serialize(document));
+        query.bindValue("spaces", spaces);
+        query.bindValue("wiki", document.getWikiReference().getName());
+
+        return query.execute();
+    }
+
+    private void dispatch(Event event, String wiki, Set<String> skippedUsers) throws QueryException
+    {
+        WikiReference wikiReference = new WikiReference(wiki);
+        int offset = 0;
+        List<String> users;
+        do {
+            Query query = this.queryManager.createQuery(XWQL_QUERY, Query.XWQL);
+            query.setWiki(wiki);
+            query.setLimit(BATCH_SIZE);
+            query.setOffset(offset);
+            users = query.execute();
+
+            for (String user : users) {
+                DocumentReference userReference = this.resolver.resolve(user, wikiReference);
+                String serializedUser = this.serializer.serialize(userReference);
+                if (skippedUsers.contains(serializedUser)) {
+                    continue;
+                }
+
+                try {
+                    if (shouldReceive(event, userReference)) {
+                        this.eventStatusManager.saveEventStatus(new DefaultEventStatus(event, serializedUser, false));
+                    }
+                } catch (Exception e) {
+                    this.logger.warn("Failed to dispatch the event [{}] to the inbox of [{}].", event.getId(),
+                        userReference, e);
+                }
+            }
+
+            offset += BATCH_SIZE;
+        } while (users.size() == BATCH_SIZE);
+    }
+
+    /**
+     * Evaluate the preferences and the filters of the given user the same way the notification query does.
+     *
+     * @param event the event to test
+     * @param user the user for who the event is tested
+     * @return true if the event should be dispatched to the inbox of the user
+     * @throws Exception if an error happens
+     */
+    boolean shouldReceive(Event event, DocumentReference user) throws Exception
+    {
+        // Users from a sub wiki only receive the events of their wiki
+        if (!user.getWikiReference().getName().equals(this.wikiDescriptorManager.getMainWikiId())
+            && (event.getWiki() == null || !user.getWikiReference().equals(event.getWiki()))) {
+            return false;
+        }
+
+        if (event.getTarget() != null && !event.getTarget().isEmpty()
+            && !event.getTarget().contains(this.serializer.serialize(user))) {
+            return false;
+        }
+
+        if (event.getDocument() != null && !this.authorizationManager.hasAccess(Right.VIEW, user,
+            event.getDocument())) {
+            return false;
+        }
+
+        Collection<NotificationPreference> preferences =
+            this.notificationPreferenceManager.getPreferences(user, true, NotificationFormat.ALERT);
+        if (this.preferenceDateNotificationFilter.shouldFilter(event, preferences)) {
+            return false;
+        }
+
+        switch (getFilterPolicy(event, user)) {
+            case FILTER:
+                return false;
+            case KEEP:
+                return true;
+            default:
+                return hasPreference(event, user, preferences);
+        }
+    }
+
+    private NotificationFilter.FilterPolicy getFilterPolicy(Event event, DocumentReference user)
+        throws NotificationException
+    {
+        List<NotificationFilter> filters = new ArrayList<>(this.notificationFilterManager.getAllFilters(user, true));
+        Collections.sort(filters);
+        Collection<NotificationFilterPreference> filterPreferences =
+            this.notificationFilterPreferenceManager.getFilterPreferences(user);
+
+        for (NotificationFilter filter : filters) {
+            NotificationFilter.FilterPolicy policy =
+                filter.filterEvent(event, user, filterPreferences, NotificationFormat.ALERT);
+            if (policy != NotificationFilter.FilterPolicy.NO_EFFECT) {
+                return policy;
+            }
+        }
+
+        return NotificationFilter.FilterPolicy.NO_EFFECT;
+    }
+
+    private boolean hasPreference(Event event, DocumentReference user, Collection<NotificationPreference> preferences)
+        throws Exception
+    {
+        for (NotificationPreference preference : preferences) {
+            if (event.getType().equals(preference.getProperties().get(NotificationPreferenceProperty.EVENT_TYPE))) {
+                return this.recordableEventDescriptorHelper.hasDescriptor(event.getType(), user);
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Count the events of the inbox of the given user which have not been read yet, with a single query. The
+     * preferences and the filters of the user have been evaluated when the events were dispatched, but the start date
+     * of the preferences, the hidden events and the exclusive filters are applied again since they might have changed
+     * since then (e.g. when the user clears the notifications). Each event is counted, even the ones which are grouped
+     * when displayed.
+     *
+     * @param parameters the parameters of the user (preferences, filters, etc.) for who to count the unread events
+     * @return the number of unread events in the inbox of the user
+     * @throws NotificationException if an error happens
+     */
+    public long getUnreadCount(NotificationParameters parameters) throws NotificationException
+    {
+        try {
+            Query query = this.queryGenerator.generateInboxUnreadCountQuery(parameters);
+            query.setWiki(this.wikiDescriptorManager.getMainWikiId());
+            List<Long> results = query.execute();
+
+            return results.isEmpty() ? 0 : results.get(0);
+        } catch (QueryException e) {
+            throw new NotificationException(
+                String.format("Failed to count the unread events of the inbox of [%s].", parameters.user), e);
+        }
+    }
+
+    @Override
+    public void dispose() throws ComponentLifecycleException
+    {
+        synchronized (this) {
+            if (this.executor != null) {
+                this.executor.shutdownNow();
+            }
+        }
+    }
+}
@@ -91,6 +91,10 @@ public Order getOrder()
     @Override
     public String toString()
     {
+        if (query instanceof OrderByNode) {
+            return String.format("%s, %s %s", query, property, order.name());
+        }
+
         return String.format("%s ORDER BY %s %s", query, property, order.name());
     }
 }
@@ -32,6 +32,8 @@
 import org.xwiki.eventstream.EventStreamException;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.LocalDocumentReference;
+import org.xwiki.notifications.NotificationConfiguration;
+import org.xwiki.notifications.NotificationFormat;
 import org.xwiki.notifications.filters.NotificationFilter;
 import org.xwiki.notifications.filters.NotificationFilterManager;
 import org.xwiki.notifications.filters.NotificationFilterPreference;
@@ -93,6 +95,9 @@
     @Inject
     private RecordableEventDescriptorHelper recordableEventDescriptorHelper;
 
+    @Inject
+    private NotificationConfiguration notificationConfiguration;
+
     /**
      * Generate the query.
      *
@@ -126,6 +131,11 @@ public Query generateQuery(NotificationParameters parameters) throws QueryExcept
      */
     public ExpressionNode generateQueryExpression(NotificationParameters parameters) throws EventStreamException
     {
+        // The preferences and the filters have already been evaluated when the events were dispatched to the inbox
+        if (useInbox(parameters)) {
+            return generateInboxQueryExpression(parameters);
+        }
+
         // First: get the active preferences of the given user
         Collection<NotificationPreference> preferences = parameters.preferences;
 
@@ -177,6 +187,81 @@ public ExpressionNode generateQueryExpression(NotificationParameters parameters)
 
         // Other basic filters
         topNode = handleBlackList(parameters, topNode);
+        topNode = handleCursor(parameters, topNode);
+        topNode = handleEndDate(parameters, topNode);
+        topNode = handleHiddenEvents(parameters, topNode);
+        topNode = handleWiki(parameters, topNode);
+        topNode = handleOrder(topNode);
+
+        return topNode;
+    }
+
+    /**
+     * Generate the query counting the unread events of the inbox of the user. The same constraints as the ones used to
+     * display the notifications are applied, except the cursor: in particular the start date of the preferences (which
+     * is moved when the user clears the notifications), the hidden events and the exclusive global filters which might
+     * have changed since the events were dispatched.
+     *
+     * @param parameters parameters to use
+     * @return the query to execute, returning a single count
+     * @throws QueryException if error happens
+     * @since 11.0RC1
+     */
+    public Query generateInboxUnreadCountQuery(NotificationParameters parameters) throws QueryException
+    {
+        AbstractOperatorNode topNode = new InUserInboxNode(parameters.user, true);
+
+        if (parameters.fromDate != null) {
+            topNode = topNode.and(
+                    new GreaterThanNode(
+                            new PropertyValueNode(EventProperty.DATE),
+                            new DateValueNode(parameters.fromDate)
+                    )
+            );
+        }
+
+        topNode = handlePreferenceStartDates(parameters, topNode);
+        AbstractOperatorNode globalExclusiveFiltersNode = handleExclusiveGlobalFilters(parameters);
+        if (globalExclusiveFiltersNode != null) {
+            topNode = topNode.and(globalExclusiveFiltersNode);
+        }
+        topNode = handleBlackList(parameters, topNode);
+        topNode = handleEndDate(parameters, topNode);
+        topNode = handleHiddenEvents(parameters, topNode);
+        topNode = handleWiki(parameters, topNode);
+
+        ExpressionNodeToHQLConverter.HQLQuery result = hqlConverter.parse(topNode);
+        Query query = queryManager.createQuery(
+            String.format("select count(event) from ActivityEventImpl event where %s", result.getQuery()), Query.HQL);
+        for (Map.Entry<String, Object> queryParameter : result.getQueryParameters().entrySet()) {
+            query.bindValue(queryParameter.getKey(), queryParameter.getValue());
+        }
+
+        return query;
+    }
+
+    private boolean useInbox(NotificationParameters parameters)
+    {
+        return parameters.useInbox && parameters.user != null && parameters.format == NotificationFormat.ALERT
+            && notificationConfiguration.isInboxEnabled();
+    }
+
+    private AbstractOperatorNode generateInboxQueryExpression(NotificationParameters parameters)
+    {
+        AbstractOperatorNode topNode =
+            new InUserInboxNode(parameters.user, Boolean.TRUE.equals(parameters.onlyUnread));
+
+        if (parameters.fromDate != null) {
+            topNode = topNode.and(
+                    new GreaterThanNode(
+                            new PropertyValueNode(EventProperty.DATE),
+                            new DateValueNode(parameters.fromDate)
+                    )
+            );
+        }
+
+        topNode = handleBlackList(parameters, topNode);
+        topNode = handleCursor(parameters, topNode);
         topNode = handleEndDate(parameters, topNode);
         topNode = handleHiddenEvents(parameters, topNode);
         topNode = handleWiki(parameters, topNode);
@@ -250,6 +335,33 @@ private AbstractOperatorNode handleEventPreferences(NotificationParameters param
         return preferencesNode;
     }
 
+    /**
+     * Exclude the events which have happened before the start date of the preference of their type, the same way
+     * {@link PreferenceDateNotificationFilter} does.
+     *
+     * @param parameters parameters
+     * @param topNode the current top node
+     * @return the new top node
+     */
+    private AbstractOperatorNode handlePreferenceStartDates(NotificationParameters parameters,
+        AbstractOperatorNode topNode)
+    {
+        AbstractOperatorNode result = topNode;
+
+        for (NotificationPreference preference : parameters.preferences) {
+            Object eventType = preference.getProperties().get(NotificationPreferenceProperty.EVENT_TYPE);
+            if (eventType != null) {
+                result = result.and(
+                        new NotEqualsNode(value(EventProperty.TYPE), value((String) eventType)).or(
+                                new GreaterThanNode(value(EventProperty.DATE), value(preference.getStartDate()))
+                        )
+                );
+            }
+        }
+
+        return result;
+    }
+
     /**
      * Generate a part of the query using each of the {@link NotificationFilter} retrieved from the
      * {@link NotificationFilterManager}. Each {@link NotificationFilter} is called without any associated
@@ -337,6 +449,47 @@ private AbstractOperatorNode handleBlackList(NotificationParameters parameters,
         return topNode;
     }
 
+    /**
+     * Only get the events located after the cursor in the (date, id) descending order, so that getting the next page
+     * is a simple range scan whatever the number of events already skipped.
+     *
+     * @param parameters parameters
+     * @param topNode the current top node
+     * @return the new top node
+     */
+    private AbstractOperatorNode handleCursor(NotificationParameters parameters, AbstractOperatorNode topNode)
+    {
+        if (parameters.cursorDate != null) {
+            // Events with a lower date or events with the same date and a lower id:
+            // date <= cursorDate AND NOT (date = cursorDate AND id >= cursorId)
+            AbstractOperatorNode node = new LesserThanNode(
+                    new PropertyValueNode(EventProperty.DATE),
+                    new DateValueNode(parameters.cursorDate)
+            );
+
+            AbstractOperatorNode sameDateNode = new EqualsNode(
+                    new PropertyValueNode(EventProperty.DATE),
+                    new DateValueNode(parameters.cursorDate)
+            );
+            if (parameters.cursorId != null) {
+                sameDateNode = sameDateNode.and(
+                        new GreaterThanNode(
+                            new PropertyValueNode(EventProperty.ID),
+                            new StringValueNode(parameters.cursorId)
+                        )
+                );
+            }
+            node = node.and(new NotNode(sameDateNode));
+
+            if (topNode != null) {
+                return topNode.and(node);
+            } else {
+                return node;
+            }
+        }
+        return topNode;
+    }
+
     private AbstractOperatorNode handleWiki(NotificationParameters parameters, AbstractOperatorNode topNode)
     {
         // If the user is a local user
@@ -360,9 +513,14 @@ private AbstractOperatorNode handleWiki(NotificationParameters parameters, Abstr
     private AbstractOperatorNode handleOrder(AbstractOperatorNode topNode)
     {
         if (topNode != null) {
+            // Order by id too to have a stable order between events having the same date (needed by the cursor)
             return new OrderByNode(
-                    topNode,
-                    new PropertyValueNode(EventProperty.DATE),
+                    new OrderByNode(
+                        topNode,
+                        new PropertyValueNode(EventProperty.DATE),
+                        OrderByNode.Order.DESC
+                    ),
+                    new PropertyValueNode(EventProperty.ID),
                     OrderByNode.Order.DESC
             );
         } else {
@@ -25,21 +25,31 @@
 
 import org.junit.Before;
 import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.xwiki.bridge.DocumentAccessBridge;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.notifications.NotificationConfiguration;
+import org.xwiki.notifications.NotificationFormat;
 import org.xwiki.notifications.filters.NotificationFilterManager;
 import org.xwiki.notifications.internal.SimilarityCalculator;
 import org.xwiki.notifications.preferences.NotificationPreference;
 import org.xwiki.notifications.preferences.NotificationPreferenceManager;
 import org.xwiki.notifications.preferences.NotificationPreferenceProperty;
+import org.xwiki.notifications.sources.NotificationParameters;
 import org.xwiki.notifications.sources.ParametrizedNotificationManager;
 import org.xwiki.query.Query;
 import org.xwiki.test.annotation.ComponentList;
 import org.xwiki.test.mockito.MockitoComponentMockingRule;
 import org.xwiki.wiki.descriptor.WikiDescriptorManager;
 
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -84,4 +94,26 @@ public void setUp() throws Exception
         when(notificationPreferenceManager.getAllPreferences(userReference)).thenReturn(Arrays.asList(pref1));
     }
 
+    @Test
+    public void getEventsCountWithInbox() throws Exception
+    {
+        NotificationConfiguration configuration = mocker.getInstance(NotificationConfiguration.class);
+        when(configuration.isInboxEnabled()).thenReturn(true);
+        NotificationInboxManager inboxManager = mocker.getInstance(NotificationInboxManager.class);
+        NotificationPreference preference = mock(NotificationPreference.class);
+        when(notificationPreferenceManager.getPreferences(userReference, true, NotificationFormat.ALERT))
+            .thenReturn(Arrays.asList(preference));
+        when(inboxManager.getUnreadCount(any(NotificationParameters.class))).thenReturn(5L, 42L);
+
+        assertEquals(5, mocker.getComponentUnderTest().getEventsCount("xwiki:XWiki.UserA", 21));
+        assertEquals(21, mocker.getComponentUnderTest().getEventsCount("xwiki:XWiki.UserA", 21));
+
+        // The events don't have to be computed but the start date of the preferences must be taken into account
+        verify(newNotificationManager, never()).getEvents(any());
+        ArgumentCaptor<NotificationParameters> parameters = ArgumentCaptor.forClass(NotificationParameters.class);
+        verify(inboxManager, times(2)).getUnreadCount(parameters.capture());
+        assertEquals(userReference, parameters.getValue().user);
+        assertEquals(Arrays.asList(preference), parameters.getValue().preferences);
+    }
+
 }
\ No newline at end of file
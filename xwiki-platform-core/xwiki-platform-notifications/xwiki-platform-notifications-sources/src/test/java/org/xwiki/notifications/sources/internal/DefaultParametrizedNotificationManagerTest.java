@@ -122,6 +122,7 @@ public void getEventsWith2Queries() throws Exception
         when(event4.getType()).thenReturn("type4");
         when(event5.getType()).thenReturn("type5");
         when(event6.getType()).thenReturn("type6");
+        when(event5.getId()).thenReturn("event5");
 
         when(eventStream.searchEvents(query)).thenReturn(Arrays.asList(event1, event2, event3, event4),
                 Arrays.asList(event5, event6));
@@ -136,6 +137,11 @@ public void getEventsWith2Queries() throws Exception
         assertEquals(2, results.size());
         assertEquals(event1, results.get(0).getEvents().get(0));
         assertEquals(event5, results.get(1).getEvents().get(0));
+
+        // The second query starts after the last examined event instead of excluding the already seen ones
+        assertTrue(parameters.blackList.isEmpty());
+        assertEquals(new Date(1L), parameters.cursorDate);
+        assertEquals("event5", parameters.cursorId);
     }
 
     private Event createMockedEvent()
@@ -285,6 +285,22 @@ public void parseWithInListOfReadEventsNode()
         assertEquals("xwiki:XWiki.UserA", result.getQueryParameters().get("userStatusRead"));
     }
 
+    @Test
+    public void parseWithInUserInboxNode()
+    {
+        DocumentReference user = new DocumentReference("xwiki", "XWiki", "userA");
+
+        when(serializer.serialize(user)).thenReturn("xwiki:XWiki.UserA");
+
+        ExpressionNodeToHQLConverter.HQLQuery result = parser.parse(new InUserInboxNode(user, true));
+
+        assertEquals("event IN (select inbox.activityEvent from ActivityEventStatusImpl inbox " +
+                        "where inbox.activityEvent = event and inbox.entityId = :inboxUser " +
+                        "and inbox.read = false)",
+                result.getQuery());
+        assertEquals("xwiki:XWiki.UserA", result.getQueryParameters().get("inboxUser"));
+    }
+
     @Test
     public void parseWithInSubQueryNode()
     {
@@ -0,0 +1,91 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.notifications.sources.internal;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.xwiki.eventstream.Event;
+import org.xwiki.eventstream.events.EventStreamAddedEvent;
+import org.xwiki.notifications.NotificationConfiguration;
+import org.xwiki.test.mockito.MockitoComponentMockingRule;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link NotificationInboxListener}.
+ *
+ * @version $Id$
+ */
+public class NotificationInboxListenerTest
+{
+    @Rule
+    public final MockitoComponentMockingRule<NotificationInboxListener> mocker =
+            new MockitoComponentMockingRule<>(NotificationInboxListener.class);
+
+    private NotificationConfiguration notificationConfiguration;
+
+    private NotificationInboxManager notificationInboxManager;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        this.notificationConfiguration = this.mocker.getInstance(NotificationConfiguration.class);
+        this.notificationInboxManager = this.mocker.getInstance(NotificationInboxManager.class);
+
+        when(this.notificationConfiguration.isEnabled()).thenReturn(true);
+    }
+
+    @Test
+    public void onEvent() throws Exception
+    {
+        when(this.notificationConfiguration.isInboxEnabled()).thenReturn(true);
+        Event event = mock(Event.class);
+
+        this.mocker.getComponentUnderTest().onEvent(new EventStreamAddedEvent(), event, null);
+
+        verify(this.notificationInboxManager).dispatch(event);
+    }
+
+    @Test
+    public void onEventWhenInboxDisabled() throws Exception
+    {
+        Event event = mock(Event.class);
+
+        this.mocker.getComponentUnderTest().onEvent(new EventStreamAddedEvent(), event, null);
+
+        verify(this.notificationInboxManager, never()).dispatch(any(Event.class));
+    }
+
+    @Test
+    public void onEventWhenNotificationsDisabled() throws Exception
+    {
+        when(this.notificationConfiguration.isEnabled()).thenReturn(false);
+        when(this.notificationConfiguration.isInboxEnabled()).thenReturn(true);
+
+        this.mocker.getComponentUnderTest().onEvent(new EventStreamAddedEvent(), mock(Event.class), null);
+
+        verify(this.notificationInboxManager, never()).dispatch(any(Event.class));
+    }
+}
@@ -0,0 +1,326 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.notifications.sources.internal;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContextManager;
+import org.xwiki.eventstream.Event;
+import org.xwiki.eventstream.EventStatus;
+import org.xwiki.eventstream.EventStatusManager;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.notifications.NotificationFormat;
+import org.xwiki.notifications.filters.NotificationFilter;
+import org.xwiki.notifications.filters.NotificationFilterManager;
+import org.xwiki.notifications.filters.NotificationFilterType;
+import org.xwiki.notifications.preferences.NotificationPreference;
+import org.xwiki.notifications.preferences.NotificationPreferenceManager;
+import org.xwiki.notifications.preferences.NotificationPreferenceProperty;
+import org.xwiki.notifications.sources.NotificationParameters;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryManager;
+import org.xwiki.security.authorization.AuthorizationManager;
+import org.xwiki.security.authorization.Right;
+import org.xwiki.test.mockito.MockitoComponentMockingRule;
+import org.xwiki.wiki.descriptor.WikiDescriptorManager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link NotificationInboxManager}.
+ *
+ * @version $Id$
+ */
+public class NotificationInboxManagerTest
+{
+    @Rule
+    public final MockitoComponentMockingRule<NotificationInboxManager> mocker =
+            new MockitoComponentMockingRule<>(NotificationInboxManager.class);
+
+    private QueryManager queryManager;
+
+    private DocumentReferenceResolver<String> resolver;
+
+    private EntityReferenceSerializer<String> serializer;
+
+    private AuthorizationManager authorizationManager;
+
+    private NotificationPreferenceManager notificationPreferenceManager;
+
+    private NotificationFilterManager notificationFilterManager;
+
+    private RecordableEventDescriptorHelper recordableEventDescriptorHelper;
+
+    private EventStatusManager eventStatusManager;
+
+    private DocumentReference userA = new DocumentReference("xwiki", "XWiki", "UserA");
+
+    private DocumentReference userB = new DocumentReference("xwiki", "XWiki", "UserB");
+
+    private DocumentReference document = new DocumentReference("xwiki", Arrays.asList("Space", "Sub"), "Page");
+
+    private Query usersQuery;
+
+    private Query watchingUsersQuery;
+
+    private Query locationUsersQuery;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        this.queryManager = this.mocker.getInstance(QueryManager.class);
+        this.resolver = this.mocker.getInstance(DocumentReferenceResolver.TYPE_STRING);
+        this.serializer = this.mocker.getInstance(EntityReferenceSerializer.TYPE_STRING);
+        this.authorizationManager = this.mocker.getInstance(AuthorizationManager.class);
+        this.notificationPreferenceManager = this.mocker.getInstance(NotificationPreferenceManager.class);
+        this.notificationFilterManager = this.mocker.getInstance(NotificationFilterManager.class);
+        this.recordableEventDescriptorHelper = this.mocker.getInstance(RecordableEventDescriptorHelper.class);
+        this.eventStatusManager = this.mocker.getInstance(EventStatusManager.class);
+
+        WikiDescriptorManager wikiDescriptorManager = this.mocker.getInstance(WikiDescriptorManager.class);
+        when(wikiDescriptorManager.getMainWikiId()).thenReturn("xwiki");
+
+        for (DocumentReference user : Arrays.asList(this.userA, this.userB)) {
+            String serializedUser = "xwiki:XWiki." + user.getName();
+            when(this.resolver.resolve("XWiki." + user.getName(), new WikiReference("xwiki"))).thenReturn(user);
+            when(this.serializer.serialize(user)).thenReturn(serializedUser);
+
+            when(this.authorizationManager.hasAccess(Right.VIEW, user, this.document)).thenReturn(true);
+
+            NotificationPreference preference = mock(NotificationPreference.class);
+            when(preference.getProperties())
+                .thenReturn(Collections.singletonMap(NotificationPreferenceProperty.EVENT_TYPE, "update"));
+            when(this.notificationPreferenceManager.getPreferences(user, true, NotificationFormat.ALERT))
+                .thenReturn(Arrays.asList(preference));
+            when(this.recordableEventDescriptorHelper.hasDescriptor("update", user)).thenReturn(true);
+        }
+        when(this.serializer.serialize(this.document)).thenReturn("xwiki:Space.Sub.Page");
+        when(this.serializer.serialize(this.document.getLastSpaceReference())).thenReturn("xwiki:Space.Sub");
+        when(this.serializer.serialize(this.document.getLastSpaceReference().getParent())).thenReturn("xwiki:Space");
+
+        this.usersQuery = mock(Query.class);
+        when(this.queryManager.createQuery(startsWith("select distinct doc.fullName"), eq(Query.XWQL)))
+            .thenReturn(this.usersQuery);
+        when(this.usersQuery.execute()).thenReturn(Arrays.asList("XWiki.UserA", "XWiki.UserB"));
+
+        this.watchingUsersQuery = mock(Query.class);
+        when(this.queryManager.createQuery(contains(":inclusive"), eq(Query.HQL))).thenReturn(this.watchingUsersQuery);
+        this.locationUsersQuery = mock(Query.class);
+        when(this.queryManager.createQuery(contains(":exclusive"), eq(Query.HQL))).thenReturn(this.locationUsersQuery);
+    }
+
+    private Event mockEvent()
+    {
+        Event event = mock(Event.class);
+        when(event.getType()).thenReturn("update");
+        when(event.getWiki()).thenReturn(new WikiReference("xwiki"));
+        when(event.getDocument()).thenReturn(this.document);
+
+        return event;
+    }
+
+    @Test
+    public void shouldReceive() throws Exception
+    {
+        assertTrue(this.mocker.getComponentUnderTest().shouldReceive(mockEvent(), this.userA));
+    }
+
+    @Test
+    public void shouldReceiveWhenUserFromAnotherWiki() throws Exception
+    {
+        Event event = mockEvent();
+        when(event.getWiki()).thenReturn(new WikiReference("subwiki"));
+
+        DocumentReference user = new DocumentReference("otherwiki", "XWiki", "UserC");
+
+        assertFalse(this.mocker.getComponentUnderTest().shouldReceive(event, user));
+    }
+
+    @Test
+    public void shouldReceiveWhenNotTarget() throws Exception
+    {
+        Event event = mockEvent();
+        when(event.getTarget()).thenReturn(Collections.singleton("xwiki:XWiki.UserB"));
+
+        assertFalse(this.mocker.getComponentUnderTest().shouldReceive(event, this.userA));
+        assertTrue(this.mocker.getComponentUnderTest().shouldReceive(event, this.userB));
+    }
+
+    @Test
+    public void shouldReceiveWhenNoViewRight() throws Exception
+    {
+        when(this.authorizationManager.hasAccess(Right.VIEW, this.userA, this.document)).thenReturn(false);
+
+        assertFalse(this.mocker.getComponentUnderTest().shouldReceive(mockEvent(), this.userA));
+    }
+
+    @Test
+    public void shouldReceiveWhenFilteredByDate() throws Exception
+    {
+        PreferenceDateNotificationFilter dateFilter = this.mocker.getInstance(PreferenceDateNotificationFilter.class);
+        when(dateFilter.shouldFilter(any(Event.class), anyCollection())).thenReturn(true);
+
+        assertFalse(this.mocker.getComponentUnderTest().shouldReceive(mockEvent(), this.userA));
+    }
+
+    @Test
+    public void shouldReceiveWithFilters() throws Exception
+    {
+        Event event = mockEvent();
+        NotificationFilter filter = mock(NotificationFilter.class);
+        when(this.notificationFilterManager.getAllFilters(this.userA, true)).thenReturn(Arrays.asList(filter));
+
+        when(filter.filterEvent(eq(event), eq(this.userA), anyCollection(), eq(NotificationFormat.ALERT)))
+            .thenReturn(NotificationFilter.FilterPolicy.FILTER);
+        assertFalse(this.mocker.getComponentUnderTest().shouldReceive(event, this.userA));
+
+        // A kept event does not need any preference
+        when(event.getType()).thenReturn("create");
+        when(filter.filterEvent(eq(event), eq(this.userA), anyCollection(), eq(NotificationFormat.ALERT)))
+            .thenReturn(NotificationFilter.FilterPolicy.KEEP);
+        assertTrue(this.mocker.getComponentUnderTest().shouldReceive(event, this.userA));
+
+        when(filter.filterEvent(eq(event), eq(this.userA), anyCollection(), eq(NotificationFormat.ALERT)))
+            .thenReturn(NotificationFilter.FilterPolicy.NO_EFFECT);
+        assertFalse(this.mocker.getComponentUnderTest().shouldReceive(event, this.userA));
+    }
+
+    @Test
+    public void dispatchNow() throws Exception
+    {
+        Event event = mockEvent();
+        when(this.authorizationManager.hasAccess(Right.VIEW, this.userB, this.document)).thenReturn(false);
+
+        this.mocker.getComponentUnderTest().dispatchNow(event);
+
+        ArgumentCaptor<EventStatus> statusCaptor = ArgumentCaptor.forClass(EventStatus.class);
+        verify(this.eventStatusManager).saveEventStatus(statusCaptor.capture());
+        assertEquals("xwiki:XWiki.UserA", statusCaptor.getValue().getEntityId());
+        assertFalse(statusCaptor.getValue().isRead());
+        assertEquals(event, statusCaptor.getValue().getEvent());
+    }
+
+    @Test
+    public void dispatchNowSkipsUsersNotWatchingTheLocation() throws Exception
+    {
+        Event event = mockEvent();
+        when(this.watchingUsersQuery.execute()).thenReturn(Arrays.asList("xwiki:XWiki.UserA", "xwiki:XWiki.UserB"));
+        when(this.locationUsersQuery.execute()).thenReturn(Arrays.asList("xwiki:XWiki.UserB"));
+
+        this.mocker.getComponentUnderTest().dispatchNow(event);
+
+        // The preferences of the user who does not watch the location of the event are not even evaluated
+        verify(this.notificationPreferenceManager, never()).getPreferences(this.userA, true,
+            NotificationFormat.ALERT);
+        ArgumentCaptor<EventStatus> statusCaptor = ArgumentCaptor.forClass(EventStatus.class);
+        verify(this.eventStatusManager).saveEventStatus(statusCaptor.capture());
+        assertEquals("xwiki:XWiki.UserB", statusCaptor.getValue().getEntityId());
+
+        verify(this.watchingUsersQuery).bindValue("inclusive", NotificationFilterType.INCLUSIVE);
+        verify(this.locationUsersQuery).bindValue("document", "xwiki:Space.Sub.Page");
+        verify(this.locationUsersQuery).bindValue("spaces", Arrays.asList("xwiki:Space.Sub", "xwiki:Space"));
+        verify(this.locationUsersQuery).bindValue("wiki", "xwiki");
+    }
+
+    @Test
+    public void dispatchNowWithEventWithoutDocument() throws Exception
+    {
+        Event event = mockEvent();
+        when(event.getDocument()).thenReturn(null);
+
+        this.mocker.getComponentUnderTest().dispatchNow(event);
+
+        // The location is not taken into account
+        verify(this.queryManager, never()).createQuery(contains(":inclusive"), eq(Query.HQL));
+        verify(this.eventStatusManager, times(2)).saveEventStatus(any(EventStatus.class));
+    }
+
+    @Test
+    public void dispatchWhenQueueIsFull() throws Exception
+    {
+        // Block the dispatcher thread on the first event
+        CountDownLatch released = new CountDownLatch(1);
+        ComponentManager componentManager = this.mocker.getInstance(ComponentManager.class, "context");
+        when(componentManager.getInstance(ExecutionContextManager.class)).thenAnswer(invocation -> {
+            released.await();
+            return mock(ExecutionContextManager.class);
+        });
+        when(componentManager.getInstance(Execution.class)).thenReturn(mock(Execution.class));
+
+        try {
+            // One event being dispatched and 1000 waiting in the queue
+            for (int i = 0; i < 1001; ++i) {
+                this.mocker.getComponentUnderTest().dispatch(mock(Event.class));
+            }
+            verify(this.mocker.getMockedLogger(), never()).warn(anyString(), any(Object.class));
+
+            Event event = mock(Event.class);
+            when(event.getId()).thenReturn("event");
+            this.mocker.getComponentUnderTest().dispatch(event);
+
+            // The thread recording the event is not blocked
+            verify(this.mocker.getMockedLogger()).warn("The notification inbox dispatch queue is full, the event [{}] "
+                + "won't be added to the inboxes of the users.", "event");
+        } finally {
+            released.countDown();
+            this.mocker.getComponentUnderTest().dispose();
+        }
+    }
+
+    @Test
+    public void getUnreadCount() throws Exception
+    {
+        NotificationParameters parameters = new NotificationParameters();
+        parameters.user = this.userA;
+        Query query = mock(Query.class);
+        QueryGenerator queryGenerator = this.mocker.getInstance(QueryGenerator.class);
+        when(queryGenerator.generateInboxUnreadCountQuery(parameters)).thenReturn(query);
+        when(query.execute()).thenReturn(Arrays.asList(42L));
+
+        assertEquals(42L, this.mocker.getComponentUnderTest().getUnreadCount(parameters));
+
+        verify(query).setWiki("xwiki");
+    }
+}
@@ -32,6 +32,7 @@
 import org.xwiki.model.internal.reference.DefaultSymbolScheme;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.notifications.NotificationConfiguration;
 import org.xwiki.notifications.NotificationFormat;
 import org.xwiki.notifications.filters.NotificationFilter;
 import org.xwiki.notifications.filters.NotificationFilterManager;
@@ -56,6 +57,7 @@
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.xwiki.notifications.filters.expression.generics.ExpressionBuilder.value;
@@ -144,7 +146,7 @@ public void generateQueryExpression() throws Exception
         // Verify
         assertEquals("((DATE >= \"" + this.startDate.toString() + "\" " +
             "AND (TYPE = \"create\" AND DATE >= \"" + this.pref1StartDate.toString() + "\")) AND HIDDEN <> true) " +
-            "ORDER BY DATE DESC",
+            "ORDER BY DATE DESC, ID DESC",
             node.toString());
 
         // Test 2
@@ -156,7 +158,7 @@ public void generateQueryExpression() throws Exception
                 "AND ((event.type = :value_fa8847b0c33183273f5945508b31c3208a9e4ece58ca47233a05628d8dba3799) " +
                 "AND (event.date >= :" + this.pref1StartDateParamName + "))) " +
                 "AND (event.hidden <> true) " +
-                "ORDER BY event.date DESC",
+                "ORDER BY event.date DESC, event.id DESC",
             Query.HQL);
         verify(this.query).bindValue(this.startDateParamName, this.startDate);
         verify(this.query).bindValue(this.pref1StartDateParamName, this.pref1StartDate);
@@ -185,7 +187,7 @@ public void generateQueryWhenHiddenDocsAreEnabled() throws Exception
         // Verify
         assertEquals("(DATE >= \"" + this.startDate.toString() + "\" " +
             "AND (TYPE = \"create\" AND DATE >= \"" + this.pref1StartDate.toString() + "\")) " +
-            "ORDER BY DATE DESC", node.toString());
+            "ORDER BY DATE DESC, ID DESC", node.toString());
 
         // Test 2
         mocker.getComponentUnderTest().generateQuery(parameters);
@@ -195,7 +197,7 @@ public void generateQueryWhenHiddenDocsAreEnabled() throws Exception
                 "event.date >= :" + this.startDateParamName + ") " +
                 "AND ((event.type = :value_fa8847b0c33183273f5945508b31c3208a9e4ece58ca47233a05628d8dba3799) " +
                 "AND (event.date >= :" + this.pref1StartDateParamName + ")) " +
-                "ORDER BY event.date DESC",
+                "ORDER BY event.date DESC, event.id DESC",
             Query.HQL);
         verify(this.query).bindValue(eq(this.startDateParamName), eq(this.startDate));
         verify(this.query).bindValue(eq("value_fa8847b0c33183273f5945508b31c3208a9e4ece58ca47233a05628d8dba3799"),
@@ -218,7 +220,7 @@ public void generateQueryWithNotOnlyUnread() throws Exception
         // Verify
         assertEquals("((DATE >= \"" + this.startDate.toString() + "\" " +
             "AND (TYPE = \"create\" AND DATE >= \"" + this.pref1StartDate.toString() + "\")) AND HIDDEN <> true) " +
-            "ORDER BY DATE DESC", node.toString());
+            "ORDER BY DATE DESC, ID DESC", node.toString());
 
         // Test 2
         mocker.getComponentUnderTest().generateQuery(parameters);
@@ -229,7 +231,7 @@ public void generateQueryWithNotOnlyUnread() throws Exception
                 "AND ((event.type = :value_fa8847b0c33183273f5945508b31c3208a9e4ece58ca47233a05628d8dba3799) " +
                 "AND (event.date >= :" + this.pref1StartDateParamName + "))) " +
                 "AND (event.hidden <> true) " +
-                "ORDER BY event.date DESC",
+                "ORDER BY event.date DESC, event.id DESC",
             Query.HQL);
     }
 
@@ -253,7 +255,7 @@ public void generateQueryWithUntilDate() throws Exception
         assertEquals("(((DATE >= \"" + this.startDate.toString() + "\" " +
             "AND (TYPE = \"create\" AND DATE >= \"" + this.pref1StartDate.toString() + "\")) " +
             "AND DATE <= \"" + untilDate.toString() + "\") AND HIDDEN <> true) " +
-            "ORDER BY DATE DESC", node.toString());
+            "ORDER BY DATE DESC, ID DESC", node.toString());
 
         // Test 2
         mocker.getComponentUnderTest().generateQuery(parameters);
@@ -265,7 +267,7 @@ public void generateQueryWithUntilDate() throws Exception
                 "AND (event.date >= :" + this.pref1StartDateParamName + "))) " +
                 "AND (event.date <= :" + untilDateParamName + ")) " +
                 "AND (event.hidden <> true) " +
-                "ORDER BY event.date DESC",
+                "ORDER BY event.date DESC, event.id DESC",
             Query.HQL);
         verify(this.query).bindValue(this.startDateParamName, this.startDate);
         verify(this.query).bindValue(this.pref1StartDateParamName, this.pref1StartDate);
@@ -294,10 +296,87 @@ public void generateQueryWithUntilDateAndBlackList() throws Exception
             "AND NOT (ID IN (\"event1\", \"event2\"))) " +
             "AND DATE <= \"" + untilDate.toString() + "\") " +
             "AND HIDDEN <> true) " +
-            "ORDER BY DATE DESC",
+            "ORDER BY DATE DESC, ID DESC",
             node.toString());
     }
 
+    @Test
+    public void generateQueryWithCursor() throws Exception
+    {
+        Date cursorDate = new Date(1000000000000L);
+
+        // Test
+        NotificationParameters parameters = new NotificationParameters();
+        parameters.user = userReference;
+        parameters.format = NotificationFormat.ALERT;
+        parameters.cursorDate = cursorDate;
+        parameters.cursorId = "event5";
+        parameters.preferences = Arrays.asList(pref1);
+        parameters.filterPreferences = Arrays.asList(fakeFilterPreference);
+        ExpressionNode node = mocker.getComponentUnderTest().generateQueryExpression(parameters);
+
+        // Verify
+        assertEquals("(((TYPE = \"create\" " +
+            "AND DATE >= \"" + this.pref1StartDate.toString() + "\") " +
+            "AND (DATE <= \"" + cursorDate.toString() + "\" " +
+            "AND NOT ((DATE = \"" + cursorDate.toString() + "\" AND ID >= \"event5\")))) " +
+            "AND HIDDEN <> true) " +
+            "ORDER BY DATE DESC, ID DESC",
+            node.toString());
+    }
+
+    @Test
+    public void generateQueryWithInbox() throws Exception
+    {
+        NotificationConfiguration configuration = mocker.getInstance(NotificationConfiguration.class);
+        when(configuration.isInboxEnabled()).thenReturn(true);
+
+        // Test
+        NotificationParameters parameters = new NotificationParameters();
+        parameters.user = userReference;
+        parameters.format = NotificationFormat.ALERT;
+        parameters.fromDate = startDate;
+        parameters.onlyUnread = true;
+        parameters.useInbox = true;
+        parameters.preferences = Arrays.asList(pref1);
+        parameters.filterPreferences = Arrays.asList(fakeFilterPreference);
+        ExpressionNode node = mocker.getComponentUnderTest().generateQueryExpression(parameters);
+
+        // Verify
+        assertEquals("((UNREAD_EVENTS_OF_INBOX AND DATE >= \"" + this.startDate.toString() + "\") "
+            + "AND HIDDEN <> true) "
+            + "ORDER BY DATE DESC, ID DESC",
+            node.toString());
+        verify(notificationFilterManager, never()).getFiltersRelatedToNotificationPreference(anyCollection(),
+            any(NotificationPreference.class));
+    }
+
+    @Test
+    public void generateInboxUnreadCountQuery() throws Exception
+    {
+        NotificationParameters parameters = new NotificationParameters();
+        parameters.user = userReference;
+        parameters.format = NotificationFormat.ALERT;
+        parameters.preferences = Arrays.asList(pref1);
+        parameters.filterPreferences = Arrays.asList(fakeFilterPreference);
+
+        assertEquals(this.query, mocker.getComponentUnderTest().generateInboxUnreadCountQuery(parameters));
+
+        // The events before the start date of the preference of their type (e.g. cleared by the user) are not counted
+        verify(this.queryManager).createQuery(
+            "select count(event) from ActivityEventImpl event where ((event IN (select inbox.activityEvent from "
+                + "ActivityEventStatusImpl inbox where inbox.activityEvent = event and inbox.entityId = :inboxUser "
+                + "and inbox.read = false)) "
+                + "AND ((event.type <> :value_fa8847b0c33183273f5945508b31c3208a9e4ece58ca47233a05628d8dba3799) "
+                + "OR (event.date >= :" + this.pref1StartDateParamName + "))) "
+                + "AND (event.hidden <> true)",
+            Query.HQL);
+        verify(this.query).bindValue("inboxUser", "xwiki:XWiki.UserA");
+        verify(this.query).bindValue(this.pref1StartDateParamName, this.pref1StartDate);
+        verify(this.query).bindValue(eq("value_fa8847b0c33183273f5945508b31c3208a9e4ece58ca47233a05628d8dba3799"),
+            eq("create"));
+    }
+
     @Test
     public void generateQueryWithLocalUser() throws Exception
     {
@@ -315,7 +394,7 @@ public void generateQueryWithLocalUser() throws Exception
         assertEquals("(((DATE >= \"" + this.startDate.toString() + "\" "
             + "AND (TYPE = \"create\" AND DATE >= \"" + this.pref1StartDate.toString() + "\")) AND HIDDEN <> true) "
             + "AND WIKI = \"Wiki xwiki\") "
-            + "ORDER BY DATE DESC",
+            + "ORDER BY DATE DESC, ID DESC",
             node.toString());
     }
 
@@ -357,7 +436,7 @@ public void generateQueryWithFilters() throws Exception
             "AND (TYPE = \"someValue2\" AND \"2\" = \"2\"))) " +
             "AND NOT (ID IN (\"event1\", \"event2\"))) " +
             "AND HIDDEN <> true) " +
-            "ORDER BY DATE DESC", node.toString());
+            "ORDER BY DATE DESC, ID DESC", node.toString());
     }
 
     @Test
@@ -388,7 +467,7 @@ public void generateQueryWithNoRelevantFilters() throws Exception
             "AND (TYPE = \"create\" AND DATE >= \"" + this.pref1StartDate.toString() + "\")) " +
             "AND NOT (ID IN (\"event1\", \"event2\"))) " +
             "AND HIDDEN <> true) " +
-            "ORDER BY DATE DESC",
+            "ORDER BY DATE DESC, ID DESC",
             node.toString());
     }
 
@@ -421,7 +500,7 @@ public void generateQueryWithEventTypesThatHasNoDescriptor() throws Exception
         ExpressionNode node = mocker.getComponentUnderTest().generateQueryExpression(parameters);
 
         // Expectation: no filters on "create" event type because it has no descriptor
-        assertEquals("(DATE >= \"" + this.startDate.toString() + "\" AND HIDDEN <> true) ORDER BY DATE DESC",
+        assertEquals("(DATE >= \"" + this.startDate.toString() + "\" AND HIDDEN <> true) ORDER BY DATE DESC, ID DESC",
             node.toString());
     }
 
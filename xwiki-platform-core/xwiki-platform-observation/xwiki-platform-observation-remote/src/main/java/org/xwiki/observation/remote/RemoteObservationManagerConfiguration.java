@@ -22,6 +22,7 @@
 import java.util.List;
 
 import org.xwiki.component.annotation.Role;
+import org.xwiki.stability.Unstable;
 
 /**
  * Provide configuration for remote observation manager.
@@ -46,4 +47,25 @@
      * @return the identifier of the network adapter implementation to use to actually send and receive network messages
      */
     String getNetworkAdapter();
+
+    /**
+     * @return the maximum number of events to send in a single network message, 0 or less (the default) to send each
+     *         event in its own message using Java serialization (the format understood by versions older than 11.0RC1)
+     * @since 11.0RC1
+     */
+    @Unstable
+    default int getBatchMaxEvents()
+    {
+        return 0;
+    }
+
+    /**
+     * @return the maximum time in milliseconds an event can wait for other events before being sent
+     * @since 11.0RC1
+     */
+    @Unstable
+    default long getBatchMaxDelay()
+    {
+        return 10;
+    }
 }
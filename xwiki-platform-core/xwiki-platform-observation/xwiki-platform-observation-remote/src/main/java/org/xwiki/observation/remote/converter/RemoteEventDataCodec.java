@@ -0,0 +1,59 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.remote.converter;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.xwiki.component.annotation.Role;
+import org.xwiki.observation.remote.RemoteEventData;
+import org.xwiki.stability.Unstable;
+
+/**
+ * Write and read {@link RemoteEventData} in a compact binary form instead of relying on Java serialization.
+ * <p>
+ * The network adapter try all the registered codecs and remember the hint of the one which accepted to encode the
+ * event so that the same codec is used on the other side of the network. Events no codec accept are sent using Java
+ * serialization.
+ *
+ * @version $Id$
+ * @since 11.0RC1
+ */
+@Role
+@Unstable
+public interface RemoteEventDataCodec
+{
+    /**
+     * @param remoteEvent the remote event to encode
+     * @param output where to write the encoded event
+     * @return true if the event is supported by this codec, false otherwise (in which case nothing should have been
+     *         written)
+     * @throws IOException when failing to write the event
+     */
+    boolean encode(RemoteEventData remoteEvent, DataOutput output) throws IOException;
+
+    /**
+     * @param input where to read the event written by {@link #encode(RemoteEventData, DataOutput)}
+     * @return the decoded remote event
+     * @throws IOException when failing to read the event
+     */
+    RemoteEventData decode(DataInput input) throws IOException;
+}
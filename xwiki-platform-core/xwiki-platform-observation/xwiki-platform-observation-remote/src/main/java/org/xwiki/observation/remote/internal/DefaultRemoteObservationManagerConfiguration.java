@@ -69,4 +69,16 @@ public String getNetworkAdapter()
     {
         return this.configurationSource.getProperty("observation.remote.networkadapter", "jgroups");
     }
+
+    @Override
+    public int getBatchMaxEvents()
+    {
+        return this.configurationSource.getProperty("observation.remote.batch.maxEvents", 0);
+    }
+
+    @Override
+    public long getBatchMaxDelay()
+    {
+        return this.configurationSource.getProperty("observation.remote.batch.maxDelay", 10L);
+    }
 }
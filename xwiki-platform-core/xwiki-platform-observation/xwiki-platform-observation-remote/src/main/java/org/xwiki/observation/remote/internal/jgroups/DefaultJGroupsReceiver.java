@@ -19,6 +19,8 @@
  */
 package org.xwiki.observation.remote.internal.jgroups;
 
+import java.util.List;
+
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
@@ -54,6 +56,12 @@ public class DefaultJGroupsReceiver extends ReceiverAdapter implements JGroupsRe
     @Inject
     private ComponentManager componentManager;
 
+    /**
+     * Used to read messages containing several events.
+     */
+    @Inject
+    private RemoteEventDataBatchCodec batchCodec;
+
     /**
      * The logger to log.
      */
@@ -79,8 +87,27 @@ public RemoteObservationManager getRemoteObservationManager()
     @Override
     public void receive(Message msg)
     {
-        RemoteEventData remoteEvent = (RemoteEventData) msg.getObject();
+        if (this.batchCodec.isBatch(msg.getRawBuffer(), msg.getOffset(), msg.getLength())) {
+            List<RemoteEventData> remoteEvents;
+            try {
+                remoteEvents = this.batchCodec.decode(msg.getRawBuffer(), msg.getOffset(), msg.getLength());
+            } catch (Exception e) {
+                // The events which can't be decoded are skipped by the codec, so this is a corrupted message
+                this.logger.error("Failed to read JGroups remote events batch from [{}]", msg.getSrc(), e);
 
+                return;
+            }
+
+            for (RemoteEventData remoteEvent : remoteEvents) {
+                notify(remoteEvent);
+            }
+        } else {
+            notify((RemoteEventData) msg.getObject());
+        }
+    }
+
+    private void notify(RemoteEventData remoteEvent)
+    {
         this.logger.debug("Received JGroups remote event [{}]", remoteEvent);
 
         getRemoteObservationManager().notify(remoteEvent);
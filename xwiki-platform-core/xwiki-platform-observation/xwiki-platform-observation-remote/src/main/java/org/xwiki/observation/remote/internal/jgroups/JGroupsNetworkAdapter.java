@@ -23,8 +23,14 @@
 import java.io.InputStream;
 import java.lang.management.ManagementFactory;
 import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -40,16 +46,22 @@
 import org.jgroups.jmx.JmxConfigurator;
 import org.slf4j.Logger;
 import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLifecycleException;
 import org.xwiki.component.manager.ComponentLookupException;
 import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.component.phase.Disposable;
 import org.xwiki.environment.Environment;
 import org.xwiki.observation.remote.NetworkAdapter;
 import org.xwiki.observation.remote.RemoteEventData;
 import org.xwiki.observation.remote.RemoteEventException;
+import org.xwiki.observation.remote.RemoteObservationManagerConfiguration;
 import org.xwiki.observation.remote.jgroups.JGroupsReceiver;
 
 /**
  * JGroups based implementation of {@link NetworkAdapter}.
+ * <p>
+ * When enabled in the configuration, the events are not sent right away but accumulated and sent together in a single
+ * message when enough events are waiting or when the oldest one waited long enough.
  *
  * @version $Id$
  * @since 2.0RC1
@@ -57,7 +69,7 @@
 @Component
 @Named("jgroups")
 @Singleton
-public class JGroupsNetworkAdapter implements NetworkAdapter
+public class JGroupsNetworkAdapter implements NetworkAdapter, Disposable
 {
     /**
      * Relative path where to find jgroups channels configurations.
@@ -70,6 +82,18 @@ public class JGroupsNetworkAdapter implements NetworkAdapter
     @Inject
     private ComponentManager componentManager;
 
+    /**
+     * Used to know how to batch events.
+     */
+    @Inject
+    private RemoteObservationManagerConfiguration configuration;
+
+    /**
+     * Used to write several events in a single message.
+     */
+    @Inject
+    private RemoteEventDataBatchCodec batchCodec;
+
     /**
      * The logger to log.
      */
@@ -81,21 +105,132 @@ public class JGroupsNetworkAdapter implements NetworkAdapter
      */
     private Map<String, JChannel> channels = new ConcurrentHashMap<String, JChannel>();
 
+    /**
+     * The events waiting to be sent.
+     */
+    private final List<RemoteEventData> pendingEvents = new ArrayList<>();
+
+    /**
+     * Held while sending messages so that they are sent in the order of the events, without blocking the threads
+     * adding events to the pending ones.
+     */
+    private final Object sendLock = new Object();
+
+    /**
+     * Used to send the pending events when they waited long enough.
+     */
+    private ScheduledExecutorService flushExecutor;
+
+    /**
+     * The next planned sending of the pending events.
+     */
+    private ScheduledFuture<?> scheduledFlush;
+
     @Override
     public void send(RemoteEventData remoteEvent)
     {
         this.logger.debug("Send JGroups remote event [" + remoteEvent + "]");
 
-        // Send the message to the whole group
-        Message message = new Message(null, remoteEvent);
+        int maxEvents = this.configuration.getBatchMaxEvents();
+
+        if (maxEvents <= 0) {
+            synchronized (this.sendLock) {
+                // Make sure events are sent in the right order
+                flush();
+
+                // Send the message to the whole group
+                send(new Message(null, remoteEvent), remoteEvent);
+            }
+        } else {
+            boolean full;
+            synchronized (this.pendingEvents) {
+                this.pendingEvents.add(remoteEvent);
+
+                full = this.pendingEvents.size() >= maxEvents;
+                if (!full && this.scheduledFlush == null) {
+                    this.scheduledFlush = getFlushExecutor().schedule(this::flush,
+                        this.configuration.getBatchMaxDelay(), TimeUnit.MILLISECONDS);
+                }
+            }
+
+            // Send the batch without holding the pending events
+            if (full) {
+                flush();
+            }
+        }
+    }
+
+    /**
+     * Send all the pending events in a single message.
+     */
+    private void flush()
+    {
+        synchronized (this.sendLock) {
+            // Take the pending events and release them right away so that new events can be added while this batch is
+            // sent
+            List<RemoteEventData> events;
+            synchronized (this.pendingEvents) {
+                if (this.scheduledFlush != null) {
+                    this.scheduledFlush.cancel(false);
+                    this.scheduledFlush = null;
+                }
+
+                if (this.pendingEvents.isEmpty()) {
+                    return;
+                }
+
+                events = new ArrayList<>(this.pendingEvents);
+                this.pendingEvents.clear();
+            }
+
+            byte[] buffer;
+            try {
+                buffer = this.batchCodec.encode(events);
+            } catch (Exception e) {
+                this.logger.error("Failed to encode remote events {}", events, e);
+
+                return;
+            }
 
+            // Send the message to the whole group
+            send(new Message(null, buffer), events);
+        }
+    }
+
+    private void send(Message message, Object description)
+    {
         // Send message to JGroups channels
         for (Map.Entry<String, JChannel> entry : this.channels.entrySet()) {
             try {
                 entry.getValue().send(message);
             } catch (Exception e) {
                 this.logger
-                    .error("Failed to send message [" + remoteEvent + "] to the channel [" + entry.getKey() + "]", e);
+                    .error("Failed to send message [" + description + "] to the channel [" + entry.getKey() + "]", e);
+            }
+        }
+    }
+
+    private synchronized ScheduledExecutorService getFlushExecutor()
+    {
+        if (this.flushExecutor == null) {
+            this.flushExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "XWiki JGroups remote events sender");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        return this.flushExecutor;
+    }
+
+    @Override
+    public void dispose() throws ComponentLifecycleException
+    {
+        flush();
+
+        synchronized (this) {
+            if (this.flushExecutor != null) {
+                this.flushExecutor.shutdownNow();
             }
         }
     }
@@ -137,6 +272,9 @@ public void stopChannel(String channelId) throws RemoteEventException
             throw new RemoteEventException(MessageFormat.format("Channel [{0}] is not started", channelId));
         }
 
+        // Don't lose the events waiting to be sent
+        flush();
+
         channel.close();
 
         this.channels.remove(channelId);
@@ -218,6 +356,9 @@ private ProtocolStackConfigurator loadChannelConfiguration(String channelId) thr
     @Override
     public void stopAllChannels() throws RemoteEventException
     {
+        // Don't lose the events waiting to be sent
+        flush();
+
         for (Map.Entry<String, JChannel> channelEntry : this.channels.entrySet()) {
             channelEntry.getValue().close();
         }
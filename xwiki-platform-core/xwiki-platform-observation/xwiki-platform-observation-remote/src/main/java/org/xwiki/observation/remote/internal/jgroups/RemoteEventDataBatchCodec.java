@@ -0,0 +1,254 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.remote.internal.jgroups;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.jgroups.util.Util;
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLookupException;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.observation.remote.RemoteEventData;
+import org.xwiki.observation.remote.converter.RemoteEventDataCodec;
+
+/**
+ * Write and read several {@link RemoteEventData} in a single buffer.
+ * <p>
+ * Each event is encoded with the first {@link RemoteEventDataCodec} accepting it, or with Java serialization when no
+ * codec accept it. The format is:
+ * <ul>
+ * <li>the magic bytes {@code XWEB} followed by the version of the format and the number of events</li>
+ * <li>for each event: the hint of the codec (empty for Java serialization), the size of the encoded event and the
+ * encoded event</li>
+ * </ul>
+ * An event which cannot be encoded or decoded is skipped (and logged) without affecting the other events of the batch.
+ *
+ * @version $Id$
+ * @since 11.0RC1
+ */
+@Component(roles = RemoteEventDataBatchCodec.class)
+@Singleton
+public class RemoteEventDataBatchCodec
+{
+    private static final byte[] MAGIC = {'X', 'W', 'E', 'B'};
+
+    private static final byte VERSION = 1;
+
+    private static final String SERIALIZATION = "";
+
+    /**
+     * Used to lookup the codecs.
+     */
+    @Inject
+    private ComponentManager componentManager;
+
+    /**
+     * The logger to log.
+     */
+    @Inject
+    private Logger logger;
+
+    /**
+     * @param events the events to encode
+     * @return the encoded events, not including the events which could not be encoded
+     * @throws IOException when failing to write the batch
+     */
+    public byte[] encode(Collection<RemoteEventData> events) throws IOException
+    {
+        Map<String, RemoteEventDataCodec> codecs = getCodecs();
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        DataOutputStream bodyOutput = new DataOutputStream(body);
+
+        // Reused for each event so that a codec giving up in the middle of an event does not corrupt the batch
+        ByteArrayOutputStream eventBytes = new ByteArrayOutputStream();
+        DataOutputStream eventOutput = new DataOutputStream(eventBytes);
+
+        int size = 0;
+        for (RemoteEventData event : events) {
+            String hint;
+            try {
+                hint = encode(event, codecs, eventBytes, eventOutput);
+            } catch (Exception e) {
+                // Don't lose the other events of the batch
+                this.logger.error("Failed to encode remote event [{}], it won't be sent", event, e);
+
+                continue;
+            }
+
+            bodyOutput.writeUTF(hint);
+            bodyOutput.writeInt(eventBytes.size());
+            eventBytes.writeTo(bodyOutput);
+            ++size;
+        }
+
+        bodyOutput.flush();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+
+        output.write(MAGIC);
+        output.writeByte(VERSION);
+        output.writeInt(size);
+        body.writeTo(output);
+
+        output.flush();
+
+        return bytes.toByteArray();
+    }
+
+    private String encode(RemoteEventData event, Map<String, RemoteEventDataCodec> codecs,
+        ByteArrayOutputStream eventBytes, DataOutputStream eventOutput) throws IOException
+    {
+        for (Map.Entry<String, RemoteEventDataCodec> entry : codecs.entrySet()) {
+            eventBytes.reset();
+
+            try {
+                if (entry.getValue().encode(event, eventOutput)) {
+                    eventOutput.flush();
+
+                    return entry.getKey();
+                }
+            } catch (IOException e) {
+                this.logger.warn("Failed to encode remote event [{}] with codec [{}]", event, entry.getKey(), e);
+            }
+        }
+
+        // Fallback on Java serialization
+        eventBytes.reset();
+        try {
+            eventBytes.write(Util.objectToByteBuffer(event));
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Failed to serialize remote event [" + event + "]", e);
+        }
+
+        return SERIALIZATION;
+    }
+
+    /**
+     * @param buffer the buffer to check
+     * @param offset the position of the data in the buffer
+     * @param length the size of the data in the buffer
+     * @return true if the buffer contains events written by {@link #encode(Collection)}
+     */
+    public boolean isBatch(byte[] buffer, int offset, int length)
+    {
+        if (buffer == null || length < MAGIC.length + 1) {
+            return false;
+        }
+
+        for (int i = 0; i < MAGIC.length; ++i) {
+            if (buffer[offset + i] != MAGIC[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * @param buffer the buffer containing events written by {@link #encode(Collection)}
+     * @param offset the position of the data in the buffer
+     * @param length the size of the data in the buffer
+     * @return the decoded events, not including the events which could not be decoded
+     * @throws IOException when failing to read the batch
+     */
+    public List<RemoteEventData> decode(byte[] buffer, int offset, int length) throws IOException
+    {
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(buffer, offset, length));
+
+        input.skipBytes(MAGIC.length);
+        byte version = input.readByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported remote events batch version [" + version + "]");
+        }
+
+        int size = input.readInt();
+        List<RemoteEventData> events = new ArrayList<>(size);
+        for (int i = 0; i < size; ++i) {
+            String hint = input.readUTF();
+            byte[] eventBytes = new byte[input.readInt()];
+            input.readFully(eventBytes);
+
+            // Don't lose the other events of the batch
+            try {
+                RemoteEventData event = decode(hint, eventBytes);
+                if (event != null) {
+                    events.add(event);
+                }
+            } catch (Exception e) {
+                this.logger.error("Failed to decode remote event encoded with codec [{}], skipping it", hint, e);
+            }
+        }
+
+        return events;
+    }
+
+    private RemoteEventData decode(String hint, byte[] eventBytes) throws IOException
+    {
+        if (hint.equals(SERIALIZATION)) {
+            try {
+                return (RemoteEventData) Util.objectFromByteBuffer(eventBytes, 0, eventBytes.length);
+            } catch (IOException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IOException("Failed to unserialize remote event", e);
+            }
+        }
+
+        RemoteEventDataCodec codec;
+        try {
+            codec = this.componentManager.getInstance(RemoteEventDataCodec.class, hint);
+        } catch (ComponentLookupException e) {
+            // The event was sent by a member having an extension we don't have, skip it
+            this.logger.warn("Skipping remote event encoded with unknown codec [{}]", hint);
+
+            return null;
+        }
+
+        return codec.decode(new DataInputStream(new ByteArrayInputStream(eventBytes)));
+    }
+
+    private Map<String, RemoteEventDataCodec> getCodecs()
+    {
+        try {
+            return this.componentManager.getInstanceMap(RemoteEventDataCodec.class);
+        } catch (ComponentLookupException e) {
+            this.logger.error("Failed to lookup remote event codecs", e);
+
+            return Collections.emptyMap();
+        }
+    }
+}
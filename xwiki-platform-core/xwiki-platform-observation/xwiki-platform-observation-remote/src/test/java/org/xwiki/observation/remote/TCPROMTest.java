@@ -23,6 +23,7 @@
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
 import org.xwiki.logging.event.LogEvent;
 import org.xwiki.observation.EventListener;
 import org.xwiki.observation.remote.test.AbstractROMTestCase;
@@ -31,6 +32,7 @@
 
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -92,4 +94,48 @@ public void testSerializableEvent() throws InterruptedException
         verify(localListener).onEvent(same(event), same(unserializable), same(unserializable));
         verify(remoteListener).onEvent(eq(event), eq("some source"), eq("some data"));
     }
+
+    /**
+     * Validate that a lot of events sent in batches are all received in the right order.
+     */
+    @Test
+    public void testBatchedEvents() throws InterruptedException
+    {
+        getConfigurationSource1().setProperty("observation.remote.batch.maxEvents", 100);
+
+        assertEventsReceived(250);
+    }
+
+    /**
+     * Validate that events are still received when batching is disabled (the default).
+     */
+    @Test
+    public void testNotBatchedEvents() throws InterruptedException
+    {
+        assertEventsReceived(10);
+    }
+
+    private void assertEventsReceived(int count) throws InterruptedException
+    {
+        EventListener remoteListener = mock(EventListener.class, "remote");
+
+        TestEvent event = new TestEvent();
+
+        when(remoteListener.getName()).thenReturn("mylistener");
+        when(remoteListener.getEvents()).thenReturn(Arrays.asList(event));
+
+        getObservationManager2().addListener(remoteListener);
+
+        for (int i = 0; i < count; ++i) {
+            getObservationManager1().notify(event, "source" + i, "data" + i);
+        }
+
+        // Make sure JGroups has enough time to send the messages
+        Thread.sleep(1000);
+
+        InOrder inOrder = inOrder(remoteListener);
+        for (int i = 0; i < count; ++i) {
+            inOrder.verify(remoteListener).onEvent(eq(event), eq("source" + i), eq("data" + i));
+        }
+    }
 }
@@ -0,0 +1,121 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.observation.remote.internal.jgroups;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.observation.remote.RemoteEventData;
+import org.xwiki.observation.remote.converter.RemoteEventDataCodec;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link RemoteEventDataBatchCodec}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+public class RemoteEventDataBatchCodecTest
+{
+    @MockComponent
+    private ComponentManager componentManager;
+
+    @InjectMockComponents
+    private RemoteEventDataBatchCodec batchCodec;
+
+    private RemoteEventData event(Serializable data)
+    {
+        RemoteEventData event = new RemoteEventData();
+        event.setData(data);
+
+        return event;
+    }
+
+    private List<Serializable> decode(byte[] buffer) throws IOException
+    {
+        assertTrue(this.batchCodec.isBatch(buffer, 0, buffer.length));
+
+        List<Serializable> datas = new ArrayList<>();
+        for (RemoteEventData event : this.batchCodec.decode(buffer, 0, buffer.length)) {
+            datas.add(event.getData());
+        }
+
+        return datas;
+    }
+
+    @Test
+    public void encodeAndDecode() throws Exception
+    {
+        byte[] buffer = this.batchCodec.encode(Arrays.asList(event("data1"), event("data2")));
+
+        assertEquals(Arrays.asList("data1", "data2"), decode(buffer));
+    }
+
+    @Test
+    public void encodeSkipsEventsNotSerializable() throws Exception
+    {
+        // A serializable list containing an object which is not serializable
+        ArrayList<Object> notSerializable = new ArrayList<>(Collections.singletonList(new Object()));
+
+        byte[] buffer =
+            this.batchCodec.encode(Arrays.asList(event("data1"), event(notSerializable), event("data2")));
+
+        assertEquals(Arrays.asList("data1", "data2"), decode(buffer));
+    }
+
+    @Test
+    public void decodeSkipsEventsFailingToBeDecoded() throws Exception
+    {
+        RemoteEventDataCodec codec = mock(RemoteEventDataCodec.class);
+        when(this.componentManager.getInstanceMap(RemoteEventDataCodec.class))
+            .thenReturn(Collections.singletonMap("broken", codec));
+        when(this.componentManager.getInstance(RemoteEventDataCodec.class, "broken")).thenReturn(codec);
+        when(codec.encode(any(RemoteEventData.class), any(DataOutput.class))).thenAnswer(invocation -> {
+            RemoteEventData event = invocation.getArgument(0);
+            if ("broken".equals(event.getData())) {
+                invocation.<DataOutput>getArgument(1).writeUTF("broken");
+
+                return true;
+            }
+
+            return false;
+        });
+        when(codec.decode(any())).thenThrow(new IOException("Corrupted event"));
+
+        byte[] buffer = this.batchCodec.encode(Arrays.asList(event("data1"), event("broken"), event("data2")));
+
+        assertEquals(Arrays.asList("data1", "data2"), decode(buffer));
+    }
+}
@@ -37,12 +37,15 @@
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -1978,6 +1981,67 @@ public XWikiDocument getDocument(DocumentReference reference, XWikiContext conte
         return getDocument(doc, context);
     }
 
+    /**
+     * Get several documents, like {@link #getDocument(DocumentReference, XWikiContext)} does for each of them. The
+     * documents found in the cache are not reloaded and the other ones of a same wiki are loaded with a single call
+     * to {@link XWikiStoreInterface#loadEachXWikiDoc(Collection, XWikiContext)}.
+     *
+     * @param references the references of the documents
+     * @param context see {@link XWikiContext}
+     * @return the documents, in the same order as the passed references
+     * @throws XWikiException when failing to load the documents
+     * @since 11.0RC1
+     */
+    @Unstable
+    public List<XWikiDocument> getDocuments(Collection<DocumentReference> references, XWikiContext context)
+        throws XWikiException
+    {
+        // Group the documents by wiki since the store loads documents from the current wiki
+        Map<WikiReference, List<XWikiDocument>> wikiDocuments = new LinkedHashMap<>();
+        List<XWikiDocument> documents = new ArrayList<>(references.size());
+        for (DocumentReference reference : references) {
+            XWikiDocument doc = new XWikiDocument(
+                reference.getLocale() != null ? new DocumentReference(reference, (Locale) null) : reference,
+                reference.getLocale());
+
+            doc.setContentDirty(true);
+
+            wikiDocuments.computeIfAbsent(reference.getWikiReference(), k -> new ArrayList<>()).add(doc);
+            documents.add(doc);
+        }
+
+        // The store might return other instances (from the cache for example)
+        Map<XWikiDocument, XWikiDocument> loadedDocuments = new IdentityHashMap<>(documents.size());
+        String currentWiki = context.getWikiId();
+        try {
+            for (Map.Entry<WikiReference, List<XWikiDocument>> entry : wikiDocuments.entrySet()) {
+                context.setWikiId(entry.getKey().getName());
+
+                for (XWikiDocument doc : entry.getValue()) {
+                    try {
+                        // Indicate the the async context manipulated documents
+                        getAsyncContext().useEntity(doc.getDocumentReferenceWithLocale());
+                    } catch (Exception e) {
+                        // If the AsyncContext component does not work then we are not in an asynchronous context
+                        // anyway
+                        LOGGER.debug("Failed to register the document in the asynchronous context", e);
+                    }
+                }
+
+                List<XWikiDocument> wikiLoadedDocuments = getStore().loadEachXWikiDoc(entry.getValue(), context);
+                for (int i = 0; i < wikiLoadedDocuments.size(); ++i) {
+                    loadedDocuments.put(entry.getValue().get(i), wikiLoadedDocuments.get(i));
+                }
+            }
+        } finally {
+            context.setWikiId(currentWiki);
+        }
+
+        documents.replaceAll(loadedDocuments::get);
+
+        return documents;
+    }
+
     /**
      * @param reference the reference of the page
      * @param context see {@link XWikiContext}
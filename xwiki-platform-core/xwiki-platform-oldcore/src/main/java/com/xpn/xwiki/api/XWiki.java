@@ -22,10 +22,13 @@
 import java.io.IOException;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.exception.ExceptionUtils;
@@ -338,6 +341,45 @@ public Document getDocument(DocumentReference reference) throws XWikiException
         }
     }
 
+    /**
+     * Loads several Documents, like {@link #getDocument(DocumentReference)} does for each of them. The view right is
+     * checked for all the documents at once before sending back the documents.
+     *
+     * @param references the references of the XWiki documents to be loaded
+     * @return the Document objects, in the same order as the passed references, with {@code null} in place of the
+     *         documents the current user is not allowed to view (if a document couldn't be found a new one is created
+     *         in memory - but not saved)
+     * @throws XWikiException when failing to load the documents
+     * @since 11.0RC1
+     */
+    @Unstable
+    public List<Document> getDocuments(Collection<DocumentReference> references) throws XWikiException
+    {
+        Map<EntityReference, Boolean> accesses =
+            getContextualAuthorizationManager().hasAccesses(Right.VIEW, references);
+
+        List<DocumentReference> viewableReferences = new ArrayList<>(references.size());
+        for (DocumentReference reference : references) {
+            if (Boolean.TRUE.equals(accesses.get(reference))) {
+                viewableReferences.add(reference);
+            }
+        }
+
+        Iterator<XWikiDocument> viewableDocuments =
+            this.xwiki.getDocuments(viewableReferences, getXWikiContext()).iterator();
+
+        List<Document> documents = new ArrayList<>(references.size());
+        for (DocumentReference reference : references) {
+            if (Boolean.TRUE.equals(accesses.get(reference))) {
+                documents.add(viewableDocuments.next().newDocument(getXWikiContext()));
+            } else {
+                documents.add(null);
+            }
+        }
+
+        return documents;
+    }
+
     /**
      * Loads a Document from the store. Rights are checked before sending back the document.
      * <p>
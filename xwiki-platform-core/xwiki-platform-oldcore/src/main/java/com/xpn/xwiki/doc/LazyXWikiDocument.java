@@ -31,6 +31,7 @@
 import org.xwiki.model.reference.EntityReference;
 import org.xwiki.rendering.block.XDOM;
 import org.xwiki.rendering.syntax.Syntax;
+import org.xwiki.stability.Unstable;
 
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
@@ -93,35 +94,12 @@ private XWikiDocument getDocument()
             XWikiContext context =
                 (XWikiContext) Utils.getComponent(Execution.class).getContext().getProperty("xwikicontext");
 
-            XWikiDocument doc = new XWikiDocument(getDocumentReference(), getLocale());
-
             String currentWiki = context.getWikiId();
             try {
                 // Put context in document wiki
                 context.setWikiId(getDocumentReference().getWikiReference().getName());
 
-                if (this.version == null) {
-                    this.document = context.getWiki().getDocument(doc, context);
-                } else {
-                    // Force bypassing the cache to make extra sure we get the last version of the document. This is
-                    // safer for example when LazyXWikiDocument is used in the context of remote events. This is for
-                    // properly emulate events, XWikiCacheStore is taking care itself of invalidating itself.
-                    doc = context.getWiki().getNotCacheStore().loadXWikiDoc(doc, context);
-                    if (doc.getRCSVersion().equals(this.version)) {
-                        // It's the last version of the document
-                        this.document = doc;
-                    } else {
-                        // It's not the last version of the document, ask versioning store.
-                        try {
-                            this.document =
-                                context.getWiki().getVersioningStore()
-                                    .loadXWikiDoc(doc, this.version.toString(), context);
-                        } catch (XWikiException e) {
-                            // If the proper can't be found, return the last version of the document
-                            this.document = doc;
-                        }
-                    }
-                }
+                this.document = loadDocument(context);
             } catch (XWikiException e) {
                 throw new RuntimeException("Failed to get document [" + this + "]", e);
             } finally {
@@ -132,6 +110,42 @@ private XWikiDocument getDocument()
         return this.document;
     }
 
+    /**
+     * Load the real document from the storage. Called only once, the first time an information which is not known by
+     * this lazy document is requested.
+     *
+     * @param context the XWiki context, already targeting the wiki of the document
+     * @return the real document
+     * @throws XWikiException when failing to load the document
+     * @since 11.0RC1
+     */
+    @Unstable
+    protected XWikiDocument loadDocument(XWikiContext context) throws XWikiException
+    {
+        XWikiDocument doc = new XWikiDocument(getDocumentReference(), getLocale());
+
+        if (this.version == null) {
+            return context.getWiki().getDocument(doc, context);
+        }
+
+        // Force bypassing the cache to make extra sure we get the last version of the document. This is
+        // safer for example when LazyXWikiDocument is used in the context of remote events. This is for
+        // properly emulate events, XWikiCacheStore is taking care itself of invalidating itself.
+        doc = context.getWiki().getNotCacheStore().loadXWikiDoc(doc, context);
+        if (doc.getRCSVersion().equals(this.version)) {
+            // It's the last version of the document
+            return doc;
+        }
+
+        // It's not the last version of the document, ask versioning store.
+        try {
+            return context.getWiki().getVersioningStore().loadXWikiDoc(doc, this.version.toString(), context);
+        } catch (XWikiException e) {
+            // If the proper can't be found, return the last version of the document
+            return doc;
+        }
+    }
+
     @Override
     public Version getRCSVersion()
     {
@@ -304,6 +318,18 @@ public XWikiDocumentArchive getDocumentArchive(XWikiContext context) throws XWik
         return getDocument().getDocumentArchive(context);
     }
 
+    @Override
+    public List<XWikiAttachment> getAttachmentList()
+    {
+        return getDocument().getAttachmentList();
+    }
+
+    @Override
+    public XWikiAttachment getAttachment(String filename)
+    {
+        return getDocument().getAttachment(filename);
+    }
+
     @Override
     public XWikiStoreInterface getStore()
     {
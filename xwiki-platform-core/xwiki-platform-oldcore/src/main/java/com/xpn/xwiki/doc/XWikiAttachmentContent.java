@@ -32,6 +32,7 @@
 import org.apache.commons.io.input.BoundedInputStream;
 import org.apache.commons.io.output.ProxyOutputStream;
 import org.xwiki.environment.Environment;
+import org.xwiki.stability.Unstable;
 import org.xwiki.store.UnexpectedException;
 
 import com.xpn.xwiki.web.Utils;
@@ -108,6 +109,25 @@ protected FileItem getFileItem()
         return this.file;
     }
 
+    /**
+     * Give access to the file holding the content, when the content is fully stored as is on the local filesystem. This
+     * allows callers (like the download action) to read the content directly from the file, for example using a
+     * {@link java.nio.channels.FileChannel}, instead of going through {@link #getContentInputStream()}.
+     *
+     * @return the file holding the content of the attachment or {@code null} if the content is not (only) stored in a
+     *         local file
+     * @since 11.0RC1
+     */
+    @Unstable
+    public File getFile()
+    {
+        if (this.file instanceof DiskFileItem && !this.file.isInMemory()) {
+            return ((DiskFileItem) this.file).getStoreLocation();
+        }
+
+        return null;
+    }
+
     /**
      * @return a new FileItem for temporarily storing attachment content.
      * @since 4.2M3
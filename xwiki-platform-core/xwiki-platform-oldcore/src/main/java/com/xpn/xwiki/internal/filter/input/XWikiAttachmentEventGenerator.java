@@ -27,6 +27,7 @@
 import javax.inject.Provider;
 import javax.inject.Singleton;
 
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.xwiki.component.annotation.Component;
@@ -73,6 +74,33 @@ public void write(XWikiAttachment attachment, Object filter, XWikiAttachmentFilt
     {
         XWikiContext xcontext = this.xcontextProvider.get();
 
+        write(getExportedAttachment(attachment), attachmentFilter, properties, xcontext);
+    }
+
+    /**
+     * The attachment might be shared (for example its document might be in the document cache), so the content and
+     * the archive are loaded in a copy when they are not already loaded. This way what is only needed by the export is
+     * not kept in memory, and the shared attachment is never modified.
+     * 
+     * @param attachment the attachment to export
+     * @return the attachment in which to load the content and the archive to export
+     */
+    XWikiAttachment getExportedAttachment(XWikiAttachment attachment)
+    {
+        if (attachment.getAttachment_content() != null && attachment.getAttachment_archive() != null) {
+            return attachment;
+        }
+
+        // The clone shares the content and the archive which are already loaded
+        XWikiAttachment exportedAttachment = attachment.clone();
+        exportedAttachment.setDoc(attachment.getDoc(), false);
+
+        return exportedAttachment;
+    }
+
+    private void write(XWikiAttachment attachment, XWikiAttachmentFilter attachmentFilter,
+        DocumentInstanceInputProperties properties, XWikiContext xcontext) throws FilterException
+    {
         FilterEventParameters attachmentParameters = new FilterEventParameters();
 
         if (attachment.getAuthor() != null) {
@@ -123,6 +151,10 @@ public void write(XWikiAttachment attachment, Object filter, XWikiAttachmentFilt
 
         // WikiAttachment
 
-        attachmentFilter.onWikiAttachment(attachment.getFilename(), content, size, attachmentParameters);
+        try {
+            attachmentFilter.onWikiAttachment(attachment.getFilename(), content, size, attachmentParameters);
+        } finally {
+            IOUtils.closeQuietly(content);
+        }
     }
 }
@@ -24,8 +24,10 @@
 import java.util.Map;
 
 import javax.inject.Inject;
+import javax.inject.Named;
 
 import org.slf4j.Logger;
+import org.xwiki.configuration.ConfigurationSource;
 import org.xwiki.context.Execution;
 import org.xwiki.context.ExecutionContext;
 import org.xwiki.model.reference.DocumentReference;
@@ -33,6 +35,7 @@
 
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.doc.LazyXWikiDocument;
 import com.xpn.xwiki.doc.XWikiDocument;
 import com.xpn.xwiki.util.XWikiStubContextProvider;
 
@@ -76,6 +79,23 @@ public abstract class AbstractXWikiEventConverter extends AbstractEventConverter
     @Inject
     private XWikiStubContextProvider stubContextProvider;
 
+    /**
+     * Used to know if remote documents should be loaded lazily.
+     */
+    @Inject
+    @Named("xwikiproperties")
+    private ConfigurationSource configuration;
+
+    /**
+     * @return true if the documents associated to remote events should only be loaded from the storage when a listener
+     *         actually needs more than their reference, language and version
+     * @since 11.0RC1
+     */
+    protected boolean isLazyLoading()
+    {
+        return this.configuration.getProperty("observation.remote.document.lazyLoading", false);
+    }
+
     /**
      * @param context the XWiki context to serialize
      * @return the serialized version of the context
@@ -159,6 +179,15 @@ protected Serializable serializeXWikiDocument(XWikiDocument document)
     protected XWikiDocument getDocument(DocumentReference documentReference, String language, String version)
         throws XWikiException
     {
+        if (isLazyLoading()) {
+            LazyXWikiDocument lazyDocument = new LazyXWikiDocument(documentReference);
+            lazyDocument.setLanguage(language);
+            lazyDocument.setVersion(version);
+            lazyDocument.setNew(false);
+
+            return lazyDocument;
+        }
+
         XWikiContext xcontext = getXWikiStubContext();
 
         XWikiDocument document = new XWikiDocument(documentReference);
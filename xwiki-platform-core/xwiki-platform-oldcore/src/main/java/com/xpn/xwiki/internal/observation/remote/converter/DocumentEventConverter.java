@@ -41,6 +41,7 @@
 import com.xpn.xwiki.XWiki;
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.doc.LazyXWikiDocument;
 import com.xpn.xwiki.doc.XWikiDeletedDocument;
 import com.xpn.xwiki.doc.XWikiDocument;
 import com.xpn.xwiki.store.XWikiRecycleBinStoreInterface;
@@ -58,6 +59,25 @@
 @Named("document")
 public class DocumentEventConverter extends AbstractXWikiEventConverter
 {
+    /**
+     * Deleted document taken from the recycle bin only when a listener needs it.
+     */
+    private final class LazyDeletedXWikiDocument extends LazyXWikiDocument
+    {
+        LazyDeletedXWikiDocument(DocumentReference documentReference, Locale locale)
+        {
+            super(documentReference);
+
+            setLocale(locale);
+        }
+
+        @Override
+        protected XWikiDocument loadDocument(XWikiContext context) throws XWikiException
+        {
+            return restoreDeletedDocument(new XWikiDocument(getDocumentReference(), getLocale()), context);
+        }
+    }
+
     /**
      * The events supported by this converter.
      */
@@ -123,7 +143,20 @@ private XWikiDocument unserializeDeletdDocument(Serializable remoteData, XWikiCo
 
         XWikiDocument doc = new XWikiDocument(docReference, locale);
 
-        XWikiDocument origDoc = new XWikiDocument(docReference, locale);
+        if (isLazyLoading()) {
+            doc.setOriginalDocument(new LazyDeletedXWikiDocument(docReference, locale));
+        } else {
+            doc.setOriginalDocument(restoreDeletedDocument(new XWikiDocument(docReference, locale), xcontext));
+        }
+
+        return doc;
+    }
+
+    private XWikiDocument restoreDeletedDocument(XWikiDocument deletedDocument, XWikiContext xcontext)
+        throws XWikiException
+    {
+        DocumentReference docReference = deletedDocument.getDocumentReference();
+        XWikiDocument origDoc = deletedDocument;
 
         // We have to get deleted document from the trash (hoping it is in the trash...)
         XWiki xwiki = xcontext.getWiki();
@@ -141,8 +174,6 @@ private XWikiDocument unserializeDeletdDocument(Serializable remoteData, XWikiCo
             }
         }
 
-        doc.setOriginalDocument(origDoc);
-
-        return doc;
+        return origDoc;
     }
 }
@@ -0,0 +1,302 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.observation.remote.converter;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.xwiki.bridge.event.AbstractDocumentEvent;
+import org.xwiki.bridge.event.DocumentCreatedEvent;
+import org.xwiki.bridge.event.DocumentDeletedEvent;
+import org.xwiki.bridge.event.DocumentUpdatedEvent;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.localization.LocaleUtils;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.SpaceReference;
+import org.xwiki.observation.event.filter.AlwaysMatchingEventFilter;
+import org.xwiki.observation.event.filter.EventFilter;
+import org.xwiki.observation.event.filter.FixedNameEventFilter;
+import org.xwiki.observation.event.filter.RegexEventFilter;
+import org.xwiki.observation.remote.RemoteEventData;
+import org.xwiki.observation.remote.converter.RemoteEventDataCodec;
+
+/**
+ * Compact binary form of the remote document events produced by {@link DocumentEventConverter}: only the references,
+ * versions and languages are written instead of the Java serialization of the event, the document map and the
+ * context map.
+ *
+ * @version $Id$
+ * @since 11.0RC1
+ */
+@Component
+@Singleton
+@Named("document")
+public class DocumentRemoteEventDataCodec implements RemoteEventDataCodec
+{
+    private static final byte EVENT_CREATED = 0;
+
+    private static final byte EVENT_UPDATED = 1;
+
+    private static final byte EVENT_DELETED = 2;
+
+    private static final List<String> DOCUMENT_KEYS = Arrays.asList(AbstractXWikiEventConverter.DOC_VERSION,
+        AbstractXWikiEventConverter.DOC_LANGUAGE, AbstractXWikiEventConverter.ORIGDOC_VERSION,
+        AbstractXWikiEventConverter.ORIGDOC_LANGUAGE);
+
+    private static final Set<String> CONTEXT_KEYS = new HashSet<>(
+        Arrays.asList(AbstractXWikiEventConverter.CONTEXT_WIKI, AbstractXWikiEventConverter.CONTEXT_USER));
+
+    private static final byte FILTER_ALWAYS = 0;
+
+    private static final byte FILTER_FIXED = 1;
+
+    private static final byte FILTER_REGEX = 2;
+
+    @Override
+    public boolean encode(RemoteEventData remoteEvent, DataOutput output) throws IOException
+    {
+        byte eventType = getEventType(remoteEvent.getEvent());
+        if (eventType < 0) {
+            return false;
+        }
+
+        AbstractDocumentEvent event = (AbstractDocumentEvent) remoteEvent.getEvent();
+        byte filterType = getFilterType(event.getEventFilter());
+        Map<String, Serializable> document = toMap(remoteEvent.getSource());
+        Map<String, Serializable> context = toMap(remoteEvent.getData());
+
+        if (event.isCanceled() || filterType < 0 || !isDocument(document) || !isContext(context)) {
+            return false;
+        }
+
+        output.writeByte(eventType);
+
+        // Filter
+        output.writeByte(filterType);
+        if (filterType != FILTER_ALWAYS) {
+            output.writeUTF(event.getEventFilter().getFilter());
+        }
+
+        // Document
+        writeDocumentReference((DocumentReference) document.get(AbstractXWikiEventConverter.DOC_NAME), output);
+        for (String key : DOCUMENT_KEYS) {
+            writeString((String) document.get(key), output);
+        }
+
+        // Context
+        writeString((String) context.get(AbstractXWikiEventConverter.CONTEXT_WIKI), output);
+        writeString((String) context.get(AbstractXWikiEventConverter.CONTEXT_USER), output);
+
+        return true;
+    }
+
+    @Override
+    public RemoteEventData decode(DataInput input) throws IOException
+    {
+        RemoteEventData remoteEvent = new RemoteEventData();
+
+        byte eventType = input.readByte();
+        EventFilter filter = readFilter(input);
+        switch (eventType) {
+            case EVENT_CREATED:
+                remoteEvent.setEvent(new DocumentCreatedEvent(filter));
+                break;
+            case EVENT_UPDATED:
+                remoteEvent.setEvent(new DocumentUpdatedEvent(filter));
+                break;
+            case EVENT_DELETED:
+                remoteEvent.setEvent(new DocumentDeletedEvent(filter));
+                break;
+            default:
+                throw new IOException("Unknown document event type [" + eventType + "]");
+        }
+
+        HashMap<String, Serializable> document = new HashMap<>();
+        document.put(AbstractXWikiEventConverter.DOC_NAME, readDocumentReference(input));
+        for (String key : DOCUMENT_KEYS) {
+            putString(document, key, readString(input));
+        }
+        remoteEvent.setSource(document);
+
+        HashMap<String, Serializable> context = new HashMap<>();
+        context.put(AbstractXWikiEventConverter.CONTEXT_WIKI, readString(input));
+        context.put(AbstractXWikiEventConverter.CONTEXT_USER, readString(input));
+        remoteEvent.setData(context);
+
+        return remoteEvent;
+    }
+
+    private byte getEventType(Serializable event)
+    {
+        Class<?> eventClass = event != null ? event.getClass() : null;
+        if (eventClass == DocumentCreatedEvent.class) {
+            return EVENT_CREATED;
+        } else if (eventClass == DocumentUpdatedEvent.class) {
+            return EVENT_UPDATED;
+        } else if (eventClass == DocumentDeletedEvent.class) {
+            return EVENT_DELETED;
+        }
+
+        return -1;
+    }
+
+    private byte getFilterType(EventFilter filter)
+    {
+        if (filter == null) {
+            return -1;
+        }
+
+        Class<?> filterClass = filter.getClass();
+        if (filterClass == AlwaysMatchingEventFilter.class) {
+            return FILTER_ALWAYS;
+        } else if (filterClass == FixedNameEventFilter.class) {
+            return FILTER_FIXED;
+        } else if (filterClass == RegexEventFilter.class) {
+            return FILTER_REGEX;
+        }
+
+        return -1;
+    }
+
+    private EventFilter readFilter(DataInput input) throws IOException
+    {
+        byte filterType = input.readByte();
+        switch (filterType) {
+            case FILTER_ALWAYS:
+                return new AlwaysMatchingEventFilter();
+            case FILTER_FIXED:
+                return new FixedNameEventFilter(input.readUTF());
+            case FILTER_REGEX:
+                return new RegexEventFilter(input.readUTF());
+            default:
+                throw new IOException("Unknown event filter type [" + filterType + "]");
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Serializable> toMap(Serializable value)
+    {
+        return value instanceof Map ? (Map<String, Serializable>) value : null;
+    }
+
+    private boolean isDocument(Map<String, Serializable> document)
+    {
+        if (document == null || document.get(AbstractXWikiEventConverter.DOC_NAME) == null
+            || document.get(AbstractXWikiEventConverter.DOC_NAME).getClass() != DocumentReference.class) {
+            return false;
+        }
+
+        for (Map.Entry<String, Serializable> entry : document.entrySet()) {
+            if (!entry.getKey().equals(AbstractXWikiEventConverter.DOC_NAME)
+                && (!DOCUMENT_KEYS.contains(entry.getKey()) || !isString(entry.getValue()))) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private boolean isContext(Map<String, Serializable> context)
+    {
+        if (context == null) {
+            return false;
+        }
+
+        for (Map.Entry<String, Serializable> entry : context.entrySet()) {
+            if (!CONTEXT_KEYS.contains(entry.getKey()) || !isString(entry.getValue())) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private boolean isString(Serializable value)
+    {
+        return value == null || value instanceof String;
+    }
+
+    private void writeDocumentReference(DocumentReference reference, DataOutput output) throws IOException
+    {
+        output.writeUTF(reference.getWikiReference().getName());
+
+        List<SpaceReference> spaces = reference.getSpaceReferences();
+        output.writeInt(spaces.size());
+        for (SpaceReference space : spaces) {
+            output.writeUTF(space.getName());
+        }
+
+        output.writeUTF(reference.getName());
+
+        Locale locale = reference.getLocale();
+        writeString(locale != null ? locale.toString() : null, output);
+    }
+
+    private DocumentReference readDocumentReference(DataInput input) throws IOException
+    {
+        String wiki = input.readUTF();
+
+        int spacesSize = input.readInt();
+        List<String> spaces = new ArrayList<>(spacesSize);
+        for (int i = 0; i < spacesSize; ++i) {
+            spaces.add(input.readUTF());
+        }
+
+        String name = input.readUTF();
+
+        String locale = readString(input);
+
+        return new DocumentReference(wiki, spaces, name, locale != null ? LocaleUtils.toLocale(locale) : null);
+    }
+
+    private void writeString(String value, DataOutput output) throws IOException
+    {
+        output.writeBoolean(value != null);
+        if (value != null) {
+            output.writeUTF(value);
+        }
+    }
+
+    private String readString(DataInput input) throws IOException
+    {
+        return input.readBoolean() ? input.readUTF() : null;
+    }
+
+    private void putString(Map<String, Serializable> map, String key, String value)
+    {
+        // Keep the same map as the one produced by the converter which does not contain null versions
+        if (value != null) {
+            map.put(key, value);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.store;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A Bloom filter of document identifiers, used to know without any database access that a document does not exist.
+ * False positives are possible (a document is said to maybe exist while it does not) but not false negatives, as long
+ * as all the created documents are added to the filter.
+ *
+ * @version $Id$
+ * @since 11.0RC1
+ */
+public class DocumentExistenceFilter
+{
+    private static final int MIN_CAPACITY = 10000;
+
+    /**
+     * The number of bits used for each expected element, which, combined with the number of hash functions, gives a
+     * false positive probability of about 1%.
+     */
+    private static final int BITS_PER_ELEMENT = 10;
+
+    private static final int HASH_FUNCTIONS = 7;
+
+    private static final int MIX_SHIFT = 33;
+
+    private static final long MIX_MULTIPLIER1 = 0xff51afd7ed558ccdL;
+
+    private static final long MIX_MULTIPLIER2 = 0xc4ceb9fe1a85ec53L;
+
+    private final AtomicLongArray bits;
+
+    private final long bitSize;
+
+    private final long capacity;
+
+    private final AtomicLong size = new AtomicLong();
+
+    private volatile boolean ready;
+
+    /**
+     * @param capacity the number of documents expected to be added to the filter
+     */
+    public DocumentExistenceFilter(long capacity)
+    {
+        this.capacity = Math.max(capacity, MIN_CAPACITY);
+
+        int words = (int) Math.min((this.capacity * BITS_PER_ELEMENT + Long.SIZE - 1) / Long.SIZE, Integer.MAX_VALUE);
+        this.bits = new AtomicLongArray(words);
+        this.bitSize = (long) words * Long.SIZE;
+    }
+
+    /**
+     * @param id the identifier of a document which exists
+     */
+    public void add(long id)
+    {
+        long hash1 = mix(id);
+        long hash2 = mix(hash1) | 1;
+
+        for (int i = 0; i < HASH_FUNCTIONS; ++i) {
+            long index = Math.floorMod(hash1 + i * hash2, this.bitSize);
+            long mask = 1L << index;
+            this.bits.getAndAccumulate((int) (index / Long.SIZE), mask, (previous, bit) -> previous | bit);
+        }
+
+        this.size.incrementAndGet();
+    }
+
+    /**
+     * @param id the identifier of a document
+     * @return false if the document does not exist, true if it might exist
+     */
+    public boolean mightContain(long id)
+    {
+        long hash1 = mix(id);
+        long hash2 = mix(hash1) | 1;
+
+        for (int i = 0; i < HASH_FUNCTIONS; ++i) {
+            long index = Math.floorMod(hash1 + i * hash2, this.bitSize);
+            long mask = 1L << index;
+            if ((this.bits.get((int) (index / Long.SIZE)) & mask) == 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * @return true if more documents than expected have been added to the filter, making false positives more likely
+     */
+    public boolean isOverloaded()
+    {
+        return this.size.get() > this.capacity;
+    }
+
+    /**
+     * @return true if all the existing documents have been added to the filter
+     */
+    public boolean isReady()
+    {
+        return this.ready;
+    }
+
+    /**
+     * Indicate that all the existing documents have been added to the filter, which can now be trusted.
+     */
+    public void setReady()
+    {
+        this.ready = true;
+    }
+
+    /**
+     * The finalization step of MurmurHash3, which spreads the bits of the identifier.
+     */
+    private static long mix(long value)
+    {
+        long hash = value;
+        hash ^= hash >>> MIX_SHIFT;
+        hash *= MIX_MULTIPLIER1;
+        hash ^= hash >>> MIX_SHIFT;
+        hash *= MIX_MULTIPLIER2;
+        hash ^= hash >>> MIX_SHIFT;
+
+        return hash;
+    }
+}
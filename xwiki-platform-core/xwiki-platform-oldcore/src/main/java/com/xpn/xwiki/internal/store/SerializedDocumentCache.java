@@ -0,0 +1,147 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.store;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A least recently used cache of serialized documents bounded by the number of bytes it contains instead of a number
+ * of entries. It's used as a second level behind the document cache: a serialized document is a single byte array,
+ * much smaller than the object graph of a loaded document and cheap to scan for the garbage collector, so a lot more
+ * documents can be kept in memory for a known amount of heap.
+ *
+ * @version $Id$
+ * @since 11.0RC1
+ */
+public class SerializedDocumentCache
+{
+    private static final int INITIAL_CAPACITY = 16;
+
+    private static final float LOAD_FACTOR = 0.75F;
+
+    private final long capacity;
+
+    private final long maxEntrySize;
+
+    private final Map<String, byte[]> entries = new LinkedHashMap<>(INITIAL_CAPACITY, LOAD_FACTOR, true);
+
+    private long size;
+
+    /**
+     * @param capacity the maximum number of bytes to keep in the cache
+     */
+    public SerializedDocumentCache(long capacity)
+    {
+        this(capacity, capacity);
+    }
+
+    /**
+     * @param capacity the maximum number of bytes to keep in the cache
+     * @param maxEntrySize the maximum number of bytes of a single serialized document, bigger documents are not kept
+     */
+    public SerializedDocumentCache(long capacity, long maxEntrySize)
+    {
+        this.capacity = capacity;
+        this.maxEntrySize = Math.min(capacity, maxEntrySize);
+    }
+
+    /**
+     * @return the maximum number of bytes to keep in the cache
+     */
+    public long getCapacity()
+    {
+        return this.capacity;
+    }
+
+    /**
+     * @return the maximum number of bytes of a single serialized document
+     */
+    public long getMaxEntrySize()
+    {
+        return this.maxEntrySize;
+    }
+
+    /**
+     * @return the number of bytes currently stored in the cache
+     */
+    public synchronized long getSize()
+    {
+        return this.size;
+    }
+
+    /**
+     * @param key the key of the document
+     * @return the serialized document or null if it's not in the cache, shared with the cache so it must not be
+     *         modified
+     */
+    public synchronized byte[] get(String key)
+    {
+        return this.entries.get(key);
+    }
+
+    /**
+     * Store a serialized document, evicting the least recently used ones if the cache would become too big. Documents
+     * bigger than the maximum entry size are ignored.
+     *
+     * @param key the key of the document
+     * @param data the serialized document, kept as is by the cache so it must not be modified afterward
+     */
+    public synchronized void set(String key, byte[] data)
+    {
+        remove(key);
+
+        if (data.length > this.maxEntrySize) {
+            return;
+        }
+
+        // Make room for the new entry
+        Iterator<byte[]> iterator = this.entries.values().iterator();
+        while (this.size + data.length > this.capacity && iterator.hasNext()) {
+            this.size -= iterator.next().length;
+            iterator.remove();
+        }
+
+        this.entries.put(key, data);
+        this.size += data.length;
+    }
+
+    /**
+     * @param key the key of the document to remove from the cache
+     */
+    public synchronized void remove(String key)
+    {
+        byte[] data = this.entries.remove(key);
+
+        if (data != null) {
+            this.size -= data.length;
+        }
+    }
+
+    /**
+     * Remove all the entries from the cache.
+     */
+    public synchronized void removeAll()
+    {
+        this.entries.clear();
+        this.size = 0;
+    }
+}
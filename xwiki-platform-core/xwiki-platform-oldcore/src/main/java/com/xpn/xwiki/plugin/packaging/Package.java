@@ -28,12 +28,20 @@
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
@@ -41,8 +49,10 @@
 import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
 import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
 import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.input.CloseShieldInputStream;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.dom4j.Document;
 import org.dom4j.DocumentException;
@@ -53,6 +63,11 @@
 import org.dom4j.io.SAXReader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.xwiki.configuration.ConfigurationSource;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContext;
+import org.xwiki.context.ExecutionContextException;
+import org.xwiki.context.ExecutionContextManager;
 import org.xwiki.extension.Extension;
 import org.xwiki.extension.ExtensionId;
 import org.xwiki.extension.InstalledExtension;
@@ -73,6 +88,8 @@
 import com.xpn.xwiki.doc.XWikiDocument;
 import com.xpn.xwiki.internal.event.XARImportedEvent;
 import com.xpn.xwiki.internal.event.XARImportingEvent;
+import com.xpn.xwiki.internal.file.TemporaryDeferredFileRepository;
+import com.xpn.xwiki.internal.file.TemporaryDeferredFileRepository.TemporaryDeferredFile;
 import com.xpn.xwiki.internal.xml.XMLWriter;
 import com.xpn.xwiki.objects.classes.BaseClass;
 import com.xpn.xwiki.web.Utils;
@@ -100,6 +117,15 @@
 
     private static final Logger LOGGER = LoggerFactory.getLogger(Package.class);
 
+    private static final String EXPORT_THREADS_PROPERTY = "export.xar.threads";
+
+    /**
+     * The maximum number of serialized documents waiting to be added to the zip, per export thread.
+     */
+    private static final int EXPORT_PENDING_DOCUMENTS = 2;
+
+    private static final String EXPORT_REPOSITORY = "packaging/export";
+
     private String name = "My package";
 
     private String description = "";
@@ -437,10 +463,15 @@ public String export(OutputStream os, XWikiContext context) throws IOException,
         // and the filenames will be correctly converted to the character set of the local
         // file system.
         zos.setCreateUnicodeExtraFields(ZipArchiveOutputStream.UnicodeExtraFieldPolicy.ALWAYS);
-        for (int i = 0; i < this.files.size(); i++) {
-            DocumentInfo docinfo = this.files.get(i);
-            XWikiDocument doc = docinfo.getDoc();
-            addToZip(doc, zos, this.withVersions, context);
+        int threads = Math.min(getExportThreads(), this.files.size());
+        if (threads > 1) {
+            addToZip(this.files, zos, threads, context);
+        } else {
+            for (int i = 0; i < this.files.size(); i++) {
+                DocumentInfo docinfo = this.files.get(i);
+                XWikiDocument doc = docinfo.getDoc();
+                addToZip(doc, zos, this.withVersions, context);
+            }
         }
         addInfosToZip(zos, context);
         zos.finish();
@@ -1253,6 +1284,138 @@ private void addToZip(XWikiDocument doc, ZipArchiveOutputStream zos, boolean wit
         zos.closeArchiveEntry();
     }
 
+    private int getExportThreads()
+    {
+        ConfigurationSource configuration = Utils.getComponent(ConfigurationSource.class, "xwikiproperties");
+
+        return configuration.getProperty(EXPORT_THREADS_PROPERTY, 1);
+    }
+
+    /**
+     * Serialize a document from an export thread into a temporary file, which is kept in memory as long as it's small.
+     */
+    private final class DocumentSerializer implements Callable<TemporaryDeferredFile>
+    {
+        private final XWikiDocument document;
+
+        private final String zipname;
+
+        private final ExecutionContext executionContext;
+
+        private final TemporaryDeferredFileRepository repository;
+
+        private Future<TemporaryDeferredFile> future;
+
+        private DocumentSerializer(XWikiDocument document, String zipname, ExecutionContext executionContext,
+            TemporaryDeferredFileRepository repository)
+        {
+            this.document = document;
+            this.zipname = zipname;
+            this.executionContext = executionContext;
+            this.repository = repository;
+        }
+
+        @Override
+        public TemporaryDeferredFile call() throws Exception
+        {
+            Execution execution = Utils.getComponent(Execution.class);
+
+            execution.setContext(this.executionContext);
+
+            try {
+                XWikiContext xcontext =
+                    (XWikiContext) this.executionContext.getProperty(XWikiContext.EXECUTIONCONTEXT_KEY);
+
+                TemporaryDeferredFile file = this.repository.createTemporaryDeferredFile(EXPORT_REPOSITORY);
+                try (OutputStream stream = file.getOutputStream()) {
+                    this.document.toXML(stream, true, false, true, withVersions, xcontext);
+                }
+
+                return file;
+            } finally {
+                execution.removeContext();
+            }
+        }
+    }
+
+    /**
+     * Serialize the documents on several threads while the current thread appends them to the zip, in the package
+     * order. Only a few serialized documents are waiting at the same time so that the memory used by the export does
+     * not depend on its size.
+     *
+     * @param documents the documents to export
+     * @param zos the ZipArchiveOutputStream to write to
+     * @param threads the number of threads serializing the documents
+     * @param context current XWikiContext
+     * @throws XWikiException when an error occurs during documents access
+     * @throws IOException when an error occurs during streaming operation
+     */
+    void addToZip(List<DocumentInfo> documents, ZipArchiveOutputStream zos, int threads, XWikiContext context)
+        throws XWikiException, IOException
+    {
+        TemporaryDeferredFileRepository repository = Utils.getComponent(TemporaryDeferredFileRepository.class);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads,
+            new BasicThreadFactory.Builder().namingPattern("XWiki XAR export thread %d").daemon(true).build());
+        try {
+            Deque<DocumentSerializer> pending = new ArrayDeque<>();
+            Iterator<DocumentInfo> iterator = documents.iterator();
+            int maxPending = threads * EXPORT_PENDING_DOCUMENTS;
+            while (iterator.hasNext() || !pending.isEmpty()) {
+                // Keep the export threads busy
+                while (iterator.hasNext() && pending.size() < maxPending) {
+                    XWikiDocument doc = iterator.next().getDoc();
+                    DocumentSerializer serializer = new DocumentSerializer(doc, getPathFromDocument(doc, context),
+                        cloneExecutionContext(context), repository);
+                    serializer.future = executor.submit(serializer);
+                    pending.add(serializer);
+                }
+
+                // Append the next document to the zip
+                DocumentSerializer serializer = pending.poll();
+                TemporaryDeferredFile file = serializer.future.get();
+                zos.putArchiveEntry(new ZipArchiveEntry(serializer.zipname));
+                try (InputStream stream = file.getInputStream()) {
+                    IOUtils.copyLarge(stream, zos);
+                }
+                zos.closeArchiveEntry();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            throw new XWikiException(XWikiException.MODULE_XWIKI_DOC, XWikiException.ERROR_XWIKI_DOC_EXPORT,
+                "Interrupted while exporting the package", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof XWikiException) {
+                throw (XWikiException) e.getCause();
+            } else if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+
+            throw new XWikiException(XWikiException.MODULE_XWIKI_DOC, XWikiException.ERROR_XWIKI_DOC_EXPORT,
+                "Failed to serialize document", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private ExecutionContext cloneExecutionContext(XWikiContext context) throws XWikiException
+    {
+        try {
+            ExecutionContext executionContext = Utils.getComponent(ExecutionContextManager.class)
+                .clone(Utils.getComponent(Execution.class).getContext());
+
+            // Make sure each thread get its own XWiki context
+            XWikiContext threadContext = context.clone();
+            threadContext.declareInExecutionContext(executionContext);
+
+            return executionContext;
+        } catch (ExecutionContextException e) {
+            throw new XWikiException(XWikiException.MODULE_XWIKI_DOC, XWikiException.ERROR_XWIKI_DOC_EXPORT,
+                "Failed to clone the execution context", e);
+        }
+    }
+
     public void addToDir(XWikiDocument doc, File dir, boolean withVersions, XWikiContext context) throws XWikiException
     {
         try {
@@ -24,6 +24,7 @@
 
 import org.xwiki.context.Execution;
 import org.xwiki.context.ExecutionContext;
+import org.xwiki.stability.Unstable;
 
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.stats.impl.StatsUtil;
@@ -63,6 +64,13 @@ public abstract class AbstractStatsStoreItem implements XWikiStatsStoreItem
      */
     protected int period;
 
+    /**
+     * The number of statistics events this item stands for (more than 1 when other items have been merged into it).
+     *
+     * @since 11.0RC1
+     */
+    protected int count = 1;
+
     /**
      * @param name the statistic name.
      * @param periodDate the period date.
@@ -80,6 +88,18 @@ public AbstractStatsStoreItem(String name, Date periodDate, PeriodType periodTyp
         this.context = context.clone();
     }
 
+    /**
+     * Merge a more recent item with the same identifier into this one, so that only one item has to be stored.
+     *
+     * @param item the item to merge
+     * @since 11.0RC1
+     */
+    @Unstable
+    public void merge(AbstractStatsStoreItem item)
+    {
+        this.count += item.count;
+    }
+
     @Override
     public void store(List<XWikiStatsStoreItem> statsList)
     {
@@ -54,6 +54,11 @@ public class DocumentStatsStoreItem extends AbstractStatsStoreItem
      */
     private boolean isVisit;
 
+    /**
+     * The number of visits this item stands for.
+     */
+    private int visits;
+
     /**
      * Create new instance of {@link DocumentStatsStoreItem}.
      *
@@ -76,6 +81,7 @@ public DocumentStatsStoreItem(String name, Date periodDate, PeriodType periodTyp
 
         this.action = action;
         this.isVisit = isVisit;
+        this.visits = isVisit ? 1 : 0;
     }
 
     @Override
@@ -84,6 +90,14 @@ public String getId()
         return String.format("%s %s %s %s", getClass(), this.name, this.action, this.period);
     }
 
+    @Override
+    public void merge(AbstractStatsStoreItem item)
+    {
+        super.merge(item);
+
+        this.visits += ((DocumentStatsStoreItem) item).visits;
+    }
+
     @Override
     public void storeInternal(List<XWikiStatsStoreItem> stats)
     {
@@ -108,14 +122,16 @@ public void storeInternal(List<XWikiStatsStoreItem> stats)
         }
 
         // Increment counters
-        documentStat.setIntValue("pageViews", documentStat.getPageViews() + stats.size());
+        int pageViews = 0;
+        int newVisits = 0;
         for (XWikiStatsStoreItem statItem : stats) {
             DocumentStatsStoreItem docStat = (DocumentStatsStoreItem) statItem;
 
-            if (docStat.isVisit) {
-                documentStat.incVisits();
-            }
+            pageViews += docStat.count;
+            newVisits += docStat.visits;
         }
+        documentStat.setIntValue("pageViews", documentStat.getPageViews() + pageViews);
+        documentStat.setIntValue("visits", documentStat.getVisits() + newVisits);
 
         // Re-save statistics object
         try {
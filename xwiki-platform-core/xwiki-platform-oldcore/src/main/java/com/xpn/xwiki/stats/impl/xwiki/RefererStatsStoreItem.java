@@ -96,7 +96,11 @@ public void storeInternal(List<XWikiStatsStoreItem> stats)
         }
 
         // Increment counters
-        refererStat.setIntValue("pageViews", refererStat.getPageViews() + stats.size());
+        int pageViews = 0;
+        for (XWikiStatsStoreItem statItem : stats) {
+            pageViews += ((RefererStatsStoreItem) statItem).count;
+        }
+        refererStat.setIntValue("pageViews", refererStat.getPageViews() + pageViews);
 
         // Re-save statistics object
         try {
@@ -49,6 +49,11 @@ public class VisitStatsStoreItem extends AbstractStatsStoreItem
      */
     private VisitStats visitStats;
 
+    /**
+     * The previous version of the {@link VisitStats} object which has to be removed from the database, if any.
+     */
+    private VisitStats oldVisitStats;
+
     /**
      * Create new instance of {@link VisitStatsStoreItem}.
      *
@@ -61,6 +66,7 @@ public VisitStatsStoreItem(VisitStats visitStats, XWikiContext context)
         this.period = visitStats.getPeriod();
 
         this.visitStats = (VisitStats) visitStats.clone();
+        this.oldVisitStats = this.visitStats.getOldObject();
     }
 
     @Override
@@ -70,11 +76,24 @@ public String getId()
             this.visitStats.getCookie());
     }
 
+    @Override
+    public void merge(AbstractStatsStoreItem item)
+    {
+        super.merge(item);
+
+        VisitStatsStoreItem visitItem = (VisitStatsStoreItem) item;
+        // Keep the most recent state of the visit but don't forget the previous object to remove
+        this.visitStats = visitItem.visitStats;
+        if (this.oldVisitStats == null) {
+            this.oldVisitStats = visitItem.oldVisitStats;
+        }
+    }
+
     @Override
     public void storeInternal(List<XWikiStatsStoreItem> stats)
     {
         VisitStatsStoreItem firstItem = (VisitStatsStoreItem) stats.get(0);
-        VisitStats oldVisitStats = firstItem.visitStats.getOldObject();
+        VisitStats oldVisitStats = firstItem.oldVisitStats;
 
         VisitStatsStoreItem lastItem = (VisitStatsStoreItem) stats.get(stats.size() - 1);
         VisitStats newVisitStats = lastItem.visitStats;
@@ -20,27 +20,40 @@
 package com.xpn.xwiki.stats.impl.xwiki;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.xwiki.context.Execution;
 import org.xwiki.context.ExecutionContext;
 
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.doc.XWikiDocument;
 import com.xpn.xwiki.stats.impl.StatsUtil;
 import com.xpn.xwiki.stats.impl.VisitStats;
+import com.xpn.xwiki.store.XWikiHibernateStore;
 import com.xpn.xwiki.util.AbstractXWikiRunnable;
 import com.xpn.xwiki.web.DownloadAction;
 import com.xpn.xwiki.web.SaveAction;
+import com.xpn.xwiki.web.Utils;
 import com.xpn.xwiki.web.ViewAction;
 
 /**
  * Back-end statistics storing service.
+ * <p>
+ * The statistics are not written to the database as they come: statistics with the same identifier (same document,
+ * action and period for example) are merged in memory and the result is written periodically (every
+ * {@code stats.flush.interval} seconds, or sooner when more than {@code stats.queue.size} different statistics are
+ * waiting), using one transaction per wiki. This way each statistics row is loaded and saved once per flush whatever
+ * the number of views and adding statistics never blocks the request threads.
  *
  * @version $Id$
  * @since 1.4M2
@@ -53,9 +66,34 @@ public class XWikiStatsStoreService extends AbstractXWikiRunnable
     private static final Logger LOGGER = LoggerFactory.getLogger(XWikiStatsStoreService.class);
 
     /**
-     * The queue containing the statistics to store.
+     * The statistics waiting to be stored, indexed by wiki and statistics identifier.
      */
-    private ArrayBlockingQueue<XWikiStatsStoreItem> queue;
+    private final ConcurrentMap<String, XWikiStatsStoreItem> pendingStats = new ConcurrentHashMap<>();
+
+    /**
+     * Used to generate unique keys for the statistics items which cannot be merged.
+     */
+    private final AtomicLong unmergeableCounter = new AtomicLong();
+
+    /**
+     * Used to wake up the storing thread.
+     */
+    private final Object flushSignal = new Object();
+
+    /**
+     * The maximum number of different statistics waiting in memory before they are stored.
+     */
+    private final int maxPendingStats;
+
+    /**
+     * The maximum time (in milliseconds) a statistic waits in memory before being stored.
+     */
+    private final long flushInterval;
+
+    /**
+     * True when the storing thread has been asked to stop.
+     */
+    private volatile boolean stopped;
 
     /**
      * The thread on which the storing service is running.
@@ -75,8 +113,8 @@ public class XWikiStatsStoreService extends AbstractXWikiRunnable
     public XWikiStatsStoreService(XWikiContext context)
     {
         this.xwikiContext = context.clone();
-        long queueSize = context.getWiki().ParamAsLong("stats.queue.size", 200);
-        this.queue = new ArrayBlockingQueue<XWikiStatsStoreItem>((int) queueSize);
+        this.maxPendingStats = (int) context.getWiki().ParamAsLong("stats.queue.size", 200);
+        this.flushInterval = TimeUnit.SECONDS.toMillis(context.getWiki().ParamAsLong("stats.flush.interval", 10));
     }
 
     @Override
@@ -92,6 +130,7 @@ protected void declareProperties(ExecutionContext executionContext)
     public void start()
     {
         if (this.thread == null) {
+            this.stopped = false;
             this.thread = new Thread(this, "Statistics storing daemon");
             // The JVM should be allowed to shutdown while this thread is running
             this.thread.setDaemon(true);
@@ -100,13 +139,15 @@ public void start()
     }
 
     /**
-     * Stop storing thread.
+     * Stop storing thread. The statistics still in memory are stored before the thread stops.
      */
     public void stop()
     {
-        this.queue.clear();
+        this.stopped = true;
+        synchronized (this.flushSignal) {
+            this.flushSignal.notifyAll();
+        }
         try {
-            this.queue.put(new StopStatsRegisterObject());
             this.thread.join();
             this.thread = null;
         } catch (InterruptedException e) {
@@ -120,57 +161,126 @@ public void stop()
     public void runInternal()
     {
         try {
-            while (true) {
-                register();
+            while (!this.stopped) {
+                synchronized (this.flushSignal) {
+                    if (!this.stopped && this.pendingStats.size() < this.maxPendingStats) {
+                        this.flushSignal.wait(this.flushInterval);
+                    }
+                }
+
+                flush();
             }
         } catch (InterruptedException e) {
             if (LOGGER.isWarnEnabled()) {
                 LOGGER.warn("Statistics storing thread has been interrupted.", e);
             }
-        } catch (StopStatsStoreException e) {
-            if (LOGGER.isInfoEnabled()) {
-                LOGGER.warn("Statistics storing thread received stop order.", e);
+        } finally {
+            // Don't lose the statistics which are still in memory
+            flush();
+        }
+    }
+
+    /**
+     * Store all the statistics currently waiting in memory.
+     */
+    private synchronized void flush()
+    {
+        Map<String, List<XWikiStatsStoreItem>> statsByWiki = new LinkedHashMap<>();
+        for (String key : this.pendingStats.keySet()) {
+            // Any statistic added after the removal goes to a new entry which will be stored at the next flush
+            XWikiStatsStoreItem stat = this.pendingStats.remove(key);
+            if (stat != null) {
+                statsByWiki.computeIfAbsent(getWikiId(stat), wiki -> new ArrayList<>()).add(stat);
+            }
+        }
+
+        for (Map.Entry<String, List<XWikiStatsStoreItem>> entry : statsByWiki.entrySet()) {
+            try {
+                store(entry.getKey(), entry.getValue());
+            } catch (Exception e) {
+                LOGGER.error("Failed to store statistics for wiki [{}]", entry.getKey(), e);
             }
         }
     }
 
     /**
-     * Store the statistics in the queue.
+     * Store the statistics of a wiki in a single transaction, or one by one if this transaction fails (in which case
+     * it's rolled back first so that no statistic is stored twice).
      *
-     * @throws InterruptedException thread has been interrupted.
-     * @throws StopStatsStoreException service received stop order.
+     * @param wiki the identifier of the wiki, or null if unknown
+     * @param stats the statistics to store
      */
-    private void register() throws InterruptedException, StopStatsStoreException
+    private void store(String wiki, List<XWikiStatsStoreItem> stats)
     {
-        XWikiStatsStoreItem stat = this.queue.take();
+        XWikiContext context = getXWikiContext();
+        XWikiHibernateStore store = wiki != null && context != null ? context.getWiki().getHibernateStore() : null;
 
-        List<List<XWikiStatsStoreItem>> statsList = new ArrayList<List<XWikiStatsStoreItem>>();
-        Map<String, List<XWikiStatsStoreItem>> statsMap = new HashMap<String, List<XWikiStatsStoreItem>>();
+        if (store == null || stats.size() == 1) {
+            storeOneByOne(stats);
 
-        do {
-            if (stat instanceof StopStatsRegisterObject) {
-                throw new StopStatsStoreException();
+            return;
+        }
+
+        String currentWiki = context.getWikiId();
+        context.setWikiId(wiki);
+        boolean rollbackable = true;
+        try {
+            boolean bTransaction = store.beginTransaction(context);
+            // The statistics stored in a transaction we don't own cannot be rolled back
+            rollbackable = bTransaction;
+            boolean stored = false;
+            try {
+                // The stores of the statistics items reuse the transaction opened here
+                for (XWikiStatsStoreItem stat : stats) {
+                    stat.store(Collections.singletonList(stat));
+                }
+
+                stored = true;
+            } finally {
+                if (bTransaction) {
+                    // Rollback if one of the statistics failed to be stored
+                    store.endTransaction(context, stored);
+                }
             }
 
-            String statId = stat.getId();
+            return;
+        } catch (Exception e) {
+            if (!rollbackable) {
+                LOGGER.error("Failed to store [{}] statistics in wiki [{}]", stats.size(), wiki, e);
+
+                return;
+            }
 
-            List<XWikiStatsStoreItem> stats = statsMap.get(statId);
+            LOGGER.warn("Failed to store [{}] statistics in wiki [{}] in one transaction, storing them one by one",
+                stats.size(), wiki, e);
+        } finally {
+            context.setWikiId(currentWiki);
+        }
 
-            if (stats == null) {
-                stats = new ArrayList<XWikiStatsStoreItem>();
+        storeOneByOne(stats);
+    }
 
-                statsMap.put(statId, stats);
-                statsList.add(stats);
+    private void storeOneByOne(List<XWikiStatsStoreItem> stats)
+    {
+        for (XWikiStatsStoreItem stat : stats) {
+            try {
+                stat.store(Collections.singletonList(stat));
+            } catch (Exception e) {
+                LOGGER.error("Failed to store statistics [{}]", stat.getId(), e);
             }
+        }
+    }
 
-            stats.add(stat);
+    private XWikiContext getXWikiContext()
+    {
+        ExecutionContext econtext = Utils.getComponent(Execution.class).getContext();
 
-            stat = this.queue.poll();
-        } while (stat != null);
+        return econtext != null ? (XWikiContext) econtext.getProperty(XWikiContext.EXECUTIONCONTEXT_KEY) : null;
+    }
 
-        for (List<XWikiStatsStoreItem> stats : statsList) {
-            stats.get(0).store(stats);
-        }
+    private String getWikiId(XWikiStatsStoreItem stat)
+    {
+        return stat instanceof AbstractStatsStoreItem ? ((AbstractStatsStoreItem) stat).context.getWikiId() : null;
     }
 
     // ////////////////////////////////////////////////////////////////////////////
@@ -184,10 +294,22 @@ private void register() throws InterruptedException, StopStatsStoreException
      */
     public void add(XWikiStatsStoreItem statsRegisterItem)
     {
-        try {
-            this.queue.put(statsRegisterItem);
-        } catch (InterruptedException e) {
-            LOGGER.error("Statistics storage thread has been interrupted", e);
+        if (statsRegisterItem instanceof AbstractStatsStoreItem) {
+            String key = getWikiId(statsRegisterItem) + ' ' + statsRegisterItem.getId();
+            // Merge with the statistic waiting for the same identifier (if any)
+            this.pendingStats.merge(key, statsRegisterItem, (pending, added) -> {
+                ((AbstractStatsStoreItem) pending).merge((AbstractStatsStoreItem) added);
+                return pending;
+            });
+        } else {
+            // We don't know how to merge this statistic, store it as is
+            this.pendingStats.put(String.valueOf(this.unmergeableCounter.incrementAndGet()), statsRegisterItem);
+        }
+
+        if (this.pendingStats.size() >= this.maxPendingStats) {
+            synchronized (this.flushSignal) {
+                this.flushSignal.notifyAll();
+            }
         }
     }
 
@@ -279,32 +401,3 @@ private void addRefererStats(XWikiDocument doc, XWikiContext context)
         }
     }
 }
-
-/**
- * Item used to stop the statistics storing.
- *
- * @version $Id$
- */
-class StopStatsRegisterObject implements XWikiStatsStoreItem
-{
-    @Override
-    public String getId()
-    {
-        return null;
-    }
-
-    @Override
-    public void store(List<XWikiStatsStoreItem> register)
-    {
-    }
-}
-
-/**
- * Used to order stopping storing thread.
- *
- * @version $Id$
- */
-class StopStatsStoreException extends Exception
-{
-
-}
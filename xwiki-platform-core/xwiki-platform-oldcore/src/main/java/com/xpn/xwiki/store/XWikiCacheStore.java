@@ -19,12 +19,29 @@
  */
 package com.xpn.xwiki.store;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xwiki.bridge.event.DocumentCreatedEvent;
@@ -35,27 +52,36 @@
 import org.xwiki.cache.CacheException;
 import org.xwiki.cache.CacheManager;
 import org.xwiki.cache.config.LRUCacheConfiguration;
+import org.xwiki.cache.event.AbstractCacheEntryListener;
+import org.xwiki.cache.event.CacheEntryEvent;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.annotation.InstantiationStrategy;
 import org.xwiki.component.descriptor.ComponentInstantiationStrategy;
 import org.xwiki.component.phase.Initializable;
 import org.xwiki.component.phase.InitializationException;
 import org.xwiki.configuration.ConfigurationSource;
+import org.xwiki.filter.input.DefaultInputStreamInputSource;
+import org.xwiki.filter.output.DefaultOutputStreamOutputTarget;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.EntityReferenceSerializer;
 import org.xwiki.observation.EventListener;
 import org.xwiki.observation.ObservationManager;
 import org.xwiki.observation.event.Event;
 import org.xwiki.observation.remote.RemoteObservationManagerContext;
+import org.xwiki.query.Query;
 import org.xwiki.query.QueryManager;
 
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.doc.XWikiAttachment;
 import com.xpn.xwiki.doc.XWikiDocument;
 import com.xpn.xwiki.doc.XWikiLink;
 import com.xpn.xwiki.doc.XWikiLock;
 import com.xpn.xwiki.internal.store.AbstractXWikiStore;
+import com.xpn.xwiki.internal.store.DocumentExistenceFilter;
+import com.xpn.xwiki.internal.store.SerializedDocumentCache;
 import com.xpn.xwiki.objects.classes.BaseClass;
+import com.xpn.xwiki.util.AbstractXWikiRunnable;
 import com.xpn.xwiki.web.Utils;
 
 /**
@@ -73,6 +99,26 @@ public class XWikiCacheStore extends AbstractXWikiStore
 {
     private static final Logger LOGGER = LoggerFactory.getLogger(XWikiCacheStore.class);
 
+    /**
+     * The number of document identifiers to read at once when building a page exist filter.
+     */
+    private static final int PAGE_EXIST_FILTER_BATCH_SIZE = 10000;
+
+    /**
+     * How long to wait before trying again to build the page exist filter of a wiki after a failure, in milliseconds.
+     */
+    private static final long PAGE_EXIST_FILTER_RETRY_DELAY = 10 * 60 * 1000L;
+
+    /**
+     * How long the thread building the page exist filters is kept when there is nothing to build, in seconds.
+     */
+    private static final long PAGE_EXIST_FILTER_THREAD_KEEP_ALIVE = 60L;
+
+    /**
+     * The default maximum number of bytes of a document serialized in the second level cache.
+     */
+    private static final long SECOND_LEVEL_CACHE_MAX_ENTRY_SIZE = 1024 * 1024L;
+
     /**
      * Used to know if a received event is a local or remote one.
      */
@@ -102,6 +148,37 @@ public class XWikiCacheStore extends AbstractXWikiStore
 
     private Cache<Boolean> pageExistCache;
 
+    private SerializedDocumentCache secondLevelCache;
+
+    /**
+     * The keys of the documents currently being removed from the document cache because they changed, which should not
+     * be moved to the second level cache.
+     */
+    private final Set<String> invalidatedKeys = ConcurrentHashMap.newKeySet();
+
+    private boolean pageExistFilterEnabled;
+
+    /**
+     * The filters indicating which documents don't exist, for each wiki.
+     */
+    private final Map<String, DocumentExistenceFilter> pageExistFilters = new ConcurrentHashMap<>();
+
+    /**
+     * The wikis whose page exist filter is waiting to be built or being built.
+     */
+    private final Set<String> pageExistFilterBuilds = ConcurrentHashMap.newKeySet();
+
+    /**
+     * The time before which the page exist filter of a wiki should not be built again, after a failure.
+     */
+    private final Map<String, Long> pageExistFilterRetryTimes = new ConcurrentHashMap<>();
+
+    /**
+     * Builds the page exist filters in the background so that reading the identifiers of all the documents of a wiki
+     * does not block the request which first needs the filter.
+     */
+    private ExecutorService pageExistFilterExecutor;
+
     /**
      * Default constructor generally used by the Component Manager.
      */
@@ -168,6 +245,32 @@ private void initCache() throws CacheException
         int pageExistCacheCapacity = this.configuration.getProperty("xwiki.store.cache.pageexistcapacity", 10000);
         this.pageExistCache = this.cacheManager
             .createNewCache(new LRUCacheConfiguration("xwiki.store.pageexistcache", pageExistCacheCapacity));
+
+        long secondLevelCacheCapacity = this.configuration.getProperty("xwiki.store.cache.secondlevel.capacity", 0L);
+        if (secondLevelCacheCapacity > 0) {
+            long secondLevelCacheMaxEntrySize = this.configuration
+                .getProperty("xwiki.store.cache.secondlevel.maxentrysize", SECOND_LEVEL_CACHE_MAX_ENTRY_SIZE);
+            this.secondLevelCache = new SerializedDocumentCache(secondLevelCacheCapacity, secondLevelCacheMaxEntrySize);
+
+            // Documents are serialized only when they are evicted from the document cache
+            this.cache.addCacheEntryListener(new AbstractCacheEntryListener<XWikiDocument>()
+            {
+                @Override
+                public void cacheEntryRemoved(CacheEntryEvent<XWikiDocument> event)
+                {
+                    onDocumentEvicted(event.getEntry().getKey(), event.getEntry().getValue());
+                }
+            });
+        }
+
+        this.pageExistFilterEnabled = this.configuration.getProperty("xwiki.store.cache.pageexistfilter", 0) == 1;
+        if (this.pageExistFilterEnabled) {
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, PAGE_EXIST_FILTER_THREAD_KEEP_ALIVE,
+                TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                new BasicThreadFactory.Builder().namingPattern("XWiki page exist filter thread").daemon(true).build());
+            executor.allowCoreThreadTimeOut(true);
+            this.pageExistFilterExecutor = executor;
+        }
     }
 
     @Deprecated
@@ -220,8 +323,9 @@ public void saveXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext, boolean
             // We need to flush so that caches
             // on the cluster are informed about the change
             String key = getKey(doc, context);
-            getCache().remove(key);
+            removeFromCache(key);
             getPageExistCache().remove(key);
+            addToPageExistFilter(context.getWikiId(), doc);
 
             /*
              * We do not want to save the document in the cache at this time. If we did, this would introduce the
@@ -239,6 +343,11 @@ public void flushCache()
     {
         getCache().removeAll();
         getPageExistCache().removeAll();
+        if (this.secondLevelCache != null) {
+            this.secondLevelCache.removeAll();
+        }
+        this.pageExistFilters.clear();
+        this.pageExistFilterRetryTimes.clear();
     }
 
     @Override
@@ -254,11 +363,15 @@ public void onEvent(Event event, Object source, Object data)
                 String key = doc.getKey();
 
                 if (getCache() != null) {
-                    getCache().remove(key);
+                    removeFromCache(key);
                 }
                 if (getPageExistCache() != null) {
                     getPageExistCache().remove(key);
                 }
+
+                if (event instanceof DocumentCreatedEvent) {
+                    addToPageExistFilter(doc.getDocumentReference().getWikiReference().getName(), doc);
+                }
             }
         }
     }
@@ -319,61 +432,258 @@ public XWikiDocument loadXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext)
             // Calculate the cache key
             String key = getKey(doc, context);
 
-            LOGGER.debug("Cache: Trying to get doc {} from cache", key);
+            XWikiDocument cachedoc = getCachedDocument(key, doc, context);
 
-            XWikiDocument cachedoc;
-            try {
-                cachedoc = getCache().get(key);
-            } catch (Exception e) {
-                LOGGER.error("Failed to get document from the cache", e);
+            if (cachedoc == null) {
+                LOGGER.debug("Cache: Trying to get doc {} from persistent storage", key);
+
+                cachedoc = this.store.loadXWikiDoc(doc, context);
+
+                LOGGER.debug("Cache: Got doc {} from storage", key);
 
-                cachedoc = null;
+                cacheLoadedDocument(key, cachedoc);
             }
 
-            if (cachedoc != null) {
-                cachedoc.setFromCache(true);
+            LOGGER.debug("Cache: end for doc {} in cache", key);
 
-                LOGGER.debug("Cache: got doc {} from cache", key);
-            } else {
-                Boolean result = getPageExistCache().get(key);
+            return cachedoc;
+        } finally {
+            restoreExecutionXContext();
+        }
+    }
 
-                if (result == Boolean.FALSE) {
-                    LOGGER.debug("Cache: The document {} does not exist, return an empty one", key);
+    @Override
+    public List<XWikiDocument> loadEachXWikiDoc(Collection<XWikiDocument> docs, XWikiContext inputxcontext)
+        throws XWikiException
+    {
+        // Make sure to use the right XWikiContext instance to avoid issues
+        XWikiContext context = getExecutionXContext(inputxcontext, true);
 
-                    cachedoc = doc;
-                    cachedoc.setNew(true);
+        try {
+            List<XWikiDocument> documents = new ArrayList<>(docs.size());
 
-                    // Make sure to always return a document with an original version, even for one that does not exist.
-                    // Allow writing more generic code.
-                    cachedoc
-                        .setOriginalDocument(new XWikiDocument(cachedoc.getDocumentReference(), cachedoc.getLocale()));
-                } else {
-                    LOGGER.debug("Cache: Trying to get doc {} from persistent storage", key);
+            // Collect the documents which are not in the cache
+            List<Integer> missingIndexes = new ArrayList<>();
+            List<String> missingKeys = new ArrayList<>();
+            List<XWikiDocument> missingDocuments = new ArrayList<>();
+            for (XWikiDocument doc : docs) {
+                String key = getKey(doc, context);
 
-                    cachedoc = this.store.loadXWikiDoc(doc, context);
+                XWikiDocument cachedoc = getCachedDocument(key, doc, context);
 
-                    LOGGER.debug("Cache: Got doc {} from storage", key);
+                if (cachedoc == null) {
+                    missingIndexes.add(documents.size());
+                    missingKeys.add(key);
+                    missingDocuments.add(doc);
+                }
+
+                documents.add(cachedoc);
+            }
 
-                    if (cachedoc.isNew()) {
-                        getPageExistCache().set(key, Boolean.FALSE);
-                    } else {
-                        getCache().set(key, cachedoc);
+            // Load all the missing documents with a single call to the store
+            if (!missingDocuments.isEmpty()) {
+                LOGGER.debug("Cache: Trying to get docs {} from persistent storage", missingKeys);
 
-                        // Also update exist cache
-                        getPageExistCache().set(key, Boolean.TRUE);
-                    }
+                List<XWikiDocument> loadedDocuments = this.store.loadEachXWikiDoc(missingDocuments, context);
+
+                for (int i = 0; i < loadedDocuments.size(); ++i) {
+                    XWikiDocument loadedDocument = loadedDocuments.get(i);
+
+                    cacheLoadedDocument(missingKeys.get(i), loadedDocument);
+
+                    documents.set(missingIndexes.get(i), loadedDocument);
+                }
+            }
+
+            return documents;
+        } finally {
+            restoreExecutionXContext();
+        }
+    }
+
+    /**
+     * @param key the cache key of the document
+     * @param doc the document to load
+     * @param context the XWiki context
+     * @return the document found in the caches or null if it needs to be loaded from the store
+     */
+    private XWikiDocument getCachedDocument(String key, XWikiDocument doc, XWikiContext context)
+    {
+        LOGGER.debug("Cache: Trying to get doc {} from cache", key);
+
+        XWikiDocument cachedoc;
+        try {
+            cachedoc = getCache().get(key);
+        } catch (Exception e) {
+            LOGGER.error("Failed to get document from the cache", e);
+
+            cachedoc = null;
+        }
+
+        if (cachedoc != null) {
+            cachedoc.setFromCache(true);
+
+            LOGGER.debug("Cache: got doc {} from cache", key);
+        } else {
+            Boolean result = isMissing(doc, context) ? Boolean.FALSE : getPageExistCache().get(key);
+
+            if (result == Boolean.FALSE) {
+                LOGGER.debug("Cache: The document {} does not exist, return an empty one", key);
+
+                cachedoc = doc;
+                cachedoc.setNew(true);
+
+                // Make sure to always return a document with an original version, even for one that does not exist.
+                // Allow writing more generic code.
+                cachedoc.setOriginalDocument(new XWikiDocument(cachedoc.getDocumentReference(), cachedoc.getLocale()));
+            } else {
+                cachedoc = getFromSecondLevelCache(key, doc);
 
-                    LOGGER.debug("Cache: put doc {} in cache", key);
+                if (cachedoc == null) {
+                    return null;
                 }
 
-                cachedoc.setStore(this.store);
+                LOGGER.debug("Cache: Got doc {} from second level cache", key);
+
+                getCache().set(key, cachedoc);
             }
 
-            LOGGER.debug("Cache: end for doc {} in cache", key);
+            cachedoc.setStore(this.store);
+        }
+
+        return cachedoc;
+    }
+
+    /**
+     * @param key the cache key of the document
+     * @param doc the document loaded from the store
+     */
+    private void cacheLoadedDocument(String key, XWikiDocument doc)
+    {
+        if (doc.isNew()) {
+            getPageExistCache().set(key, Boolean.FALSE);
+        } else {
+            getCache().set(key, doc);
+
+            // Also update exist cache
+            getPageExistCache().set(key, Boolean.TRUE);
+        }
+
+        LOGGER.debug("Cache: put doc {} in cache", key);
+
+        doc.setStore(this.store);
+    }
+
+    private XWikiDocument getFromSecondLevelCache(String key, XWikiDocument doc)
+    {
+        if (this.secondLevelCache == null) {
+            return null;
+        }
+
+        byte[] data = this.secondLevelCache.get(key);
+        if (data == null) {
+            return null;
+        }
+
+        try {
+            XWikiDocument cachedoc = new XWikiDocument(doc.getDocumentReference(), doc.getLocale());
+            cachedoc.fromXML(new DefaultInputStreamInputSource(new ByteArrayInputStream(data)), false);
+
+            // Put the document in the same state as if it was just loaded from the store
+            cachedoc.setNew(false);
+            cachedoc.setMostRecent(true);
+            cachedoc.setStore(this.store);
+            cachedoc.setOriginalDocument(cachedoc.clone());
 
             return cachedoc;
+        } catch (Exception e) {
+            LOGGER.warn("Failed to read document [{}] from the second level cache: {}", key,
+                ExceptionUtils.getRootCauseMessage(e));
+
+            this.secondLevelCache.remove(key);
+
+            return null;
+        }
+    }
+
+    /**
+     * Remove a document which changed from the document cache and the second level cache.
+     *
+     * @param key the cache key of the document
+     */
+    private void removeFromCache(String key)
+    {
+        // The removed document is outdated, it must not be moved to the second level cache
+        this.invalidatedKeys.add(key);
+        try {
+            getCache().remove(key);
         } finally {
-            restoreExecutionXContext();
+            this.invalidatedKeys.remove(key);
+        }
+
+        removeFromSecondLevelCache(key);
+    }
+
+    private void onDocumentEvicted(String key, XWikiDocument doc)
+    {
+        // The serialized document is still up to date if it's already in the second level cache
+        if (doc == null || this.invalidatedKeys.contains(key) || this.secondLevelCache.get(key) != null) {
+            return;
+        }
+
+        XWikiContext context = getExecutionXContext(null, false);
+        if (context != null && isSerializable(doc, context)) {
+            setInSecondLevelCache(key, doc);
+        }
+    }
+
+    private void setInSecondLevelCache(String key, XWikiDocument doc)
+    {
+        // Stop serializing as soon as the document is too big to be kept, whatever its actual size
+        SizeLimitedOutputStream out = new SizeLimitedOutputStream(this.secondLevelCache.getMaxEntrySize());
+
+        try {
+            doc.toXML(new DefaultOutputStreamOutputTarget(out), true, false, false, false, false,
+                StandardCharsets.UTF_8.name());
+
+            this.secondLevelCache.set(key, out.toByteArray());
+        } catch (Exception e) {
+            if (ExceptionUtils.indexOfThrowable(e, EntryTooBigException.class) != -1) {
+                LOGGER.debug("Document [{}] is too big to be kept in the second level cache", key);
+            } else {
+                LOGGER.warn("Failed to write document [{}] in the second level cache: {}", key,
+                    ExceptionUtils.getRootCauseMessage(e));
+            }
+        }
+    }
+
+    /**
+     * The XML serialization does not keep the store of the attachments so only documents with attachments located in
+     * the default stores can be restored from the second level cache.
+     */
+    private boolean isSerializable(XWikiDocument doc, XWikiContext context)
+    {
+        for (XWikiAttachment attachment : doc.getAttachmentList()) {
+            if (!isDefaultStore(attachment.getContentStore(),
+                context.getWiki().getDefaultAttachmentContentStore().getHint())
+                || !isDefaultStore(attachment.getArchiveStore(),
+                    context.getWiki().getDefaultAttachmentArchiveStore().getHint())) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private boolean isDefaultStore(String store, String defaultStore)
+    {
+        return store == null || store.equals(defaultStore);
+    }
+
+    private void removeFromSecondLevelCache(String key)
+    {
+        if (this.secondLevelCache != null) {
+            this.secondLevelCache.remove(key);
         }
     }
 
@@ -389,7 +699,7 @@ public void deleteXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext) throws
 
             this.store.deleteXWikiDoc(doc, context);
 
-            getCache().remove(key);
+            removeFromCache(key);
             getPageExistCache().remove(key);
             getPageExistCache().set(key, Boolean.FALSE);
         } finally {
@@ -705,6 +1015,10 @@ public boolean exists(XWikiDocument doc, XWikiContext inputxcontext) throws XWik
             // Calculate the cache key
             String key = getKey(doc, context);
 
+            if (isMissing(doc, context)) {
+                return false;
+            }
+
             try {
                 Boolean result = getPageExistCache().get(key);
 
@@ -723,6 +1037,130 @@ public boolean exists(XWikiDocument doc, XWikiContext inputxcontext) throws XWik
         }
     }
 
+    /**
+     * @param doc the document
+     * @param context the XWiki context
+     * @return true if the page exist filter of the current wiki knows for sure that the document does not exist
+     */
+    private boolean isMissing(XWikiDocument doc, XWikiContext context)
+    {
+        if (!this.pageExistFilterEnabled) {
+            return false;
+        }
+
+        DocumentExistenceFilter filter = getPageExistFilter(context.getWikiId());
+
+        return filter != null && !filter.mightContain(doc.getId());
+    }
+
+    private DocumentExistenceFilter getPageExistFilter(String wiki)
+    {
+        DocumentExistenceFilter filter = this.pageExistFilters.get(wiki);
+
+        if (filter == null) {
+            buildPageExistFilter(wiki);
+        }
+
+        // The filter cannot be trusted as long as it does not contain all the existing documents, the page exist cache
+        // and the database are used in the meantime
+        return filter != null && filter.isReady() ? filter : null;
+    }
+
+    private void buildPageExistFilter(String wiki)
+    {
+        // Don't hammer the database when the filter cannot be built
+        Long retryTime = this.pageExistFilterRetryTimes.get(wiki);
+        if (retryTime != null && System.currentTimeMillis() < retryTime) {
+            return;
+        }
+
+        if (this.pageExistFilterBuilds.add(wiki)) {
+            try {
+                this.pageExistFilterExecutor.execute(new AbstractXWikiRunnable()
+                {
+                    @Override
+                    protected void runInternal()
+                    {
+                        try {
+                            createPageExistFilter(wiki);
+                        } finally {
+                            pageExistFilterBuilds.remove(wiki);
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                this.pageExistFilterBuilds.remove(wiki);
+            }
+        }
+    }
+
+    private void createPageExistFilter(String wiki)
+    {
+        DocumentExistenceFilter filter = null;
+
+        try {
+            Query countQuery = getQueryManager().createQuery("select count(doc.id) from XWikiDocument doc", Query.HQL);
+            countQuery.setWiki(wiki);
+            long count = ((Number) countQuery.execute().get(0)).longValue();
+
+            // Leave room for the documents which are going to be created
+            filter = new DocumentExistenceFilter(count * 2);
+
+            // The filter is registered before being filled so that documents created in the meantime are not missed
+            if (this.pageExistFilters.putIfAbsent(wiki, filter) != null) {
+                // The filter has already been built
+                return;
+            }
+
+            Query query = getQueryManager()
+                .createQuery("select doc.id from XWikiDocument doc where doc.id > :id order by doc.id", Query.HQL);
+            query.setWiki(wiki);
+            query.setLimit(PAGE_EXIST_FILTER_BATCH_SIZE);
+
+            long lastId = Long.MIN_VALUE;
+            List<Long> ids;
+            do {
+                query.bindValue("id", lastId);
+                ids = query.execute();
+                for (Long id : ids) {
+                    filter.add(id);
+                }
+                if (!ids.isEmpty()) {
+                    lastId = ids.get(ids.size() - 1);
+                }
+            } while (ids.size() == PAGE_EXIST_FILTER_BATCH_SIZE);
+
+            filter.setReady();
+            this.pageExistFilterRetryTimes.remove(wiki);
+
+            LOGGER.debug("Cache: Page exist filter of wiki [{}] initialized with {} documents", wiki, count);
+        } catch (Exception e) {
+            LOGGER.warn("Failed to initialize the page exist filter of wiki [{}], trying again in {} minutes: {}",
+                wiki, TimeUnit.MILLISECONDS.toMinutes(PAGE_EXIST_FILTER_RETRY_DELAY),
+                ExceptionUtils.getRootCauseMessage(e));
+
+            if (filter != null) {
+                this.pageExistFilters.remove(wiki, filter);
+            }
+
+            this.pageExistFilterRetryTimes.put(wiki, System.currentTimeMillis() + PAGE_EXIST_FILTER_RETRY_DELAY);
+        }
+    }
+
+    private void addToPageExistFilter(String wiki, XWikiDocument doc)
+    {
+        DocumentExistenceFilter filter = this.pageExistFilters.get(wiki);
+
+        if (filter != null) {
+            filter.add(doc.getId());
+
+            // Recreate the filter when it becomes less efficient
+            if (filter.isOverloaded()) {
+                this.pageExistFilters.remove(wiki, filter);
+            }
+        }
+    }
+
     public Cache<XWikiDocument> getCache()
     {
         return this.cache;
@@ -772,4 +1210,55 @@ public QueryManager getQueryManager()
     {
         return getStore().getQueryManager();
     }
+
+    /**
+     * Thrown when a serialized document exceeds the maximum size of a second level cache entry.
+     */
+    private static final class EntryTooBigException extends IOException
+    {
+        private static final long serialVersionUID = 1L;
+    }
+
+    /**
+     * Collect the bytes of a serialized document but fail as soon as they exceed a maximum size.
+     */
+    private static final class SizeLimitedOutputStream extends OutputStream
+    {
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+        private final long maxSize;
+
+        SizeLimitedOutputStream(long maxSize)
+        {
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        public void write(int b) throws IOException
+        {
+            checkSize(1);
+
+            this.buffer.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException
+        {
+            checkSize(len);
+
+            this.buffer.write(b, off, len);
+        }
+
+        private void checkSize(int length) throws IOException
+        {
+            if (this.buffer.size() + (long) length > this.maxSize) {
+                throw new EntryTooBigException();
+            }
+        }
+
+        byte[] toByteArray()
+        {
+            return this.buffer.toByteArray();
+        }
+    }
 }
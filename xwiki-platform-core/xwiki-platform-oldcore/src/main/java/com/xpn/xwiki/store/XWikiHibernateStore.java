@@ -117,6 +117,11 @@
 @Singleton
 public class XWikiHibernateStore extends XWikiHibernateBaseStore implements XWikiStoreInterface
 {
+    /**
+     * The maximum number of documents to check in a single request when loading several documents.
+     */
+    private static final int LOAD_DOCUMENTS_BATCH_SIZE = 1000;
+
     @Inject
     private Logger logger;
 
@@ -873,6 +878,77 @@ public void saveXWikiDoc(XWikiDocument doc, XWikiContext context) throws XWikiEx
         saveXWikiDoc(doc, context, true);
     }
 
+    @Override
+    public List<XWikiDocument> loadEachXWikiDoc(Collection<XWikiDocument> docs, XWikiContext inputxcontext)
+        throws XWikiException
+    {
+        XWikiContext context = getExecutionXContext(inputxcontext, true);
+
+        try {
+            boolean bTransaction = true;
+            try {
+                checkHibernate(context);
+                bTransaction = beginTransaction(null, context);
+                Session session = getSession(context);
+                session.setFlushMode(FlushMode.MANUAL);
+
+                // Find all the existing documents at once, so that missing documents don't cost a request each
+                Set<Long> existingIds = getExistingDocumentIds(docs, session);
+
+                // Load each existing document (with its objects and attachments) in the same transaction
+                List<XWikiDocument> documents = new ArrayList<>(docs.size());
+                for (XWikiDocument doc : docs) {
+                    if (existingIds.contains(doc.getId())) {
+                        documents.add(loadXWikiDoc(doc, context));
+                    } else {
+                        doc.setStore(this);
+                        doc.setNew(true);
+
+                        // Make sure to always return a document with an original version, like loadXWikiDoc
+                        doc.setOriginalDocument(new XWikiDocument(doc.getDocumentReference(), doc.getLocale()));
+
+                        documents.add(doc);
+                    }
+                }
+
+                return documents;
+            } catch (XWikiException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new XWikiException(XWikiException.MODULE_XWIKI_STORE,
+                    XWikiException.ERROR_XWIKI_STORE_HIBERNATE_READING_DOC, "Exception while reading documents", e);
+            } finally {
+                try {
+                    if (bTransaction) {
+                        endTransaction(context, false);
+                    }
+                } catch (Exception e) {
+                }
+            }
+        } finally {
+            restoreExecutionXContext();
+        }
+    }
+
+    private Set<Long> getExistingDocumentIds(Collection<XWikiDocument> docs, Session session)
+    {
+        List<Long> ids = new ArrayList<>(docs.size());
+        for (XWikiDocument doc : docs) {
+            ids.add(doc.getId());
+        }
+
+        Set<Long> existingIds = new HashSet<>(ids.size());
+        for (int i = 0; i < ids.size(); i += LOAD_DOCUMENTS_BATCH_SIZE) {
+            Query query = session.createQuery("select doc.id from XWikiDocument as doc where doc.id in (:ids)");
+            query.setParameterList("ids", ids.subList(i, Math.min(i + LOAD_DOCUMENTS_BATCH_SIZE, ids.size())));
+            @SuppressWarnings("unchecked")
+            List<Long> result = query.list();
+            existingIds.addAll(result);
+        }
+
+        return existingIds;
+    }
+
     @Override
     public XWikiDocument loadXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext) throws XWikiException
     {
@@ -19,11 +19,14 @@
  */
 package com.xpn.xwiki.store;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 import org.xwiki.component.annotation.Role;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.query.QueryManager;
+import org.xwiki.stability.Unstable;
 
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
@@ -41,6 +44,32 @@
 
     XWikiDocument loadXWikiDoc(XWikiDocument doc, XWikiContext context) throws XWikiException;
 
+    /**
+     * Load each of the passed documents of the current wiki, like {@link #loadXWikiDoc(XWikiDocument, XWikiContext)}
+     * does. This is not a bulk load: each document is still read on its own, but stores can share some of the work
+     * (skipping the documents already in a cache, using a single transaction, finding the missing documents with a
+     * single request, etc.).
+     *
+     * @param docs the documents to load, as they would be passed to
+     *            {@link #loadXWikiDoc(XWikiDocument, XWikiContext)}
+     * @param context the XWiki context
+     * @return the loaded documents, in the same order as the passed ones
+     * @throws XWikiException when failing to load the documents
+     * @since 11.0RC1
+     */
+    @Unstable
+    default List<XWikiDocument> loadEachXWikiDoc(Collection<XWikiDocument> docs, XWikiContext context)
+        throws XWikiException
+    {
+        List<XWikiDocument> documents = new ArrayList<>(docs.size());
+
+        for (XWikiDocument doc : docs) {
+            documents.add(loadXWikiDoc(doc, context));
+        }
+
+        return documents;
+    }
+
     void deleteXWikiDoc(XWikiDocument doc, XWikiContext context) throws XWikiException;
 
     List<String> getClassList(XWikiContext context) throws XWikiException;
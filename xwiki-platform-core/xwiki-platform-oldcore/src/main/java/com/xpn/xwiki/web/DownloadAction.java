@@ -19,9 +19,14 @@
  */
 package com.xpn.xwiki.web;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.IllegalCharsetNameException;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -53,6 +58,7 @@
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
 import com.xpn.xwiki.doc.XWikiAttachment;
+import com.xpn.xwiki.doc.XWikiAttachmentContent;
 import com.xpn.xwiki.doc.XWikiDocument;
 import com.xpn.xwiki.plugin.XWikiPluginManager;
 import com.xpn.xwiki.util.Util;
@@ -90,6 +96,15 @@ public class DownloadAction extends XWikiAction
     /** The name of the HTTP Header that signals a byte-range request. */
     private static final String RANGE_HEADER_NAME = "Range";
 
+    /** The name of the HTTP Header that makes a byte-range request conditional. */
+    private static final String IF_RANGE_HEADER_NAME = "If-Range";
+
+    /** The name of the HTTP Header holding the entity tags known by the client. */
+    private static final String IF_NONE_MATCH_HEADER_NAME = "If-None-Match";
+
+    /** The quote surrounding an entity tag value. */
+    private static final String ETAG_QUOTE = "\"";
+
     /** The format of a valid range header. */
     private static final Pattern RANGE_HEADER_PATTERN = Pattern.compile("bytes=([0-9]+)?-([0-9]+)?");
 
@@ -163,9 +178,8 @@ public String render(XWikiContext context) throws XWikiException
                     "Attachment content {0} not found", null, args);
             }
 
-            long lastModifiedOnClient = request.getDateHeader("If-Modified-Since");
-            long lastModifiedOnServer = attachment.getDate().getTime();
-            if (lastModifiedOnClient != -1 && lastModifiedOnClient >= lastModifiedOnServer) {
+            if (isNotModified(attachment, request)) {
+                response.setHeader("ETag", getETag(attachment));
                 response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
                 return null;
             }
@@ -189,6 +203,123 @@ public String render(XWikiContext context) throws XWikiException
         }
     }
 
+    /**
+     * Check the conditional headers sent by the client. As specified by RFC 7232, {@code If-None-Match} takes
+     * precedence over {@code If-Modified-Since} when both are present.
+     *
+     * @param attachment the requested attachment
+     * @param request the current client request
+     * @return {@code true} if the client already has the current version of the attachment
+     */
+    private boolean isNotModified(XWikiAttachment attachment, XWikiRequest request)
+    {
+        String ifNoneMatch = request.getHeader(IF_NONE_MATCH_HEADER_NAME);
+        if (ifNoneMatch != null) {
+            String etag = getETag(attachment);
+            for (String clientETag : StringUtils.split(ifNoneMatch, ',')) {
+                String trimmedClientETag = clientETag.trim();
+                // Weak comparison is used for If-None-Match
+                if ("*".equals(trimmedClientETag) || etag.equals(StringUtils.removeStart(trimmedClientETag, "W/"))) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        long lastModifiedOnClient = request.getDateHeader("If-Modified-Since");
+        long lastModifiedOnServer = attachment.getDate().getTime();
+
+        return lastModifiedOnClient != -1 && lastModifiedOnClient >= lastModifiedOnServer;
+    }
+
+    /**
+     * Check if the byte range request can be honored according to the {@code If-Range} header. If the attachment
+     * changed since the client got the validator, the full content should be sent instead of the requested range.
+     *
+     * @param attachment the requested attachment
+     * @param request the current client request
+     * @return {@code true} if there is no {@code If-Range} header or if it matches the current attachment version
+     */
+    private boolean isRangeApplicable(XWikiAttachment attachment, XWikiRequest request)
+    {
+        String ifRange = request.getHeader(IF_RANGE_HEADER_NAME);
+        if (ifRange == null) {
+            return true;
+        }
+
+        if (ifRange.startsWith(ETAG_QUOTE)) {
+            // Strong comparison is required for If-Range
+            return getETag(attachment).equals(ifRange.trim());
+        }
+
+        try {
+            // HTTP dates have a precision of one second
+            return request.getDateHeader(IF_RANGE_HEADER_NAME) / 1000L == attachment.getDate().getTime() / 1000L;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * A strong entity tag derived from the attachment version. The date is included so that an attachment deleted and
+     * uploaded again (and thus restarting at the same version) gets a different tag.
+     *
+     * @param attachment the attachment
+     * @return the entity tag of the attachment
+     */
+    private String getETag(XWikiAttachment attachment)
+    {
+        return ETAG_QUOTE + attachment.getVersion() + '-' + attachment.getDate().getTime() + ETAG_QUOTE;
+    }
+
+    /**
+     * @param attachment the attachment
+     * @return the local file holding the content of the attachment or {@code null} if the content is not available as
+     *         a plain file
+     */
+    private File getContentFile(XWikiAttachment attachment)
+    {
+        XWikiAttachmentContent content = attachment.getAttachment_content();
+        if (content != null) {
+            File file = content.getFile();
+            if (file != null && file.isFile()) {
+                return file;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Write a portion of a file in the response by transferring it through a {@link FileChannel}, which avoids copying
+     * the content through intermediate heap buffers and allows to start directly at the requested position.
+     *
+     * @param file the file to write
+     * @param start the position of the first byte to write
+     * @param length the number of bytes to write
+     * @param response the response to write to
+     * @throws IOException if the file cannot be read or the response cannot be written
+     */
+    private void transferFile(File file, long start, long length, XWikiResponse response) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            // Don't close the target channel since it would close the response output stream
+            WritableByteChannel target = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = length;
+            while (remaining > 0) {
+                long transferred = channel.transferTo(position, remaining, target);
+                if (transferred <= 0) {
+                    // The file is shorter than expected (it has probably been modified in the meantime)
+                    break;
+                }
+                position += transferred;
+                remaining -= transferred;
+            }
+        }
+    }
+
     private void throwNotFoundException(String filename) throws XWikiException
     {
         String message = filename == null ? "Attachment not found" :
@@ -218,6 +349,10 @@ private boolean sendPartialContent(final XWikiAttachment attachment,
         final XWikiContext context)
         throws XWikiException, IOException
     {
+        if (!isRangeApplicable(attachment, request)) {
+            return false;
+        }
+
         String range = request.getHeader(RANGE_HEADER_NAME);
         Matcher m = RANGE_HEADER_PATTERN.matcher(range);
         if (m.matches()) {
@@ -263,9 +398,6 @@ private void writeByteRange(final XWikiAttachment attachment, Long start, Long e
         throws XWikiException, IOException
     {
         if (start >= 0 && start < attachment.getContentLongSize(context)) {
-            InputStream data = attachment.getContentInputStream(context);
-            data = new BoundedInputStream(data, end + 1);
-            data.skip(start);
             setCommonHeaders(attachment, request, response, context);
             response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
             if ((end - start + 1L) < Integer.MAX_VALUE) {
@@ -273,7 +405,20 @@ private void writeByteRange(final XWikiAttachment attachment, Long start, Long e
             }
             response.setHeader("Content-Range", "bytes " + start + "-" + end + SEPARATOR
                 + attachment.getContentLongSize(context));
-            IOUtils.copyLarge(data, response.getOutputStream());
+
+            File file = getContentFile(attachment);
+            if (file != null) {
+                transferFile(file, start, end - start + 1L, response);
+            } else {
+                InputStream data = attachment.getContentInputStream(context);
+                try {
+                    data = new BoundedInputStream(data, end + 1);
+                    IOUtils.skipFully(data, start);
+                    IOUtils.copyLarge(data, response.getOutputStream());
+                } finally {
+                    IOUtils.closeQuietly(data);
+                }
+            }
         } else {
             response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
         }
@@ -300,8 +445,13 @@ private void sendContent(final XWikiAttachment attachment,
         try {
             setCommonHeaders(attachment, request, response, context);
             response.setContentLength(attachment.getContentSize(context));
-            stream = attachment.getContentInputStream(context);
-            IOUtils.copy(stream, response.getOutputStream());
+            File file = getContentFile(attachment);
+            if (file != null) {
+                transferFile(file, 0L, attachment.getContentLongSize(context), response);
+            } else {
+                stream = attachment.getContentInputStream(context);
+                IOUtils.copy(stream, response.getOutputStream());
+            }
         } catch (IOException e) {
             throw new XWikiException(XWikiException.MODULE_XWIKI_APP,
                 XWikiException.ERROR_XWIKI_APP_SEND_RESPONSE_EXCEPTION,
@@ -478,6 +628,7 @@ private void setCommonHeaders(final XWikiAttachment attachment,
         response.addHeader("Content-disposition", dispType + "; filename*=utf-8''" + ofilename);
 
         response.setDateHeader("Last-Modified", attachment.getDate().getTime());
+        response.setHeader("ETag", getETag(attachment));
         // Advertise that downloads can be resumed
         response.setHeader("Accept-Ranges", "bytes");
     }
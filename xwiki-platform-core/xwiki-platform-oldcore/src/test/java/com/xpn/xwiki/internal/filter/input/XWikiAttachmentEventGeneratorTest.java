@@ -0,0 +1,179 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.filter.input;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+
+import javax.inject.Provider;
+
+import org.apache.commons.io.input.ClosedInputStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.xwiki.filter.FilterEventParameters;
+import org.xwiki.filter.event.xwiki.XWikiWikiAttachmentFilter;
+import org.xwiki.filter.instance.input.DocumentInstanceInputProperties;
+import org.xwiki.properties.BeanDescriptor;
+import org.xwiki.properties.BeanManager;
+import org.xwiki.test.annotation.BeforeComponent;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.doc.XWikiAttachment;
+import com.xpn.xwiki.doc.XWikiAttachmentArchive;
+import com.xpn.xwiki.doc.XWikiAttachmentContent;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.internal.filter.XWikiAttachmentFilter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link XWikiAttachmentEventGenerator}.
+ * 
+ * @version $Id$
+ */
+@ComponentTest
+public class XWikiAttachmentEventGeneratorTest
+{
+    @MockComponent
+    private BeanManager beanManager;
+
+    @MockComponent
+    private Provider<XWikiContext> xcontextProvider;
+
+    @InjectMockComponents
+    private XWikiAttachmentEventGenerator generator;
+
+    private XWikiContext xcontext;
+
+    private XWikiAttachmentFilter filter;
+
+    private DocumentInstanceInputProperties properties;
+
+    @BeforeComponent
+    public void beforeComponent()
+    {
+        when(this.beanManager.getBeanDescriptor(any())).thenReturn(mock(BeanDescriptor.class));
+    }
+
+    @BeforeEach
+    public void beforeEach()
+    {
+        this.xcontext = mock(XWikiContext.class);
+        when(this.xcontextProvider.get()).thenReturn(this.xcontext);
+
+        this.filter = mock(XWikiAttachmentFilter.class);
+
+        this.properties = new DocumentInstanceInputProperties();
+        this.properties.setWithJRCSRevisions(true);
+        this.properties.setWithWikiAttachmentsContent(true);
+    }
+
+    private XWikiAttachment mockAttachment(InputStream content) throws Exception
+    {
+        XWikiAttachment attachment = mock(XWikiAttachment.class);
+        when(attachment.getFilename()).thenReturn("file.txt");
+        when(attachment.getLongSize()).thenReturn(3L);
+        when(attachment.getContentInputStream(this.xcontext)).thenReturn(content);
+
+        XWikiAttachmentArchive archive = mock(XWikiAttachmentArchive.class);
+        when(archive.getArchiveAsString()).thenReturn("archive");
+        when(attachment.loadArchive(this.xcontext)).thenReturn(archive);
+
+        return attachment;
+    }
+
+    private FilterEventParameters verifyAttachmentEvent(InputStream content) throws Exception
+    {
+        ArgumentCaptor<FilterEventParameters> parametersCaptor = ArgumentCaptor.forClass(FilterEventParameters.class);
+        verify(this.filter).onWikiAttachment(eq("file.txt"), same(content), eq(3L), parametersCaptor.capture());
+
+        return parametersCaptor.getValue();
+    }
+
+    @Test
+    public void writeLoadsTheContentInACopy() throws Exception
+    {
+        XWikiDocument document = mock(XWikiDocument.class);
+        XWikiAttachment attachment = mock(XWikiAttachment.class);
+        when(attachment.getDoc()).thenReturn(document);
+
+        InputStream content = spy(new ByteArrayInputStream(new byte[] { 1, 2, 3 }));
+        XWikiAttachment copy = mockAttachment(content);
+        when(attachment.clone()).thenReturn(copy);
+
+        this.generator.write(attachment, null, this.filter, this.properties);
+
+        FilterEventParameters parameters = verifyAttachmentEvent(content);
+        assertEquals("archive", parameters.get(XWikiWikiAttachmentFilter.PARAMETER_JRCSREVISIONS));
+
+        // The copy knows its document so that the content can be loaded from the store
+        verify(copy).setDoc(document, false);
+
+        // The shared attachment is left untouched
+        verify(attachment, never()).getContentInputStream(any());
+        verify(attachment, never()).loadArchive(any());
+        verify(attachment, never()).setAttachment_content(any());
+        verify(attachment, never()).setAttachment_archive(any());
+
+        // The content stream is released once exported
+        verify(content).close();
+    }
+
+    @Test
+    public void writeWhenContentAndArchiveAreLoaded() throws Exception
+    {
+        InputStream content = new ClosedInputStream();
+        XWikiAttachment attachment = mockAttachment(content);
+        when(attachment.getAttachment_content()).thenReturn(mock(XWikiAttachmentContent.class));
+        when(attachment.getAttachment_archive()).thenReturn(mock(XWikiAttachmentArchive.class));
+
+        assertSame(attachment, this.generator.getExportedAttachment(attachment));
+
+        this.generator.write(attachment, null, this.filter, this.properties);
+
+        verifyAttachmentEvent(content);
+        verify(attachment, never()).clone();
+    }
+
+    @Test
+    public void writeWhenOnlyTheContentIsLoaded() throws Exception
+    {
+        XWikiAttachment attachment = mock(XWikiAttachment.class);
+        when(attachment.getAttachment_content()).thenReturn(mock(XWikiAttachmentContent.class));
+        XWikiAttachment copy = mock(XWikiAttachment.class);
+        when(attachment.clone()).thenReturn(copy);
+
+        // The archive is loaded in a copy (which shares the already loaded content)
+        assertSame(copy, this.generator.getExportedAttachment(attachment));
+    }
+}
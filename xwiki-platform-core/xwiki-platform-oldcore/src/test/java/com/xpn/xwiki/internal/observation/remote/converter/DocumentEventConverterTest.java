@@ -27,12 +27,15 @@
 import org.junit.Assert;
 import org.junit.Test;
 import org.xwiki.bridge.event.DocumentUpdatedEvent;
+import org.xwiki.configuration.internal.MemoryConfigurationSource;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.observation.remote.LocalEventData;
 import org.xwiki.observation.remote.RemoteEventData;
 import org.xwiki.observation.remote.converter.EventConverterManager;
+import org.xwiki.test.internal.MockConfigurationSource;
 
 import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.doc.LazyXWikiDocument;
 import com.xpn.xwiki.doc.XWikiDocument;
 import com.xpn.xwiki.test.AbstractBridgedComponentTestCase;
 
@@ -43,6 +46,18 @@
  */
 public class DocumentEventConverterTest extends AbstractBridgedComponentTestCase
 {
+    private MemoryConfigurationSource configurationSource;
+
+    @Override
+    protected void registerComponents() throws Exception
+    {
+        super.registerComponents();
+
+        this.configurationSource = new MemoryConfigurationSource();
+        getComponentManager().registerComponent(MockConfigurationSource.getDescriptor("xwikiproperties"),
+            this.configurationSource);
+    }
+
     @Test
     public void testConvertWithOriginalDocNull() throws Exception
     {
@@ -79,4 +94,33 @@ public void testConvertWithOriginalDocNull() throws Exception
         Assert.assertEquals("page", ((XWikiDocument) localEvent2.getSource()).getPageName());
         Assert.assertTrue(((XWikiDocument) localEvent2.getSource()).getOriginalDocument().isNew());
     }
+
+    @Test
+    public void testConvertWithLazyLoading() throws Exception
+    {
+        this.configurationSource.setProperty("observation.remote.document.lazyLoading", true);
+
+        EventConverterManager eventConverterManager = getComponentManager().getInstance(EventConverterManager.class);
+
+        XWikiDocument document = new XWikiDocument(new DocumentReference("wiki", "space", "page"));
+        document.setNew(false);
+        document.setVersion("2.1");
+
+        LocalEventData localEvent = new LocalEventData();
+        localEvent.setEvent(new DocumentUpdatedEvent(document.getDocumentReference()));
+        localEvent.setSource(document);
+        localEvent.setData(getContext());
+
+        RemoteEventData remoteEvent = eventConverterManager.createRemoteEventData(localEvent);
+
+        // The store is never accessed, the documents are only loaded when a listener needs them
+        LocalEventData localEvent2 = eventConverterManager.createLocalEventData(remoteEvent);
+
+        XWikiDocument document2 = (XWikiDocument) localEvent2.getSource();
+        Assert.assertTrue(document2 instanceof LazyXWikiDocument);
+        Assert.assertEquals(document.getDocumentReference(), document2.getDocumentReference());
+        Assert.assertEquals("2.1", document2.getVersion());
+        Assert.assertFalse(document2.isNew());
+        Assert.assertTrue(document2.getOriginalDocument().isNew());
+    }
 }
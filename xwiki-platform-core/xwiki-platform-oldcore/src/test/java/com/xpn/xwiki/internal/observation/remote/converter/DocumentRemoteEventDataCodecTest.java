@@ -0,0 +1,139 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.observation.remote.converter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+
+import org.junit.jupiter.api.Test;
+import org.xwiki.bridge.event.DocumentDeletedEvent;
+import org.xwiki.bridge.event.DocumentUpdatedEvent;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.observation.event.filter.FixedNameEventFilter;
+import org.xwiki.observation.remote.RemoteEventData;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Validate {@link DocumentRemoteEventDataCodec}.
+ *
+ * @version $Id$
+ */
+public class DocumentRemoteEventDataCodecTest
+{
+    private DocumentRemoteEventDataCodec codec = new DocumentRemoteEventDataCodec();
+
+    private RemoteEventData encodeDecode(RemoteEventData remoteEvent) throws Exception
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        assertTrue(this.codec.encode(remoteEvent, new DataOutputStream(bytes)));
+
+        return this.codec.decode(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    }
+
+    @Test
+    public void encodeDecodeUpdatedEvent() throws Exception
+    {
+        DocumentReference reference =
+            new DocumentReference("wiki", Arrays.asList("space1", "space2"), "page", Locale.FRENCH);
+
+        HashMap<String, Serializable> document = new HashMap<>();
+        document.put(AbstractXWikiEventConverter.DOC_NAME, reference);
+        document.put(AbstractXWikiEventConverter.DOC_VERSION, "2.1");
+        document.put(AbstractXWikiEventConverter.DOC_LANGUAGE, "fr");
+        document.put(AbstractXWikiEventConverter.ORIGDOC_VERSION, "1.1");
+        document.put(AbstractXWikiEventConverter.ORIGDOC_LANGUAGE, "fr");
+
+        HashMap<String, Serializable> context = new HashMap<>();
+        context.put(AbstractXWikiEventConverter.CONTEXT_WIKI, "wiki");
+        context.put(AbstractXWikiEventConverter.CONTEXT_USER, null);
+
+        RemoteEventData remoteEvent = new RemoteEventData();
+        remoteEvent.setEvent(new DocumentUpdatedEvent(reference));
+        remoteEvent.setSource(document);
+        remoteEvent.setData(context);
+
+        RemoteEventData result = encodeDecode(remoteEvent);
+
+        assertEquals(DocumentUpdatedEvent.class, result.getEvent().getClass());
+        assertEquals(FixedNameEventFilter.class,
+            ((DocumentUpdatedEvent) result.getEvent()).getEventFilter().getClass());
+        assertEquals(((DocumentUpdatedEvent) remoteEvent.getEvent()).getEventFilter().getFilter(),
+            ((DocumentUpdatedEvent) result.getEvent()).getEventFilter().getFilter());
+        assertEquals(document, result.getSource());
+        assertEquals(context, result.getData());
+    }
+
+    @Test
+    public void encodeDecodeNewDocument() throws Exception
+    {
+        DocumentReference reference = new DocumentReference("wiki", "space", "page");
+
+        HashMap<String, Serializable> document = new HashMap<>();
+        document.put(AbstractXWikiEventConverter.DOC_NAME, reference);
+
+        HashMap<String, Serializable> context = new HashMap<>();
+        context.put(AbstractXWikiEventConverter.CONTEXT_WIKI, "wiki");
+        context.put(AbstractXWikiEventConverter.CONTEXT_USER, "XWiki.User");
+
+        RemoteEventData remoteEvent = new RemoteEventData();
+        remoteEvent.setEvent(new DocumentDeletedEvent());
+        remoteEvent.setSource(document);
+        remoteEvent.setData(context);
+
+        RemoteEventData result = encodeDecode(remoteEvent);
+
+        assertEquals(DocumentDeletedEvent.class, result.getEvent().getClass());
+        assertTrue(((DocumentDeletedEvent) result.getEvent()).matches(new DocumentDeletedEvent(reference)));
+        assertEquals(document, result.getSource());
+        assertEquals(context, result.getData());
+        assertNull(((HashMap<?, ?>) result.getSource()).get(AbstractXWikiEventConverter.DOC_VERSION));
+    }
+
+    @Test
+    public void encodeUnsupportedEvents() throws Exception
+    {
+        HashMap<String, Serializable> document = new HashMap<>();
+        document.put(AbstractXWikiEventConverter.DOC_NAME, new DocumentReference("wiki", "space", "page"));
+        document.put("unknown", "value");
+
+        RemoteEventData remoteEvent = new RemoteEventData();
+        remoteEvent.setEvent(new DocumentUpdatedEvent());
+        remoteEvent.setSource(document);
+        remoteEvent.setData(new HashMap<>());
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        assertFalse(this.codec.encode(remoteEvent, new DataOutputStream(bytes)));
+
+        remoteEvent.setEvent("not a document event");
+        assertFalse(this.codec.encode(remoteEvent, new DataOutputStream(bytes)));
+
+        assertEquals(0, bytes.size());
+    }
+}
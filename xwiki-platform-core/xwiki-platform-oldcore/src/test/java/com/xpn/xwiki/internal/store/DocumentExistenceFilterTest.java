@@ -0,0 +1,73 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.store;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link DocumentExistenceFilter}.
+ * 
+ * @version $Id$
+ */
+public class DocumentExistenceFilterTest
+{
+    @Test
+    public void mightContain()
+    {
+        DocumentExistenceFilter filter = new DocumentExistenceFilter(1000);
+
+        for (long id = 0; id < 1000; ++id) {
+            filter.add(id * 31);
+        }
+
+        // No false negative
+        for (long id = 0; id < 1000; ++id) {
+            assertTrue(filter.mightContain(id * 31));
+        }
+
+        // Few false positives
+        int falsePositives = 0;
+        for (long id = 0; id < 10000; ++id) {
+            if (filter.mightContain(-id - 1)) {
+                ++falsePositives;
+            }
+        }
+        assertTrue(falsePositives < 100);
+    }
+
+    @Test
+    public void isOverloaded()
+    {
+        DocumentExistenceFilter filter = new DocumentExistenceFilter(0);
+
+        for (long id = 0; id < 10000; ++id) {
+            filter.add(id);
+        }
+
+        assertFalse(filter.isOverloaded());
+
+        filter.add(10000);
+
+        assertTrue(filter.isOverloaded());
+    }
+}
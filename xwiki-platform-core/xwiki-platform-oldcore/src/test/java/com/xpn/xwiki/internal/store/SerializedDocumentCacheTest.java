@@ -0,0 +1,101 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.store;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Unit tests for {@link SerializedDocumentCache}.
+ * 
+ * @version $Id$
+ */
+public class SerializedDocumentCacheTest
+{
+    @Test
+    public void setAndGet()
+    {
+        SerializedDocumentCache cache = new SerializedDocumentCache(10);
+
+        cache.set("key", new byte[] { 1, 2, 3 });
+
+        assertArrayEquals(new byte[] { 1, 2, 3 }, cache.get("key"));
+        assertNull(cache.get("other"));
+        assertEquals(3, cache.getSize());
+
+        cache.set("key", new byte[] { 4, 5 });
+
+        assertArrayEquals(new byte[] { 4, 5 }, cache.get("key"));
+        assertEquals(2, cache.getSize());
+
+        cache.remove("key");
+
+        assertNull(cache.get("key"));
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void evictLeastRecentlyUsed()
+    {
+        SerializedDocumentCache cache = new SerializedDocumentCache(10);
+
+        cache.set("key1", new byte[4]);
+        cache.set("key2", new byte[4]);
+        // Make key1 the most recently used entry
+        cache.get("key1");
+        cache.set("key3", new byte[4]);
+
+        assertNull(cache.get("key2"));
+        assertEquals(4, cache.get("key1").length);
+        assertEquals(4, cache.get("key3").length);
+        assertEquals(8, cache.getSize());
+    }
+
+    @Test
+    public void ignoreTooBigEntries()
+    {
+        SerializedDocumentCache cache = new SerializedDocumentCache(10);
+
+        cache.set("key1", new byte[4]);
+        cache.set("key2", new byte[11]);
+
+        assertNull(cache.get("key2"));
+        assertEquals(4, cache.get("key1").length);
+    }
+
+    @Test
+    public void ignoreEntriesBiggerThanMaxEntrySize()
+    {
+        SerializedDocumentCache cache = new SerializedDocumentCache(10, 5);
+
+        cache.set("key1", new byte[5]);
+        cache.set("key2", new byte[6]);
+
+        assertNull(cache.get("key2"));
+        assertEquals(5, cache.get("key1").length);
+        assertEquals(5, cache.getMaxEntrySize());
+
+        // The maximum entry size can't be bigger than the cache
+        assertEquals(10, new SerializedDocumentCache(10, 20).getMaxEntrySize());
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.plugin.packaging;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.context.ExecutionContext;
+import org.xwiki.context.ExecutionContextManager;
+import org.xwiki.model.reference.DocumentReference;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.internal.file.TemporaryDeferredFileRepository;
+import com.xpn.xwiki.internal.file.TemporaryDeferredFileRepository.TemporaryDeferredFile;
+import com.xpn.xwiki.test.MockitoOldcore;
+import com.xpn.xwiki.test.junit5.mockito.InjectMockitoOldcore;
+import com.xpn.xwiki.test.junit5.mockito.OldcoreTest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate the multi-threaded export of {@link Package}.
+ * 
+ * @version $Id$
+ */
+@OldcoreTest
+public class PackageExportTest
+{
+    @InjectMockitoOldcore
+    private MockitoOldcore oldcore;
+
+    private Package pack;
+
+    @BeforeEach
+    public void beforeEach() throws Exception
+    {
+        ExecutionContextManager ecm = this.oldcore.getMocker().registerMockComponent(ExecutionContextManager.class);
+        when(ecm.clone(any())).thenAnswer(invocation -> new ExecutionContext());
+
+        TemporaryDeferredFileRepository repository =
+            this.oldcore.getMocker().registerMockComponent(TemporaryDeferredFileRepository.class);
+        when(repository.createTemporaryDeferredFile(anyString())).thenAnswer(invocation -> {
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            TemporaryDeferredFile file = mock(TemporaryDeferredFile.class);
+            when(file.getOutputStream()).thenReturn(content);
+            when(file.getInputStream()).thenAnswer(i -> new ByteArrayInputStream(content.toByteArray()));
+            return file;
+        });
+
+        this.pack = new Package();
+    }
+
+    private XWikiDocument mockDocument(String name, long delay) throws Exception
+    {
+        XWikiDocument document = mock(XWikiDocument.class);
+        when(document.getDocumentReference()).thenReturn(new DocumentReference("wiki", "Space", name));
+        doAnswer(invocation -> {
+            // Make the first documents the slowest to serialize
+            Thread.sleep(delay);
+            invocation.<OutputStream>getArgument(0).write(name.getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(document).toXML(any(OutputStream.class), anyBoolean(), anyBoolean(), anyBoolean(), anyBoolean(),
+            any(XWikiContext.class));
+
+        return document;
+    }
+
+    private List<DocumentInfo> documents(XWikiDocument... documents)
+    {
+        List<DocumentInfo> infos = new ArrayList<>();
+        for (XWikiDocument document : documents) {
+            infos.add(new DocumentInfo(document));
+        }
+
+        return infos;
+    }
+
+    private byte[] export(List<DocumentInfo> documents, int threads) throws Exception
+    {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        try (ZipArchiveOutputStream zos = new ZipArchiveOutputStream(os)) {
+            this.pack.addToZip(documents, zos, threads, this.oldcore.getXWikiContext());
+        }
+
+        return os.toByteArray();
+    }
+
+    @Test
+    public void addToZipKeepsTheDocumentsOrder() throws Exception
+    {
+        List<String> names = new ArrayList<>();
+        List<XWikiDocument> documents = new ArrayList<>();
+        for (int i = 0; i < 10; ++i) {
+            String name = "Page" + i;
+            names.add(name);
+            documents.add(mockDocument(name, (10 - i) * 10L));
+        }
+
+        byte[] zip = export(documents(documents.toArray(new XWikiDocument[0])), 3);
+
+        try (ZipArchiveInputStream zis = new ZipArchiveInputStream(new ByteArrayInputStream(zip))) {
+            for (String name : names) {
+                ZipArchiveEntry entry = zis.getNextZipEntry();
+                assertEquals("Space/" + name + ".xml", entry.getName());
+                assertEquals(name, IOUtils.toString(zis, StandardCharsets.UTF_8));
+            }
+            assertNull(zis.getNextZipEntry());
+        }
+    }
+
+    @Test
+    public void addToZipWhenSerializationFails() throws Exception
+    {
+        XWikiDocument failingDocument = mockDocument("Failing", 0);
+        XWikiException exception = new XWikiException();
+        doThrow(exception).when(failingDocument).toXML(any(OutputStream.class), anyBoolean(), anyBoolean(),
+            anyBoolean(), anyBoolean(), any(XWikiContext.class));
+
+        List<DocumentInfo> documents = documents(mockDocument("Page1", 0), failingDocument, mockDocument("Page2", 0));
+
+        assertSame(exception, assertThrows(XWikiException.class, () -> export(documents, 2)));
+    }
+
+    @Test
+    public void addToZipWhenWritingFails() throws Exception
+    {
+        XWikiDocument failingDocument = mockDocument("Failing", 0);
+        IOException exception = new IOException();
+        doThrow(exception).when(failingDocument).toXML(any(OutputStream.class), anyBoolean(), anyBoolean(),
+            anyBoolean(), anyBoolean(), any(XWikiContext.class));
+
+        assertSame(exception,
+            assertThrows(IOException.class, () -> export(documents(failingDocument, mockDocument("Page", 0)), 2)));
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.stats.impl.xwiki;
+
+import java.util.Collections;
+import java.util.Date;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.objects.BaseCollection;
+import com.xpn.xwiki.stats.impl.DocumentStats;
+import com.xpn.xwiki.stats.impl.StatsUtil.PeriodType;
+import com.xpn.xwiki.store.XWikiHibernateStore;
+import com.xpn.xwiki.test.MockitoOldcore;
+import com.xpn.xwiki.test.junit5.mockito.InjectMockitoOldcore;
+import com.xpn.xwiki.test.junit5.mockito.OldcoreTest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Unit tests for {@link DocumentStatsStoreItem}.
+ *
+ * @version $Id$
+ */
+@OldcoreTest
+public class DocumentStatsStoreItemTest
+{
+    private static final Date DATE = new Date();
+
+    @InjectMockitoOldcore
+    private MockitoOldcore oldcore;
+
+    private DocumentStatsStoreItem item(String action, boolean isVisit)
+    {
+        return new DocumentStatsStoreItem("Space.Page", DATE, PeriodType.DAY, action, isVisit,
+            this.oldcore.getXWikiContext());
+    }
+
+    @Test
+    public void getId()
+    {
+        assertEquals(item("view", true).getId(), item("view", false).getId());
+        assertNotEquals(item("view", true).getId(), item("download", true).getId());
+    }
+
+    @Test
+    public void mergeAndStore() throws Exception
+    {
+        XWikiHibernateStore store = this.oldcore.getSpyXWiki().getHibernateStore();
+        // The counters already stored in the database
+        doAnswer(invocation -> {
+            DocumentStats stats = invocation.getArgument(0);
+            stats.setIntValue("pageViews", 10);
+            stats.setIntValue("visits", 4);
+            return null;
+        }).when(store).loadXWikiCollection(any(BaseCollection.class), any(XWikiContext.class), eq(true));
+
+        DocumentStatsStoreItem item = item("view", true);
+        item.merge(item("view", false));
+        item.merge(item("view", true));
+
+        item.store(Collections.singletonList(item));
+
+        ArgumentCaptor<BaseCollection> captor = ArgumentCaptor.forClass(BaseCollection.class);
+        verify(store).saveXWikiCollection(captor.capture(), any(XWikiContext.class), eq(true));
+        DocumentStats stats = (DocumentStats) captor.getValue();
+        assertEquals(13, stats.getPageViews());
+        assertEquals(6, stats.getVisits());
+    }
+}
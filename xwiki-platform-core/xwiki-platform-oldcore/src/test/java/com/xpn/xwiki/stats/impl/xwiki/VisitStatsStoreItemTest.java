@@ -0,0 +1,86 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.stats.impl.xwiki;
+
+import java.util.Collections;
+import java.util.Date;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.objects.BaseCollection;
+import com.xpn.xwiki.stats.impl.StatsUtil.PeriodType;
+import com.xpn.xwiki.stats.impl.VisitStats;
+import com.xpn.xwiki.store.XWikiHibernateStore;
+import com.xpn.xwiki.test.MockitoOldcore;
+import com.xpn.xwiki.test.junit5.mockito.InjectMockitoOldcore;
+import com.xpn.xwiki.test.junit5.mockito.OldcoreTest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Unit tests for {@link VisitStatsStoreItem}.
+ *
+ * @version $Id$
+ */
+@OldcoreTest
+public class VisitStatsStoreItemTest
+{
+    private static final Date DATE = new Date();
+
+    @InjectMockitoOldcore
+    private MockitoOldcore oldcore;
+
+    private VisitStats visit(String uniqueID, int pageViews)
+    {
+        VisitStats visit = new VisitStats("XWiki.User", uniqueID, "cookie", "127.0.0.1", "agent", DATE,
+            PeriodType.MONTH);
+        visit.setIntValue("pageViews", pageViews);
+
+        return visit;
+    }
+
+    @Test
+    public void mergeKeepsLatestStateAndOldObject() throws Exception
+    {
+        VisitStats oldVisit = visit("oldid", 1);
+        VisitStats visit = visit("id", 2);
+        visit.rememberOldObject(oldVisit);
+
+        VisitStatsStoreItem item = new VisitStatsStoreItem(visit, this.oldcore.getXWikiContext());
+        VisitStatsStoreItem laterItem = new VisitStatsStoreItem(visit("id", 5), this.oldcore.getXWikiContext());
+        assertEquals(item.getId(), laterItem.getId());
+
+        item.merge(laterItem);
+        item.store(Collections.singletonList(item));
+
+        XWikiHibernateStore store = this.oldcore.getSpyXWiki().getHibernateStore();
+        // The previous object is removed and only the latest state of the visit is saved
+        verify(store).deleteXWikiCollection(same(oldVisit), any(XWikiContext.class), eq(true), eq(true));
+        ArgumentCaptor<BaseCollection> captor = ArgumentCaptor.forClass(BaseCollection.class);
+        verify(store).saveXWikiCollection(captor.capture(), any(XWikiContext.class), eq(true));
+        assertEquals(5, ((VisitStats) captor.getValue()).getPageViews());
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.stats.impl.xwiki;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.xwiki.context.ExecutionContextManager;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.objects.BaseCollection;
+import com.xpn.xwiki.stats.impl.DocumentStats;
+import com.xpn.xwiki.stats.impl.StatsUtil.PeriodType;
+import com.xpn.xwiki.store.XWikiHibernateStore;
+import com.xpn.xwiki.test.MockitoOldcore;
+import com.xpn.xwiki.test.junit5.mockito.InjectMockitoOldcore;
+import com.xpn.xwiki.test.junit5.mockito.OldcoreTest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Unit tests for {@link XWikiStatsStoreService}.
+ *
+ * @version $Id$
+ */
+@OldcoreTest
+public class XWikiStatsStoreServiceTest
+{
+    private static final Date DATE = new Date();
+
+    @InjectMockitoOldcore
+    private MockitoOldcore oldcore;
+
+    private XWikiHibernateStore store;
+
+    private XWikiStatsStoreService service;
+
+    private final List<String> transactionWikis = new ArrayList<>();
+
+    @BeforeEach
+    public void beforeEach() throws Exception
+    {
+        // Used by the storing thread
+        this.oldcore.getMocker().registerMockComponent(ExecutionContextManager.class);
+
+        this.store = this.oldcore.getSpyXWiki().getHibernateStore();
+        doAnswer(invocation -> {
+            this.transactionWikis.add(((XWikiContext) invocation.getArgument(0)).getWikiId());
+            return true;
+        }).when(this.store).beginTransaction(any(XWikiContext.class));
+
+        // Only the tests which need it store the statistics before the service is stopped
+        this.oldcore.getMockXWikiCfg().setProperty("stats.flush.interval", 3600L);
+    }
+
+    @AfterEach
+    public void afterEach()
+    {
+        if (this.service != null) {
+            this.service.stop();
+        }
+    }
+
+    private void startService()
+    {
+        this.service = new XWikiStatsStoreService(this.oldcore.getXWikiContext());
+        this.service.start();
+    }
+
+    private void stopService()
+    {
+        this.service.stop();
+        this.service = null;
+    }
+
+    private DocumentStatsStoreItem documentStats(String wiki, String name, boolean isVisit)
+    {
+        XWikiContext context = this.oldcore.getXWikiContext().clone();
+        context.setWikiId(wiki);
+
+        return new DocumentStatsStoreItem(name, DATE, PeriodType.DAY, "view", isVisit, context);
+    }
+
+    private List<DocumentStats> captureSavedStats(int times) throws Exception
+    {
+        ArgumentCaptor<BaseCollection> captor = ArgumentCaptor.forClass(BaseCollection.class);
+        verify(this.store, times(times)).saveXWikiCollection(captor.capture(), any(XWikiContext.class), eq(true));
+
+        List<DocumentStats> stats = new ArrayList<>();
+        for (BaseCollection collection : captor.getAllValues()) {
+            stats.add((DocumentStats) collection);
+        }
+
+        return stats;
+    }
+
+    @Test
+    public void storeMergedStatisticsOnce() throws Exception
+    {
+        startService();
+
+        this.service.add(documentStats("wiki", "Space.Page", true));
+        this.service.add(documentStats("wiki", "Space.Page", false));
+        this.service.add(documentStats("wiki", "Space.Page", false));
+
+        stopService();
+
+        List<DocumentStats> stats = captureSavedStats(1);
+        assertEquals("Space.Page", stats.get(0).getName());
+        assertEquals(3, stats.get(0).getPageViews());
+        assertEquals(1, stats.get(0).getVisits());
+    }
+
+    @Test
+    public void storeWhenTooManyPendingStatistics() throws Exception
+    {
+        this.oldcore.getMockXWikiCfg().setProperty("stats.queue.size", 2L);
+        startService();
+
+        this.service.add(documentStats("wiki", "Space.Page1", false));
+        this.service.add(documentStats("wiki", "Space.Page1", false));
+
+        // The same statistic merged twice is still one pending statistic
+        verify(this.store, never()).saveXWikiCollection(any(), any(XWikiContext.class), anyBoolean());
+
+        this.service.add(documentStats("wiki", "Space.Page2", false));
+
+        verify(this.store, timeout(10000).times(2)).saveXWikiCollection(any(), any(XWikiContext.class), eq(true));
+    }
+
+    @Test
+    public void storeAfterFlushInterval() throws Exception
+    {
+        this.oldcore.getMockXWikiCfg().setProperty("stats.flush.interval", 1L);
+        startService();
+
+        this.service.add(documentStats("wiki", "Space.Page", false));
+
+        verify(this.store, timeout(10000)).saveXWikiCollection(any(), any(XWikiContext.class), eq(true));
+    }
+
+    @Test
+    public void storeOneTransactionPerWiki() throws Exception
+    {
+        startService();
+
+        this.service.add(documentStats("wiki1", "Space.Page1", false));
+        this.service.add(documentStats("wiki1", "Space.Page2", false));
+        this.service.add(documentStats("wiki2", "Space.Page1", false));
+        this.service.add(documentStats("wiki2", "Space.Page2", false));
+
+        stopService();
+
+        assertEquals(2, this.transactionWikis.size());
+        assertEquals(new HashSet<>(Arrays.asList("wiki1", "wiki2")), new HashSet<>(this.transactionWikis));
+        verify(this.store, times(2)).endTransaction(any(XWikiContext.class), eq(true));
+        captureSavedStats(4);
+    }
+
+    @Test
+    public void rollbackBeforeStoringOneByOne() throws Exception
+    {
+        doThrow(new RuntimeException("error")).doNothing().when(this.store).saveXWikiCollection(any(),
+            any(XWikiContext.class), anyBoolean());
+
+        startService();
+
+        this.service.add(documentStats("wiki", "Space.Page1", false));
+        this.service.add(documentStats("wiki", "Space.Page2", false));
+
+        stopService();
+
+        // The transaction is rolled back so the statistics are stored again one by one, each only once
+        verify(this.store).endTransaction(any(XWikiContext.class), eq(false));
+        verify(this.store, never()).endTransaction(any(XWikiContext.class), eq(true));
+        List<DocumentStats> stats = captureSavedStats(3);
+        assertEquals(new HashSet<>(Arrays.asList("Space.Page1", "Space.Page2")),
+            new HashSet<>(Arrays.asList(stats.get(1).getName(), stats.get(2).getName())));
+    }
+}
@@ -19,26 +19,36 @@
  */
 package com.xpn.xwiki.store;
 
+import java.util.Arrays;
+import java.util.List;
+
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.xwiki.cache.Cache;
 import org.xwiki.cache.CacheManager;
+import org.xwiki.context.ExecutionContextManager;
 import org.xwiki.model.internal.reference.UidStringEntityReferenceSerializer;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.observation.ObservationManager;
 import org.xwiki.observation.remote.RemoteObservationManagerContext;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryException;
+import org.xwiki.query.QueryManager;
 import org.xwiki.test.annotation.ComponentList;
 
 import com.xpn.xwiki.doc.XWikiDocument;
 import com.xpn.xwiki.test.MockitoOldcoreRule;
 
 import static com.xpn.xwiki.test.mockito.OldcoreMatchers.isCacheConfiguration;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
@@ -115,4 +125,100 @@ public void testLoadXWikiDoc() throws Exception
         verifyNoMoreInteractions(this.cache);
         verifyNoMoreInteractions(this.existCache);
     }
+
+    @Test
+    public void testLoadEachXWikiDoc() throws Exception
+    {
+        // Set current wiki
+        this.oldcore.getXWikiContext().setWikiId("wiki");
+        this.oldcore.getSpyXWiki().saveDocument(new XWikiDocument(new DocumentReference("wiki", "space", "page")),
+            this.oldcore.getXWikiContext());
+
+        XWikiCacheStore store = new XWikiCacheStore(this.oldcore.getMockStore(), this.oldcore.getXWikiContext());
+
+        List<XWikiDocument> documents = store.loadEachXWikiDoc(
+            Arrays.asList(new XWikiDocument(new DocumentReference("wiki", "space", "page")),
+                new XWikiDocument(new DocumentReference("wiki", "space", "nopage"))),
+            this.oldcore.getXWikiContext());
+
+        assertEquals(2, documents.size());
+        assertFalse(documents.get(0).isNew());
+        assertEquals(new DocumentReference("wiki", "space", "page"), documents.get(0).getDocumentReference());
+        assertTrue(documents.get(1).isNew());
+        assertEquals(new DocumentReference("wiki", "space", "nopage"), documents.get(1).getDocumentReference());
+
+        // Make sure the missing documents have been loaded all together
+        verify(this.oldcore.getMockStore()).loadEachXWikiDoc(any(), any());
+
+        verify(this.cache).set(eq("4:wiki5:space4:page"), any(XWikiDocument.class));
+        verify(this.existCache).set("4:wiki5:space4:page", Boolean.TRUE);
+        verify(this.existCache).set("4:wiki5:space6:nopage", Boolean.FALSE);
+    }
+
+    private Query mockPageExistFilterQueries() throws Exception
+    {
+        this.oldcore.getMockXWikiCfg().setProperty("xwiki.store.cache.pageexistfilter", 1);
+        // Used by the thread building the page exist filter
+        this.oldcore.getMocker().registerMockComponent(ExecutionContextManager.class);
+
+        QueryManager queryManager = mock(QueryManager.class);
+        when(this.oldcore.getMockStore().getQueryManager()).thenReturn(queryManager);
+
+        Query countQuery = mock(Query.class);
+        when(queryManager.createQuery(startsWith("select count"), eq(Query.HQL))).thenReturn(countQuery);
+        Query idsQuery = mock(Query.class);
+        when(queryManager.createQuery(startsWith("select doc.id"), eq(Query.HQL))).thenReturn(idsQuery);
+
+        XWikiDocument existingDocument = new XWikiDocument(new DocumentReference("wiki", "space", "page"));
+        when(countQuery.execute()).thenReturn(Arrays.asList(1L));
+        when(idsQuery.execute()).thenReturn(Arrays.asList(existingDocument.getId()));
+
+        // Without the filter, the store is asked and claims that every document exists
+        when(this.oldcore.getMockStore().exists(any(), any())).thenReturn(true);
+
+        return countQuery;
+    }
+
+    @Test
+    public void existsWithPageExistFilter() throws Exception
+    {
+        this.oldcore.getXWikiContext().setWikiId("wiki");
+        mockPageExistFilterQueries();
+
+        XWikiCacheStore store = new XWikiCacheStore(this.oldcore.getMockStore(), this.oldcore.getXWikiContext());
+
+        XWikiDocument missingDocument = new XWikiDocument(new DocumentReference("wiki", "space", "nopage"));
+
+        // The store is used until the filter built in the background is ready
+        long timeout = System.currentTimeMillis() + 10000;
+        while (store.exists(missingDocument, this.oldcore.getXWikiContext())) {
+            assertTrue("The page exist filter was never built", System.currentTimeMillis() < timeout);
+            Thread.sleep(10);
+        }
+
+        assertTrue(store.exists(new XWikiDocument(new DocumentReference("wiki", "space", "page")),
+            this.oldcore.getXWikiContext()));
+    }
+
+    @Test
+    public void existsWhenPageExistFilterFails() throws Exception
+    {
+        this.oldcore.getXWikiContext().setWikiId("wiki");
+        Query countQuery = mockPageExistFilterQueries();
+        when(countQuery.execute()).thenThrow(new QueryException("error", countQuery, null));
+
+        XWikiCacheStore store = new XWikiCacheStore(this.oldcore.getMockStore(), this.oldcore.getXWikiContext());
+
+        XWikiDocument missingDocument = new XWikiDocument(new DocumentReference("wiki", "space", "nopage"));
+
+        assertTrue(store.exists(missingDocument, this.oldcore.getXWikiContext()));
+        verify(countQuery, timeout(10000)).execute();
+
+        // The filter is not built again right after a failure
+        for (int i = 0; i < 10; ++i) {
+            assertTrue(store.exists(missingDocument, this.oldcore.getXWikiContext()));
+            Thread.sleep(10);
+        }
+        verify(countQuery, times(1)).execute();
+    }
 }
@@ -21,6 +21,7 @@
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
@@ -85,6 +86,7 @@
 import static com.xpn.xwiki.test.mockito.OldcoreMatchers.anyXWikiDocument;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
@@ -576,6 +578,22 @@ public XWikiDocument answer(InvocationOnMock invocation) throws Throwable
                 return getSpyXWiki().getDocument(reference, xcontext);
             }
         });
+        when(getMockStore().loadEachXWikiDoc(anyCollection(), anyXWikiContext())).then(new Answer<List<XWikiDocument>>()
+        {
+            @Override
+            public List<XWikiDocument> answer(InvocationOnMock invocation) throws Throwable
+            {
+                Collection<XWikiDocument> documents = invocation.getArgument(0);
+                XWikiContext xcontext = invocation.getArgument(1);
+
+                List<XWikiDocument> loadedDocuments = new ArrayList<>(documents.size());
+                for (XWikiDocument document : documents) {
+                    loadedDocuments.add(getMockStore().loadXWikiDoc(document, xcontext));
+                }
+
+                return loadedDocuments;
+            }
+        });
         doAnswer(new Answer<Void>()
         {
             @Override
@@ -20,8 +20,10 @@
 package com.xpn.xwiki.web;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.util.Arrays;
 import java.util.Date;
 
 import javax.servlet.ServletOutputStream;
@@ -46,14 +48,18 @@
 import com.xpn.xwiki.plugin.XWikiPluginManager;
 import com.xpn.xwiki.test.MockitoOldcoreRule;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -590,6 +596,129 @@ public void downloadWhenEmptyRange() throws XWikiException, IOException
         verifyResponseExpectations(d.getTime(), this.fileContent.length);
     }
 
+    @Test
+    public void downloadWhenIfNoneMatchSame() throws XWikiException, IOException
+    {
+        Date d = new Date();
+        createAttachment(d, DEFAULT_FILE_NAME);
+        setRequestExpectations(DEFAULT_URI, null, null, null, -1l, DEFAULT_FILE_NAME);
+        String etag = "\"1.1-" + d.getTime() + "\"";
+        when(this.request.getHeader("If-None-Match")).thenReturn("\"other\", " + etag);
+
+        assertNull(this.action.render(this.oldcore.getXWikiContext()));
+
+        verify(this.response).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        verify(this.response).setHeader("ETag", etag);
+        verify(this.response, never()).getOutputStream();
+    }
+
+    @Test
+    public void downloadWhenIfNoneMatchDifferent() throws XWikiException, IOException
+    {
+        Date d = new Date();
+        createAttachment(d, DEFAULT_FILE_NAME);
+        // If-None-Match takes precedence over If-Modified-Since
+        setRequestExpectations(DEFAULT_URI, null, null, null, d.getTime(), DEFAULT_FILE_NAME);
+        when(this.request.getHeader("If-None-Match")).thenReturn("\"1.1-42\"");
+
+        assertNull(this.action.render(this.oldcore.getXWikiContext()));
+
+        verifyResponseExpectations(d.getTime(), this.fileContent.length);
+        verify(this.response).setHeader("ETag", "\"1.1-" + d.getTime() + "\"");
+        verifyOutputExpectations(0, this.fileContent.length);
+    }
+
+    @Test
+    public void downloadWhenIfRangeDifferent() throws XWikiException, IOException
+    {
+        Date d = new Date();
+        createAttachment(d, DEFAULT_FILE_NAME);
+        setRequestExpectations(DEFAULT_URI, null, null, "bytes=0-3", -1l, DEFAULT_FILE_NAME);
+        when(this.request.getHeader("If-Range")).thenReturn("\"1.1-42\"");
+
+        assertNull(this.action.render(this.oldcore.getXWikiContext()));
+
+        // The attachment changed so the full content is sent
+        verify(this.response, never()).setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        verifyResponseExpectations(d.getTime(), this.fileContent.length);
+        verifyOutputExpectations(0, this.fileContent.length);
+    }
+
+    @Test
+    public void downloadWhenIfRangeSame() throws XWikiException, IOException
+    {
+        Date d = new Date();
+        createAttachment(d, DEFAULT_FILE_NAME);
+        setRequestExpectations(DEFAULT_URI, null, null, "bytes=0-3", -1l, DEFAULT_FILE_NAME);
+        when(this.request.getHeader("If-Range")).thenReturn("\"1.1-" + d.getTime() + "\"");
+
+        assertNull(this.action.render(this.oldcore.getXWikiContext()));
+
+        verify(this.response).setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        verify(this.response).setHeader("Content-Range", "bytes 0-3/" + this.fileContent.length);
+        verifyResponseExpectations(d.getTime(), 4);
+        verifyOutputExpectations(0, 4);
+    }
+
+    @Test
+    public void downloadFromFile() throws XWikiException, IOException
+    {
+        // Big enough to be stored in a file instead of in memory
+        byte[] content = new byte[100000];
+        for (int i = 0; i < content.length; ++i) {
+            content[i] = (byte) i;
+        }
+        Date d = new Date();
+        XWikiAttachment attachment = new XWikiAttachment(this.document, DEFAULT_FILE_NAME);
+        attachment.setContent(new ByteArrayInputStream(content));
+        attachment.setDate(d);
+        this.document.getAttachmentList().add(attachment);
+        assertEquals(content.length, attachment.getAttachment_content().getFile().length());
+
+        ByteArrayOutputStream output = recordOutput();
+        setRequestExpectations(DEFAULT_URI, null, null, null, -1l, DEFAULT_FILE_NAME);
+
+        assertNull(this.action.render(this.oldcore.getXWikiContext()));
+
+        verifyResponseExpectations(d.getTime(), content.length);
+        assertArrayEquals(content, output.toByteArray());
+    }
+
+    @Test
+    public void downloadRangeFromFile() throws XWikiException, IOException
+    {
+        byte[] content = new byte[100000];
+        for (int i = 0; i < content.length; ++i) {
+            content[i] = (byte) i;
+        }
+        Date d = new Date();
+        XWikiAttachment attachment = new XWikiAttachment(this.document, DEFAULT_FILE_NAME);
+        attachment.setContent(new ByteArrayInputStream(content));
+        attachment.setDate(d);
+        this.document.getAttachmentList().add(attachment);
+
+        ByteArrayOutputStream output = recordOutput();
+        setRequestExpectations(DEFAULT_URI, null, null, "bytes=50000-79999", -1l, DEFAULT_FILE_NAME);
+
+        assertNull(this.action.render(this.oldcore.getXWikiContext()));
+
+        verify(this.response).setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        verify(this.response).setHeader("Content-Range", "bytes 50000-79999/100000");
+        verifyResponseExpectations(d.getTime(), 30000);
+        assertArrayEquals(Arrays.copyOfRange(content, 50000, 80000), output.toByteArray());
+    }
+
+    private ByteArrayOutputStream recordOutput() throws IOException
+    {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        doAnswer(invocation -> {
+            output.write(invocation.getArgument(0), invocation.getArgument(1), invocation.getArgument(2));
+            return null;
+        }).when(this.out).write(any(byte[].class), anyInt(), anyInt());
+
+        return output;
+    }
+
     private void createAttachment(Date d, String name) throws IOException
     {
         XWikiAttachment filetxt = new XWikiAttachment(this.document, name);
@@ -19,6 +19,8 @@
  */
 package org.xwiki.refactoring.internal;
 
+import java.util.Map;
+
 import org.xwiki.component.annotation.Role;
 import org.xwiki.model.reference.DocumentReference;
 
@@ -41,6 +43,16 @@
     void renameLinks(DocumentReference documentReference, DocumentReference oldLinkTarget,
         DocumentReference newLinkTarget);
 
+    /**
+     * Renames the links from the content of the specified document, for several link targets at once. The content of
+     * the document is parsed and saved only once whatever the number of link targets.
+     * 
+     * @param documentReference the document whose content needs to be updated
+     * @param linkTargets the link targets that need to be replaced, with their new link target
+     * @since 11.0RC1
+     */
+    void renameLinks(DocumentReference documentReference, Map<DocumentReference, DocumentReference> linkTargets);
+
     /**
      * Updates the relative links from the content of a document after it has been renamed or moved. This ensures that
      * the links from the content of the renamed/moved document are relative to the new reference.
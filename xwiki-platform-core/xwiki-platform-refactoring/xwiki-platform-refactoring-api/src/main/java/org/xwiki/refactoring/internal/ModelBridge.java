@@ -19,8 +19,10 @@
  */
 package org.xwiki.refactoring.internal;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.xwiki.component.annotation.Role;
 import org.xwiki.job.api.AbstractCheckRightsRequest;
@@ -105,6 +107,18 @@
      */
     List<DocumentReference> getBackLinkedReferences(DocumentReference reference, String wikiId);
 
+    /**
+     * Retrieve the back-links of several documents at once, using the links stored when the documents are saved.
+     * 
+     * @param references the documents whose back-links to retrieve
+     * @param wikiId where to look for links
+     * @return the documents from the specified wiki that have links to the specified documents, with the specified
+     *         documents they link to
+     * @since 11.0RC1
+     */
+    Map<DocumentReference, Set<DocumentReference>> getBackLinkedReferences(Collection<DocumentReference> references,
+        String wikiId);
+
     /**
      * @param spaceReference a space reference
      * @return the list of all the documents from the specified space and its nested spaces
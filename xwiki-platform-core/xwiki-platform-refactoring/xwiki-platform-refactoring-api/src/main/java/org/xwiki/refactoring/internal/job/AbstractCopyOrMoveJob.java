@@ -20,9 +20,12 @@
 package org.xwiki.refactoring.internal.job;
 
 import java.util.Collection;
-import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import javax.inject.Inject;
 
@@ -56,6 +59,13 @@
      */
     private Boolean overwriteAll;
 
+    /**
+     * The documents that have been moved (old reference to new reference) and whose back-links need to be updated. The
+     * back-links are updated once all the documents have been moved so that each document having links to several moved
+     * documents is parsed and saved only once.
+     */
+    private final Map<DocumentReference, DocumentReference> movedDocuments = new LinkedHashMap<>();
+
     /**
      * The component used to refactor document links after a document is rename or moved.
      */
@@ -69,7 +79,24 @@
     protected void runInternal() throws Exception
     {
         if (this.request.getDestination() != null) {
-            super.runInternal();
+            this.progressManager.pushLevelProgress(2, this);
+
+            try {
+                // Step 1: Move the entities.
+                this.progressManager.startStep(this);
+                super.runInternal();
+                this.progressManager.endStep(this);
+
+                // Step 2: Update the links that target the moved documents to point to the new references (even if
+                // the job has been canceled, to not leave broken links behind).
+                this.progressManager.startStep(this);
+                if (!this.movedDocuments.isEmpty()) {
+                    updateBackLinks();
+                }
+                this.progressManager.endStep(this);
+            } finally {
+                this.progressManager.popLevelProgress(this);
+            }
         }
     }
 
@@ -323,10 +350,10 @@ private void updateLinks(DocumentReference oldReference, DocumentReference newRe
         this.progressManager.pushLevelProgress(2, this);
 
         try {
-            // Step 1: Update the links that target the old reference to point to the new reference.
+            // Step 1: Remember to update the links that target the old reference to point to the new reference.
             this.progressManager.startStep(this);
             if (this.isDeleteSources()) {
-                updateBackLinks(oldReference, newReference);
+                this.movedDocuments.put(oldReference, newReference);
             }
             this.progressManager.endStep(this);
 
@@ -338,9 +365,12 @@ private void updateLinks(DocumentReference oldReference, DocumentReference newRe
         }
     }
 
-    private void updateBackLinks(DocumentReference oldReference, DocumentReference newReference)
+    private void updateBackLinks()
     {
-        Collection<String> wikiIds = Collections.singleton(oldReference.getWikiReference().getName());
+        Collection<String> wikiIds = new LinkedHashSet<>();
+        for (DocumentReference oldReference : this.movedDocuments.keySet()) {
+            wikiIds.add(oldReference.getWikiReference().getName());
+        }
         if (this.request.isUpdateLinksOnFarm()) {
             try {
                 wikiIds = this.wikiDescriptorManager.getAllIds();
@@ -356,7 +386,7 @@ private void updateBackLinks(DocumentReference oldReference, DocumentReference n
             }
             for (String wikiId : wikiIds) {
                 this.progressManager.startStep(this);
-                updateBackLinks(oldReference, newReference, wikiId);
+                updateBackLinks(wikiId);
                 this.progressManager.endStep(this);
             }
         } finally {
@@ -366,18 +396,25 @@ private void updateBackLinks(DocumentReference oldReference, DocumentReference n
         }
     }
 
-    private void updateBackLinks(DocumentReference oldReference, DocumentReference newReference, String wikiId)
+    private void updateBackLinks(String wikiId)
     {
-        this.logger.info("Updating the back-links for document [{}] in wiki [{}].", oldReference, wikiId);
-        List<DocumentReference> backlinkDocumentReferences =
-            this.modelBridge.getBackLinkedReferences(oldReference, wikiId);
-        this.progressManager.pushLevelProgress(backlinkDocumentReferences.size(), this);
+        this.logger.info("Updating the back-links for documents [{}] in wiki [{}].", this.movedDocuments.keySet(),
+            wikiId);
+        Map<DocumentReference, Set<DocumentReference>> backlinks =
+            this.modelBridge.getBackLinkedReferences(this.movedDocuments.keySet(), wikiId);
+        this.progressManager.pushLevelProgress(backlinks.size(), this);
 
         try {
-            for (DocumentReference backlinkDocumentReference : backlinkDocumentReferences) {
+            for (Map.Entry<DocumentReference, Set<DocumentReference>> entry : backlinks.entrySet()) {
                 this.progressManager.startStep(this);
+                DocumentReference backlinkDocumentReference = entry.getKey();
                 if (hasAccess(Right.EDIT, backlinkDocumentReference)) {
-                    this.linkRefactoring.renameLinks(backlinkDocumentReference, oldReference, newReference);
+                    // Rename all the links targeting moved documents at once
+                    Map<DocumentReference, DocumentReference> linkTargets = new LinkedHashMap<>();
+                    for (DocumentReference oldReference : entry.getValue()) {
+                        linkTargets.put(oldReference, this.movedDocuments.get(oldReference));
+                    }
+                    this.linkRefactoring.renameLinks(backlinkDocumentReference, linkTargets);
                 }
                 this.progressManager.endStep(this);
             }
@@ -22,6 +22,8 @@
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 
@@ -310,8 +312,8 @@ public void moveDocumentToSpace() throws Throwable
         when(this.modelBridge.exists(oldReference)).thenReturn(true);
 
         DocumentReference backLinkReference = new DocumentReference("wiki", "Three", "BackLink");
-        when(this.modelBridge.getBackLinkedReferences(oldReference, "wiki"))
-            .thenReturn(Arrays.asList(backLinkReference));
+        when(this.modelBridge.getBackLinkedReferences(Collections.singleton(oldReference), "wiki"))
+            .thenReturn(Collections.singletonMap(backLinkReference, Collections.singleton(oldReference)));
 
         DocumentReference newReference = new DocumentReference("wiki", "Two", "Page");
         when(this.modelBridge.exists(newReference)).thenReturn(true);
@@ -329,7 +331,7 @@ public void moveDocumentToSpace() throws Throwable
         run(request);
 
         LinkRefactoring linkRefactoring = getMocker().getInstance(LinkRefactoring.class);
-        verify(linkRefactoring).renameLinks(backLinkReference, oldReference, newReference);
+        verify(linkRefactoring).renameLinks(backLinkReference, Collections.singletonMap(oldReference, newReference));
         verify(linkRefactoring).updateRelativeLinks(oldReference, newReference);
 
         verify(this.modelBridge).setContextUserReference(userReference);
@@ -353,10 +355,12 @@ public void updateLinksOnFarm() throws Throwable
         when(wikiDescriptorManager.getAllIds()).thenReturn(Arrays.asList("foo", "bar"));
 
         DocumentReference aliceReference = new DocumentReference("foo", "Alice", "BackLink");
-        when(this.modelBridge.getBackLinkedReferences(oldReference, "foo")).thenReturn(Arrays.asList(aliceReference));
+        when(this.modelBridge.getBackLinkedReferences(Collections.singleton(oldReference), "foo"))
+            .thenReturn(Collections.singletonMap(aliceReference, Collections.singleton(oldReference)));
 
         DocumentReference bobReference = new DocumentReference("bar", "Bob", "BackLink");
-        when(this.modelBridge.getBackLinkedReferences(oldReference, "bar")).thenReturn(Arrays.asList(bobReference));
+        when(this.modelBridge.getBackLinkedReferences(Collections.singleton(oldReference), "bar"))
+            .thenReturn(Collections.singletonMap(bobReference, Collections.singleton(oldReference)));
 
         MoveRequest request = createRequest(oldReference, newReference.getParent());
         request.setCheckRights(false);
@@ -368,8 +372,8 @@ public void updateLinksOnFarm() throws Throwable
         assertEquals(RefactoringJobs.GROUP, job.getGroupPath().toString());
 
         LinkRefactoring linkRefactoring = getMocker().getInstance(LinkRefactoring.class);
-        verify(linkRefactoring).renameLinks(aliceReference, oldReference, newReference);
-        verify(linkRefactoring).renameLinks(bobReference, oldReference, newReference);
+        verify(linkRefactoring).renameLinks(aliceReference, Collections.singletonMap(oldReference, newReference));
+        verify(linkRefactoring).renameLinks(bobReference, Collections.singletonMap(oldReference, newReference));
     }
 
     @Test
@@ -440,6 +444,42 @@ public void moveSpaceToSpaceHome() throws Throwable
         verify(this.modelBridge).copy(sourceDoc, new DocumentReference("wiki", Arrays.asList("C", "B"), "X"));
     }
 
+    @Test
+    public void moveSpaceUpdatesEachBackLinkOnce() throws Throwable
+    {
+        SpaceReference sourceSpace = new SpaceReference("wiki", "A");
+        DocumentReference alice = new DocumentReference("Alice", sourceSpace);
+        DocumentReference bob = new DocumentReference("Bob", sourceSpace);
+        when(this.modelBridge.getDocumentReferences(sourceSpace)).thenReturn(Arrays.asList(alice, bob));
+        when(this.modelBridge.exists(alice)).thenReturn(true);
+        when(this.modelBridge.exists(bob)).thenReturn(true);
+
+        SpaceReference destination = new SpaceReference("wiki", "B");
+        DocumentReference newAlice = new DocumentReference("Alice", new SpaceReference("A", destination));
+        DocumentReference newBob = new DocumentReference("Bob", new SpaceReference("A", destination));
+        when(this.modelBridge.copy(alice, newAlice)).thenReturn(true);
+        when(this.modelBridge.copy(bob, newBob)).thenReturn(true);
+
+        DocumentReference backLinkReference = new DocumentReference("wiki", "C", "BackLink");
+        when(this.modelBridge.getBackLinkedReferences(new LinkedHashSet<>(Arrays.asList(alice, bob)), "wiki"))
+            .thenReturn(Collections.singletonMap(backLinkReference, new LinkedHashSet<>(Arrays.asList(alice, bob))));
+
+        MoveRequest request = createRequest(sourceSpace, destination);
+        request.setCheckRights(false);
+        request.setCheckAuthorRights(false);
+        request.setInteractive(false);
+        run(request);
+
+        Map<DocumentReference, DocumentReference> linkTargets = new LinkedHashMap<>();
+        linkTargets.put(alice, newAlice);
+        linkTargets.put(bob, newBob);
+
+        LinkRefactoring linkRefactoring = getMocker().getInstance(LinkRefactoring.class);
+        verify(linkRefactoring).renameLinks(backLinkReference, linkTargets);
+        verify(linkRefactoring, never()).renameLinks(any(DocumentReference.class), any(DocumentReference.class),
+            any(DocumentReference.class));
+    }
+
     @Test
     public void getGroupPath() throws Exception
     {
@@ -19,8 +19,10 @@
  */
 package org.xwiki.refactoring.internal;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -105,6 +107,13 @@ public class DefaultLinkRefactoring implements LinkRefactoring
     @Override
     public void renameLinks(DocumentReference documentReference, DocumentReference oldLinkTarget,
         DocumentReference newLinkTarget)
+    {
+        renameLinks(documentReference, Collections.singletonMap(oldLinkTarget, newLinkTarget));
+    }
+
+    @Override
+    public void renameLinks(DocumentReference documentReference,
+        Map<DocumentReference, DocumentReference> linkTargets)
     {
         boolean popLevelProgress = false;
         try {
@@ -117,17 +126,17 @@ public void renameLinks(DocumentReference documentReference, DocumentReference o
 
             // Update the default locale instance.
             this.progressManager.startStep(this);
-            renameLinks(document, oldLinkTarget, newLinkTarget);
+            renameLinks(document, linkTargets);
             this.progressManager.endStep(this);
 
             // Update the translations.
             for (Locale locale : locales) {
                 this.progressManager.startStep(this);
-                renameLinks(document.getTranslatedDocument(locale, xcontext), oldLinkTarget, newLinkTarget);
+                renameLinks(document.getTranslatedDocument(locale, xcontext), linkTargets);
                 this.progressManager.endStep(this);
             }
         } catch (XWikiException e) {
-            this.logger.error("Failed to rename the links that target [{}] from [{}].", oldLinkTarget,
+            this.logger.error("Failed to rename the links that target [{}] from [{}].", linkTargets.keySet(),
                 documentReference, e);
         } finally {
             if (popLevelProgress) {
@@ -136,7 +145,7 @@ public void renameLinks(DocumentReference documentReference, DocumentReference o
         }
     }
 
-    private void renameLinks(XWikiDocument document, DocumentReference oldTarget, DocumentReference newTarget)
+    private void renameLinks(XWikiDocument document, Map<DocumentReference, DocumentReference> linkTargets)
         throws XWikiException
     {
         DocumentReference currentDocumentReference = document.getDocumentReference();
@@ -156,7 +165,7 @@ private void renameLinks(XWikiDocument document, DocumentReference oldTarget, Do
         boolean modified = false;
         for (Block block : blocks) {
             try {
-                modified |= renameLink(block, currentDocumentReference, oldTarget, newTarget);
+                modified |= renameLink(block, currentDocumentReference, linkTargets);
             } catch (IllegalArgumentException e) {
                 continue;
             }
@@ -166,17 +175,15 @@ private void renameLinks(XWikiDocument document, DocumentReference oldTarget, Do
             document.setContent(xdom);
             saveDocumentPreservingContentAuthor(document, "Renamed back-links.", false);
             this.logger.info("The links from [{}] that were targeting [{}] have been updated to target [{}].",
-                document.getDocumentReferenceWithLocale(), oldTarget, newTarget);
+                document.getDocumentReferenceWithLocale(), linkTargets.keySet(), linkTargets.values());
         } else {
             this.logger.info("No back-links to update in [{}].", currentDocumentReference);
         }
     }
 
-    private boolean renameLink(Block block, DocumentReference currentDocumentReference, DocumentReference oldTarget,
-        DocumentReference newTarget) throws IllegalArgumentException
+    private boolean renameLink(Block block, DocumentReference currentDocumentReference,
+        Map<DocumentReference, DocumentReference> linkTargets) throws IllegalArgumentException
     {
-        boolean modified = false;
-
         ResourceReference resourceReference = linkedResourceHelper.getResourceReference(block);
         if (resourceReference == null) {
             // Skip invalid blocks.
@@ -197,6 +204,13 @@ private boolean renameLink(Block block, DocumentReference currentDocumentReferen
         // Resolve the document of the reference.
         DocumentReference linkTargetDocumentReference =
             defaultReferenceDocumentReferenceResolver.resolve(linkEntityReference);
+
+        // If the link doesn't target one of the old (renamed) document references, there's nothing to update.
+        DocumentReference newTarget = linkTargets.get(linkTargetDocumentReference);
+        if (newTarget == null) {
+            return false;
+        }
+
         EntityReference newTargetReference = newTarget;
         ResourceType newResourceType = resourceType;
 
@@ -214,18 +228,14 @@ private boolean renameLink(Block block, DocumentReference currentDocumentReferen
             }
         }
 
-        // If the link targets the old (renamed) document reference, we must update it.
-        if (linkTargetDocumentReference.equals(oldTarget)) {
-            modified = true;
-            String newReferenceString =
-                this.compactEntityReferenceSerializer.serialize(newTargetReference, currentDocumentReference);
+        String newReferenceString =
+            this.compactEntityReferenceSerializer.serialize(newTargetReference, currentDocumentReference);
 
-            // Update the reference in the XDOM.
-            linkedResourceHelper.setResourceReferenceString(block, newReferenceString);
-            linkedResourceHelper.setResourceType(block, newResourceType);
-        }
+        // Update the reference in the XDOM.
+        linkedResourceHelper.setResourceReferenceString(block, newReferenceString);
+        linkedResourceHelper.setResourceType(block, newResourceType);
 
-        return modified;
+        return true;
     }
 
     @Override
@@ -20,9 +20,13 @@
 package org.xwiki.refactoring.internal;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.regex.Pattern;
 
 import javax.inject.Inject;
@@ -44,6 +48,7 @@
 import org.xwiki.model.reference.EntityReferenceSerializer;
 import org.xwiki.model.reference.LocalDocumentReference;
 import org.xwiki.model.reference.SpaceReference;
+import org.xwiki.model.reference.WikiReference;
 import org.xwiki.query.Query;
 import org.xwiki.query.QueryManager;
 import org.xwiki.refactoring.internal.job.PermanentlyDeleteJob;
@@ -79,6 +84,12 @@ public class DefaultModelBridge implements ModelBridge
     private static final LocalDocumentReference REDIRECT_CLASS_REFERENCE =
         new LocalDocumentReference(XWiki.SYSTEM_SPACE, "RedirectClass");
 
+    /**
+     * The maximum number of link targets passed to a single back-links query (some databases limit the size of the
+     * {@code in} clause).
+     */
+    private static final int BACKLINKS_BATCH_SIZE = 500;
+
     @Inject
     private Logger logger;
 
@@ -286,6 +297,44 @@ public List<DocumentReference> getBackLinkedReferences(DocumentReference documen
         }
     }
 
+    @Override
+    public Map<DocumentReference, Set<DocumentReference>> getBackLinkedReferences(
+        Collection<DocumentReference> references, String wikiId)
+    {
+        // The links are stored as local references
+        Map<String, List<DocumentReference>> targets = new LinkedHashMap<>();
+        for (DocumentReference reference : references) {
+            targets.computeIfAbsent(this.localEntityReferenceSerializer.serialize(reference), k -> new ArrayList<>())
+                .add(reference);
+        }
+
+        Map<DocumentReference, Set<DocumentReference>> backlinks = new LinkedHashMap<>();
+        List<String> links = new ArrayList<>(targets.keySet());
+        WikiReference wikiReference = new WikiReference(wikiId);
+        try {
+            for (int index = 0; index < links.size(); index += BACKLINKS_BATCH_SIZE) {
+                Query query = this.queryManager.createQuery(
+                    "select distinct link.fullName, link.id.link from XWikiLink as link where link.id.link in (:links)",
+                    Query.HQL);
+                query.setWiki(wikiId);
+                query.bindValue("links", links.subList(index, Math.min(index + BACKLINKS_BATCH_SIZE, links.size())));
+
+                for (Object[] result : query.<Object[]>execute()) {
+                    DocumentReference backlinkReference =
+                        this.explicitDocumentReferenceResolver.resolve((String) result[0], wikiReference);
+                    backlinks.computeIfAbsent(backlinkReference, k -> new LinkedHashSet<>())
+                        .addAll(targets.getOrDefault(result[1], Collections.emptyList()));
+                }
+            }
+        } catch (Exception e) {
+            this.logger.error("Failed to retrieve the back-links for documents [{}] on wiki [{}].", references, wikiId,
+                e);
+            return Collections.emptyMap();
+        }
+
+        return backlinks;
+    }
+
     @Override
     public List<DocumentReference> getDocumentReferences(SpaceReference spaceReference)
     {
@@ -244,6 +244,62 @@ public void renameLinks() throws Exception
         verifyDocumentSave(document, "Renamed back-links.", false);
     }
 
+    @Test
+    public void renameLinksToSeveralTargets() throws Exception
+    {
+        DocumentReference documentReference = new DocumentReference("wiki", "Space", "Page");
+        XWikiDocument document = mock(XWikiDocument.class);
+        when(this.xcontext.getWiki().getDocument(documentReference, this.xcontext)).thenReturn(document);
+        when(document.getDocumentReference()).thenReturn(documentReference);
+        when(document.getSyntax()).thenReturn(Syntax.XWIKI_2_1);
+        this.mocker.registerMockComponent(BlockRenderer.class, Syntax.XWIKI_2_1.toIdString());
+
+        DocumentReference firstOldLinkTarget = new DocumentReference("wiki", "A", "B");
+        DocumentReference firstNewLinkTarget = new DocumentReference("wiki", "X", "B");
+        DocumentReference secondOldLinkTarget = new DocumentReference("wiki", "A", "C");
+        DocumentReference secondNewLinkTarget = new DocumentReference("wiki", "X", "C");
+        DocumentReference otherLinkTarget = new DocumentReference("wiki", "A", "D");
+
+        XDOM xdom = mock(XDOM.class);
+        when(document.getXDOM()).thenReturn(xdom);
+
+        ResourceReference firstLinkReference = new ResourceReference("A.B", ResourceType.DOCUMENT);
+        LinkBlock firstLinkBlock = new LinkBlock(Collections.<Block>emptyList(), firstLinkReference, false);
+        ResourceReference secondLinkReference = new ResourceReference("A.C", ResourceType.DOCUMENT);
+        LinkBlock secondLinkBlock = new LinkBlock(Collections.<Block>emptyList(), secondLinkReference, false);
+        ResourceReference otherLinkReference = new ResourceReference("A.D", ResourceType.DOCUMENT);
+        LinkBlock otherLinkBlock = new LinkBlock(Collections.<Block>emptyList(), otherLinkReference, false);
+        when(xdom.getBlocks(any(), eq(Block.Axes.DESCENDANT)))
+            .thenReturn(Arrays.<Block>asList(firstLinkBlock, secondLinkBlock, otherLinkBlock));
+
+        when(this.resourceReferenceResolver.resolve(firstLinkReference, null, documentReference))
+            .thenReturn(firstOldLinkTarget);
+        when(this.defaultReferenceDocumentReferenceResolver.resolve(firstOldLinkTarget)).thenReturn(firstOldLinkTarget);
+        when(this.resourceReferenceResolver.resolve(secondLinkReference, null, documentReference))
+            .thenReturn(secondOldLinkTarget);
+        when(this.defaultReferenceDocumentReferenceResolver.resolve(secondOldLinkTarget))
+            .thenReturn(secondOldLinkTarget);
+        when(this.resourceReferenceResolver.resolve(otherLinkReference, null, documentReference))
+            .thenReturn(otherLinkTarget);
+        when(this.defaultReferenceDocumentReferenceResolver.resolve(otherLinkTarget)).thenReturn(otherLinkTarget);
+
+        when(this.compactEntityReferenceSerializer.serialize(firstNewLinkTarget, documentReference)).thenReturn("X.B");
+        when(this.compactEntityReferenceSerializer.serialize(secondNewLinkTarget, documentReference))
+            .thenReturn("X.C");
+
+        Map<DocumentReference, DocumentReference> linkTargets = new HashMap<>();
+        linkTargets.put(firstOldLinkTarget, firstNewLinkTarget);
+        linkTargets.put(secondOldLinkTarget, secondNewLinkTarget);
+
+        this.mocker.getComponentUnderTest().renameLinks(documentReference, linkTargets);
+
+        assertEquals("X.B", firstLinkBlock.getReference().getReference());
+        assertEquals("X.C", secondLinkBlock.getReference().getReference());
+        assertEquals("A.D", otherLinkBlock.getReference().getReference());
+        // The document is saved only once.
+        verifyDocumentSave(document, "Renamed back-links.", false);
+    }
+
     @Test
     public void renameNonTerminalDocumentLinks() throws Exception
     {
@@ -21,8 +21,11 @@
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 
 import javax.inject.Named;
 import javax.inject.Provider;
@@ -41,6 +44,7 @@
 import org.xwiki.model.reference.EntityReferenceResolver;
 import org.xwiki.model.reference.EntityReferenceSerializer;
 import org.xwiki.model.reference.SpaceReference;
+import org.xwiki.model.reference.WikiReference;
 import org.xwiki.query.Query;
 import org.xwiki.query.QueryManager;
 import org.xwiki.refactoring.internal.job.PermanentlyDeleteJob;
@@ -252,6 +256,43 @@ public void getDocumentReferences(MockitoComponentManager mocker) throws Excepti
         verify(query).bindValue("spacePrefix", "Space.%");
     }
 
+    @Test
+    public void getBackLinkedReferences(MockitoComponentManager mocker) throws Exception
+    {
+        DocumentReference alice = new DocumentReference("foo", "Space", "Alice");
+        DocumentReference bob = new DocumentReference("foo", "Space", "Bob");
+
+        Query query = mock(Query.class);
+        QueryManager queryManager = mocker.getInstance(QueryManager.class);
+        when(queryManager.createQuery(any(), any())).thenReturn(query);
+
+        EntityReferenceSerializer<String> localEntityReferenceSerializer =
+            mocker.getInstance(EntityReferenceSerializer.TYPE_STRING, "local");
+        when(localEntityReferenceSerializer.serialize(alice)).thenReturn("Space.Alice");
+        when(localEntityReferenceSerializer.serialize(bob)).thenReturn("Space.Bob");
+
+        when(query.execute()).thenReturn(Arrays.<Object>asList(new Object[] { "Other.Page", "Space.Alice" },
+            new Object[] { "Other.Page", "Space.Bob" }, new Object[] { "Space.Alice", "Space.Bob" }));
+
+        DocumentReferenceResolver<String> explicitDocumentReferenceResolver =
+            mocker.getInstance(DocumentReferenceResolver.TYPE_STRING, "explicit");
+        WikiReference wikiReference = new WikiReference("bar");
+        DocumentReference page = new DocumentReference("bar", "Other", "Page");
+        when(explicitDocumentReferenceResolver.resolve("Other.Page", wikiReference)).thenReturn(page);
+        DocumentReference aliceInBar = new DocumentReference("bar", "Space", "Alice");
+        when(explicitDocumentReferenceResolver.resolve("Space.Alice", wikiReference)).thenReturn(aliceInBar);
+
+        Map<DocumentReference, Set<DocumentReference>> backlinks =
+            this.modelBridge.getBackLinkedReferences(Arrays.asList(alice, bob), "bar");
+
+        assertEquals(2, backlinks.size());
+        assertEquals(new HashSet<>(Arrays.asList(alice, bob)), backlinks.get(page));
+        assertEquals(Collections.singleton(bob), backlinks.get(aliceInBar));
+
+        verify(query).setWiki("bar");
+        verify(query).bindValue("links", Arrays.asList("Space.Alice", "Space.Bob"));
+    }
+
     @Test
     public void updateParentFields(MockitoComponentManager mocker) throws Exception
     {
@@ -75,6 +75,9 @@ public AsyncRendererJobStatus(AsyncRendererJobRequest request, ObservationManage
         // We are not ready to isolate asynchronous renderer, plus it's not stored right now so the log would be lost.
         setIsolated(false);
 
+        // The job is cancelled when no client asked for its result before it started
+        setCancelable(true);
+
         this.async = true;
     }
 
@@ -24,10 +24,12 @@
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
+import org.slf4j.Logger;
 import org.xwiki.cache.Cache;
 import org.xwiki.cache.CacheEntry;
 import org.xwiki.cache.CacheException;
@@ -44,6 +46,10 @@
 
 /**
  * Share cache containing the results of the {@link AsyncRenderer} executions.
+ * <p>
+ * When {@link AsyncRendererConfiguration#isStaleWhileRevalidate()} is enabled, an invalidated result is not removed
+ * from the cache right away: it's kept as a stale result which can be served (see {@link #getStale(List)}) while a new
+ * result is computed in the background.
  * 
  * @version $Id$
  * @since 10.10RC1
@@ -52,13 +58,38 @@
 @Singleton
 public class AsyncRendererCache implements Initializable, CacheEntryListener<AsyncRendererJobStatus>
 {
+    /**
+     * Prefix of the keys of the stale entries. Can't be produced by {@link #toCacheKey(List)} which always start with a
+     * number.
+     */
+    private static final String STALE_PREFIX = "stale:";
+
     @Inject
     private CacheManager cacheManager;
 
+    @Inject
+    private AsyncRendererConfiguration configuration;
+
+    @Inject
+    private Logger logger;
+
     private Cache<AsyncRendererJobStatus> asyncCache;
 
     private Cache<AsyncRendererJobStatus> longCache;
 
+    /**
+     * The caches dedicated to the types of renderers which have a specific cache configuration.
+     */
+    private Map<String, Cache<AsyncRendererJobStatus>> rendererCaches = new ConcurrentHashMap<>();
+
+    private final AtomicLong hitCount = new AtomicLong();
+
+    private final AtomicLong missCount = new AtomicLong();
+
+    private final AtomicLong staleHitCount = new AtomicLong();
+
+    private final AtomicLong recomputeCount = new AtomicLong();
+
     private Map<EntityReference, Set<String>> referenceMapping = new ConcurrentHashMap<>();
 
     private Map<Type, Set<String>> roleTypeMapping = new ConcurrentHashMap<>();
@@ -85,8 +116,8 @@ public void initialize() throws InitializationException
     {
         try {
             // Standard cache (long lived but small by default)
-            this.longCache =
-                this.cacheManager.createNewCache(new LRUCacheConfiguration("rendering.asyncrenderer", 100, 86400));
+            this.longCache = this.cacheManager.createNewCache(new LRUCacheConfiguration("rendering.asyncrenderer",
+                this.configuration.getCacheSize(), this.configuration.getCacheLifespan()));
 
             // Cache to store asynchronous result kept only for the small period between which the job is finished
             // but it was not been asked yet by the client (short live but big size)
@@ -107,7 +138,68 @@ public AsyncRendererJobStatus getSync(List<String> id)
     {
         String cacheKey = toCacheKey(id);
 
-        return this.longCache.get(cacheKey);
+        AsyncRendererJobStatus status = getLongCache(id).get(cacheKey);
+
+        if (status != null) {
+            this.hitCount.incrementAndGet();
+        } else {
+            this.missCount.incrementAndGet();
+        }
+
+        return status;
+    }
+
+    /**
+     * @param id the identifier of the job.
+     * @return the invalidated status associated with the provided key which can be served while a new one is
+     *         computed, or {@code null} if there is no value
+     * @since 11.0RC1
+     */
+    public AsyncRendererJobStatus getStale(List<String> id)
+    {
+        AsyncRendererJobStatus status = getLongCache(id).get(STALE_PREFIX + toCacheKey(id));
+
+        if (status != null) {
+            this.staleHitCount.incrementAndGet();
+        }
+
+        return status;
+    }
+
+    private Cache<AsyncRendererJobStatus> getLongCache(List<String> id)
+    {
+        if (id.isEmpty() || id.get(0) == null) {
+            return this.longCache;
+        }
+
+        return this.rendererCaches.computeIfAbsent(id.get(0), this::createRendererCache);
+    }
+
+    private Cache<AsyncRendererJobStatus> createRendererCache(String rendererType)
+    {
+        int size = this.configuration.getCacheSize(rendererType);
+        int lifespan = this.configuration.getCacheLifespan(rendererType);
+
+        // Share the default cache between all the types of renderers without specific configuration
+        if (size == this.configuration.getCacheSize() && lifespan == this.configuration.getCacheLifespan()) {
+            return this.longCache;
+        }
+
+        Cache<AsyncRendererJobStatus> cache;
+        try {
+            cache = this.cacheManager.createNewCache(
+                new LRUCacheConfiguration("rendering.asyncrenderer." + rendererType, size, lifespan));
+        } catch (CacheException e) {
+            this.logger.error("Failed to create the cache for the renderers of type [{}], using the default one",
+                rendererType, e);
+
+            // Don't prevent the renderer from being cached
+            return this.longCache;
+        }
+
+        cache.addCacheEntryListener(this);
+
+        return cache;
     }
 
     /**
@@ -145,11 +237,20 @@ public void put(AsyncRendererJobStatus status)
         // Avoid storing useless stuff in the RAM
         status.dispose();
 
-        String cacheKey = toCacheKey(status.getRequest().getId());
+        List<String> id = status.getRequest().getId();
+        String cacheKey = toCacheKey(id);
 
         // If cache is enabled, store the status in the long cache
         if (cacheAllowed) {
-            this.longCache.set(cacheKey, status);
+            getLongCache(id).set(cacheKey, status);
+
+            // The stale result has been computed again
+            if (removeStale(id)) {
+                this.recomputeCount.incrementAndGet();
+            }
+        } else {
+            // The renderer can't be cached anymore: don't keep serving the previous result
+            removeStale(id);
         }
 
         // Asynchronous statuses are stored in the big cache to avoid race condition (result invalidated before it get a
@@ -159,15 +260,78 @@ public void put(AsyncRendererJobStatus status)
         }
     }
 
+    /**
+     * Stop serving the invalidated result associated with the passed job identifier (for example because computing
+     * the new result failed).
+     *
+     * @param id the identifier of the job
+     * @return true if an invalidated result was removed
+     * @since 11.0RC1
+     */
+    public boolean removeStale(List<String> id)
+    {
+        Cache<AsyncRendererJobStatus> cache = getLongCache(id);
+
+        String staleKey = STALE_PREFIX + toCacheKey(id);
+        if (cache.get(staleKey) != null) {
+            cache.remove(staleKey);
+
+            return true;
+        }
+
+        return false;
+    }
+
     /**
      * Remove all the entries the cache contains.
      */
     public void flush()
     {
         this.longCache.removeAll();
+        for (Cache<AsyncRendererJobStatus> cache : this.rendererCaches.values()) {
+            if (cache != this.longCache) {
+                cache.removeAll();
+            }
+        }
         this.asyncCache.removeAll();
     }
 
+    /**
+     * @return the number of times a valid result was found in the cache
+     * @since 11.0RC1
+     */
+    public long getHitCount()
+    {
+        return this.hitCount.get();
+    }
+
+    /**
+     * @return the number of times no valid result was found in the cache
+     * @since 11.0RC1
+     */
+    public long getMissCount()
+    {
+        return this.missCount.get();
+    }
+
+    /**
+     * @return the number of times an invalidated result was served while being computed again
+     * @since 11.0RC1
+     */
+    public long getStaleHitCount()
+    {
+        return this.staleHitCount.get();
+    }
+
+    /**
+     * @return the number of invalidated results which have been replaced by a new result
+     * @since 11.0RC1
+     */
+    public long getRecomputeCount()
+    {
+        return this.recomputeCount.get();
+    }
+
     @Override
     public void cacheEntryAdded(CacheEntryEvent<AsyncRendererJobStatus> event)
     {
@@ -175,6 +339,11 @@ public void cacheEntryAdded(CacheEntryEvent<AsyncRendererJobStatus> event)
         AsyncRendererJobStatus status = entry.getValue();
         String key = entry.getKey();
 
+        // Stale entries can't be invalidated anymore
+        if (key.startsWith(STALE_PREFIX)) {
+            return;
+        }
+
         for (EntityReference reference : status.getReferences()) {
             this.referenceMapping.computeIfAbsent(reference, k -> ConcurrentHashMap.newKeySet()).add(key);
         }
@@ -195,6 +364,10 @@ public void cacheEntryRemoved(CacheEntryEvent<AsyncRendererJobStatus> event)
         AsyncRendererJobStatus status = entry.getValue();
         String key = entry.getKey();
 
+        if (key.startsWith(STALE_PREFIX)) {
+            return;
+        }
+
         remove(key, status.getReferences(), this.referenceMapping);
         remove(key, status.getRoleTypes(), this.roleTypeMapping);
         remove(key, status.getRoles(), this.roleMapping);
@@ -264,12 +437,31 @@ public void cleanCache(Type roleType, String roleHint)
     private void clean(Set<String> keys)
     {
         if (keys != null) {
+            boolean staleWhileRevalidate = this.configuration.isStaleWhileRevalidate();
+
             for (String key : keys) {
-                this.longCache.remove(key);
+                clean(key, this.longCache, staleWhileRevalidate);
+                for (Cache<AsyncRendererJobStatus> cache : this.rendererCaches.values()) {
+                    if (cache != this.longCache) {
+                        clean(key, cache, staleWhileRevalidate);
+                    }
+                }
 
                 // Not cleaning the async cache to avoid race condition (cache invalidated between the moment it was
                 // stored and the moment is was used for the first time)
             }
         }
     }
+
+    private void clean(String key, Cache<AsyncRendererJobStatus> cache, boolean staleWhileRevalidate)
+    {
+        AsyncRendererJobStatus status = staleWhileRevalidate ? cache.get(key) : null;
+
+        cache.remove(key);
+
+        // Keep serving the invalidated result until a new one is computed
+        if (status != null) {
+            cache.set(STALE_PREFIX + key, status);
+        }
+    }
 }
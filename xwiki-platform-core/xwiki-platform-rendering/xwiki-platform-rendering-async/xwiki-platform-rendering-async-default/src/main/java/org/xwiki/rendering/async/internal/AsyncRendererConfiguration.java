@@ -0,0 +1,77 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.async.internal;
+
+import org.xwiki.component.annotation.Role;
+
+/**
+ * Configuration of the asynchronous renderers.
+ * 
+ * @version $Id$
+ * @since 11.0RC1
+ */
+@Role
+public interface AsyncRendererConfiguration
+{
+    /**
+     * @return true if a cached result invalidated by a modification should keep being served while it's computed
+     *         again in the background
+     */
+    boolean isStaleWhileRevalidate();
+
+    /**
+     * @return the default maximum number of results kept in the cache
+     */
+    int getCacheSize();
+
+    /**
+     * @return the default time (in seconds) after which a result is removed from the cache
+     */
+    int getCacheLifespan();
+
+    /**
+     * @param rendererType the type of renderer (the first element of the renderer identifier, for example "uix")
+     * @return the maximum number of results of this type of renderer kept in the cache
+     */
+    int getCacheSize(String rendererType);
+
+    /**
+     * @param rendererType the type of renderer (the first element of the renderer identifier, for example "uix")
+     * @return the time (in seconds) after which a result of this type of renderer is removed from the cache
+     */
+    int getCacheLifespan(String rendererType);
+
+    /**
+     * @return the number of threads dedicated to the execution of the asynchronous renderers
+     */
+    int getThreads();
+
+    /**
+     * @return the maximum number of asynchronous renderers a single request can start, the following ones being
+     *         executed synchronously (0 or less for no limit)
+     */
+    int getMaxJobsPerRequest();
+
+    /**
+     * @return the time (in seconds) after which a queued asynchronous renderer is cancelled if its client did not ask
+     *         for the result
+     */
+    int getClientTimeout();
+}
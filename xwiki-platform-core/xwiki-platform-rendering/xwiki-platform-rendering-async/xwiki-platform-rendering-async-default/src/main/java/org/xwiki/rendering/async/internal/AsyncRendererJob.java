@@ -76,6 +76,22 @@ public String getType()
     @Override
     protected void runInternal() throws Exception
     {
+        try {
+            render();
+        } finally {
+            // Whatever the outcome, the previous result (if any) should not be served anymore: either it has been
+            // replaced or the next request should try to compute it again
+            this.cache.removeStale(getRequest().getId());
+        }
+    }
+
+    private void render() throws Exception
+    {
+        // The job has been cancelled before it started because no client asked for its result
+        if (getStatus().isCanceled()) {
+            return;
+        }
+
         // Enable async execution since we are already in an asynchronous context
         this.asyncContext.setEnabled(true);
         // Prepare to catch stuff to invalidate the cache
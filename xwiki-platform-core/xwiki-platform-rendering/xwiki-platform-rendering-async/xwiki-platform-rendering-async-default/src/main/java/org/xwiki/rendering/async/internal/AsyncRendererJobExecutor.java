@@ -0,0 +1,266 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.async.internal;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLifecycleException;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.component.phase.Disposable;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
+import org.xwiki.context.concurrent.ExecutionContextRunnable;
+import org.xwiki.job.Job;
+import org.xwiki.job.event.status.CancelableJobStatus;
+
+/**
+ * Execute the {@link AsyncRendererJob}s in a pool of threads dedicated to asynchronous rendering so that a burst of
+ * asynchronous renderers cannot starve the other jobs (and the other way around).
+ * <p>
+ * The jobs for which a client is waiting are executed first, then the ones which have a client which is expected to
+ * ask for the result, and finally the ones executed in the background (to refresh a cached result for example). A
+ * queued job is cancelled when the client associated with it did not ask for the result after
+ * {@link AsyncRendererConfiguration#getClientTimeout()} seconds (it most probably left the page). A cancelled job still
+ * goes through its normal lifecycle (without rendering anything) so that its status ends up finished.
+ * 
+ * @version $Id$
+ * @since 11.0RC1
+ */
+@Component(roles = AsyncRendererJobExecutor.class)
+@Singleton
+public class AsyncRendererJobExecutor implements Initializable, Disposable
+{
+    private static final int PRIORITY_WAITED = 0;
+
+    private static final int PRIORITY_CLIENT = 1;
+
+    private static final int PRIORITY_BACKGROUND = 2;
+
+    @Inject
+    @Named(AsyncRendererJobStatus.JOBTYPE)
+    private Provider<Job> jobProvider;
+
+    @Inject
+    private AsyncRendererConfiguration configuration;
+
+    @Inject
+    @Named("context")
+    private ComponentManager componentManager;
+
+    @Inject
+    private Logger logger;
+
+    private final Map<List<String>, QueuedJob> jobs = new ConcurrentHashMap<>();
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final AtomicLong cancelledCount = new AtomicLong();
+
+    private ThreadPoolExecutor pool;
+
+    private final class QueuedJob implements Runnable, Comparable<QueuedJob>
+    {
+        private final Job job;
+
+        private final long index;
+
+        private final long queuedTime;
+
+        private final Runnable runnable;
+
+        private volatile int priority;
+
+        private boolean started;
+
+        QueuedJob(Job job, int priority)
+        {
+            this.job = job;
+            this.priority = priority;
+            this.index = sequence.incrementAndGet();
+            this.queuedTime = System.currentTimeMillis();
+            this.runnable = new ExecutionContextRunnable(job, componentManager);
+        }
+
+        @Override
+        public void run()
+        {
+            try {
+                boolean abandoned;
+                synchronized (this) {
+                    // Decide atomically so that a client starting to wait at the same time is not left alone
+                    abandoned = isAbandoned();
+                    this.started = true;
+                }
+
+                if (abandoned && this.job.getStatus() instanceof CancelableJobStatus) {
+                    ((CancelableJobStatus) this.job.getStatus()).cancel();
+
+                    cancelledCount.incrementAndGet();
+                    logger.debug("Cancelled asynchronous renderer [{}] since no client asked for its result",
+                        this.job.getRequest().getId());
+                }
+
+                // Even a cancelled job is run so that its status is finished and the threads joining it are notified
+                this.runnable.run();
+            } finally {
+                jobs.remove(this.job.getRequest().getId(), this);
+            }
+        }
+
+        /**
+         * @return true if the priority has been changed, false if the job is already started
+         */
+        private synchronized boolean prioritize()
+        {
+            if (this.started) {
+                return false;
+            }
+
+            this.priority = PRIORITY_WAITED;
+
+            return true;
+        }
+
+        private boolean isAbandoned()
+        {
+            long timeout = TimeUnit.SECONDS.toMillis(configuration.getClientTimeout());
+
+            return this.priority == PRIORITY_CLIENT && timeout > 0
+                && System.currentTimeMillis() - this.queuedTime > timeout;
+        }
+
+        @Override
+        public int compareTo(QueuedJob other)
+        {
+            int result = Integer.compare(this.priority, other.priority);
+
+            return result != 0 ? result : Long.compare(this.index, other.index);
+        }
+    }
+
+    @Override
+    public void initialize() throws InitializationException
+    {
+        int threads = Math.max(1, this.configuration.getThreads());
+
+        BasicThreadFactory factory = new BasicThreadFactory.Builder().namingPattern("Async renderer thread %d")
+            .daemon(true).priority(Thread.NORM_PRIORITY - 1).build();
+        this.pool = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+            new PriorityBlockingQueue<Runnable>(), factory);
+        this.pool.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Queue a new {@link AsyncRendererJob} (unless one with the same id is already queued or running).
+     * 
+     * @param request the request of the job
+     * @param background true if no client is going to wait for the result of the job
+     * @return the job
+     */
+    public Job execute(AsyncRendererJobRequest request, boolean background)
+    {
+        Job job = this.jobProvider.get();
+        job.initialize(request);
+
+        QueuedJob queuedJob = new QueuedJob(job, background ? PRIORITY_BACKGROUND : PRIORITY_CLIENT);
+
+        QueuedJob existingJob = this.jobs.putIfAbsent(request.getId(), queuedJob);
+        if (existingJob != null) {
+            return existingJob.job;
+        }
+
+        this.pool.execute(queuedJob);
+
+        return job;
+    }
+
+    /**
+     * @param id the identifier of the job
+     * @return the queued or running job with the passed id, {@code null} if none could be found
+     */
+    public Job getJob(List<String> id)
+    {
+        QueuedJob queuedJob = this.jobs.get(id);
+
+        return queuedJob != null ? queuedJob.job : null;
+    }
+
+    /**
+     * Indicate that a client is waiting for the result of the job so that it's executed before the others.
+     * 
+     * @param id the identifier of the job
+     */
+    public void prioritize(List<String> id)
+    {
+        QueuedJob queuedJob = this.jobs.get(id);
+
+        if (queuedJob != null && queuedJob.priority != PRIORITY_WAITED) {
+            // The priority of an element can only be changed by adding it again to the queue
+            boolean removed = this.pool.remove(queuedJob);
+            if (queuedJob.prioritize() && removed) {
+                this.pool.execute(queuedJob);
+            }
+        }
+    }
+
+    /**
+     * @return the number of jobs waiting for a thread
+     */
+    public int getQueueSize()
+    {
+        return this.pool.getQueue().size();
+    }
+
+    /**
+     * @return the number of jobs currently running
+     */
+    public int getActiveCount()
+    {
+        return this.pool.getActiveCount();
+    }
+
+    /**
+     * @return the number of queued jobs which have been cancelled because their client did not ask for the result
+     */
+    public long getCancelledCount()
+    {
+        return this.cancelledCount.get();
+    }
+
+    @Override
+    public void dispose() throws ComponentLifecycleException
+    {
+        this.pool.shutdownNow();
+    }
+}
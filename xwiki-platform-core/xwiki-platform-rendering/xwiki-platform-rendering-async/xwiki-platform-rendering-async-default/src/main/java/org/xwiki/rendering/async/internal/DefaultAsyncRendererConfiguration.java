@@ -0,0 +1,108 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.async.internal;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.xwiki.component.annotation.Component;
+import org.xwiki.configuration.ConfigurationSource;
+
+/**
+ * Default implementation of {@link AsyncRendererConfiguration} based on {@code xwiki.properties}.
+ * 
+ * @version $Id$
+ * @since 11.0RC1
+ */
+@Component
+@Singleton
+public class DefaultAsyncRendererConfiguration implements AsyncRendererConfiguration
+{
+    private static final String PREFIX = "rendering.async.cache.";
+
+    private static final String SIZE = "size";
+
+    private static final String LIFESPAN = "lifespan";
+
+    private static final int DEFAULT_SIZE = 100;
+
+    private static final int DEFAULT_LIFESPAN = 86400;
+
+    private static final String EXECUTION_PREFIX = "rendering.async.";
+
+    private static final int DEFAULT_THREADS = 10;
+
+    private static final int DEFAULT_MAX_JOBS_PER_REQUEST = 20;
+
+    private static final int DEFAULT_CLIENT_TIMEOUT = 60;
+
+    @Inject
+    @Named("xwikiproperties")
+    private ConfigurationSource configuration;
+
+    @Override
+    public boolean isStaleWhileRevalidate()
+    {
+        return this.configuration.getProperty(PREFIX + "staleWhileRevalidate", false);
+    }
+
+    @Override
+    public int getCacheSize()
+    {
+        return this.configuration.getProperty(PREFIX + SIZE, DEFAULT_SIZE);
+    }
+
+    @Override
+    public int getCacheLifespan()
+    {
+        return this.configuration.getProperty(PREFIX + LIFESPAN, DEFAULT_LIFESPAN);
+    }
+
+    @Override
+    public int getCacheSize(String rendererType)
+    {
+        return this.configuration.getProperty(PREFIX + rendererType + '.' + SIZE, getCacheSize());
+    }
+
+    @Override
+    public int getCacheLifespan(String rendererType)
+    {
+        return this.configuration.getProperty(PREFIX + rendererType + '.' + LIFESPAN, getCacheLifespan());
+    }
+
+    @Override
+    public int getThreads()
+    {
+        return this.configuration.getProperty(EXECUTION_PREFIX + "threads", DEFAULT_THREADS);
+    }
+
+    @Override
+    public int getMaxJobsPerRequest()
+    {
+        return this.configuration.getProperty(EXECUTION_PREFIX + "maxJobsPerRequest", DEFAULT_MAX_JOBS_PER_REQUEST);
+    }
+
+    @Override
+    public int getClientTimeout()
+    {
+        return this.configuration.getProperty(EXECUTION_PREFIX + "clientTimeout", DEFAULT_CLIENT_TIMEOUT);
+    }
+}
@@ -32,7 +32,6 @@
 
 import javax.inject.Inject;
 import javax.inject.Named;
-import javax.inject.Provider;
 import javax.inject.Singleton;
 
 import org.apache.commons.collections4.MapUtils;
@@ -40,10 +39,11 @@
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.manager.ComponentLookupException;
 import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContext;
 import org.xwiki.context.concurrent.ContextStoreManager;
 import org.xwiki.job.Job;
 import org.xwiki.job.JobException;
-import org.xwiki.job.JobExecutor;
 import org.xwiki.job.event.status.JobStatus.State;
 import org.xwiki.rendering.RenderingException;
 import org.xwiki.rendering.async.AsyncContext;
@@ -60,12 +60,20 @@
 @Singleton
 public class DefaultAsyncRendererExecutor implements AsyncRendererExecutor
 {
+    /**
+     * The name of the execution context property containing the number of asynchronous renderers started by the
+     * current request.
+     */
+    private static final String JOB_COUNT_PROPERTY = "rendering.async.jobCount";
+
+    @Inject
+    private AsyncRendererJobExecutor executor;
+
     @Inject
-    @Named(AsyncRendererJobStatus.JOBTYPE)
-    private Provider<Job> jobProvider;
+    private AsyncRendererConfiguration configuration;
 
     @Inject
-    private JobExecutor executor;
+    private Execution execution;
 
     @Inject
     private ContextStoreManager contextStore;
@@ -119,6 +127,9 @@ public AsyncRendererJobStatus getAsyncStatus(List<String> id, long clientId, lon
             Job job = this.executor.getJob(id);
 
             if (job != null) {
+                // The client is waiting for this job
+                this.executor.prioritize(id);
+
                 job.join(time, unit);
             }
         }
@@ -144,15 +155,49 @@ public AsyncRendererExecutorResponse render(AsyncRenderer renderer, Set<String>
             if (status != null) {
                 if (status.getResult() != null) {
                     injectUses(status);
+                } else {
+                    // The result is being computed, serve the previous one if any
+                    AsyncRendererJobStatus staleStatus = this.cache.getStale(jobId);
+
+                    if (staleStatus != null) {
+                        injectUses(staleStatus);
+
+                        return new AsyncRendererExecutorResponse(staleStatus);
+                    }
                 }
 
                 return new AsyncRendererExecutorResponse(status);
             }
+
+            if (async) {
+                AsyncRendererJobStatus staleStatus = this.cache.getStale(jobId);
+
+                if (staleStatus != null) {
+                    // Compute the result again in the background and serve the previous one in the meantime
+                    AsyncRendererJobRequest request = new AsyncRendererJobRequest();
+                    request.setRenderer(renderer);
+                    if (context != null) {
+                        request.setContext(context);
+                    }
+                    request.setId(jobId);
+
+                    this.executor.execute(request, true);
+
+                    injectUses(staleStatus);
+
+                    return new AsyncRendererExecutorResponse(staleStatus);
+                }
+            }
         }
 
         ////////////////////////////////
         // Execute the renderer
 
+        // Make sure the current request did not already start too many asynchronous renderers
+        if (async && !reserveAsyncJob()) {
+            async = false;
+        }
+
         AsyncRendererExecutorResponse response;
 
         AsyncRendererJobRequest request = new AsyncRendererJobRequest();
@@ -172,7 +217,7 @@ public AsyncRendererExecutorResponse render(AsyncRenderer renderer, Set<String>
 
             request.setId(jobId);
 
-            Job job = this.executor.execute(AsyncRendererJobStatus.JOBTYPE, request);
+            Job job = this.executor.execute(request, false);
 
             AsyncRendererJobStatus status = (AsyncRendererJobStatus) job.getStatus();
 
@@ -219,6 +264,38 @@ public AsyncRendererExecutorResponse render(AsyncRenderer renderer, Set<String>
         return response;
     }
 
+    /**
+     * Limit the number of asynchronous renderers a single request can start so that a page containing many of them
+     * cannot monopolize the asynchronous rendering threads.
+     * 
+     * @return true if the current request is allowed to start a new asynchronous renderer
+     */
+    private boolean reserveAsyncJob()
+    {
+        int max = this.configuration.getMaxJobsPerRequest();
+        ExecutionContext context = this.execution.getContext();
+
+        if (max <= 0 || context == null) {
+            return true;
+        }
+
+        Integer count = (Integer) context.getProperty(JOB_COUNT_PROPERTY);
+        if (count == null) {
+            count = 0;
+        }
+
+        if (count >= max) {
+            this.logger.debug("Executing a renderer synchronously since the current request already started [{}]"
+                + " asynchronous renderers", count);
+
+            return false;
+        }
+
+        context.setProperty(JOB_COUNT_PROPERTY, count + 1);
+
+        return true;
+    }
+
     private void injectUses(AsyncRendererJobStatus status)
     {
         Map<String, Collection<Object>> uses = status.getUses();
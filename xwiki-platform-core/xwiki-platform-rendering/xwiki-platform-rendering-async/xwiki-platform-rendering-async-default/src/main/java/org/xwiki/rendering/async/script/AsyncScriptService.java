@@ -20,6 +20,8 @@
 package org.xwiki.rendering.async.script;
 
 import java.lang.reflect.Type;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -29,7 +31,9 @@
 import org.xwiki.model.reference.EntityReference;
 import org.xwiki.rendering.async.AsyncContext;
 import org.xwiki.rendering.async.internal.AsyncRendererCache;
+import org.xwiki.rendering.async.internal.AsyncRendererJobExecutor;
 import org.xwiki.script.service.ScriptService;
+import org.xwiki.stability.Unstable;
 
 /**
  * A {@link ScriptService} to manipulate the asynchronous rendering features.
@@ -48,6 +52,9 @@ public class AsyncScriptService implements ScriptService
     @Inject
     private AsyncRendererCache cache;
 
+    @Inject
+    private AsyncRendererJobExecutor executor;
+
     /**
      * @return true if it's allowed to render content asynchronously
      */
@@ -72,6 +79,43 @@ public void flushCache()
         this.cache.flush();
     }
 
+    /**
+     * @return the statistics of the asynchronous renderers cache: the number of {@code hits}, {@code misses},
+     *         {@code staleHits} (invalidated results served while computed again) and {@code recomputes}
+     *         (invalidated results replaced by a new result)
+     * @since 11.0RC1
+     */
+    @Unstable
+    public Map<String, Long> getCacheStatistics()
+    {
+        Map<String, Long> statistics = new LinkedHashMap<>();
+
+        statistics.put("hits", this.cache.getHitCount());
+        statistics.put("misses", this.cache.getMissCount());
+        statistics.put("staleHits", this.cache.getStaleHitCount());
+        statistics.put("recomputes", this.cache.getRecomputeCount());
+
+        return statistics;
+    }
+
+    /**
+     * @return the statistics of the asynchronous renderers execution: the number of {@code queued} and {@code running}
+     *         renderers and the number of queued renderers {@code cancelled} because their client did not ask for the
+     *         result
+     * @since 11.0RC1
+     */
+    @Unstable
+    public Map<String, Long> getExecutorStatistics()
+    {
+        Map<String, Long> statistics = new LinkedHashMap<>();
+
+        statistics.put("queued", (long) this.executor.getQueueSize());
+        statistics.put("running", (long) this.executor.getActiveCount());
+        statistics.put("cancelled", this.executor.getCancelledCount());
+
+        return statistics;
+    }
+
     /**
      * Indicate that the current execution manipulate the passed entity and the result will need to be removed from the
      * cache if it's modified in any way.
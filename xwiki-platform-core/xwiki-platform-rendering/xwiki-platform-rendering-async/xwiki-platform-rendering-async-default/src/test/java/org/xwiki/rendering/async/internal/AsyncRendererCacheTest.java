@@ -39,8 +39,11 @@
 import org.xwiki.test.junit5.mockito.InjectMockComponents;
 import org.xwiki.test.junit5.mockito.MockComponent;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -56,6 +59,9 @@
     @MockComponent
     private CacheManager cacheManager;
 
+    @MockComponent
+    private AsyncRendererConfiguration configuration;
+
     @InjectMockComponents
     private AsyncRendererCache asyncCache;
 
@@ -225,4 +231,90 @@ public void getAsyncSeveralClients()
 
         assertNull(this.asyncCache.getAsync(getId(), 2));
     }
+
+    @Test
+    public void staleWhileRevalidate()
+    {
+        when(this.configuration.isStaleWhileRevalidate()).thenReturn(true);
+
+        setReferences(new DocumentReference("wiki", "Space", "Document"));
+
+        this.asyncCache.put(this.status);
+
+        assertSame(this.status, this.asyncCache.getSync(getId()));
+        assertNull(this.asyncCache.getStale(getId()));
+
+        this.asyncCache.cleanCache(new DocumentReference("wiki", "Space", "Document"));
+
+        assertNull(this.asyncCache.getSync(getId()));
+        assertSame(this.status, this.asyncCache.getStale(getId()));
+
+        // A stale entry is not invalidated again
+        this.asyncCache.cleanCache(new DocumentReference("wiki", "Space", "Document"));
+
+        assertSame(this.status, this.asyncCache.getStale(getId()));
+
+        // Put the recomputed result
+        AsyncRendererJobStatus newStatus = new AsyncRendererJobStatus(this.status.getRequest(),
+            new AsyncRendererResult("new result"));
+        newStatus.getRequest().setRenderer(this.renderer);
+
+        this.asyncCache.put(newStatus);
+
+        assertSame(newStatus, this.asyncCache.getSync(getId()));
+        assertNull(this.asyncCache.getStale(getId()));
+
+        assertEquals(2, this.asyncCache.getHitCount());
+        assertEquals(1, this.asyncCache.getMissCount());
+        assertEquals(2, this.asyncCache.getStaleHitCount());
+        assertEquals(1, this.asyncCache.getRecomputeCount());
+    }
+
+    @Test
+    public void staleRemovedWhenRecomputeFails()
+    {
+        when(this.configuration.isStaleWhileRevalidate()).thenReturn(true);
+
+        setReferences(new DocumentReference("wiki", "Space", "Document"));
+
+        this.asyncCache.put(this.status);
+        this.asyncCache.cleanCache(new DocumentReference("wiki", "Space", "Document"));
+
+        assertSame(this.status, this.asyncCache.getStale(getId()));
+
+        // The job computing the new result failed before putting anything in the cache
+        assertTrue(this.asyncCache.removeStale(getId()));
+
+        assertNull(this.asyncCache.getStale(getId()));
+        assertNull(this.asyncCache.getSync(getId()));
+        assertEquals(0, this.asyncCache.getRecomputeCount());
+
+        assertFalse(this.asyncCache.removeStale(getId()));
+    }
+
+    @Test
+    public void staleRemovedWhenNotCacheableAnymore()
+    {
+        when(this.configuration.isStaleWhileRevalidate()).thenReturn(true);
+
+        setReferences(new DocumentReference("wiki", "Space", "Document"));
+
+        this.asyncCache.put(this.status);
+        this.asyncCache.cleanCache(new DocumentReference("wiki", "Space", "Document"));
+
+        assertSame(this.status, this.asyncCache.getStale(getId()));
+
+        // The recomputed result can't be cached
+        AsyncRenderer notCacheableRenderer = mock(AsyncRenderer.class);
+        AsyncRendererJobRequest request = new AsyncRendererJobRequest();
+        request.setId(getId());
+        request.setRenderer(notCacheableRenderer);
+        AsyncRendererJobStatus newStatus = new AsyncRendererJobStatus(request, new AsyncRendererResult("new result"));
+
+        this.asyncCache.put(newStatus);
+
+        assertNull(this.asyncCache.getStale(getId()));
+        assertNull(this.asyncCache.getSync(getId()));
+        assertEquals(0, this.asyncCache.getRecomputeCount());
+    }
 }
@@ -0,0 +1,225 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.async.internal;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Named;
+import javax.inject.Provider;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContextManager;
+import org.xwiki.job.Job;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link AsyncRendererJobExecutor}.
+ * 
+ * @version $Id$
+ */
+@ComponentTest
+public class AsyncRendererJobExecutorTest
+{
+    @MockComponent
+    @Named(AsyncRendererJobStatus.JOBTYPE)
+    private Provider<Job> jobProvider;
+
+    @MockComponent
+    private AsyncRendererConfiguration configuration;
+
+    @MockComponent
+    @Named("context")
+    private ComponentManager componentManager;
+
+    @InjectMockComponents
+    private AsyncRendererJobExecutor executor;
+
+    private final List<String> executed = new CopyOnWriteArrayList<>();
+
+    private final CountDownLatch firstJobStarted = new CountDownLatch(1);
+
+    private final CountDownLatch firstJobReleased = new CountDownLatch(1);
+
+    private CountDownLatch allJobsExecuted;
+
+    @BeforeEach
+    public void beforeEach() throws Exception
+    {
+        when(this.componentManager.getInstance(ExecutionContextManager.class))
+            .thenReturn(mock(ExecutionContextManager.class));
+        when(this.componentManager.getInstance(Execution.class)).thenReturn(mock(Execution.class));
+    }
+
+    @AfterEach
+    public void afterEach() throws Exception
+    {
+        this.firstJobReleased.countDown();
+
+        this.executor.dispose();
+    }
+
+    private AsyncRendererJobRequest request(String id)
+    {
+        AsyncRendererJobRequest request = new AsyncRendererJobRequest();
+        request.setId(id);
+
+        return request;
+    }
+
+    private Job mockJob(String id, AsyncRendererJobStatus status)
+    {
+        Job job = mock(Job.class);
+        when(job.getRequest()).thenReturn(request(id));
+        when(job.getStatus()).thenReturn(status);
+        doAnswer(invocation -> {
+            if (this.executed.isEmpty()) {
+                // Keep the only thread busy so that the other jobs are queued
+                this.firstJobStarted.countDown();
+                this.firstJobReleased.await();
+            }
+            this.executed.add(id);
+            this.allJobsExecuted.countDown();
+            return null;
+        }).when(job).run();
+
+        return job;
+    }
+
+    private Job execute(String id, boolean background)
+    {
+        return execute(id, background, mock(AsyncRendererJobStatus.class));
+    }
+
+    private Job execute(String id, boolean background, AsyncRendererJobStatus status)
+    {
+        Job job = mockJob(id, status);
+        when(this.jobProvider.get()).thenReturn(job);
+
+        return this.executor.execute(request(id), background);
+    }
+
+    private void startFirstJob() throws InterruptedException
+    {
+        execute("first", false);
+
+        assertTrue(this.firstJobStarted.await(10, TimeUnit.SECONDS));
+    }
+
+    private void releaseFirstJob() throws InterruptedException
+    {
+        this.firstJobReleased.countDown();
+
+        assertTrue(this.allJobsExecuted.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void executeByPriority() throws Exception
+    {
+        this.allJobsExecuted = new CountDownLatch(5);
+
+        startFirstJob();
+
+        execute("background", true);
+        execute("client1", false);
+        execute("client2", false);
+        execute("waited", false);
+
+        assertEquals(4, this.executor.getQueueSize());
+
+        // A client is waiting for this job
+        this.executor.prioritize(Arrays.asList("waited"));
+
+        releaseFirstJob();
+
+        assertEquals(Arrays.asList("first", "waited", "client1", "client2", "background"), this.executed);
+        assertEquals(0, this.executor.getCancelledCount());
+    }
+
+    @Test
+    public void executeSameJobOnce() throws Exception
+    {
+        this.allJobsExecuted = new CountDownLatch(2);
+
+        startFirstJob();
+
+        Job job = execute("job", false);
+        when(this.jobProvider.get()).thenReturn(mock(Job.class));
+        assertSame(job, this.executor.execute(request("job"), false));
+        assertSame(job, this.executor.getJob(Arrays.asList("job")));
+
+        releaseFirstJob();
+
+        assertEquals(Arrays.asList("first", "job"), this.executed);
+        assertNull(this.executor.getJob(Arrays.asList("job")));
+    }
+
+    @Test
+    public void cancelAbandonedJobs() throws Exception
+    {
+        when(this.configuration.getClientTimeout()).thenReturn(1);
+        this.allJobsExecuted = new CountDownLatch(4);
+
+        startFirstJob();
+
+        AsyncRendererJobStatus abandonedStatus = mock(AsyncRendererJobStatus.class);
+        execute("abandoned", false, abandonedStatus);
+        AsyncRendererJobStatus waitedStatus = mock(AsyncRendererJobStatus.class);
+        execute("waited", false, waitedStatus);
+        AsyncRendererJobStatus backgroundStatus = mock(AsyncRendererJobStatus.class);
+        execute("background", true, backgroundStatus);
+
+        this.executor.prioritize(Arrays.asList("waited"));
+
+        // Wait more than the client timeout
+        Thread.sleep(1500);
+
+        releaseFirstJob();
+
+        // The abandoned job is cancelled but still executed so that its status is finished and the threads joining it
+        // are notified
+        verify(abandonedStatus).cancel();
+        assertTrue(this.executed.contains("abandoned"));
+        assertEquals(1, this.executor.getCancelledCount());
+
+        // Jobs with a waiting client and background jobs are never cancelled
+        verify(waitedStatus, never()).cancel();
+        verify(backgroundStatus, never()).cancel();
+    }
+}
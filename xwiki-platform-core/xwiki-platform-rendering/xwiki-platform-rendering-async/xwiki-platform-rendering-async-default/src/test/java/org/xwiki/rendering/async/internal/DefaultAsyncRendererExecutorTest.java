@@ -31,10 +31,11 @@
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 import org.xwiki.component.manager.ComponentLookupException;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContext;
 import org.xwiki.context.concurrent.ContextStoreManager;
 import org.xwiki.job.Job;
 import org.xwiki.job.JobException;
-import org.xwiki.job.JobExecutor;
 import org.xwiki.rendering.RenderingException;
 import org.xwiki.rendering.async.AsyncContext;
 import org.xwiki.test.junit5.mockito.ComponentTest;
@@ -44,9 +45,12 @@
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -64,7 +68,7 @@
     private static final Set<String> CELEMENTS = new LinkedHashSet<>(Arrays.asList(CELEMENT1, CELEMENT2));
 
     @MockComponent
-    private JobExecutor jobs;
+    private AsyncRendererJobExecutor jobs;
 
     @MockComponent
     private AsyncContext asyncContext;
@@ -75,6 +79,12 @@
     @MockComponent
     private ContextStoreManager context;
 
+    @MockComponent
+    private AsyncRendererConfiguration configuration;
+
+    @MockComponent
+    private Execution execution;
+
     @InjectMockComponents
     private DefaultAsyncRendererExecutor executor;
 
@@ -99,13 +109,13 @@ private void beforeEach() throws RenderingException, ComponentLookupException, J
 
         this.job = mock(Job.class);
 
-        when(this.jobs.execute(same(AsyncRendererJobStatus.JOBTYPE), any(AsyncRendererJobRequest.class)))
+        when(this.jobs.execute(any(AsyncRendererJobRequest.class), anyBoolean()))
             .thenAnswer(new Answer<Job>()
             {
                 @Override
                 public Job answer(InvocationOnMock invocation) throws Throwable
                 {
-                    AsyncRendererJobStatus status = new AsyncRendererJobStatus(invocation.getArgument(1), null, null);
+                    AsyncRendererJobStatus status = new AsyncRendererJobStatus(invocation.getArgument(0), null, null);
 
                     status.setResult(renderer.render(true, renderer.isCacheAllowed()));
 
@@ -210,4 +220,53 @@ public void rendererNotAsyncNotCachedContextEnabled() throws JobException, Rende
         assertNull(response.getJobIdHTTPPath());
         assertEquals("false false", response.getStatus().getResult().getResult());
     }
+
+    @Test
+    public void rendererAsyncCachedWithStaleResult() throws JobException, RenderingException
+    {
+        when(this.asyncContext.isEnabled()).thenReturn(true);
+
+        when(this.renderer.getId()).thenReturn(Arrays.asList("1", "2"));
+        when(this.renderer.isAsyncAllowed()).thenReturn(true);
+        when(this.renderer.isCacheAllowed()).thenReturn(true);
+
+        AsyncRendererJobStatus staleStatus =
+            new AsyncRendererJobStatus(new AsyncRendererJobRequest(), new AsyncRendererResult("stale"));
+        when(this.cache.getStale(Arrays.asList("1", "2", "celement1", "value1%5c", "celement2", "value2%2f")))
+            .thenReturn(staleStatus);
+
+        AsyncRendererExecutorResponse response = this.executor.render(this.renderer, CELEMENTS);
+
+        // The stale result is served right away
+        assertNull(response.getAsyncClientId());
+        assertSame(staleStatus, response.getStatus());
+
+        // And a new result is computed in the background
+        verify(this.jobs).execute(any(AsyncRendererJobRequest.class), eq(true));
+    }
+
+    @Test
+    public void rendererAsyncWithTooManyJobsInRequest() throws JobException, RenderingException
+    {
+        when(this.asyncContext.isEnabled()).thenReturn(true);
+        when(this.configuration.getMaxJobsPerRequest()).thenReturn(1);
+        when(this.execution.getContext()).thenReturn(new ExecutionContext());
+
+        when(this.renderer.getId()).thenReturn(Arrays.asList("1", "2"));
+        when(this.renderer.isAsyncAllowed()).thenReturn(true);
+        when(this.renderer.isCacheAllowed()).thenReturn(false);
+
+        AsyncRendererExecutorResponse response = this.executor.render(this.renderer, CELEMENTS);
+
+        assertNotNull(response.getAsyncClientId());
+        assertEquals("true false", response.getStatus().getResult().getResult());
+
+        // The second renderer of the request is executed synchronously
+        response = this.executor.render(this.renderer, CELEMENTS);
+
+        assertNull(response.getAsyncClientId());
+        assertEquals("false false", response.getStatus().getResult().getResult());
+
+        verify(this.jobs).execute(any(AsyncRendererJobRequest.class), eq(false));
+    }
 }
@@ -20,12 +20,15 @@
 package org.xwiki.rendering.internal.macro.include;
 
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.Stack;
 
 import javax.inject.Inject;
 import javax.inject.Named;
+import javax.inject.Provider;
 import javax.inject.Singleton;
 
 import org.xwiki.bridge.DocumentAccessBridge;
@@ -39,6 +42,8 @@
 import org.xwiki.model.reference.EntityReferenceSerializer;
 import org.xwiki.properties.BeanManager;
 import org.xwiki.properties.PropertyException;
+import org.xwiki.rendering.async.AsyncContext;
+import org.xwiki.rendering.async.internal.block.BlockAsyncRendererExecutor;
 import org.xwiki.rendering.block.Block;
 import org.xwiki.rendering.block.MacroBlock;
 import org.xwiki.rendering.block.MacroMarkerBlock;
@@ -101,6 +106,18 @@ public class IncludeMacro extends AbstractMacro<IncludeMacroParameters>
     @Inject
     private BeanManager beans;
 
+    @Inject
+    private AsyncContext asyncContext;
+
+    /**
+     * Used to cache the result of the inclusion (lazily resolved since it's only needed when caching is asked).
+     */
+    @Inject
+    private Provider<BlockAsyncRendererExecutor> executorProvider;
+
+    @Inject
+    private Provider<IncludeMacroRenderer> rendererProvider;
+
     /**
      * A stack of all currently executing include macros with context=new for catching recursive inclusion.
      */
@@ -176,6 +193,9 @@ public List<Block> execute(IncludeMacroParameters parameters, String content, Ma
                     this.documentAccessBridge.getCurrentUserReference(), includedReference));
         }
 
+        // Make sure any cached content containing this inclusion is invalidated when the included document is modified
+        this.asyncContext.useEntity(documentBridge.getDocumentReference());
+
         // Step 4: Display the content of the included document.
 
         // Check the value of the "context" parameter.
@@ -204,7 +224,11 @@ public List<Block> execute(IncludeMacroParameters parameters, String content, Ma
 
         XDOM result;
         try {
-            result = this.documentDisplayer.display(documentBridge, displayParameters);
+            if (parametersContext == Context.NEW && parameters.isCached()) {
+                result = displayCached(documentBridge, displayParameters, parameters, context);
+            } else {
+                result = this.documentDisplayer.display(documentBridge, displayParameters);
+            }
         } catch (Exception e) {
             throw new MacroExecutionException(e.getMessage(), e);
         } finally {
@@ -225,6 +249,53 @@ public List<Block> execute(IncludeMacroParameters parameters, String content, Ma
         return Arrays.<Block>asList(metadata);
     }
 
+    /**
+     * Display the included document through the asynchronous rendering framework so that the result is reused as long
+     * as the included documents and the configured context entries don't change.
+     * <p>
+     * Only supported with {@link Context#NEW} since with {@link Context#CURRENT} the macros of the included document
+     * are executed later in the context of the including document.
+     * 
+     * @param document the included document
+     * @param displayParameters the parameters of the display
+     * @param parameters the parameters of the macro
+     * @param context the macro transformation context
+     * @return the result of the display
+     * @throws Exception when failing to display the document
+     */
+    private XDOM displayCached(DocumentModelBridge document, DocumentDisplayerParameters displayParameters,
+        IncludeMacroParameters parameters, MacroTransformationContext context) throws Exception
+    {
+        List<String> id = Arrays.asList("rendering", "macro", "include",
+            this.defaultEntityReferenceSerializer.serialize(document.getDocumentReference()),
+            String.valueOf(parameters.getSection()), String.valueOf(displayParameters.getTargetSyntax()),
+            String.valueOf(displayParameters.isTransformationContextRestricted()));
+
+        IncludeMacroRenderer renderer = this.rendererProvider.get();
+        renderer.initialize(id, document, displayParameters, context.isInline());
+
+        Block block = this.executorProvider.get().execute(renderer, getCacheContextEntries(parameters));
+
+        // The cached XDOM is shared between all the executions so it should never be modified
+        return (XDOM) block.clone();
+    }
+
+    private Set<String> getCacheContextEntries(IncludeMacroParameters parameters)
+    {
+        Set<String> entries = new HashSet<>();
+
+        if (parameters.getCacheContext() != null) {
+            for (String entry : parameters.getCacheContext().split(",")) {
+                String trimmedEntry = entry.trim();
+                if (!trimmedEntry.isEmpty()) {
+                    entries.add(trimmedEntry);
+                }
+            }
+        }
+
+        return entries;
+    }
+
     /**
      * Protect form recursive inclusion.
      * 
@@ -0,0 +1,112 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.macro.include;
+
+import java.util.List;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.xwiki.bridge.DocumentModelBridge;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.display.internal.DocumentDisplayer;
+import org.xwiki.display.internal.DocumentDisplayerParameters;
+import org.xwiki.rendering.RenderingException;
+import org.xwiki.rendering.async.AsyncContext;
+import org.xwiki.rendering.async.internal.block.AbstractBlockAsyncRenderer;
+import org.xwiki.rendering.async.internal.block.BlockAsyncRendererResult;
+import org.xwiki.rendering.block.XDOM;
+
+/**
+ * Display the included document so that the result can be cached by the asynchronous rendering framework.
+ * 
+ * @version $Id$
+ * @since 11.0RC1
+ */
+@Component(roles = IncludeMacroRenderer.class)
+public class IncludeMacroRenderer extends AbstractBlockAsyncRenderer
+{
+    @Inject
+    @Named("configured")
+    private DocumentDisplayer documentDisplayer;
+
+    @Inject
+    private AsyncContext asyncContext;
+
+    private List<String> id;
+
+    private DocumentModelBridge document;
+
+    private DocumentDisplayerParameters displayParameters;
+
+    private boolean inline;
+
+    void initialize(List<String> id, DocumentModelBridge document, DocumentDisplayerParameters displayParameters,
+        boolean inline)
+    {
+        this.id = id;
+        this.document = document;
+        this.displayParameters = displayParameters;
+        this.inline = inline;
+    }
+
+    @Override
+    public List<String> getId()
+    {
+        return this.id;
+    }
+
+    @Override
+    public boolean isAsyncAllowed()
+    {
+        // The included content is inserted in the including page XDOM
+        return false;
+    }
+
+    @Override
+    public boolean isCacheAllowed()
+    {
+        return true;
+    }
+
+    @Override
+    public boolean isInline()
+    {
+        return this.inline;
+    }
+
+    @Override
+    public BlockAsyncRendererResult render(boolean async, boolean cached) throws RenderingException
+    {
+        // Make sure the cache entry is invalidated when the included document is modified
+        this.asyncContext.useEntity(this.document.getDocumentReference());
+
+        XDOM result;
+        try {
+            result = this.documentDisplayer.display(this.document, this.displayParameters);
+        } catch (Exception e) {
+            throw new RenderingException(
+                String.format("Failed to display document [%s]", this.document.getDocumentReference()), e);
+        }
+
+        // The result is never sent to a client as a String since asynchronous execution is disabled
+        return new BlockAsyncRendererResult(null, result);
+    }
+}
@@ -23,6 +23,7 @@
 import org.xwiki.properties.annotation.PropertyDescription;
 import org.xwiki.properties.annotation.PropertyFeature;
 import org.xwiki.properties.annotation.PropertyGroup;
+import org.xwiki.stability.Unstable;
 
 /**
  * Parameters for the {@link org.xwiki.rendering.internal.macro.include.IncludeMacro} Macro.
@@ -69,6 +70,16 @@
      */
     private String section;
 
+    /**
+     * @see #isCached()
+     */
+    private boolean cached;
+
+    /**
+     * @see #getCacheContext()
+     */
+    private String cacheContext = "wiki,user,locale";
+
     /**
      * @param reference the reference of the resource to include
      * @since 3.4M1
@@ -159,4 +170,50 @@ public void setPage(String page)
         this.reference = page;
         this.type = EntityType.PAGE;
     }
+
+    /**
+     * @param cached see {@link #isCached()}
+     * @since 11.0RC1
+     */
+    @PropertyDescription("reuse the result of the inclusion across requests as long as the included documents and the"
+        + " cache context entries don't change (only supported when context is new)")
+    @Unstable
+    public void setCached(boolean cached)
+    {
+        this.cached = cached;
+    }
+
+    /**
+     * @return true if the result of the inclusion should be cached and reused across requests, only supported with
+     *         {@link Context#NEW}
+     * @since 11.0RC1
+     */
+    @Unstable
+    public boolean isCached()
+    {
+        return this.cached;
+    }
+
+    /**
+     * @param cacheContext see {@link #getCacheContext()}
+     * @since 11.0RC1
+     */
+    @PropertyDescription("the comma separated list of context entries (wiki, user, author, locale, etc.) the cached"
+        + " result depends on")
+    @Unstable
+    public void setCacheContext(String cacheContext)
+    {
+        this.cacheContext = cacheContext;
+    }
+
+    /**
+     * @return the comma separated list of context entries (wiki, user, author, locale, etc.) the cached result depends
+     *         on, a different cache entry is produced for each combination of values
+     * @since 11.0RC1
+     */
+    @Unstable
+    public String getCacheContext()
+    {
+        return this.cacheContext;
+    }
 }
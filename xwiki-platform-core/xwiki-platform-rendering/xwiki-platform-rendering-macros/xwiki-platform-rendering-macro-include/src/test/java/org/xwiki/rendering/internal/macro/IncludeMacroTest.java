@@ -25,6 +25,7 @@
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.hamcrest.collection.IsArray;
 import org.jmock.Expectations;
@@ -40,12 +41,14 @@
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.EntityReference;
 import org.xwiki.model.reference.EntityReferenceResolver;
+import org.xwiki.rendering.async.internal.block.BlockAsyncRendererExecutor;
 import org.xwiki.rendering.block.Block;
 import org.xwiki.rendering.block.MacroBlock;
 import org.xwiki.rendering.block.MacroMarkerBlock;
 import org.xwiki.rendering.block.MetaDataBlock;
 import org.xwiki.rendering.block.XDOM;
 import org.xwiki.rendering.internal.macro.include.IncludeMacro;
+import org.xwiki.rendering.internal.macro.include.IncludeMacroRenderer;
 import org.xwiki.rendering.internal.transformation.macro.MacroTransformation;
 import org.xwiki.rendering.listener.MetaData;
 import org.xwiki.rendering.macro.Macro;
@@ -201,6 +204,48 @@ public void testIncludeMacroWithCurrentContextShowsVelocityMacrosAreShared() thr
         assertBlocks(expected, blocks, this.rendererFactory);
     }
 
+    @Test
+    public void testIncludeMacroWithNewContextAndCached() throws Exception
+    {
+        // @formatter:off
+        String expected = "beginDocument\n"
+            + "beginMetaData [[base]=[wiki:Space.IncludedPage][source]=[wiki:Space.IncludedPage][syntax]=[XWiki 2.0]]\n"
+            + "beginParagraph\n"
+            + "onWord [cached]\n"
+            + "endParagraph\n"
+            + "endMetaData [[base]=[wiki:Space.IncludedPage][source]=[wiki:Space.IncludedPage][syntax]=[XWiki 2.0]]\n"
+            + "endDocument";
+        // @formatter:on
+
+        final BlockAsyncRendererExecutor mockExecutor = registerMockComponent(BlockAsyncRendererExecutor.class);
+        final DocumentReference includedDocumentReference = new DocumentReference("wiki", "Space", "IncludedPage");
+        final XDOM cachedXDOM = getXDOM("cached");
+        setUpDocumentMock("wiki:space.page", includedDocumentReference, "word");
+        getMockery().checking(new Expectations()
+        {
+            {
+                oneOf(mockContextualAuthorization).hasAccess(with(Right.VIEW), with(same(includedDocumentReference)));
+                will(returnValue(true));
+                oneOf(mockExecutor).execute(with(any(IncludeMacroRenderer.class)), with(any(Set.class)));
+                will(returnValue(cachedXDOM));
+            }
+        });
+        this.includeMacro.setDocumentAccessBridge(this.mockSetup.bridge);
+
+        IncludeMacroParameters parameters = new IncludeMacroParameters();
+        parameters.setReference("wiki:space.page");
+        parameters.setContext(Context.NEW);
+        parameters.setCached(true);
+
+        List<Block> blocks =
+            this.includeMacro.execute(parameters, null, createMacroTransformationContext("whatever", false));
+
+        assertBlocks(expected, blocks, this.rendererFactory);
+
+        // The cached XDOM should never be modified
+        Assert.assertSame(cachedXDOM, cachedXDOM.getChildren().get(0).getParent());
+    }
+
     @Test
     public void testIncludeMacroWithNoDocumentSpecified() throws Exception
     {
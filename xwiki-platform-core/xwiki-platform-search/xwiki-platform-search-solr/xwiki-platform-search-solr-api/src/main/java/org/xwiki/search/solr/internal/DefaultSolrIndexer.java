@@ -19,14 +19,26 @@
  */
 package org.xwiki.search.solr.internal;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
 
 import javax.inject.Inject;
 import javax.inject.Provider;
 import javax.inject.Singleton;
 
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.apache.solr.common.SolrInputDocument;
 import org.slf4j.Logger;
 import org.xwiki.component.annotation.Component;
@@ -62,7 +74,9 @@
  * <p>
  * This implementation does not directly process the given leaf-references, but adds them to a processing queue, in the
  * order they were received. The {@link Runnable} part of this implementation is the one that sequentially reads and
- * processes the queue.
+ * processes the queue. The metadata of the entities to index is extracted in a pool of threads (see
+ * {@link SolrConfiguration#getIndexerThreads()}) but the result is always sent to the Solr server in the order of the
+ * queue.
  * 
  * @version $Id$
  * @since 5.1M2
@@ -97,6 +111,17 @@ public class DefaultSolrIndexer implements SolrIndexer, Initializable, Disposabl
          */
         public IndexOperation operation;
 
+        /**
+         * Indicate if the entry has been taken from the index queue, in which case its operation can't be modified
+         * anymore.
+         */
+        public boolean dequeued;
+
+        /**
+         * Completed once the operations queued before a {@link IndexOperation#FLUSH} entry have been committed.
+         */
+        public CompletableFuture<Void> flushed;
+
         /**
          * @param indexReference the reference of the entity to index.
          * @param operation the indexing operation to perform.
@@ -117,6 +142,15 @@ public IndexQueueEntry(String deleteQuery, IndexOperation operation)
             this.operation = operation;
         }
 
+        /**
+         * @param flushed completed once the operations queued before the entry have been committed
+         */
+        public IndexQueueEntry(CompletableFuture<Void> flushed)
+        {
+            this.operation = IndexOperation.FLUSH;
+            this.flushed = flushed;
+        }
+
         @Override
         public String toString()
         {
@@ -129,6 +163,9 @@ public String toString()
                 case DELETE:
                     str = "DELETE " + this.deleteQuery;
                     break;
+                case FLUSH:
+                    str = "FLUSH";
+                    break;
                 case STOP:
                     str = "STOP";
                     break;
@@ -163,6 +200,11 @@ public String toString()
          */
         public IndexOperation operation;
 
+        /**
+         * Completed once the operations queued before a {@link IndexOperation#FLUSH} entry have been committed.
+         */
+        public CompletableFuture<Void> flushed;
+
         /**
          * @param reference the reference of the entity to index.
          * @param recurse also apply operation to reference children.
@@ -174,6 +216,43 @@ public ResolveQueueEntry(EntityReference reference, boolean recurse, IndexOperat
             this.recurse = recurse;
             this.operation = operation;
         }
+
+        /**
+         * @param flushed completed once the operations queued before the entry have been committed
+         */
+        public ResolveQueueEntry(CompletableFuture<Void> flushed)
+        {
+            this.operation = IndexOperation.FLUSH;
+            this.flushed = flushed;
+        }
+    }
+
+    /**
+     * An entry of the index queue which is being processed.
+     * 
+     * @version $Id$
+     */
+    private static class PendingEntry
+    {
+        /**
+         * The index queue entry.
+         */
+        public IndexQueueEntry entry;
+
+        /**
+         * The result of the metadata extraction for {@link IndexOperation#INDEX} operations.
+         */
+        public Future<LengthSolrInputDocument> document;
+
+        /**
+         * @param entry the index queue entry
+         * @param document the result of the metadata extraction
+         */
+        public PendingEntry(IndexQueueEntry entry, Future<LengthSolrInputDocument> document)
+        {
+            this.entry = entry;
+            this.document = document;
+        }
     }
 
     /**
@@ -199,13 +278,15 @@ public void runInternal()
 
                 if (queueEntry == RESOLVE_QUEUE_ENTRY_STOP) {
                     // Stop the index thread: clear the queue and send the stop signal without blocking.
-                    indexQueue.clear();
+                    clearIndexQueue();
                     indexQueue.offer(INDEX_QUEUE_ENTRY_STOP);
                     break;
                 }
 
                 try {
-                    if (queueEntry.operation == IndexOperation.INDEX) {
+                    if (queueEntry.operation == IndexOperation.FLUSH) {
+                        addToIndexQueue(new IndexQueueEntry(queueEntry.flushed));
+                    } else if (queueEntry.operation == IndexOperation.INDEX) {
                         Iterable<EntityReference> references;
                         if (queueEntry.recurse) {
                             references = solrRefereceResolver.getReferences(queueEntry.reference);
@@ -214,19 +295,23 @@ public void runInternal()
                         }
 
                         for (EntityReference reference : references) {
-                            indexQueue.put(new IndexQueueEntry(reference, queueEntry.operation));
+                            addToIndexQueue(new IndexQueueEntry(reference, queueEntry.operation));
                         }
                     } else {
                         if (queueEntry.recurse) {
-                            indexQueue.put(new IndexQueueEntry(solrRefereceResolver.getQuery(queueEntry.reference),
+                            addToIndexQueue(new IndexQueueEntry(solrRefereceResolver.getQuery(queueEntry.reference),
                                 queueEntry.operation));
                         } else if (queueEntry.reference != null) {
-                            indexQueue.put(new IndexQueueEntry(queueEntry.reference, queueEntry.operation));
+                            addToIndexQueue(new IndexQueueEntry(queueEntry.reference, queueEntry.operation));
                         }
                     }
                 } catch (Throwable e) {
                     logger.warn("Failed to apply operation [{}] on root reference [{}]", queueEntry.operation,
                         queueEntry.reference, e);
+
+                    if (queueEntry.flushed != null) {
+                        queueEntry.flushed.completeExceptionally(e);
+                    }
                 }
             }
 
@@ -290,6 +375,11 @@ public void runInternal()
      */
     private BlockingQueue<IndexQueueEntry> indexQueue;
 
+    /**
+     * The entries of the index queue which are associated with a reference and have not been taken yet.
+     */
+    private final Map<EntityReference, IndexQueueEntry> queuedEntries = new ConcurrentHashMap<>();
+
     /**
      * The queue of resolve references and add them to the index queue.
      */
@@ -305,6 +395,21 @@ public void runInternal()
      */
     private Thread resolveThread;
 
+    /**
+     * The threads in which the metadata of the entities to index is extracted.
+     */
+    private ExecutorService extractorExecutor;
+
+    /**
+     * The maximum number of entries being extracted at the same time.
+     */
+    private int maxPendingSize;
+
+    /**
+     * The number of entries taken from the index queue but not yet added to the batch.
+     */
+    private volatile int pendingSize;
+
     /**
      * Indicate of the component has been disposed.
      */
@@ -315,6 +420,16 @@ public void runInternal()
      */
     private volatile int batchSize;
 
+    /**
+     * The length of the not yet sent batch.
+     */
+    private int batchLength;
+
+    /**
+     * The last commit failure since the last {@link IndexOperation#FLUSH} entry was processed.
+     */
+    private Exception commitFailure;
+
     @Override
     public void initialize() throws InitializationException
     {
@@ -322,6 +437,14 @@ public void initialize() throws InitializationException
         this.resolveQueue = new LinkedBlockingQueue<>();
         this.indexQueue = new LinkedBlockingQueue<>(this.configuration.getIndexerQueueCapacity());
 
+        // Create the metadata extraction threads
+        int threads = Math.max(1, this.configuration.getIndexerThreads());
+        BasicThreadFactory factory = new BasicThreadFactory.Builder().namingPattern("XWiki Solr extractor thread %d")
+            .daemon(true).priority(Thread.NORM_PRIORITY - 1).build();
+        this.extractorExecutor = Executors.newFixedThreadPool(threads, factory);
+        // Make sure all the threads have something to do while the index thread is waiting for the first entry
+        this.maxPendingSize = threads * 2;
+
         // Launch the resolve thread
         this.resolveThread = new Thread(new Resolver());
         this.resolveThread.setName("XWiki Solr resolve thread");
@@ -345,15 +468,36 @@ public void dispose() throws ComponentLifecycleException
 
         // Stop the resolve thread. Clear the queue and send the stop signal without blocking. We know that the resolve
         // queue will remain empty after the clear call because we set the disposed flag above.
-        this.resolveQueue.clear();
+        List<ResolveQueueEntry> resolveEntries = new ArrayList<>();
+        this.resolveQueue.drainTo(resolveEntries);
+        for (ResolveQueueEntry resolveEntry : resolveEntries) {
+            if (resolveEntry.flushed != null) {
+                resolveEntry.flushed.cancel(false);
+            }
+        }
         this.resolveQueue.offer(RESOLVE_QUEUE_ENTRY_STOP);
 
         // Stop the index thread. Clear the queue and send the stop signal without blocking. There should be enough
         // space in the index queue before the special stop entry is added as long the the index queue capacity is
         // greater than 1. In the worse case, the clear call will unblock the resolve thread (which was waiting because
         // the index queue was full) and just one entry will be added to the queue before the special stop entry.
-        this.indexQueue.clear();
+        clearIndexQueue();
         this.indexQueue.offer(INDEX_QUEUE_ENTRY_STOP);
+        this.queuedEntries.clear();
+    }
+
+    /**
+     * Remove all the entries from the index queue, cancelling the flush requests which won't be processed.
+     */
+    private void clearIndexQueue()
+    {
+        List<IndexQueueEntry> indexEntries = new ArrayList<>();
+        this.indexQueue.drainTo(indexEntries);
+        for (IndexQueueEntry indexEntry : indexEntries) {
+            if (indexEntry.flushed != null) {
+                indexEntry.flushed.cancel(false);
+            }
+        }
     }
 
     @Override
@@ -365,7 +509,7 @@ public void run()
             // Block until there is at least one entry in the queue
             IndexQueueEntry queueEntry = null;
             try {
-                queueEntry = this.indexQueue.take();
+                queueEntry = dequeued(this.indexQueue.take());
             } catch (InterruptedException e) {
                 this.logger.warn("The SOLR index thread has been interrupted", e);
 
@@ -379,70 +523,225 @@ public void run()
             }
         }
 
+        // The index thread is the only one submitting extraction tasks
+        this.extractorExecutor.shutdownNow();
+
         this.logger.debug("Stop SOLR indexer thread");
     }
 
+    /**
+     * Add an entry to the index queue, unless an entry for the same reference is already waiting in the queue, in
+     * which case the waiting entry takes the operation of the new one (latest operation wins). Since the metadata is
+     * extracted when the entry is processed, the waiting entry will index the latest version of the entity anyway.
+     * 
+     * @param queueEntry the entry to add
+     * @throws InterruptedException if interrupted while waiting for space in the index queue
+     */
+    private void addToIndexQueue(IndexQueueEntry queueEntry) throws InterruptedException
+    {
+        if (queueEntry.reference != null) {
+            IndexQueueEntry queuedEntry = this.queuedEntries.get(queueEntry.reference);
+            if (queuedEntry != null) {
+                synchronized (queuedEntry) {
+                    if (!queuedEntry.dequeued) {
+                        this.logger.debug("Merging operation [{}] with queued entry [{}]", queueEntry.operation,
+                            queuedEntry);
+
+                        queuedEntry.operation = queueEntry.operation;
+
+                        return;
+                    }
+                }
+            }
+
+            this.queuedEntries.put(queueEntry.reference, queueEntry);
+        } else {
+            // A delete query can target any of the queued references and a flush must not cover the operations queued
+            // after it, so the entries queued before it must not be merged with the ones queued after it.
+            this.queuedEntries.clear();
+        }
+
+        this.indexQueue.put(queueEntry);
+    }
+
+    /**
+     * Mark the passed entry as taken from the index queue so that it's not modified anymore.
+     * 
+     * @param queueEntry the entry taken from the index queue
+     * @return the passed entry
+     */
+    private IndexQueueEntry dequeued(IndexQueueEntry queueEntry)
+    {
+        if (queueEntry != null && queueEntry.reference != null) {
+            synchronized (queueEntry) {
+                queueEntry.dequeued = true;
+            }
+
+            this.queuedEntries.remove(queueEntry.reference, queueEntry);
+        }
+
+        return queueEntry;
+    }
+
     /**
      * Process a batch of operations that were just read from the index operations queue. This method also commits the
      * batch when it finishes to process it.
+     * <p>
+     * The metadata of the entities to index is extracted in parallel but the operations are applied in the order in
+     * which they were read from the queue so that several operations on the same reference are never reordered.
      * 
      * @param queueEntry the batch to process
      * @return {@code true} to wait for another batch, {@code false} to stop the indexing thread
      */
     private boolean processBatch(IndexQueueEntry queueEntry)
     {
-        SolrInstance solrInstance = this.solrInstanceProvider.get();
-
-        int length = 0;
+        Deque<PendingEntry> pending = new ArrayDeque<>();
 
-        for (IndexQueueEntry batchEntry = queueEntry; batchEntry != null; batchEntry = this.indexQueue.poll()) {
+        for (IndexQueueEntry batchEntry = queueEntry; batchEntry != null;
+            batchEntry = dequeued(this.indexQueue.poll())) {
             if (batchEntry == INDEX_QUEUE_ENTRY_STOP) {
                 // Discard the current batch and stop the indexing thread.
+                for (PendingEntry pendingEntry : pending) {
+                    if (pendingEntry.document != null) {
+                        pendingEntry.document.cancel(false);
+                    }
+                }
+                this.pendingSize = 0;
+
                 return false;
             }
 
-            IndexOperation operation = batchEntry.operation;
-
-            // For the current contiguous operations queue, group the changes
-            try {
-                this.ecim.initialize(new ExecutionContext());
-
-                if (IndexOperation.INDEX.equals(operation)) {
-                    LengthSolrInputDocument solrDocument = getSolrDocument(batchEntry.reference);
-                    if (solrDocument != null) {
-                        solrInstance.add(solrDocument);
-                        length += solrDocument.getLength();
-                        ++this.batchSize;
-                    }
-                } else if (IndexOperation.DELETE.equals(operation)) {
-                    if (batchEntry.reference == null) {
-                        solrInstance.deleteByQuery(batchEntry.deleteQuery);
-                    } else {
-                        solrInstance.delete(this.solrRefereceResolver.getId(batchEntry.reference));
-                    }
+            if (batchEntry.operation == IndexOperation.FLUSH) {
+                flush(pending, batchEntry.flushed);
 
-                    ++this.batchSize;
-                }
-            } catch (Throwable e) {
-                this.logger.error("Failed to process entry [{}]", batchEntry, e);
-            } finally {
-                this.execution.removeContext();
+                continue;
             }
 
-            // Commit the index changes so that they become available to queries. This is a costly operation and that is
-            // the reason why we perform it at the end of the batch.
-            if (shouldCommit(length, this.batchSize)) {
-                commit();
-                length = 0;
+            pending.add(extract(batchEntry));
+            this.pendingSize = pending.size();
+
+            // Don't extract too many entries in advance
+            while (pending.size() > this.maxPendingSize) {
+                apply(pending.poll());
+                this.pendingSize = pending.size();
             }
         }
 
-        // Commit what's left
+        // Apply and commit what's left
+        applyAll(pending);
+
+        return true;
+    }
+
+    /**
+     * Apply and commit the pending entries and notify the caller of {@link #flush()}.
+     * 
+     * @param pending the entries taken from the index queue before the flush entry
+     * @param flushed the future to complete once the entries are committed
+     */
+    private void flush(Deque<PendingEntry> pending, CompletableFuture<Void> flushed)
+    {
+        applyAll(pending);
+
+        if (this.commitFailure != null) {
+            flushed.completeExceptionally(this.commitFailure);
+        } else {
+            flushed.complete(null);
+        }
+        this.commitFailure = null;
+    }
+
+    /**
+     * Apply the pending entries and commit the current batch.
+     * 
+     * @param pending the entries to apply
+     */
+    private void applyAll(Deque<PendingEntry> pending)
+    {
+        while (!pending.isEmpty()) {
+            apply(pending.poll());
+            this.pendingSize = pending.size();
+        }
+
         if (this.batchSize > 0) {
             commit();
         }
+    }
 
-        return true;
+    /**
+     * Start the metadata extraction of the passed entry in the extractor threads.
+     * 
+     * @param queueEntry the entry read from the index queue
+     * @return the pending entry
+     */
+    private PendingEntry extract(IndexQueueEntry queueEntry)
+    {
+        Future<LengthSolrInputDocument> document = null;
+
+        if (IndexOperation.INDEX.equals(queueEntry.operation)) {
+            document = this.extractorExecutor.submit(() -> {
+                try {
+                    this.ecim.initialize(new ExecutionContext());
+
+                    return getSolrDocument(queueEntry.reference);
+                } finally {
+                    this.execution.removeContext();
+                }
+            });
+        }
+
+        return new PendingEntry(queueEntry, document);
+    }
+
+    /**
+     * Add the passed entry to the current batch and commit the batch if it's big enough.
+     * 
+     * @param pendingEntry the entry to apply
+     */
+    private void apply(PendingEntry pendingEntry)
+    {
+        SolrInstance solrInstance = this.solrInstanceProvider.get();
+
+        IndexQueueEntry batchEntry = pendingEntry.entry;
+        IndexOperation operation = batchEntry.operation;
+
+        // For the current contiguous operations queue, group the changes
+        try {
+            this.ecim.initialize(new ExecutionContext());
+
+            if (IndexOperation.INDEX.equals(operation)) {
+                LengthSolrInputDocument solrDocument = pendingEntry.document.get();
+                if (solrDocument != null) {
+                    solrInstance.add(solrDocument);
+                    this.batchLength += solrDocument.getLength();
+                    ++this.batchSize;
+                }
+            } else if (IndexOperation.DELETE.equals(operation)) {
+                if (batchEntry.reference == null) {
+                    solrInstance.deleteByQuery(batchEntry.deleteQuery);
+                } else {
+                    solrInstance.delete(this.solrRefereceResolver.getId(batchEntry.reference));
+                }
+
+                ++this.batchSize;
+            }
+        } catch (ExecutionException e) {
+            this.logger.error("Failed to process entry [{}]", batchEntry, e.getCause());
+        } catch (InterruptedException e) {
+            this.logger.warn("The SOLR index thread has been interrupted while processing entry [{}]", batchEntry, e);
+
+            Thread.currentThread().interrupt();
+        } catch (Throwable e) {
+            this.logger.error("Failed to process entry [{}]", batchEntry, e);
+        } finally {
+            this.execution.removeContext();
+        }
+
+        // Commit the index changes so that they become available to queries. This is a costly operation and that is
+        // the reason why we perform it at the end of the batch.
+        if (shouldCommit(this.batchLength, this.batchSize)) {
+            commit();
+        }
     }
 
     /**
@@ -457,6 +756,8 @@ private void commit()
         } catch (Exception e) {
             this.logger.error("Failed to commit index changes to the Solr server. Rolling back.", e);
 
+            this.commitFailure = e;
+
             try {
                 solrInstance.rollback();
             } catch (Exception ex) {
@@ -466,6 +767,7 @@ private void commit()
         }
 
         this.batchSize = 0;
+        this.batchLength = 0;
     }
 
     /**
@@ -554,10 +856,32 @@ private void addToQueue(EntityReference reference, boolean recurse, IndexOperati
         }
     }
 
+    @Override
+    public Future<Void> flush()
+    {
+        CompletableFuture<Void> flushed = new CompletableFuture<>();
+
+        // The flush entry goes through the resolve queue so that it's processed after the references resolved from the
+        // entries queued before it.
+        try {
+            if (!this.disposed) {
+                this.resolveQueue.put(new ResolveQueueEntry(flushed));
+            } else {
+                flushed.cancel(false);
+            }
+        } catch (InterruptedException e) {
+            flushed.completeExceptionally(e);
+
+            Thread.currentThread().interrupt();
+        }
+
+        return flushed;
+    }
+
     @Override
     public int getQueueSize()
     {
-        return this.indexQueue.size() + this.resolveQueue.size() + this.batchSize;
+        return this.indexQueue.size() + this.resolveQueue.size() + this.pendingSize + this.batchSize;
     }
 
     @Override
@@ -39,6 +39,13 @@
 
     // General operations
 
+    /**
+     * Commit the operations queued before the entry.
+     *
+     * @since 11.0RC1
+     */
+    FLUSH,
+
     /**
      * Stop indexing thread.
      */
@@ -89,6 +89,8 @@ public void onEvent(Event event, Object source, Object data)
             // Start synchronization
             IndexerRequest request = new IndexerRequest();
             request.setId(Arrays.asList("solr", "indexer"));
+            // Continue the synchronization which was running when XWiki was stopped, if any
+            request.setResume(true);
 
             try {
                 this.solrIndexer.get().startIndex(request);
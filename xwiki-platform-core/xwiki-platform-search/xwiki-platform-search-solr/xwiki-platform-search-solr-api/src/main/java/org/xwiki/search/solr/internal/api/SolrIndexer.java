@@ -19,6 +19,8 @@
  */
 package org.xwiki.search.solr.internal.api;
 
+import java.util.concurrent.Future;
+
 import org.xwiki.component.annotation.Role;
 import org.xwiki.model.reference.EntityReference;
 import org.xwiki.search.solr.internal.job.IndexerJob;
@@ -55,6 +57,15 @@
      */
     void delete(EntityReference reference, boolean recurse);
 
+    /**
+     * Commit all the operations queued before the call.
+     * 
+     * @return a future completed once the operations queued before the call have been applied and committed to the
+     *         index, or completed exceptionally if they could not be committed
+     * @since 11.0RC1
+     */
+    Future<Void> flush();
+
     /**
      * @return the number of element in the index/delete queue
      */
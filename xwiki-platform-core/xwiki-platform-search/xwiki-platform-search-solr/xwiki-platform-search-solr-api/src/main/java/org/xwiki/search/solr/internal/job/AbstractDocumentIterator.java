@@ -19,6 +19,8 @@
  */
 package org.xwiki.search.solr.internal.job;
 
+import java.util.Date;
+
 import javax.inject.Inject;
 
 import org.slf4j.Logger;
@@ -49,6 +51,14 @@
      */
     protected EntityReference rootReference;
 
+    /**
+     * Specifies the minimum modification date of the iterated documents. If {@code null} then the modification date is
+     * ignored.
+     * 
+     * @since 11.0RC1
+     */
+    protected Date modifiedSince;
+
     @Override
     public void remove()
     {
@@ -60,4 +70,10 @@ public void setRootReference(EntityReference rootReference)
     {
         this.rootReference = rootReference;
     }
+
+    @Override
+    public void setModifiedSince(Date modifiedSince)
+    {
+        this.modifiedSince = modifiedSince;
+    }
 }
@@ -0,0 +1,120 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.search.solr.internal.job;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReference;
+
+/**
+ * The progress of an {@link IndexerJob}, used to resume the synchronization of the Solr index when it has been
+ * interrupted (e.g. because the node was stopped).
+ * 
+ * @version $Id$
+ * @since 11.0RC1
+ */
+public class IndexerCheckpoint
+{
+    /**
+     * @see #getRootReference()
+     */
+    private final EntityReference rootReference;
+
+    /**
+     * The last processed document of each wiki.
+     */
+    private final Map<String, DocumentReference> lastReferences = new HashMap<>();
+
+    /**
+     * The wikis which have been fully processed.
+     */
+    private final Set<String> completedWikis = new HashSet<>();
+
+    /**
+     * @param rootReference the reference of the entity being synchronized, {@code null} for the whole farm
+     */
+    public IndexerCheckpoint(EntityReference rootReference)
+    {
+        this.rootReference = rootReference;
+    }
+
+    /**
+     * @return the reference of the entity being synchronized, {@code null} for the whole farm
+     */
+    public EntityReference getRootReference()
+    {
+        return this.rootReference;
+    }
+
+    /**
+     * @param wiki the identifier of the wiki
+     * @return the last document processed in the passed wiki, {@code null} if none
+     */
+    public DocumentReference getLastReference(String wiki)
+    {
+        return this.lastReferences.get(wiki);
+    }
+
+    /**
+     * @param reference the last processed document
+     */
+    public void setLastReference(DocumentReference reference)
+    {
+        this.lastReferences.put(reference.getWikiReference().getName(), reference);
+    }
+
+    /**
+     * @return the last processed document of each wiki
+     */
+    public Map<String, DocumentReference> getLastReferences()
+    {
+        return this.lastReferences;
+    }
+
+    /**
+     * @param wiki the identifier of the wiki
+     * @return {@code true} if the passed wiki has been fully processed
+     */
+    public boolean isCompleted(String wiki)
+    {
+        return this.completedWikis.contains(wiki);
+    }
+
+    /**
+     * @param wiki the identifier of the wiki which has been fully processed
+     */
+    public void setCompleted(String wiki)
+    {
+        this.completedWikis.add(wiki);
+        this.lastReferences.remove(wiki);
+    }
+
+    /**
+     * @return the wikis which have been fully processed
+     */
+    public Set<String> getCompletedWikis()
+    {
+        return this.completedWikis;
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.search.solr.internal.job;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Properties;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.apache.commons.lang3.LocaleUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.environment.Environment;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.model.reference.EntityReference;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+
+/**
+ * Persists the {@link IndexerCheckpoint}s in the permanent directory so that they survive a restart.
+ * 
+ * @version $Id$
+ * @since 11.0RC1
+ */
+@Component(roles = IndexerCheckpointStore.class)
+@Singleton
+public class IndexerCheckpointStore
+{
+    /**
+     * The subdirectory in the permanent directory where the checkpoints are stored.
+     */
+    public static final String ROOT_DIRECTORY = "solr-indexer";
+
+    private static final String FARM = "farm";
+
+    private static final String SUFFIX_REFERENCE = ".reference";
+
+    private static final String SUFFIX_LOCALE = ".locale";
+
+    private static final String SUFFIX_COMPLETED = ".completed";
+
+    @Inject
+    private Environment environment;
+
+    @Inject
+    private EntityReferenceSerializer<String> serializer;
+
+    @Inject
+    private DocumentReferenceResolver<String> resolver;
+
+    @Inject
+    private Logger logger;
+
+    /**
+     * @param rootReference the reference of the entity being synchronized, {@code null} for the whole farm
+     * @return the stored checkpoint, or an empty one if none could be found
+     */
+    public IndexerCheckpoint load(EntityReference rootReference)
+    {
+        IndexerCheckpoint checkpoint = new IndexerCheckpoint(rootReference);
+
+        File file = getFile(rootReference);
+        if (file.exists()) {
+            Properties properties = new Properties();
+            try (InputStream stream = new FileInputStream(file)) {
+                properties.load(stream);
+            } catch (IOException e) {
+                this.logger.warn("Failed to load the Solr indexer checkpoint from [{}]", file, e);
+
+                return checkpoint;
+            }
+
+            for (String key : properties.stringPropertyNames()) {
+                if (key.endsWith(SUFFIX_COMPLETED)) {
+                    checkpoint.setCompleted(StringUtils.removeEnd(key, SUFFIX_COMPLETED));
+                }
+            }
+            for (String key : properties.stringPropertyNames()) {
+                if (key.endsWith(SUFFIX_REFERENCE)) {
+                    String wiki = StringUtils.removeEnd(key, SUFFIX_REFERENCE);
+                    if (!checkpoint.isCompleted(wiki)) {
+                        DocumentReference reference = this.resolver.resolve(properties.getProperty(key));
+                        String locale = properties.getProperty(wiki + SUFFIX_LOCALE);
+                        if (StringUtils.isNotEmpty(locale)) {
+                            reference = new DocumentReference(reference, LocaleUtils.toLocale(locale));
+                        }
+                        checkpoint.setLastReference(reference);
+                    }
+                }
+            }
+        }
+
+        return checkpoint;
+    }
+
+    /**
+     * @param checkpoint the checkpoint to store
+     */
+    public void save(IndexerCheckpoint checkpoint)
+    {
+        Properties properties = new Properties();
+        for (String wiki : checkpoint.getCompletedWikis()) {
+            properties.setProperty(wiki + SUFFIX_COMPLETED, Boolean.TRUE.toString());
+        }
+        for (Map.Entry<String, DocumentReference> entry : checkpoint.getLastReferences().entrySet()) {
+            properties.setProperty(entry.getKey() + SUFFIX_REFERENCE, this.serializer.serialize(entry.getValue()));
+            if (entry.getValue().getLocale() != null) {
+                properties.setProperty(entry.getKey() + SUFFIX_LOCALE, entry.getValue().getLocale().toString());
+            }
+        }
+
+        File file = getFile(checkpoint.getRootReference());
+        file.getParentFile().mkdirs();
+        try (OutputStream stream = new FileOutputStream(file)) {
+            properties.store(stream, null);
+        } catch (IOException e) {
+            this.logger.warn("Failed to save the Solr indexer checkpoint to [{}]", file, e);
+        }
+    }
+
+    /**
+     * @param rootReference the reference of the entity which has been fully synchronized, {@code null} for the whole
+     *            farm
+     */
+    public void delete(EntityReference rootReference)
+    {
+        File file = getFile(rootReference);
+        if (file.exists() && !file.delete()) {
+            this.logger.warn("Failed to delete the Solr indexer checkpoint [{}]", file);
+        }
+    }
+
+    private File getFile(EntityReference rootReference)
+    {
+        String name;
+        if (rootReference != null) {
+            try {
+                name = rootReference.getType().getLowerCase() + '-'
+                    + URLEncoder.encode(this.serializer.serialize(rootReference), StandardCharsets.UTF_8.name());
+            } catch (UnsupportedEncodingException e) {
+                throw new RuntimeException("UTF-8 not available, this Java VM is not standards compliant!", e);
+            }
+        } else {
+            name = FARM;
+        }
+
+        return new File(new File(this.environment.getPermanentDirectory(), ROOT_DIRECTORY), name + ".properties");
+    }
+}
@@ -19,12 +19,24 @@
  */
 package org.xwiki.search.solr.internal.job;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
 
 import javax.inject.Inject;
 import javax.inject.Named;
+import javax.inject.Provider;
 
+import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.apache.commons.lang3.tuple.Pair;
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.response.FacetField;
+import org.apache.solr.client.solrj.response.QueryResponse;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.annotation.InstantiationStrategy;
 import org.xwiki.component.descriptor.ComponentInstantiationStrategy;
@@ -33,10 +45,16 @@
 import org.xwiki.job.GroupedJob;
 import org.xwiki.job.JobGroupPath;
 import org.xwiki.job.Request;
+import org.xwiki.model.EntityType;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.EntityReference;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.search.solr.internal.api.FieldUtils;
 import org.xwiki.search.solr.internal.api.SolrIndexer;
+import org.xwiki.search.solr.internal.api.SolrInstance;
 import org.xwiki.search.solr.internal.job.DiffDocumentIterator.Action;
+import org.xwiki.wiki.descriptor.WikiDescriptorManager;
+import org.xwiki.wiki.manager.WikiManagerException;
 
 /**
  * Provide progress information and store logging of an advanced indexing.
@@ -60,6 +78,11 @@ public class IndexerJob extends AbstractJob<IndexerRequest, DefaultJobStatus<Ind
     // TODO: group indexers based on the IndexerRequest root entity
     private static final JobGroupPath GROUP = new JobGroupPath(Arrays.asList("solr", "indexer"));
 
+    /**
+     * The number of processed documents after which the checkpoint is saved.
+     */
+    private static final int CHECKPOINT_INTERVAL = 1000;
+
     /**
      * Used to send documents to index or delete to/from Solr index.
      */
@@ -68,11 +91,28 @@ public class IndexerJob extends AbstractJob<IndexerRequest, DefaultJobStatus<Ind
 
     @Inject
     @Named("database")
-    private transient DocumentIterator<String> databaseIterator;
+    private transient Provider<DocumentIterator<String>> databaseIteratorProvider;
 
     @Inject
     @Named("solr")
-    private transient DocumentIterator<String> solrIterator;
+    private transient Provider<DocumentIterator<String>> solrIteratorProvider;
+
+    @Inject
+    private transient WikiDescriptorManager wikiDescriptorManager;
+
+    @Inject
+    private transient IndexerCheckpointStore checkpointStore;
+
+    @Inject
+    private transient Provider<SolrInstance> solrInstanceProvider;
+
+    private final DocumentReferenceComparator referenceComparator = new DocumentReferenceComparator();
+
+    /**
+     * Indicate if the indexer failed to commit the operations queued by this job, in which case the checkpoint is not
+     * updated anymore so that a resumed synchronization starts again from the last committed state.
+     */
+    private boolean checkpointFrozen;
 
     @Override
     public String getType()
@@ -116,8 +156,144 @@ protected void runInternal() throws Exception
      */
     private void updateSolrIndex()
     {
-        DiffDocumentIterator<String> iterator = new DiffDocumentIterator<>(this.solrIterator, this.databaseIterator);
-        iterator.setRootReference(getRequest().getRootReference());
+        EntityReference rootReference = getRequest().getRootReference();
+
+        IndexerCheckpoint checkpoint = getRequest().isResume() ? this.checkpointStore.load(rootReference)
+            : new IndexerCheckpoint(rootReference);
+
+        // Each wiki is synchronized separately so that a wiki which has been fully synchronized can be skipped when
+        // resuming the synchronization
+        List<EntityReference> references = getReferences(rootReference);
+
+        this.progressManager.pushLevelProgress(references.size(), this);
+
+        try {
+            for (EntityReference reference : references) {
+                this.progressManager.startStep(this);
+
+                String wiki = reference.extractReference(EntityType.WIKI).getName();
+                if (checkpoint.isCompleted(wiki)) {
+                    this.logger.info("Skipping [{}] which has already been synchronized.", wiki);
+                } else {
+                    updateSolrIndex(reference, checkpoint);
+
+                    checkpoint.setCompleted(wiki);
+                    saveCheckpoint(checkpoint);
+                }
+
+                this.progressManager.endStep(this);
+            }
+        } finally {
+            this.progressManager.popLevelProgress(this);
+        }
+
+        if (rootReference == null && getRequest().isRemoveMissing()) {
+            removeMissingWikis(references);
+        }
+
+        // The synchronization is finished, there is nothing to resume anymore
+        if (!this.checkpointFrozen) {
+            this.checkpointStore.delete(rootReference);
+        }
+    }
+
+    /**
+     * Save the checkpoint once the indexer has committed the operations queued so far, so that the saved checkpoint
+     * never covers documents which are still waiting in the indexer queue.
+     * 
+     * @param checkpoint the checkpoint to save
+     */
+    private void saveCheckpoint(IndexerCheckpoint checkpoint)
+    {
+        if (this.checkpointFrozen) {
+            return;
+        }
+
+        try {
+            this.indexer.flush().get();
+
+            this.checkpointStore.save(checkpoint);
+        } catch (InterruptedException e) {
+            this.logger.warn("Interrupted while waiting for the Solr indexer to commit the queued operations.");
+
+            this.checkpointFrozen = true;
+
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | CancellationException e) {
+            this.logger.warn("The Solr indexer failed to commit the queued operations, the synchronization checkpoint"
+                + " won't be updated anymore: {}", ExceptionUtils.getRootCauseMessage(e));
+
+            this.checkpointFrozen = true;
+        }
+    }
+
+    /**
+     * Remove from the Solr index the documents of the wikis which don't exist anymore.
+     * 
+     * @param references the existing wikis
+     */
+    private void removeMissingWikis(List<EntityReference> references)
+    {
+        Set<String> wikis = new HashSet<>(references.size());
+        for (EntityReference reference : references) {
+            wikis.add(reference.getName());
+        }
+
+        SolrQuery query = new SolrQuery("*:*");
+        query.setRows(0);
+        query.setFacet(true);
+        query.addFacetField(FieldUtils.WIKI);
+        query.setFacetMinCount(1);
+        query.setFacetLimit(-1);
+
+        try {
+            QueryResponse response = this.solrInstanceProvider.get().query(query);
+            FacetField wikiFacet = response.getFacetField(FieldUtils.WIKI);
+            if (wikiFacet != null && wikiFacet.getValues() != null) {
+                for (FacetField.Count wikiCount : wikiFacet.getValues()) {
+                    if (!wikis.contains(wikiCount.getName())) {
+                        this.logger.info("Removing [{}] entries of the deleted wiki [{}] from the Solr index.",
+                            wikiCount.getCount(), wikiCount.getName());
+
+                        this.indexer.delete(new WikiReference(wikiCount.getName()), true);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            this.logger.error("Failed to get the list of wikis from the Solr index.", e);
+        }
+    }
+
+    private List<EntityReference> getReferences(EntityReference rootReference)
+    {
+        if (rootReference != null) {
+            return Collections.singletonList(rootReference);
+        }
+
+        List<String> wikis;
+        try {
+            wikis = new ArrayList<>(this.wikiDescriptorManager.getAllIds());
+        } catch (WikiManagerException e) {
+            this.logger.error("Failed to get the list of available wikis.", e);
+
+            wikis = Collections.emptyList();
+        }
+        Collections.sort(wikis);
+
+        List<EntityReference> references = new ArrayList<>(wikis.size());
+        for (String wiki : wikis) {
+            references.add(new WikiReference(wiki));
+        }
+
+        return references;
+    }
+
+    private void updateSolrIndex(EntityReference rootReference, IndexerCheckpoint checkpoint)
+    {
+        DiffDocumentIterator<String> iterator =
+            new DiffDocumentIterator<>(this.solrIteratorProvider.get(), this.databaseIteratorProvider.get());
+        iterator.setRootReference(rootReference);
+        iterator.setModifiedSince(getRequest().getModifiedSince());
 
         this.progressManager.pushLevelProgress(2, this);
 
@@ -131,36 +307,58 @@ private void updateSolrIndex()
             // Index
 
             this.progressManager.startStep(this);
-            updateSolrIndex(progressSize, iterator);
+            updateSolrIndex(progressSize, iterator, checkpoint);
             this.progressManager.endStep(this);
         } finally {
             this.progressManager.popLevelProgress(this);
         }
     }
 
-    private void updateSolrIndex(int progressSize, DiffDocumentIterator<String> iterator)
+    private void updateSolrIndex(int progressSize, DiffDocumentIterator<String> iterator,
+        IndexerCheckpoint checkpoint)
     {
         this.progressManager.pushLevelProgress(progressSize, this);
 
+        // When only the modified documents are iterated, a document missing from the database iterator is not
+        // necessarily deleted
+        boolean removeMissing = getRequest().isRemoveMissing() && getRequest().getModifiedSince() == null;
+
         try {
             long[] counter = new long[Action.values().length];
+            long processed = 0;
 
             while (iterator.hasNext()) {
                 this.progressManager.startStep(this);
 
                 Pair<DocumentReference, Action> entry = iterator.next();
+
+                DocumentReference lastReference =
+                    checkpoint.getLastReference(entry.getKey().getWikiReference().getName());
+                if (lastReference != null && this.referenceComparator.compare(entry.getKey(), lastReference) <= 0) {
+                    // Already processed before the synchronization was interrupted.
+                    this.progressManager.endStep(this);
+
+                    continue;
+                }
+
                 if (entry.getValue() == Action.ADD || entry.getValue() == Action.UPDATE) {
                     // The database entry has not been indexed or the indexed version doesn't match the latest
                     // version
                     // from the database.
                     this.indexer.index(entry.getKey(), true);
-                } else if (entry.getValue() == Action.DELETE && getRequest().isRemoveMissing()) {
+                } else if (entry.getValue() == Action.DELETE && removeMissing) {
                     // The index entry doesn't exist anymore in the database.
                     this.indexer.delete(entry.getKey(), true);
                 }
 
                 counter[entry.getValue().ordinal()]++;
 
+                // The checkpoint is saved only after the indexer has committed the operations queued so far
+                checkpoint.setLastReference(entry.getKey());
+                if (++processed % CHECKPOINT_INTERVAL == 0) {
+                    saveCheckpoint(checkpoint);
+                }
+
                 this.progressManager.endStep(this);
             }
 
@@ -19,6 +19,8 @@
  */
 package org.xwiki.search.solr.internal.job;
 
+import java.util.Date;
+
 import org.xwiki.job.AbstractRequest;
 import org.xwiki.job.Request;
 import org.xwiki.model.reference.EntityReference;
@@ -31,6 +33,15 @@
  */
 public class IndexerRequest extends AbstractRequest
 {
+    /**
+     * The name of the request property holding the minimum modification date of the documents to synchronize. It's
+     * stored as a property so that it can be set on any job request (e.g. from a script).
+     *
+     * @see #getModifiedSince()
+     * @since 11.0RC1
+     */
+    public static final String PROPERTY_MODIFIED_SINCE = "modifiedSince";
+
     /**
      * Serialization identifier.
      */
@@ -51,6 +62,11 @@ public class IndexerRequest extends AbstractRequest
      */
     private boolean removeMissing = true;
 
+    /**
+     * @see #isResume()
+     */
+    private boolean resume;
+
     /**
      * The default constructor.
      */
@@ -115,4 +131,44 @@ public void setRemoveMissing(boolean removeMissing)
     {
         this.removeMissing = removeMissing;
     }
+
+    /**
+     * @return if not {@code null} only the documents modified after this date are synchronized (the documents deleted
+     *         from the database are not removed from the Solr index in this mode)
+     * @since 11.0RC1
+     */
+    public Date getModifiedSince()
+    {
+        return getProperty(PROPERTY_MODIFIED_SINCE);
+    }
+
+    /**
+     * @param modifiedSince if not {@code null} only the documents modified after this date are synchronized (the
+     *            documents deleted from the database are not removed from the Solr index in this mode)
+     * @since 11.0RC1
+     */
+    public void setModifiedSince(Date modifiedSince)
+    {
+        setProperty(PROPERTY_MODIFIED_SINCE, modifiedSince);
+    }
+
+    /**
+     * @return if true the synchronization starts from the checkpoint left by a previous interrupted synchronization of
+     *         the same root reference, if any
+     * @since 11.0RC1
+     */
+    public boolean isResume()
+    {
+        return this.resume;
+    }
+
+    /**
+     * @param resume if true the synchronization starts from the checkpoint left by a previous interrupted
+     *            synchronization of the same root reference, if any
+     * @since 11.0RC1
+     */
+    public void setResume(boolean resume)
+    {
+        this.resume = resume;
+    }
 }
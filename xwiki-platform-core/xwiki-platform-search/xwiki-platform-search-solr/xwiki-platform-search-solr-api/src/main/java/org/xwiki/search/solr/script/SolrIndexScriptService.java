@@ -19,6 +19,8 @@
  */
 package org.xwiki.search.solr.script;
 
+import java.util.Arrays;
+import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -31,14 +33,17 @@
 import org.apache.solr.common.SolrDocument;
 import org.slf4j.Logger;
 import org.xwiki.component.annotation.Component;
+import org.xwiki.job.Job;
 import org.xwiki.model.EntityType;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.DocumentReferenceResolver;
 import org.xwiki.model.reference.EntityReference;
 import org.xwiki.model.reference.EntityReferenceResolver;
+import org.xwiki.model.reference.WikiReference;
 import org.xwiki.script.service.ScriptService;
 import org.xwiki.search.solr.internal.api.FieldUtils;
 import org.xwiki.search.solr.internal.api.SolrIndexer;
+import org.xwiki.search.solr.internal.job.IndexerRequest;
 import org.xwiki.security.authorization.AuthorizationManager;
 import org.xwiki.security.authorization.Right;
 
@@ -181,6 +186,40 @@ public void delete(List<EntityReference> references)
         }
     }
 
+    /**
+     * Synchronize the index with the database for an entity and all its contained entities recursively, considering
+     * only the documents modified since the passed date. The documents deleted from the database are not removed from
+     * the index when a date is passed.
+     * <p>
+     * Null reference means the whole farm.
+     * 
+     * @param reference the reference of the entity to synchronize
+     * @param modifiedSince the minimum modification date of the documents to synchronize, {@code null} to synchronize
+     *            all the documents
+     * @return the job synchronizing the index, {@code null} if it could not be started
+     * @since 11.0RC1
+     */
+    public Job synchronize(EntityReference reference, Date modifiedSince)
+    {
+        clearException();
+
+        try {
+            checkAccessToWikiIndex(
+                reference != null ? reference : new WikiReference(this.xcontextProvider.get().getMainXWiki()));
+
+            IndexerRequest request = new IndexerRequest();
+            request.setId(Arrays.asList("solr", "indexer"));
+            request.setRootReference(reference);
+            request.setModifiedSince(modifiedSince);
+
+            return this.solrIndexer.startIndex(request);
+        } catch (Exception e) {
+            error(e);
+        }
+
+        return null;
+    }
+
     /**
      * @return the size of the index/delete queue
      * @since 5.1RC1
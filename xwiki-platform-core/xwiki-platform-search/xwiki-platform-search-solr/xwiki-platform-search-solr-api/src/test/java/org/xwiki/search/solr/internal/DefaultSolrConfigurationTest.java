@@ -0,0 +1,93 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.search.solr.internal;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.xwiki.configuration.ConfigurationSource;
+import org.xwiki.search.solr.internal.api.SolrConfiguration;
+import org.xwiki.test.mockito.MockitoComponentMockingRule;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link DefaultSolrConfiguration}.
+ * 
+ * @version $Id$
+ */
+public class DefaultSolrConfigurationTest
+{
+    @Rule
+    public final MockitoComponentMockingRule<SolrConfiguration> mocker =
+        new MockitoComponentMockingRule<SolrConfiguration>(DefaultSolrConfiguration.class);
+
+    private ConfigurationSource source;
+
+    @Before
+    public void configure() throws Exception
+    {
+        this.source = this.mocker.getInstance(ConfigurationSource.class, "xwikiproperties");
+
+        // Return the default value by default.
+        when(this.source.getProperty(any(String.class), anyInt()))
+            .then(invocation -> invocation.getArgument(1));
+    }
+
+    @Test
+    public void getIndexerThreads() throws Exception
+    {
+        assertEquals(DefaultSolrConfiguration.SOLR_INDEXER_THREADS_DEFAULT,
+            this.mocker.getComponentUnderTest().getIndexerThreads());
+
+        when(this.source.getProperty(eq(DefaultSolrConfiguration.SOLR_INDEXER_THREADS_PROPERTY), anyInt()))
+            .thenReturn(4);
+
+        assertEquals(4, this.mocker.getComponentUnderTest().getIndexerThreads());
+    }
+
+    @Test
+    public void getIndexerBatchSize() throws Exception
+    {
+        assertEquals(DefaultSolrConfiguration.SOLR_INDEXER_BATCH_SIZE_DEFAULT,
+            this.mocker.getComponentUnderTest().getIndexerBatchSize());
+
+        when(this.source.getProperty(eq(DefaultSolrConfiguration.SOLR_INDEXER_BATCH_SIZE_PROPERTY), anyInt()))
+            .thenReturn(10);
+
+        assertEquals(10, this.mocker.getComponentUnderTest().getIndexerBatchSize());
+    }
+
+    @Test
+    public void getIndexerQueueCapacity() throws Exception
+    {
+        assertEquals(DefaultSolrConfiguration.SOLR_INDEXER_QUEUE_CAPACITY_DEFAULT,
+            this.mocker.getComponentUnderTest().getIndexerQueueCapacity());
+
+        when(this.source.getProperty(eq(DefaultSolrConfiguration.SOLR_INDEXER_QUEUE_CAPACITY_PROPERTY), anyInt()))
+            .thenReturn(500);
+
+        assertEquals(500, this.mocker.getComponentUnderTest().getIndexerQueueCapacity());
+    }
+}
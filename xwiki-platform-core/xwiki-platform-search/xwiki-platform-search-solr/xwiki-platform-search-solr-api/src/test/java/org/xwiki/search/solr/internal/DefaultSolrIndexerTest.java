@@ -19,76 +19,200 @@
  */
 package org.xwiki.search.solr.internal;
 
-import java.net.URL;
-
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Provider;
+
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.common.SolrInputDocument;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.mockito.InOrder;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.component.util.DefaultParameterizedType;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReference;
 import org.xwiki.model.reference.WikiReference;
+import org.xwiki.search.solr.internal.api.FieldUtils;
 import org.xwiki.search.solr.internal.api.SolrConfiguration;
 import org.xwiki.search.solr.internal.api.SolrIndexer;
+import org.xwiki.search.solr.internal.api.SolrInstance;
+import org.xwiki.search.solr.internal.metadata.LengthSolrInputDocument;
+import org.xwiki.search.solr.internal.metadata.SolrMetadataExtractor;
+import org.xwiki.search.solr.internal.reference.SolrReferenceResolver;
 import org.xwiki.test.mockito.MockitoComponentMockingRule;
 
-import com.xpn.xwiki.XWiki;
-import com.xpn.xwiki.XWikiContext;
-import com.xpn.xwiki.test.reference.ReferenceComponentList;
-import com.xpn.xwiki.web.Utils;
-
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
- * TODO DOCUMENT ME!
+ * Unit tests for {@link DefaultSolrIndexer}.
  * 
  * @version $Id$
  */
-@ReferenceComponentList
 public class DefaultSolrIndexerTest
 {
+    private static final int BATCH_SIZE = 2;
+
     @Rule
     public final MockitoComponentMockingRule<SolrIndexer> mocker =
-        new MockitoComponentMockingRule<SolrIndexer>(DefaultSolrIndexer.class);
+        new MockitoComponentMockingRule<SolrIndexer>(DefaultSolrIndexer.class, Arrays.asList(ComponentManager.class));
+
+    private SolrInstance solr;
 
-    private XWikiContext xcontext;
+    private SolrReferenceResolver resolver;
 
-    private XWiki xwiki;
+    private SolrMetadataExtractor extractor;
 
-    private SolrConfiguration mockConfig;
+    /**
+     * The calls made to the Solr instance, in order.
+     */
+    private final List<String> solrCalls = Collections.synchronizedList(new ArrayList<String>());
 
     @Before
     public void configure() throws Exception
     {
-        Utils.setComponentManager(mocker);
+        SolrConfiguration configuration = this.mocker.getInstance(SolrConfiguration.class);
+        when(configuration.getIndexerQueueCapacity()).thenReturn(100);
+        when(configuration.getIndexerThreads()).thenReturn(2);
+        when(configuration.getIndexerBatchSize()).thenReturn(BATCH_SIZE);
+        when(configuration.getIndexerBatchMaxLengh()).thenReturn(Integer.MAX_VALUE);
+
+        this.solr = mock(SolrInstance.class);
+        doAnswer(invocation -> this.solrCalls.add("add")).when(this.solr).add(any(SolrInputDocument.class));
+        doAnswer(invocation -> this.solrCalls.add("commit")).when(this.solr).commit();
+
+        Provider<SolrInstance> solrInstanceProvider = this.mocker
+            .registerMockComponent(new DefaultParameterizedType(null, Provider.class, SolrInstance.class));
+        when(solrInstanceProvider.get()).thenReturn(this.solr);
+
+        this.resolver = this.mocker.getInstance(SolrReferenceResolver.class);
+        this.extractor = this.mocker.registerMockComponent(SolrMetadataExtractor.class, "document");
+    }
+
+    private LengthSolrInputDocument mockDocument(EntityReference reference) throws Exception
+    {
+        LengthSolrInputDocument solrDocument = new LengthSolrInputDocument();
+        solrDocument.setField(FieldUtils.ID, reference.toString());
+        when(this.extractor.getSolrDocument(reference)).thenReturn(solrDocument);
+
+        return solrDocument;
+    }
+
+    private void flush() throws Exception
+    {
+        this.mocker.getComponentUnderTest().flush().get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void indexAndCommit() throws Exception
+    {
+        DocumentReference documentReference = new DocumentReference("wiki", "Space", "Page");
+        LengthSolrInputDocument solrDocument = mockDocument(documentReference);
 
-        // XWiki
+        this.mocker.getComponentUnderTest().index(documentReference, false);
+        flush();
 
-        this.xwiki = mock(XWiki.class);
+        InOrder inOrder = inOrder(this.solr);
+        inOrder.verify(this.solr).add(solrDocument);
+        inOrder.verify(this.solr).commit();
+        assertEquals(0, this.mocker.getComponentUnderTest().getQueueSize());
+    }
 
-        // XWikiContext
+    @Test
+    public void indexInOrderAndCommitByBatch() throws Exception
+    {
+        WikiReference wikiReference = new WikiReference("wiki");
+        List<EntityReference> references = new ArrayList<>();
+        List<LengthSolrInputDocument> solrDocuments = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            DocumentReference documentReference = new DocumentReference("wiki", "Space", "Page" + i);
+            references.add(documentReference);
+            solrDocuments.add(mockDocument(documentReference));
+        }
+        when(this.resolver.getReferences(wikiReference)).thenReturn(references);
+
+        this.mocker.getComponentUnderTest().index(wikiReference, true);
+        flush();
+
+        // The documents are sent in the order of the queue even if their metadata is extracted in parallel.
+        InOrder inOrder = inOrder(this.solr);
+        for (LengthSolrInputDocument solrDocument : solrDocuments) {
+            inOrder.verify(this.solr).add(solrDocument);
+        }
+        inOrder.verify(this.solr).commit();
+
+        // A commit is made as soon as the batch is full and the flush commits what's left.
+        int batchSize = 0;
+        for (String call : this.solrCalls) {
+            if (call.equals("add")) {
+                assertTrue("Batch too big: " + this.solrCalls, ++batchSize <= BATCH_SIZE);
+            } else {
+                batchSize = 0;
+            }
+        }
+        assertEquals("commit", this.solrCalls.get(this.solrCalls.size() - 1));
+    }
 
-        this.xcontext = new XWikiContext();
-        this.xcontext.setWikiId("xwiki");
-        this.xcontext.setWiki(this.xwiki);
+    @Test
+    public void deleteRecursively() throws Exception
+    {
+        WikiReference wikiReference = new WikiReference("wiki");
+        when(this.resolver.getQuery(wikiReference)).thenReturn("wiki:wiki");
 
-        // Solr configuration
+        this.mocker.getComponentUnderTest().delete(wikiReference, true);
+        flush();
 
-        URL url = this.getClass().getClassLoader().getResource("solrhome");
-        this.mockConfig = this.mocker.getInstance(SolrConfiguration.class);
-        when(this.mockConfig.getInstanceConfiguration(eq(EmbeddedSolrInstance.TYPE), eq("home"), any()))
-            .thenReturn(url.getPath());
+        InOrder inOrder = inOrder(this.solr);
+        inOrder.verify(this.solr).deleteByQuery("wiki:wiki");
+        inOrder.verify(this.solr).commit();
     }
 
     @Test
-    public void testIndexEmptyWiki() throws Exception
+    public void flushWhenCommitFails() throws Exception
     {
+        DocumentReference documentReference = new DocumentReference("wiki", "Space", "Page");
+        mockDocument(documentReference);
+        doThrow(new SolrServerException("error")).when(this.solr).commit();
 
-        // Mock solr wrapper
-        // Add expectations
+        this.mocker.getComponentUnderTest().index(documentReference, false);
+
+        try {
+            flush();
+            fail("The flush should have reported the commit failure.");
+        } catch (ExecutionException e) {
+            assertEquals(SolrServerException.class, e.getCause().getClass());
+        }
+
+        verify(this.solr).rollback();
+
+        // The failure is reported only once.
+        doAnswer(invocation -> null).when(this.solr).commit();
+        flush();
+    }
+
+    @Test
+    public void flushAfterDispose() throws Exception
+    {
+        ((DefaultSolrIndexer) this.mocker.getComponentUnderTest()).dispose();
 
-        WikiReference wikiReference = new WikiReference("xwiki");
+        Future<Void> flushed = this.mocker.getComponentUnderTest().flush();
 
-        // index.index(wikiReference);
+        assertTrue(flushed.isCancelled());
     }
 }
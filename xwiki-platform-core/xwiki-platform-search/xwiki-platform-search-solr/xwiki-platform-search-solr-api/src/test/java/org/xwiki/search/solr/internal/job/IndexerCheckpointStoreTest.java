@@ -0,0 +1,111 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.search.solr.internal.job;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.xwiki.environment.Environment;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.test.mockito.MockitoComponentMockingRule;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for {@link IndexerCheckpointStore}.
+ * 
+ * @version $Id$
+ * @since 11.0RC1
+ */
+public class IndexerCheckpointStoreTest
+{
+    @Rule
+    public MockitoComponentMockingRule<IndexerCheckpointStore> mocker =
+        new MockitoComponentMockingRule<IndexerCheckpointStore>(IndexerCheckpointStore.class);
+
+    @Rule
+    public TemporaryFolder permanentDirectory = new TemporaryFolder();
+
+    private DocumentReference chessMainWelcome =
+        new DocumentReference("chess", Arrays.asList("Main"), "Welcome", Locale.FRENCH);
+
+    @Before
+    public void configure() throws Exception
+    {
+        Environment environment = this.mocker.getInstance(Environment.class);
+        when(environment.getPermanentDirectory()).thenReturn(this.permanentDirectory.getRoot());
+
+        EntityReferenceSerializer<String> serializer = this.mocker.getInstance(EntityReferenceSerializer.TYPE_STRING);
+        when(serializer.serialize(this.chessMainWelcome)).thenReturn("chess:Main.Welcome");
+        when(serializer.serialize(new WikiReference("chess"))).thenReturn("chess");
+
+        DocumentReferenceResolver<String> resolver = this.mocker.getInstance(DocumentReferenceResolver.TYPE_STRING);
+        when(resolver.resolve("chess:Main.Welcome"))
+            .thenReturn(new DocumentReference("chess", Arrays.asList("Main"), "Welcome"));
+    }
+
+    @Test
+    public void saveAndLoad() throws Exception
+    {
+        IndexerCheckpoint checkpoint = new IndexerCheckpoint(null);
+        checkpoint.setCompleted("tennis");
+        checkpoint.setLastReference(this.chessMainWelcome);
+
+        this.mocker.getComponentUnderTest().save(checkpoint);
+
+        IndexerCheckpoint loaded = this.mocker.getComponentUnderTest().load(null);
+
+        assertTrue(loaded.isCompleted("tennis"));
+        assertFalse(loaded.isCompleted("chess"));
+        assertEquals(this.chessMainWelcome, loaded.getLastReference("chess"));
+        assertNull(loaded.getLastReference("tennis"));
+    }
+
+    @Test
+    public void loadWithoutCheckpoint() throws Exception
+    {
+        IndexerCheckpoint checkpoint = this.mocker.getComponentUnderTest().load(new WikiReference("chess"));
+
+        assertEquals(new WikiReference("chess"), checkpoint.getRootReference());
+        assertTrue(checkpoint.getCompletedWikis().isEmpty());
+        assertTrue(checkpoint.getLastReferences().isEmpty());
+    }
+
+    @Test
+    public void delete() throws Exception
+    {
+        IndexerCheckpoint checkpoint = new IndexerCheckpoint(new WikiReference("chess"));
+        checkpoint.setCompleted("chess");
+
+        this.mocker.getComponentUnderTest().save(checkpoint);
+        assertTrue(this.mocker.getComponentUnderTest().load(new WikiReference("chess")).isCompleted("chess"));
+
+        this.mocker.getComponentUnderTest().delete(new WikiReference("chess"));
+        assertFalse(this.mocker.getComponentUnderTest().load(new WikiReference("chess")).isCompleted("chess"));
+    }
+}
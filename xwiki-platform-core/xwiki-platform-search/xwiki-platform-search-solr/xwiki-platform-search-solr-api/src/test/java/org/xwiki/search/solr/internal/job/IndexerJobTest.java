@@ -0,0 +1,220 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.search.solr.internal.job;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.commons.lang3.tuple.Pair;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.common.params.SolrParams;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.xwiki.component.util.DefaultParameterizedType;
+import org.xwiki.job.DefaultRequest;
+import org.xwiki.job.Job;
+import org.xwiki.job.Request;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReference;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.search.solr.internal.api.SolrIndexer;
+import org.xwiki.search.solr.internal.api.SolrInstance;
+import org.xwiki.test.mockito.MockitoComponentMockingRule;
+import org.xwiki.wiki.descriptor.WikiDescriptorManager;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link IndexerJob}.
+ *
+ * @version $Id$
+ */
+public class IndexerJobTest
+{
+    private static final WikiReference WIKI = new WikiReference("wiki");
+
+    private static final DocumentReference DOCUMENT_A = new DocumentReference("wiki", "Space", "A");
+
+    private static final DocumentReference DOCUMENT_B = new DocumentReference("wiki", "Space", "B");
+
+    private static final DocumentReference DOCUMENT_C = new DocumentReference("wiki", "Space", "C");
+
+    private static final DocumentReference DOCUMENT_D = new DocumentReference("wiki", "Space", "D");
+
+    private static final DocumentReference DOCUMENT_E = new DocumentReference("wiki", "Space", "E");
+
+    private static final Date BEFORE = new Date(1000);
+
+    private static final Date SINCE = new Date(2000);
+
+    private static final Date AFTER = new Date(3000);
+
+    @Rule
+    public MockitoComponentMockingRule<Job> mocker = new MockitoComponentMockingRule<Job>(IndexerJob.class);
+
+    private SolrIndexer indexer;
+
+    private IndexerCheckpointStore checkpointStore;
+
+    /**
+     * Iterates the documents in memory, filtered by root reference and modification date like the actual iterators.
+     */
+    private static class TestDocumentIterator extends AbstractDocumentIterator<String>
+    {
+        private final List<Pair<DocumentReference, String>> documents = new ArrayList<>();
+
+        private final List<Date> dates = new ArrayList<>();
+
+        private Iterator<Pair<DocumentReference, String>> iterator;
+
+        TestDocumentIterator add(DocumentReference reference, String version, Date date)
+        {
+            this.documents.add(new ImmutablePair<>(reference, version));
+            this.dates.add(date);
+
+            return this;
+        }
+
+        private Iterator<Pair<DocumentReference, String>> getIterator()
+        {
+            if (this.iterator == null) {
+                List<Pair<DocumentReference, String>> filtered = new ArrayList<>();
+                for (int i = 0; i < this.documents.size(); ++i) {
+                    Pair<DocumentReference, String> document = this.documents.get(i);
+                    if ((this.rootReference == null || document.getKey().hasParent(this.rootReference))
+                        && (this.modifiedSince == null || this.dates.get(i).after(this.modifiedSince))) {
+                        filtered.add(document);
+                    }
+                }
+                this.iterator = filtered.iterator();
+            }
+
+            return this.iterator;
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return getIterator().hasNext();
+        }
+
+        @Override
+        public Pair<DocumentReference, String> next()
+        {
+            return getIterator().next();
+        }
+
+        @Override
+        public long size()
+        {
+            return this.documents.size();
+        }
+    }
+
+    @Before
+    public void configure() throws Exception
+    {
+        this.indexer = this.mocker.getInstance(SolrIndexer.class);
+        when(this.indexer.flush()).thenReturn(CompletableFuture.completedFuture(null));
+
+        this.checkpointStore = this.mocker.getInstance(IndexerCheckpointStore.class);
+
+        WikiDescriptorManager wikiDescriptorManager = this.mocker.getInstance(WikiDescriptorManager.class);
+        when(wikiDescriptorManager.getAllIds()).thenReturn(Arrays.asList(WIKI.getName()));
+
+        // A is unchanged, B has been modified and C created since the last synchronization, D has been deleted from
+        // the database after being indexed and E has been modified and indexed since the last synchronization
+        TestDocumentIterator databaseIterator = new TestDocumentIterator().add(DOCUMENT_A, "1.1", BEFORE)
+            .add(DOCUMENT_B, "2.1", AFTER).add(DOCUMENT_C, "1.1", AFTER).add(DOCUMENT_E, "2.1", AFTER);
+        TestDocumentIterator solrIterator = new TestDocumentIterator().add(DOCUMENT_A, "1.1", BEFORE)
+            .add(DOCUMENT_B, "1.1", BEFORE).add(DOCUMENT_D, "1.1", AFTER).add(DOCUMENT_E, "2.1", AFTER);
+
+        DefaultParameterizedType iteratorType =
+            new DefaultParameterizedType(null, DocumentIterator.class, String.class);
+        this.mocker.registerComponent(iteratorType, "database", databaseIterator);
+        this.mocker.registerComponent(iteratorType, "solr", solrIterator);
+    }
+
+    private Job run(Request request) throws Throwable
+    {
+        Job job = this.mocker.getComponentUnderTest();
+        job.initialize(request);
+        job.run();
+
+        Throwable error = job.getStatus().getError();
+        if (error != null) {
+            throw error;
+        }
+
+        return job;
+    }
+
+    @Test
+    public void synchronize() throws Throwable
+    {
+        IndexerRequest request = new IndexerRequest();
+        request.setId(Arrays.asList("solr", "indexer"));
+        request.setRootReference(WIKI);
+
+        run(request);
+
+        verify(this.indexer, never()).index(DOCUMENT_A, true);
+        verify(this.indexer).index(DOCUMENT_B, true);
+        verify(this.indexer).index(DOCUMENT_C, true);
+        verify(this.indexer, never()).index(DOCUMENT_E, true);
+        verify(this.indexer).delete(DOCUMENT_D, true);
+        verify(this.checkpointStore).delete(WIKI);
+    }
+
+    @Test
+    public void synchronizeModifiedSince() throws Throwable
+    {
+        // The minimum modification date is passed as a property of a generic job request (e.g. from a script)
+        DefaultRequest request = new DefaultRequest();
+        request.setId(Arrays.asList("solr", "indexer"));
+        request.setProperty(IndexerRequest.PROPERTY_MODIFIED_SINCE, SINCE);
+
+        // No wiki has been deleted
+        QueryResponse response = mock(QueryResponse.class);
+        SolrInstance solrInstance = this.mocker.getInstance(SolrInstance.class);
+        when(solrInstance.query(any(SolrParams.class))).thenReturn(response);
+
+        run(request);
+
+        verify(this.indexer, never()).index(DOCUMENT_A, true);
+        verify(this.indexer).index(DOCUMENT_B, true);
+        verify(this.indexer).index(DOCUMENT_C, true);
+        verify(this.indexer, never()).index(DOCUMENT_E, true);
+        // D is missing from the modified documents but that doesn't mean it was deleted
+        verify(this.indexer, never()).delete(any(EntityReference.class), anyBoolean());
+        verify(this.checkpointStore).delete(null);
+    }
+}
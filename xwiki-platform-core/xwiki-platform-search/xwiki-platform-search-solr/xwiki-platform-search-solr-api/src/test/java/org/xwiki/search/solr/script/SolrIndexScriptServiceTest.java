@@ -20,6 +20,7 @@
 package org.xwiki.search.solr.script;
 
 import java.util.Arrays;
+import java.util.Date;
 
 import javax.inject.Provider;
 
@@ -27,6 +28,7 @@
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.slf4j.Logger;
 import org.xwiki.model.EntityType;
 import org.xwiki.model.reference.DocumentReference;
@@ -35,6 +37,9 @@
 import org.xwiki.model.reference.SpaceReference;
 import org.xwiki.model.reference.WikiReference;
 import org.xwiki.search.solr.internal.api.FieldUtils;
+import org.xwiki.search.solr.internal.api.SolrIndexer;
+import org.xwiki.search.solr.internal.job.IndexerJob;
+import org.xwiki.search.solr.internal.job.IndexerRequest;
 import org.xwiki.search.solr.internal.reference.SolrEntityReferenceResolver;
 import org.xwiki.security.authorization.AuthorizationManager;
 import org.xwiki.security.authorization.Right;
@@ -288,6 +293,48 @@ public void openrationsOnMultipleReferencesOnDifferentWikisChecksRightsOnEachWik
         verify(this.mockAuthorization).hasAccess(Right.PROGRAM, this.contentAuthorReference, wikiReference3);
     }
 
+    @Test
+    public void synchronizeModifiedSince() throws Exception
+    {
+        EntityReference wikiReference = new WikiReference("someWiki");
+        Date modifiedSince = new Date();
+
+        SolrIndexer solrIndexer = this.mocker.getInstance(SolrIndexer.class);
+        IndexerJob job = mock(IndexerJob.class);
+        when(solrIndexer.startIndex(any(IndexerRequest.class))).thenReturn(job);
+
+        // Call
+        assertSame(job, this.service.synchronize(wikiReference, modifiedSince));
+
+        // Assert and verify
+        verify(this.mockAuthorization).hasAccess(Right.ADMIN, this.userReference, wikiReference);
+        verify(this.mockAuthorization).hasAccess(Right.PROGRAM, this.contentAuthorReference, wikiReference);
+
+        ArgumentCaptor<IndexerRequest> requestCaptor = ArgumentCaptor.forClass(IndexerRequest.class);
+        verify(solrIndexer).startIndex(requestCaptor.capture());
+        assertEquals(wikiReference, requestCaptor.getValue().getRootReference());
+        assertEquals(modifiedSince, requestCaptor.getValue().getModifiedSince());
+        assertFalse(requestCaptor.getValue().isOverwrite());
+    }
+
+    @Test
+    public void synchronizeFarmChecksRightsOnMainWiki() throws Exception
+    {
+        when(this.mockContext.getMainXWiki()).thenReturn("mainWiki");
+        when(this.mockAuthorization.hasAccess(eq(Right.ADMIN), eq(this.userReference), any())).thenReturn(false);
+
+        SolrIndexer solrIndexer = this.mocker.getInstance(SolrIndexer.class);
+
+        // Call
+        assertNull(this.service.synchronize(null, new Date()));
+
+        // Assert and verify
+        verify(this.mockAuthorization).hasAccess(Right.ADMIN, this.userReference, new WikiReference("mainWiki"));
+        verify(solrIndexer, never()).startIndex(any());
+        verify(this.mockContext).put(eq(SolrIndexScriptService.CONTEXT_LASTEXCEPTION),
+            any(IllegalAccessException.class));
+    }
+
     @Test
     public void resolveWithImplicitType() throws Exception
     {
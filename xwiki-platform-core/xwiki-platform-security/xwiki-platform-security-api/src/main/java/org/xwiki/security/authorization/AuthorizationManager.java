@@ -19,9 +19,14 @@
  */
 package org.xwiki.security.authorization;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import org.xwiki.component.annotation.Role;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.EntityReference;
+import org.xwiki.stability.Unstable;
 
 /**
  * This API is for checking the access rights of any users on any XWiki entities. It replaces
@@ -73,6 +78,32 @@ void checkAccess(Right right, DocumentReference userReference, EntityReference e
      */
     boolean hasAccess(Right right, DocumentReference userReference, EntityReference entityReference);
 
+    /**
+     * Verifies if the user identified by {@code userReference} has the access identified by {@code right} on each of
+     * the entities identified by {@code entityReferences}. The result is the same as calling
+     * {@link #hasAccess(Right, DocumentReference, EntityReference)} for each entity, but implementations can share the
+     * work common to all the entities (e.g. filtering the results of a query).
+     * This function should be used for interface matters, use {@link #checkAccess} at security checkpoints.
+     *
+     * @param right the right to check
+     * @param userReference the user to check the right for
+     * @param entityReferences the entities on which to check the right
+     * @return for each passed entity (in the same order), {@code true} if the user has the specified right on the
+     *         entity, {@code false} otherwise
+     * @since 11.0RC1
+     */
+    @Unstable
+    default Map<EntityReference, Boolean> hasAccesses(Right right, DocumentReference userReference,
+        Collection<? extends EntityReference> entityReferences)
+    {
+        Map<EntityReference, Boolean> accesses = new LinkedHashMap<>(entityReferences.size());
+        for (EntityReference entityReference : entityReferences) {
+            accesses.put(entityReference, hasAccess(right, userReference, entityReference));
+        }
+
+        return accesses;
+    }
+
     /**
      * Register a new custom {@link Right}.
      *
@@ -19,8 +19,13 @@
  */
 package org.xwiki.security.authorization;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import org.xwiki.component.annotation.Role;
 import org.xwiki.model.reference.EntityReference;
+import org.xwiki.stability.Unstable;
 
 /**
  * This API is for checking the access rights of current user in the current context. It replaces
@@ -80,4 +85,28 @@
      * @return {@code true} if the user has the specified right on the entity, {@code false} otherwise
      */
     boolean hasAccess(Right right, EntityReference entityReference);
+
+    /**
+     * Verifies if access identified by {@code right} on each of the given entities would be allowed in the current
+     * context. The result is the same as calling {@link #hasAccess(Right, EntityReference)} for each entity, but
+     * implementations can share the work common to all the entities (e.g. filtering the results of a query).
+     * This function should be used for interface matters, use {@link #checkAccess} at security checkpoints.
+     *
+     * @param right the right to check
+     * @param entityReferences the entities on which to check the right
+     * @return for each passed entity (in the same order), {@code true} if the access is allowed, {@code false}
+     *         otherwise
+     * @since 11.0RC1
+     */
+    @Unstable
+    default Map<EntityReference, Boolean> hasAccesses(Right right,
+        Collection<? extends EntityReference> entityReferences)
+    {
+        Map<EntityReference, Boolean> accesses = new LinkedHashMap<>(entityReferences.size());
+        for (EntityReference entityReference : entityReferences) {
+            accesses.put(entityReference, hasAccess(right, entityReference));
+        }
+
+        return accesses;
+    }
 }
@@ -19,6 +19,11 @@
  */
 package org.xwiki.security.authorization;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
@@ -115,6 +120,45 @@ public boolean hasAccess(Right right, DocumentReference userReference, EntityRef
         }
     }
 
+    @Override
+    public Map<EntityReference, Boolean> hasAccesses(Right right, DocumentReference userReference,
+        Collection<? extends EntityReference> entityReferences)
+    {
+        Map<EntityReference, Boolean> accesses = new LinkedHashMap<>(entityReferences.size());
+
+        // The checks which don't depend on the entity are done only once
+        Boolean preAccess = getPreAccess(right, userReference, null, false);
+        if (preAccess != null) {
+            for (EntityReference entityReference : entityReferences) {
+                accesses.put(entityReference, preAccess);
+            }
+
+            return accesses;
+        }
+
+        // Resolve the user only once, the entries of its groups are loaded in the cache by the first evaluation
+        UserSecurityReference user = securityReferenceFactory.newUserReference(userReference);
+        // The access resolved for the ancestors of the entities, so that siblings without rules of their own (which is
+        // the most common case) resolve their ancestor chain only once
+        Map<SecurityReference, SecurityAccess> parentAccesses = new HashMap<>();
+        for (EntityReference entityReference : entityReferences) {
+            boolean access;
+            try {
+                SecurityReference entity = securityReferenceFactory.newEntityReference(entityReference);
+                access = checkSecurityAccess(right, getAccess(user, entity, parentAccesses), userReference,
+                    entityReference, false);
+            } catch (Exception e) {
+                this.logger.error(String.format("Failed to load rights for user [%s] on [%s].",
+                    (userReference == null) ? AuthorizationException.NULL_USER : userReference,
+                    (entityReference == null) ? AuthorizationException.NULL_ENTITY : entityReference), e);
+                access = false;
+            }
+            accesses.put(entityReference, access);
+        }
+
+        return accesses;
+    }
+
     /**
      * Verifies if the user identified by {@code userReference} has the access identified by {@code right} on the
      * entity identified by {@code entityReference}. Note that some rights may be checked higher in hierarchy of the
@@ -132,6 +176,27 @@ public boolean hasAccess(Right right, DocumentReference userReference, EntityRef
     private boolean hasSecurityAccess(Right right, DocumentReference userReference, EntityReference entityReference,
         boolean check)
         throws AuthorizationException
+    {
+        Boolean preAccess = getPreAccess(right, userReference, entityReference, check);
+        if (preAccess != null) {
+            return preAccess;
+        }
+
+        return evaluateSecurityAccess(right, securityReferenceFactory.newUserReference(userReference), userReference,
+            entityReference, check);
+    }
+
+    /**
+     * Check what can be decided without looking at the rules of the entity.
+     *
+     * @param right the right to check .
+     * @param userReference the user to check the right for
+     * @param entityReference the entity on which to check the right, only used for logging
+     * @param check if true logging of denied access are made through {@link #logDeny} (at info level)
+     * @return the access, or {@code null} if the rules of the entity need to be evaluated
+     */
+    private Boolean getPreAccess(Right right, DocumentReference userReference, EntityReference entityReference,
+        boolean check)
     {
         if (isSuperAdmin(userReference)) {
             return true;
@@ -149,18 +214,21 @@ private boolean hasSecurityAccess(Right right, DocumentReference userReference,
             return false;
         }
 
-        return evaluateSecurityAccess(right, userReference, entityReference, check);
+        return null;
     }
 
-    private boolean evaluateSecurityAccess(Right right, DocumentReference userReference,
+    private boolean evaluateSecurityAccess(Right right, UserSecurityReference user, DocumentReference userReference,
         EntityReference entityReference, boolean check)
         throws AuthorizationException
     {
-        SecurityAccess securityAccess = getAccess(
-            securityReferenceFactory.newUserReference(userReference),
-            securityReferenceFactory.newEntityReference(entityReference)
-        );
+        SecurityAccess securityAccess = getAccess(user, securityReferenceFactory.newEntityReference(entityReference));
 
+        return checkSecurityAccess(right, securityAccess, userReference, entityReference, check);
+    }
+
+    private boolean checkSecurityAccess(Right right, SecurityAccess securityAccess, DocumentReference userReference,
+        EntityReference entityReference, boolean check)
+    {
         RuleState access = securityAccess.get(right);
         String info = check ? "security checkpoint" : "access inquiry";
         if (check && access != RuleState.ALLOW) {
@@ -199,7 +267,59 @@ public Right register(RightDescription rightDescription) throws UnableToRegister
     private SecurityAccess getAccess(UserSecurityReference user, SecurityReference entity)
         throws AuthorizationException
     {
-        for (SecurityReference ref = entity; ref != null; ref = ref.getParentSecurityReference()) {
+        return getAccess(user, entity, entity);
+    }
+
+    /**
+     * Obtain the access for the user on the given entity, sharing the access resolved on its ancestors with the other
+     * entities having the same parent.
+     *
+     * @param user The user identity.
+     * @param entity The entity.
+     * @param parentAccesses The access already resolved for the parents of other entities.
+     * @return the cached access entry.
+     * @exception org.xwiki.security.authorization.AuthorizationException if an error occurs
+     */
+    private SecurityAccess getAccess(UserSecurityReference user, SecurityReference entity,
+        Map<SecurityReference, SecurityAccess> parentAccesses) throws AuthorizationException
+    {
+        SecurityReference parent = entity.getParentSecurityReference();
+        if (parent == null) {
+            return getAccess(user, entity);
+        }
+
+        if (!Right.getEnabledRights(entity.getSecurityType()).isEmpty()) {
+            SecurityRuleEntry entry = securityCache.get(entity);
+            if (entry == null || !entry.isEmpty()) {
+                // The entity has rules of its own (or they are not known yet)
+                return getAccess(user, entity);
+            }
+        }
+
+        // Without rules of its own, the entity gets the same access as its parent
+        SecurityAccess access = parentAccesses.get(parent);
+        if (access == null) {
+            access = getAccess(user, entity, parent);
+            parentAccesses.put(parent, access);
+        }
+
+        return access;
+    }
+
+    /**
+     * Obtain the access for the user on the given entity, starting to look for rules at the given level of its
+     * hierarchy, and load it into the cache if unavailable.
+     *
+     * @param user The user identity.
+     * @param entity The entity.
+     * @param start The entity or one of its ancestors, from where to start looking for rules.
+     * @return the cached access entry.
+     * @exception org.xwiki.security.authorization.AuthorizationException if an error occurs
+     */
+    private SecurityAccess getAccess(UserSecurityReference user, SecurityReference entity, SecurityReference start)
+        throws AuthorizationException
+    {
+        for (SecurityReference ref = start; ref != null; ref = ref.getParentSecurityReference()) {
             if (Right.getEnabledRights(ref.getSecurityType()).isEmpty()) {
                 // Skip search on entity types that will obviously have empty/useless list of rules.
                 continue;
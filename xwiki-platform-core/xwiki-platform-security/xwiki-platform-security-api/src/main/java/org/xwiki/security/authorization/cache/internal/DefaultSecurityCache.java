@@ -87,6 +87,12 @@ public class DefaultSecurityCache implements SecurityCache, Initializable
 
     private final Lock invalidationWriteLock = invalidationReadWriteLock.writeLock();
 
+    /**
+     * Incremented when an invalidation starts and when it ends, so it is odd while an invalidation is in progress. Used
+     * to read the cache without taking the read lock as long as no invalidation happens concurrently.
+     */
+    private volatile long invalidationVersion;
+
     /** The keys in the cache are generated from instances of {@link org.xwiki.model.reference.EntityReference}. */
     @Inject
     private EntityReferenceSerializer<String> keySerializer;
@@ -135,12 +141,12 @@ private class SecurityCacheEntry implements DisposableCacheValue
         /**
          * The cached security entry.
          */
-        private SecurityEntry entry;
+        private volatile SecurityEntry entry;
 
         /**
          * Parents of this cached entry.
          */
-        private Collection<SecurityCacheEntry> parents;
+        private volatile Collection<SecurityCacheEntry> parents;
 
         /**
          * Children of this cached entry.
@@ -150,7 +156,7 @@ private class SecurityCacheEntry implements DisposableCacheValue
         /**
          * True if this entry has been removed.
          */
-        private boolean disposed;
+        private volatile boolean disposed;
 
         /**
          * Create a new cache entry for a security rule, linking it to its parent.
@@ -294,6 +300,21 @@ private SecurityCacheEntry(SecurityEntry entry, Collection<GroupSecurityReferenc
          */
         private void addParentGroups(Collection<GroupSecurityReference> groups,
             SecurityReference parentReference) throws ParentEntryEvictedException
+        {
+            addParentGroups(groups, parentReference, this.parents);
+        }
+
+        /**
+         * Add provided groups to the passed parents of this entry, excluding the main parent reference.
+         *
+         * @param groups the list of groups to add.
+         * @param parentReference the main parent reference to exclude.
+         * @param parents the parents to complete.
+         * @throws ParentEntryEvictedException if the parents required are no more available in the cache.
+         */
+        private void addParentGroups(Collection<GroupSecurityReference> groups,
+            SecurityReference parentReference, Collection<SecurityCacheEntry> parents)
+            throws ParentEntryEvictedException
         {
             for (GroupSecurityReference group : groups) {
                 if (group.equals(parentReference)) {
@@ -306,7 +327,7 @@ private void addParentGroups(Collection<GroupSecurityReference> groups,
                 if (parent == null) {
                     throw new ParentEntryEvictedException();
                 }
-                this.parents.add(parent);
+                parents.add(parent);
                 parent.addChild(this);
             }
         }
@@ -324,16 +345,19 @@ boolean updateParentGroups(Collection<GroupSecurityReference> groups)
                 return false;
             }
 
+            // The new parents are fully built before being published since they can be read without lock
             if (groups != null && !groups.isEmpty()) {
+                Collection<SecurityCacheEntry> newParents;
                 if (this.parents == null) {
-                    this.parents = new ArrayList<SecurityCacheEntry>(groups.size());
-                    addParentGroups(groups, null);
+                    newParents = new ArrayList<SecurityCacheEntry>(groups.size());
+                    addParentGroups(groups, null, newParents);
                 } else {
                     SecurityCacheEntry parent = this.parents.iterator().next();
-                    this.parents = new ArrayList<SecurityCacheEntry>(groups.size() + 1);
-                    this.parents.add(parent);
-                    addParentGroups(groups, parent.entry.getReference());
+                    newParents = new ArrayList<SecurityCacheEntry>(groups.size() + 1);
+                    newParents.add(parent);
+                    addParentGroups(groups, parent.entry.getReference(), newParents);
                 }
+                this.parents = newParents;
             }
 
             return true;
@@ -545,12 +569,7 @@ private String getEntryKey(SecurityAccessEntry entry)
      */
     private SecurityCacheEntry getEntry(SecurityReference reference)
     {
-        readLock.lock();
-        try {
-            return cache.get(getEntryKey(reference));
-        } finally {
-            readLock.unlock();
-        }
+        return getCacheEntry(getEntryKey(reference));
     }
 
     /**
@@ -561,12 +580,7 @@ private SecurityCacheEntry getEntry(SecurityReference reference)
      */
     private SecurityCacheEntry getEntry(UserSecurityReference userReference, SecurityReference reference)
     {
-        readLock.lock();
-        try {
-            return cache.get(getEntryKey(userReference, reference));
-        } finally {
-            readLock.unlock();
-        }
+        return getCacheEntry(getEntryKey(userReference, reference));
     }
 
     /**
@@ -577,9 +591,31 @@ private SecurityCacheEntry getEntry(UserSecurityReference userReference, Securit
      */
     private SecurityCacheEntry getShadowEntry(SecurityReference userReference, SecurityReference wiki)
     {
+        return getCacheEntry(getShadowEntryKey(userReference, wiki));
+    }
+
+    /**
+     * Read an entry from the cache. The read lock is only taken when an invalidation is running concurrently, so that
+     * an entry being invalidated (or one of its descendants) is never returned.
+     *
+     * @param key the key of the entry.
+     * @return the security cache entry stored with the given key, null if none is available in the cache.
+     */
+    private SecurityCacheEntry getCacheEntry(String key)
+    {
+        long version = this.invalidationVersion;
+        if ((version & 1) == 0) {
+            SecurityCacheEntry entry = cache.get(key);
+            if (version == this.invalidationVersion && (entry == null || !entry.disposed)) {
+                return entry;
+            }
+        }
+
+        // An invalidation is in progress, wait for it to be finished
         readLock.lock();
         try {
-            return cache.get(getShadowEntryKey(userReference, wiki));
+            SecurityCacheEntry entry = cache.get(key);
+            return (entry == null || entry.disposed) ? null : entry;
         } finally {
             readLock.unlock();
         }
@@ -815,6 +851,7 @@ public void remove(UserSecurityReference user, SecurityReference entity)
 
         try {
             writeLock.lock();
+            this.invalidationVersion++;
             try {
                 SecurityCacheEntry entry = getEntry(user, entity);
                 if (entry != null) {
@@ -824,6 +861,7 @@ public void remove(UserSecurityReference user, SecurityReference entity)
                     this.cache.remove(entry.getKey());
                 }
             } finally {
+                this.invalidationVersion++;
                 writeLock.unlock();
             }
         } finally {
@@ -838,6 +876,7 @@ public void remove(SecurityReference entity)
 
         try {
             writeLock.lock();
+            this.invalidationVersion++;
             try {
                 SecurityCacheEntry entry = getEntry(entity);
                 if (entry != null) {
@@ -847,6 +886,7 @@ public void remove(SecurityReference entity)
                     this.cache.remove(entry.getKey());
                 }
             } finally {
+                this.invalidationVersion++;
                 writeLock.unlock();
             }
         } finally {
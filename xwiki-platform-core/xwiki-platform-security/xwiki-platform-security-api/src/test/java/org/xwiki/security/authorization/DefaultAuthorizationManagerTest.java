@@ -0,0 +1,179 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.security.authorization;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReference;
+import org.xwiki.model.reference.SpaceReference;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.security.DefaultSecurityReferenceFactory;
+import org.xwiki.security.SecurityReference;
+import org.xwiki.security.SecurityReferenceFactory;
+import org.xwiki.security.UserSecurityReference;
+import org.xwiki.security.authorization.cache.SecurityCache;
+import org.xwiki.security.authorization.cache.SecurityCacheLoader;
+import org.xwiki.security.internal.XWikiBridge;
+import org.xwiki.test.annotation.ComponentList;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectComponentManager;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+import org.xwiki.test.mockito.MockitoComponentManager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link DefaultAuthorizationManager}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+@ComponentList(DefaultSecurityReferenceFactory.class)
+public class DefaultAuthorizationManagerTest
+{
+    private static final DocumentReference USER = new DocumentReference("xwiki", "XWiki", "user");
+
+    private static final SpaceReference SPACE = new SpaceReference("wiki", "Space");
+
+    @MockComponent
+    private SecurityCache securityCache;
+
+    @MockComponent
+    private SecurityCacheLoader securityCacheLoader;
+
+    @MockComponent
+    private XWikiBridge xwikiBridge;
+
+    @InjectMockComponents
+    private DefaultAuthorizationManager authorizationManager;
+
+    @InjectComponentManager
+    private MockitoComponentManager componentManager;
+
+    private SecurityReferenceFactory securityReferenceFactory;
+
+    @BeforeEach
+    public void beforeEach() throws Exception
+    {
+        when(this.xwikiBridge.getMainWikiReference()).thenReturn(new WikiReference("xwiki"));
+        when(this.xwikiBridge.toCompatibleEntityReference(any(EntityReference.class)))
+            .thenAnswer(invocation -> invocation.getArgument(0));
+
+        this.securityReferenceFactory = this.componentManager.getInstance(SecurityReferenceFactory.class);
+    }
+
+    private SecurityReference securityReference(EntityReference reference)
+    {
+        return this.securityReferenceFactory.newEntityReference(reference);
+    }
+
+    private void mockRules(EntityReference reference, RuleState viewAccess)
+    {
+        SecurityRuleEntry ruleEntry = mock(SecurityRuleEntry.class);
+        when(ruleEntry.isEmpty()).thenReturn(viewAccess == null);
+        when(this.securityCache.get(securityReference(reference))).thenReturn(ruleEntry);
+
+        if (viewAccess != null) {
+            SecurityAccess access = mock(SecurityAccess.class);
+            when(access.get(Right.VIEW)).thenReturn(viewAccess);
+            SecurityAccessEntry accessEntry = mock(SecurityAccessEntry.class);
+            when(accessEntry.getAccess()).thenReturn(access);
+            when(this.securityCache.get(any(UserSecurityReference.class), any(SecurityReference.class)))
+                .thenAnswer(invocation -> securityReference(reference).equals(invocation.getArgument(1))
+                    ? accessEntry : null);
+        }
+    }
+
+    @Test
+    public void hasAccessesResolvesSharedAncestorsOnce() throws Exception
+    {
+        DocumentReference page1 = new DocumentReference("Page1", SPACE);
+        DocumentReference page2 = new DocumentReference("Page2", SPACE);
+        DocumentReference page3 = new DocumentReference("Page3", SPACE);
+
+        // Only the space has rules
+        mockRules(SPACE, RuleState.ALLOW);
+        mockRules(page1, null);
+        mockRules(page2, null);
+        mockRules(page3, null);
+
+        Map<EntityReference, Boolean> accesses =
+            this.authorizationManager.hasAccesses(Right.VIEW, USER, Arrays.asList(page1, page2, page3));
+
+        assertEquals(Arrays.asList(page1, page2, page3), new ArrayList<>(accesses.keySet()));
+        assertEquals(Arrays.asList(true, true, true), new ArrayList<>(accesses.values()));
+
+        // The rules of the space are looked up for the first document only
+        verify(this.securityCache, times(1)).get(securityReference(SPACE));
+        verify(this.securityCache, times(1)).get(any(UserSecurityReference.class), any(SecurityReference.class));
+        verify(this.securityCacheLoader, never()).load(any(), any());
+    }
+
+    @Test
+    public void hasAccessesWithEntityRules() throws Exception
+    {
+        DocumentReference page1 = new DocumentReference("Page1", SPACE);
+        DocumentReference page2 = new DocumentReference("Page2", SPACE);
+
+        // The second document has its own rules which are loaded when it's evaluated
+        mockRules(page1, null);
+        mockRules(SPACE, RuleState.ALLOW);
+        SecurityAccess deniedAccess = mock(SecurityAccess.class);
+        when(deniedAccess.get(Right.VIEW)).thenReturn(RuleState.DENY);
+        SecurityAccessEntry deniedAccessEntry = mock(SecurityAccessEntry.class);
+        when(deniedAccessEntry.getAccess()).thenReturn(deniedAccess);
+        when(this.securityCacheLoader.load(any(UserSecurityReference.class), any(SecurityReference.class)))
+            .thenReturn(deniedAccessEntry);
+
+        Map<EntityReference, Boolean> accesses =
+            this.authorizationManager.hasAccesses(Right.VIEW, USER, Arrays.asList(page1, page2));
+
+        assertTrue(accesses.get(page1));
+        assertFalse(accesses.get(page2));
+        verify(this.securityCacheLoader).load(any(UserSecurityReference.class), any(SecurityReference.class));
+    }
+
+    @Test
+    public void hasAccessesAsSuperAdmin()
+    {
+        DocumentReference superadmin = new DocumentReference("xwiki", "XWiki", AuthorizationManager.SUPERADMIN_USER);
+        DocumentReference page = new DocumentReference("Page", SPACE);
+
+        Map<EntityReference, Boolean> accesses =
+            this.authorizationManager.hasAccesses(Right.ADMIN, superadmin, Arrays.asList(page));
+
+        assertTrue(accesses.get(page));
+        verify(this.securityCache, never()).get(any());
+    }
+}
@@ -26,6 +26,7 @@
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
 
 import org.junit.Before;
 import org.junit.Rule;
@@ -862,4 +863,40 @@ public boolean keepAccess(SecurityAccessEntry entry)
             }
         });
     }
+
+    @Test(timeout = 10000)
+    public void testGetNotBlockedByAdd() throws Exception
+    {
+        final SecurityRuleEntry wikiEntry = mockSecurityRuleEntry(xwikiRef);
+        securityCache.add(wikiEntry);
+
+        final SecurityRuleEntry spaceEntry = mockSecurityRuleEntry(xspaceRef);
+        CountDownLatch setStarted = new CountDownLatch(1);
+        CountDownLatch setReleased = new CountDownLatch(1);
+        cache.blockNextSet(setStarted, setReleased);
+
+        Thread writer = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try {
+                    securityCache.add(spaceEntry);
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        });
+        writer.start();
+        setStarted.await();
+
+        // The writer holds the write lock while it's blocked, reading must not wait for it
+        assertThat(securityCache.get(xwikiRef), sameInstance(wikiEntry));
+        assertThat(securityCache.get(xspaceRef), is(nullValue()));
+
+        setReleased.countDown();
+        writer.join();
+
+        assertThat(securityCache.get(xspaceRef), sameInstance(spaceEntry));
+    }
 }
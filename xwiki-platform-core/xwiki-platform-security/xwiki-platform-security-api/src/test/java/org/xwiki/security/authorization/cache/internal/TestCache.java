@@ -22,6 +22,7 @@
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
 
 import org.xwiki.cache.Cache;
 import org.xwiki.cache.CacheEntry;
@@ -46,6 +47,8 @@
     private Map<String, T> cache = new HashMap<String, T>();
     private CacheEntryListener<T> listener;
     private String lastInsertedKey;
+    private CountDownLatch setStarted;
+    private CountDownLatch setReleased;
 
     class TestCacheEntry implements CacheEntry<T>
     {
@@ -96,9 +99,32 @@ public Cache<T> getCache()
     }
 
 
+    /**
+     * Block the next call to {@link #set(String, Object)} until the given latch is released.
+     *
+     * @param started counted down when the blocked set is started
+     * @param released the latch to wait for before actually setting the value
+     */
+    public void blockNextSet(CountDownLatch started, CountDownLatch released)
+    {
+        this.setStarted = started;
+        this.setReleased = released;
+    }
+
     @Override
     public void set(String key, T value)
     {
+        if (setReleased != null) {
+            CountDownLatch released = setReleased;
+            setReleased = null;
+            setStarted.countDown();
+            try {
+                released.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
         T old = cache.put(key, value);
         if (listener != null && old == null) {
             listener.cacheEntryAdded(getEvent(key, value));
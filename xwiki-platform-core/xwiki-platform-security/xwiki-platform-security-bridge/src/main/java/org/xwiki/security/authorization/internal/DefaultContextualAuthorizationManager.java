@@ -19,8 +19,12 @@
  */
 package org.xwiki.security.authorization.internal;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Set;
 
 import javax.inject.Inject;
@@ -117,6 +121,33 @@ public boolean hasAccess(Right right, EntityReference entity)
         return hasAccess(right, user, entity);
     }
 
+    @Override
+    public Map<EntityReference, Boolean> hasAccesses(Right right, Collection<? extends EntityReference> entities)
+    {
+        Map<EntityReference, Boolean> accesses = new LinkedHashMap<>(entities.size());
+
+        if (CONTENT_AUTHOR_RIGHTS.contains(right)) {
+            // The user to check depends on the document of each entity
+            for (EntityReference entity : entities) {
+                accesses.put(entity, hasAccess(right, entity));
+            }
+        } else {
+            Map<EntityReference, EntityReference> fullReferences = new LinkedHashMap<>(entities.size());
+            for (EntityReference entity : entities) {
+                fullReferences.put(entity, getFullReference(entity));
+            }
+
+            Map<EntityReference, Boolean> fullAccesses = this.authorizationManager.hasAccesses(right,
+                this.xcontextProvider.get().getUserReference(), new ArrayList<>(fullReferences.values()));
+
+            for (Map.Entry<EntityReference, EntityReference> entry : fullReferences.entrySet()) {
+                accesses.put(entry.getKey(), Boolean.TRUE.equals(fullAccesses.get(entry.getValue())));
+            }
+        }
+
+        return accesses;
+    }
+
     private boolean hasAccess(Right right, DocumentReference user, EntityReference entity)
     {
         return checkPreAccess(right) && this.authorizationManager.hasAccess(right, user, getFullReference(entity));
@@ -43,6 +43,7 @@
 import org.xwiki.security.SecurityReferenceFactory;
 import org.xwiki.security.authorization.AuthorizationException;
 import org.xwiki.security.authorization.cache.SecurityCache;
+import org.xwiki.security.internal.GroupMembershipIndex;
 import org.xwiki.security.internal.XWikiConstants;
 
 import com.xpn.xwiki.XWikiContext;
@@ -100,6 +101,10 @@ public class DefaultSecurityCacheRulesInvalidatorListener implements EventListen
     @Inject
     private Provider<XWikiContext> xcontextProvider;
 
+    /** The group memberships shared between the loads of the security cache. */
+    @Inject
+    private GroupMembershipIndex membershipIndex;
+
     @Override
     public String getName()
     {
@@ -131,6 +136,9 @@ private static DocumentReference getDocumentReference(Object xwikiDocument)
     private boolean isGroupDocument(Object source)
     {
         XWikiDocument doc = (XWikiDocument) source;
+        if (doc == null) {
+            return false;
+        }
         DocumentReference docRef = doc.getDocumentReference();
         DocumentReference groupClass = resolver.resolve(XWikiConstants.GROUP_CLASS, docRef);
         List<BaseObject> objects = doc.getXObjects(groupClass);
@@ -182,6 +190,14 @@ public void onEvent(Event event, Object source, Object data)
     {
         DocumentReference ref = getDocumentReference(source);
         try {
+            // The memberships of the wiki are forgotten before invalidating the security cache, so that entries
+            // reloaded after this invalidation see the new members of the group. The original document is checked as
+            // well to also catch removed groups.
+            if (isGroupDocument(source) || isGroupDocument(((XWikiDocument) source).getOriginalDocument())) {
+                this.membershipIndex.invalidate(ref.getWikiReference());
+            }
+            // The document might be a modified or deleted user or group, whose memberships are reloaded when needed
+            this.membershipIndex.invalidate(ref);
             deliverUpdateEvent(ref);
             if (isGroupDocument(source)) {
                 // When a group receive a new member, the update event is triggered and the above invalidate the group
@@ -57,6 +57,10 @@ public class DefaultUserBridge implements UserBridge
     @Inject
     private Execution execution;
 
+    /** The groups already resolved for each member. */
+    @Inject
+    private GroupMembershipIndex membershipIndex;
+
     /**
      * @return the current {@code XWikiContext}
      */
@@ -75,7 +79,8 @@ public Collection<GroupSecurityReference> getAllGroupsFor(UserSecurityReference
             return Collections.emptyList();
         }
 
-        Collection<DocumentReference> groupRefs = getGroupsReferencesFor(wikiReference, userRef);
+        Collection<DocumentReference> groupRefs = this.membershipIndex.getGroups(wikiReference, userRef,
+            () -> getGroupsReferencesFor(wikiReference, userRef));
 
         Collection<GroupSecurityReference> groups = new ArrayList<GroupSecurityReference>(groupRefs.size());
         for (DocumentReference groupRef : groupRefs) {
@@ -0,0 +1,186 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.security.internal;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.xwiki.cache.Cache;
+import org.xwiki.cache.CacheManager;
+import org.xwiki.cache.config.CacheConfiguration;
+import org.xwiki.cache.eviction.LRUEvictionConfiguration;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLifecycleException;
+import org.xwiki.component.phase.Disposable;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.security.authorization.AuthorizationException;
+
+/**
+ * Keep, for each wiki, the groups of that wiki each user or group is directly a member of. Resolving the groups of a
+ * member requires a database query, and the same group hierarchy is walked again for every user entering the security
+ * cache, so the result is shared here until a group document of the wiki is modified.
+ *
+ * @version $Id$
+ * @since 11.0RC1
+ */
+@Component(roles = GroupMembershipIndex.class)
+@Singleton
+public class GroupMembershipIndex implements Initializable, Disposable
+{
+    private static final String CACHE_ID = "platform.security.groupmemberships";
+
+    private static final int DEFAULT_CAPACITY = 10000;
+
+    /**
+     * Resolve the groups a member is directly part of when they are not found in the index.
+     *
+     * @version $Id$
+     */
+    @FunctionalInterface
+    public interface GroupsLoader
+    {
+        /**
+         * @return the groups the member is directly part of
+         * @throws AuthorizationException when failing to resolve the groups
+         */
+        Collection<DocumentReference> load() throws AuthorizationException;
+    }
+
+    /**
+     * The groups of a member, with the version of the wiki memberships they were resolved from.
+     */
+    private static final class Membership
+    {
+        private final long version;
+
+        private final Collection<DocumentReference> groups;
+
+        private Membership(long version, Collection<DocumentReference> groups)
+        {
+            this.version = version;
+            this.groups = groups;
+        }
+    }
+
+    @Inject
+    private CacheManager cacheManager;
+
+    @Inject
+    private EntityReferenceSerializer<String> serializer;
+
+    private Cache<Membership> cache;
+
+    /**
+     * The version of the memberships of each wiki, incremented each time a group of the wiki is modified. There is one
+     * entry per wiki, so this map stays small.
+     */
+    private final Map<WikiReference, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    @Override
+    public void initialize() throws InitializationException
+    {
+        CacheConfiguration cacheConfig = new CacheConfiguration();
+        cacheConfig.setConfigurationId(CACHE_ID);
+        LRUEvictionConfiguration lru = new LRUEvictionConfiguration();
+        lru.setMaxEntries(DEFAULT_CAPACITY);
+        cacheConfig.put(LRUEvictionConfiguration.CONFIGURATIONID, lru);
+        try {
+            this.cache = this.cacheManager.createNewCache(cacheConfig);
+        } catch (Exception e) {
+            throw new InitializationException("Failed to create the group membership cache", e);
+        }
+    }
+
+    @Override
+    public void dispose() throws ComponentLifecycleException
+    {
+        this.cache.dispose();
+    }
+
+    private AtomicLong getVersion(WikiReference wiki)
+    {
+        return this.versions.computeIfAbsent(wiki, key -> new AtomicLong());
+    }
+
+    private String getKey(WikiReference wiki, DocumentReference member)
+    {
+        // Prefix the wiki name with its length so that the key cannot be ambiguous
+        return wiki.getName().length() + wiki.getName() + this.serializer.serialize(member);
+    }
+
+    /**
+     * A membership resolved before an invalidation of the wiki is never returned afterward, even when it's stored in
+     * the index after the invalidation.
+     *
+     * @param wiki the wiki where the groups are located
+     * @param member the user or group reference
+     * @param loader used to resolve the groups of the member when they are not in the index
+     * @return the groups of the passed wiki the member is directly part of
+     * @throws AuthorizationException when failing to resolve the groups
+     */
+    public Collection<DocumentReference> getGroups(WikiReference wiki, DocumentReference member, GroupsLoader loader)
+        throws AuthorizationException
+    {
+        // Remember the version before resolving the groups so that a concurrent invalidation makes them outdated
+        long version = getVersion(wiki).get();
+
+        String key = getKey(wiki, member);
+        Membership membership = this.cache.get(key);
+        if (membership == null || membership.version != version) {
+            membership = new Membership(version, Collections.unmodifiableCollection(loader.load()));
+            this.cache.set(key, membership);
+        }
+
+        return membership.groups;
+    }
+
+    /**
+     * Forget all the memberships known for the passed wiki, usually because one of its groups has been modified.
+     *
+     * @param wiki the wiki where the groups are located
+     */
+    public void invalidate(WikiReference wiki)
+    {
+        getVersion(wiki).incrementAndGet();
+    }
+
+    /**
+     * Forget the memberships of the passed user or group in all wikis, usually because its document has been modified
+     * or deleted.
+     *
+     * @param member the user or group reference
+     */
+    public void invalidate(DocumentReference member)
+    {
+        for (WikiReference wiki : this.versions.keySet()) {
+            this.cache.remove(getKey(wiki, member));
+        }
+    }
+}
@@ -19,10 +19,15 @@
  */
 package org.xwiki.security.authorization.internal;
 
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReference;
 import org.xwiki.model.reference.LocalDocumentReference;
 import org.xwiki.model.reference.WikiReference;
 import org.xwiki.security.authorization.AuthorizationManager;
@@ -33,10 +38,12 @@
 import com.xpn.xwiki.test.MockitoOldcoreRule;
 import com.xpn.xwiki.test.reference.ReferenceComponentList;
 
+import static org.junit.Assert.assertEquals;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.ArgumentMatchers.same;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 /**
  * Validate {@link DefaultContextualAuthorizationManager}.
@@ -88,4 +95,26 @@ public void hasAccess() throws Exception
         verify(this.authorizationManager).hasAccess(same(Right.VIEW), isNull(DocumentReference.class),
             eq(new DocumentReference(localReference, this.currentWikiReference)));
     }
+
+    @Test
+    public void hasAccesses() throws Exception
+    {
+        LocalDocumentReference localReference1 = new LocalDocumentReference("space", "page1");
+        LocalDocumentReference localReference2 = new LocalDocumentReference("space", "page2");
+        DocumentReference reference1 = new DocumentReference(localReference1, this.currentWikiReference);
+        DocumentReference reference2 = new DocumentReference(localReference2, this.currentWikiReference);
+
+        Map<EntityReference, Boolean> fullAccesses = new HashMap<>();
+        fullAccesses.put(reference1, true);
+        fullAccesses.put(reference2, false);
+        when(this.authorizationManager.hasAccesses(same(Right.VIEW), isNull(DocumentReference.class),
+            eq(Arrays.asList(reference1, reference2)))).thenReturn(fullAccesses);
+
+        Map<EntityReference, Boolean> accesses = this.mocker.getComponentUnderTest().hasAccesses(Right.VIEW,
+            Arrays.asList(localReference1, localReference2));
+
+        assertEquals(Arrays.asList(localReference1, localReference2), Arrays.asList(accesses.keySet().toArray()));
+        assertEquals(true, accesses.get(localReference1));
+        assertEquals(false, accesses.get(localReference2));
+    }
 }
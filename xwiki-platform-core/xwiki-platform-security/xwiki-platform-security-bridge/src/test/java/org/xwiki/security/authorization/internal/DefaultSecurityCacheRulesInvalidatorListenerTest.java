@@ -0,0 +1,158 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.security.authorization.internal;
+
+import java.util.Arrays;
+
+import javax.inject.Provider;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.bridge.event.DocumentCreatedEvent;
+import org.xwiki.bridge.event.DocumentDeletedEvent;
+import org.xwiki.bridge.event.DocumentUpdatedEvent;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.security.internal.GroupMembershipIndex;
+import org.xwiki.security.internal.XWikiConstants;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import com.xpn.xwiki.XWiki;
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.objects.BaseObject;
+import com.xpn.xwiki.user.api.XWikiGroupService;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate the invalidation of the group memberships by {@link DefaultSecurityCacheRulesInvalidatorListener}.
+ * 
+ * @version $Id$
+ */
+@ComponentTest
+public class DefaultSecurityCacheRulesInvalidatorListenerTest
+{
+    private static final WikiReference WIKI = new WikiReference("wiki");
+
+    private static final DocumentReference GROUP = new DocumentReference("wiki", "XWiki", "group");
+
+    private static final DocumentReference USER = new DocumentReference("wiki", "XWiki", "user");
+
+    private static final DocumentReference GROUP_CLASS = new DocumentReference("wiki", "XWiki", "XWikiGroups");
+
+    @MockComponent
+    private GroupMembershipIndex membershipIndex;
+
+    @MockComponent
+    private DocumentReferenceResolver<String> resolver;
+
+    @MockComponent
+    private Provider<XWikiContext> xcontextProvider;
+
+    @InjectMockComponents
+    private DefaultSecurityCacheRulesInvalidatorListener listener;
+
+    @BeforeEach
+    public void beforeEach() throws Exception
+    {
+        when(this.resolver.resolve(XWikiConstants.GROUP_CLASS, GROUP)).thenReturn(GROUP_CLASS);
+        when(this.resolver.resolve(XWikiConstants.GROUP_CLASS, USER)).thenReturn(GROUP_CLASS);
+
+        XWikiContext xcontext = mock(XWikiContext.class);
+        when(this.xcontextProvider.get()).thenReturn(xcontext);
+        XWiki xwiki = mock(XWiki.class);
+        when(xcontext.getWiki()).thenReturn(xwiki);
+        when(xwiki.getGroupService(xcontext)).thenReturn(mock(XWikiGroupService.class));
+    }
+
+    private XWikiDocument mockDocument(DocumentReference reference, boolean group, boolean originalGroup)
+    {
+        XWikiDocument document = mockDocument(reference, group);
+        XWikiDocument originalDocument = mockDocument(reference, originalGroup);
+        when(document.getOriginalDocument()).thenReturn(originalDocument);
+
+        return document;
+    }
+
+    private XWikiDocument mockDocument(DocumentReference reference, boolean group)
+    {
+        XWikiDocument document = mock(XWikiDocument.class);
+        when(document.getDocumentReference()).thenReturn(reference);
+        if (group) {
+            when(document.getXObjects(GROUP_CLASS)).thenReturn(Arrays.asList(mock(BaseObject.class)));
+        }
+
+        return document;
+    }
+
+    @Test
+    public void onGroupCreated()
+    {
+        this.listener.onEvent(new DocumentCreatedEvent(), mockDocument(GROUP, true, false), null);
+
+        verify(this.membershipIndex).invalidate(WIKI);
+        verify(this.membershipIndex).invalidate(GROUP);
+    }
+
+    @Test
+    public void onGroupUpdated()
+    {
+        this.listener.onEvent(new DocumentUpdatedEvent(), mockDocument(GROUP, true, true), null);
+
+        verify(this.membershipIndex).invalidate(WIKI);
+        verify(this.membershipIndex).invalidate(GROUP);
+    }
+
+    @Test
+    public void onGroupDeleted()
+    {
+        // The deleted document is empty, only the original document holds the group
+        this.listener.onEvent(new DocumentDeletedEvent(), mockDocument(GROUP, false, true), null);
+
+        verify(this.membershipIndex).invalidate(WIKI);
+        verify(this.membershipIndex).invalidate(GROUP);
+    }
+
+    @Test
+    public void onUserUpdated()
+    {
+        this.listener.onEvent(new DocumentUpdatedEvent(), mockDocument(USER, false, false), null);
+
+        verify(this.membershipIndex, never()).invalidate(any(WikiReference.class));
+        verify(this.membershipIndex).invalidate(USER);
+    }
+
+    @Test
+    public void onUserDeleted()
+    {
+        this.listener.onEvent(new DocumentDeletedEvent(), mockDocument(USER, false, false), null);
+
+        verify(this.membershipIndex, never()).invalidate(any(WikiReference.class));
+        verify(this.membershipIndex).invalidate(USER);
+    }
+}
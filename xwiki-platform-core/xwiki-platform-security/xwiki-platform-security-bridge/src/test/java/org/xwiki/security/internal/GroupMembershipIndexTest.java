@@ -0,0 +1,167 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.security.internal;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.xwiki.cache.CacheException;
+import org.xwiki.cache.CacheManager;
+import org.xwiki.cache.config.CacheConfiguration;
+import org.xwiki.cache.eviction.LRUEvictionConfiguration;
+import org.xwiki.cache.internal.MapCache;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.security.internal.GroupMembershipIndex.GroupsLoader;
+import org.xwiki.test.annotation.BeforeComponent;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link GroupMembershipIndex}.
+ * 
+ * @version $Id$
+ */
+@ComponentTest
+public class GroupMembershipIndexTest
+{
+    private static final WikiReference WIKI = new WikiReference("wiki");
+
+    private static final WikiReference OTHER_WIKI = new WikiReference("otherwiki");
+
+    private static final DocumentReference USER = new DocumentReference("xwiki", "XWiki", "user");
+
+    private static final Collection<DocumentReference> GROUPS =
+        Arrays.asList(new DocumentReference("wiki", "XWiki", "group"));
+
+    @MockComponent
+    private CacheManager cacheManager;
+
+    @MockComponent
+    private EntityReferenceSerializer<String> serializer;
+
+    @InjectMockComponents
+    private GroupMembershipIndex index;
+
+    private MapCache<Object> cache = new MapCache<>();
+
+    private GroupsLoader loader;
+
+    private GroupsLoader otherLoader;
+
+    @BeforeComponent
+    public void beforeComponent() throws CacheException
+    {
+        when(this.cacheManager.createNewCache(any())).thenReturn(this.cache);
+    }
+
+    @BeforeEach
+    public void beforeEach() throws Exception
+    {
+        when(this.serializer.serialize(any())).thenAnswer(invocation -> invocation.getArgument(0).toString());
+
+        this.loader = mock(GroupsLoader.class);
+        when(this.loader.load()).thenReturn(GROUPS);
+        this.otherLoader = mock(GroupsLoader.class);
+        when(this.otherLoader.load()).thenReturn(Collections.emptyList());
+    }
+
+    @Test
+    public void cacheIsBounded() throws Exception
+    {
+        ArgumentCaptor<CacheConfiguration> configurationCaptor = ArgumentCaptor.forClass(CacheConfiguration.class);
+        verify(this.cacheManager).createNewCache(configurationCaptor.capture());
+
+        LRUEvictionConfiguration lru =
+            (LRUEvictionConfiguration) configurationCaptor.getValue().get(LRUEvictionConfiguration.CONFIGURATIONID);
+        assertTrue(lru.getMaxEntries() > 0);
+    }
+
+    @Test
+    public void getGroupsLoadsOnce() throws Exception
+    {
+        assertEquals(GROUPS, this.index.getGroups(WIKI, USER, this.loader));
+        assertEquals(GROUPS, this.index.getGroups(WIKI, USER, this.loader));
+
+        verify(this.loader, times(1)).load();
+    }
+
+    @Test
+    public void invalidateWiki() throws Exception
+    {
+        this.index.getGroups(WIKI, USER, this.loader);
+        this.index.getGroups(OTHER_WIKI, USER, this.otherLoader);
+
+        this.index.invalidate(WIKI);
+
+        assertEquals(GROUPS, this.index.getGroups(WIKI, USER, this.loader));
+        assertEquals(Collections.emptyList(), this.index.getGroups(OTHER_WIKI, USER, this.otherLoader));
+
+        verify(this.loader, times(2)).load();
+        verify(this.otherLoader, times(1)).load();
+    }
+
+    @Test
+    public void invalidateMember() throws Exception
+    {
+        this.index.getGroups(WIKI, USER, this.loader);
+        this.index.getGroups(OTHER_WIKI, USER, this.otherLoader);
+
+        this.index.invalidate(USER);
+
+        this.index.getGroups(WIKI, USER, this.loader);
+        this.index.getGroups(OTHER_WIKI, USER, this.otherLoader);
+
+        verify(this.loader, times(2)).load();
+        verify(this.otherLoader, times(2)).load();
+    }
+
+    @Test
+    public void invalidateWikiWhileLoading() throws Exception
+    {
+        // A group of the wiki is modified while the groups of the user are being resolved
+        when(this.loader.load()).thenAnswer(invocation -> {
+            this.index.invalidate(WIKI);
+            return GROUPS;
+        }).thenReturn(GROUPS);
+
+        this.index.getGroups(WIKI, USER, this.loader);
+
+        // The groups resolved before the modification are outdated
+        this.index.getGroups(WIKI, USER, this.loader);
+        this.index.getGroups(WIKI, USER, this.loader);
+
+        verify(this.loader, times(2)).load();
+    }
+}
@@ -19,6 +19,9 @@
  */
 package org.xwiki.security.authorization.script;
 
+import java.util.Collection;
+import java.util.Map;
+
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
@@ -32,6 +35,7 @@
 import org.xwiki.security.authorization.ContextualAuthorizationManager;
 import org.xwiki.security.authorization.Right;
 import org.xwiki.security.script.SecurityScriptService;
+import org.xwiki.stability.Unstable;
 
 /**
  * Security Authorization Script Service.
@@ -113,6 +117,23 @@ public boolean hasAccess(Right right, EntityReference entityReference)
         return contextualAuthorizationManager.hasAccess(right, entityReference);
     }
 
+    /**
+     * Verifies if access identified by {@code right} on each of the given entities would be allowed in the current
+     * context. This is faster than calling {@link #hasAccess(Right, EntityReference)} for each entity, for example
+     * when filtering the results of a query.
+     * This function should be used for interface matters, use {@link #checkAccess} at security checkpoints.
+     *
+     * @param right the right to check.
+     * @param entityReferences the entities on which to check the right
+     * @return for each passed entity, {@code true} if the access is allowed, {@code false} otherwise
+     * @since 11.0RC1
+     */
+    @Unstable
+    public Map<EntityReference, Boolean> hasAccesses(Right right, Collection<EntityReference> entityReferences)
+    {
+        return contextualAuthorizationManager.hasAccesses(right, entityReferences);
+    }
+
     /**
      * Check if the user identified by {@code userReference} has the access identified by {@code right} on the
      * entity identified by {@code entityReference}. Note that some rights may be checked higher in hierarchy of the
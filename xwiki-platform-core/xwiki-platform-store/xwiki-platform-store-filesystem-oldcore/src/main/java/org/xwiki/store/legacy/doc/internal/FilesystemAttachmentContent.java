@@ -131,4 +131,14 @@ public long getLongSize()
 
         return this.storageFile.length();
     }
+
+    @Override
+    public File getFile()
+    {
+        if (this.getFileItem() != null) {
+            return super.getFile();
+        }
+
+        return this.storageFile;
+    }
 }